@@ -1,5 +1,5 @@
 /*
- * Copyright © 2018 Apple Inc. and the ServiceTalk project authors
+ * Copyright © 2018-2021 Apple Inc. and the ServiceTalk project authors
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -22,6 +22,7 @@ import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.Fork;
 import org.openjdk.jmh.annotations.Level;
 import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
@@ -52,6 +53,13 @@ public class AsyncContextMapBenchmark {
     private static final Key<String> K6 = newKey("k6");
     private static final Key<String> K7 = newKey("k7");
     private static final Key<String> K8 = newKey("k8");
+    private static final Key<?>[] KEYS = new Key<?>[64];
+
+    static {
+        for (int i = 0; i < KEYS.length; ++i) {
+            KEYS[i] = newKey("key" + i);
+        }
+    }
 
     @Setup(Level.Invocation)
     public final void setup() {
@@ -108,6 +116,25 @@ public class AsyncContextMapBenchmark {
         AsyncContext.removeAll(FourList.INSTANCE);
     }
 
+    @Benchmark
+    public void putGetMany(final KeyCount keyCount) {
+        final int count = keyCount.count;
+        for (int i = 0; i < count; ++i) {
+            @SuppressWarnings("unchecked")
+            final Key<Integer> key = (Key<Integer>) KEYS[i];
+            AsyncContext.put(key, i);
+        }
+        for (int i = 0; i < count; ++i) {
+            AsyncContext.get(KEYS[i]);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class KeyCount {
+        @Param({"1", "2", "4", "8", "16", "32", "64"})
+        int count;
+    }
+
     private static final class FourList extends AbstractList<Key<?>> {
         static final List<Key<?>> INSTANCE = new FourList();
 
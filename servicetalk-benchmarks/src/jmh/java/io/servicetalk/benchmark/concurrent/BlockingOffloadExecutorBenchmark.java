@@ -0,0 +1,91 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.benchmark.concurrent;
+
+import io.servicetalk.concurrent.api.AsyncContext;
+import io.servicetalk.concurrent.api.AsyncContextMap;
+import io.servicetalk.concurrent.api.Executor;
+import io.servicetalk.concurrent.api.Executors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.CountDownLatch;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Offloads many concurrent blocking tasks, like blocking services handling concurrent requests, to compare the
+ * pooled executor with the virtual thread executor.
+ * <p>
+ * The {@code virtual} executor requires Java 21+.
+ */
+@Fork(1)
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class BlockingOffloadExecutorBenchmark {
+    private static final AsyncContextMap.Key<String> KEY = AsyncContextMap.Key.newKey("benchmark-key");
+
+    @Param({"cached", "virtual"})
+    public String executorType;
+
+    @Param({"100", "1000"})
+    public int concurrentTasks;
+
+    @Param({"1"})
+    public long blockingMs;
+
+    private Executor executor;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        executor = "virtual".equals(executorType) ? Executors.newVirtualThreadExecutor() :
+                Executors.newCachedThreadExecutor();
+        AsyncContext.put(KEY, "value");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        executor.closeAsync().toFuture().get();
+    }
+
+    @Benchmark
+    public void offloadBlockingTasks(final Blackhole blackhole) throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(concurrentTasks);
+        for (int i = 0; i < concurrentTasks; ++i) {
+            executor.execute(() -> {
+                try {
+                    MILLISECONDS.sleep(blockingMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                blackhole.consume(AsyncContext.get(KEY));
+                latch.countDown();
+            });
+        }
+        latch.await();
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.benchmark.concurrent;
+
+import io.servicetalk.concurrent.api.Executor;
+import io.servicetalk.concurrent.api.Executors;
+import io.servicetalk.concurrent.api.Publisher;
+import io.servicetalk.concurrent.api.internal.OffloaderAwareExecutor;
+import io.servicetalk.concurrent.internal.SignalOffloaderFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static io.servicetalk.concurrent.api.Publisher.range;
+import static io.servicetalk.concurrent.internal.SignalOffloaders.batchingOffloaderFactory;
+import static io.servicetalk.concurrent.internal.SignalOffloaders.taskBasedOffloaderFactory;
+import static io.servicetalk.concurrent.internal.SignalOffloaders.threadBasedOffloaderFactory;
+
+/**
+ * Throughput of a streaming {@link Publisher} whose signals are offloaded, like the payload body of a streaming
+ * response, with the different {@link SignalOffloaderFactory}s.
+ */
+@Fork(1)
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 3)
+@Measurement(iterations = 5, time = 3)
+public class OffloadedPublisherBenchmark {
+    @Param({"task", "batching", "thread"})
+    public String offloader;
+
+    @Param({"16", "1024"})
+    public int items;
+
+    private Executor executor;
+    private Publisher<Integer> publisher;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        executor = new OffloaderAwareExecutor(Executors.newCachedThreadExecutor(), offloaderFactory(offloader));
+        publisher = range(0, items).publishOn(executor);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        executor.closeAsync().toFuture().get();
+    }
+
+    @Benchmark
+    public int publishOn() throws Exception {
+        return publisher.toFuture().get().size();
+    }
+
+    private static SignalOffloaderFactory offloaderFactory(final String offloader) {
+        switch (offloader) {
+            case "task":
+                return taskBasedOffloaderFactory();
+            case "batching":
+                return batchingOffloaderFactory();
+            case "thread":
+                return threadBasedOffloaderFactory();
+            default:
+                throw new IllegalArgumentException("Unknown offloader: " + offloader);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.benchmark.concurrent;
+
+import org.openjdk.jmh.annotations.Fork;
+
+/**
+ * Runs the {@link AsyncContextMapBenchmark} with the persistent hash trie based {@code AsyncContextMap}.
+ */
+@Fork(value = 2, jvmArgsAppend = "-Dio.servicetalk.concurrent.api.asyncContextMap=trie")
+public class TrieAsyncContextMapBenchmark extends AsyncContextMapBenchmark {
+}
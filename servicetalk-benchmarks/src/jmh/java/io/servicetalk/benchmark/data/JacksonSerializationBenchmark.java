@@ -0,0 +1,126 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.benchmark.data;
+
+import io.servicetalk.buffer.api.Buffer;
+import io.servicetalk.data.jackson.JacksonSerializationProvider;
+import io.servicetalk.serialization.api.StreamingDeserializer;
+import io.servicetalk.serialization.api.StreamingSerializer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+
+import static io.servicetalk.buffer.netty.BufferAllocators.DEFAULT_ALLOCATOR;
+
+/**
+ * Measures {@link JacksonSerializationProvider} serialization and streaming deserialization of heap and direct
+ * {@link Buffer}s.
+ */
+@Fork(value = 1)
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 3)
+@Measurement(iterations = 5, time = 3)
+@BenchmarkMode(Mode.Throughput)
+public class JacksonSerializationBenchmark {
+    private static final int STREAMING_CHUNK_SIZE = 1024;
+
+    @Param({"1", "100"})
+    private int items;
+    @Param({"false", "true"})
+    private boolean direct;
+
+    private final JacksonSerializationProvider provider = new JacksonSerializationProvider();
+    private final List<Buffer> chunks = new ArrayList<>();
+    @Nullable
+    private StreamingSerializer serializer;
+    @Nullable
+    private Item[] value;
+    @Nullable
+    private Buffer serialized;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        serializer = provider.getSerializer(Item[].class);
+        value = new Item[items];
+        for (int i = 0; i < items; ++i) {
+            value[i] = new Item(i, "item-" + i, i % 2 == 0, new long[] {i, i * 31L, i * 1021L});
+        }
+        final Buffer heap = DEFAULT_ALLOCATOR.newBuffer();
+        serializer.serialize(value, heap);
+        serialized = DEFAULT_ALLOCATOR.newBuffer(heap.readableBytes(), direct).writeBytes(heap.duplicate());
+        for (int i = heap.readerIndex(); i < heap.writerIndex(); i += STREAMING_CHUNK_SIZE) {
+            final int length = Math.min(STREAMING_CHUNK_SIZE, heap.writerIndex() - i);
+            chunks.add(DEFAULT_ALLOCATOR.newBuffer(length, direct).writeBytes(heap, i, length));
+        }
+    }
+
+    @Benchmark
+    public Buffer serialize() {
+        assert serializer != null && value != null;
+        final Buffer buffer = DEFAULT_ALLOCATOR.newBuffer(256, direct);
+        serializer.serialize(value, buffer);
+        return buffer;
+    }
+
+    @Benchmark
+    public Iterable<Item[]> deserialize() {
+        assert serialized != null;
+        final StreamingDeserializer<Item[]> deserializer = provider.getDeserializer(Item[].class);
+        return deserializer.deserialize(serialized.duplicate());
+    }
+
+    @Benchmark
+    public Iterable<Item[]> deserializeStreaming() {
+        final StreamingDeserializer<Item[]> deserializer = provider.getDeserializer(Item[].class);
+        final List<Buffer> duplicates = new ArrayList<>(chunks.size());
+        for (Buffer chunk : chunks) {
+            duplicates.add(chunk.duplicate());
+        }
+        return deserializer.deserialize(duplicates);
+    }
+
+    public static final class Item {
+        public int id;
+        @Nullable
+        public String name;
+        public boolean active;
+        @Nullable
+        public long[] values;
+
+        public Item() {
+        }
+
+        Item(final int id, final String name, final boolean active, final long[] values) {
+            this.id = id;
+            this.name = name;
+            this.active = active;
+            this.values = values;
+        }
+    }
+}
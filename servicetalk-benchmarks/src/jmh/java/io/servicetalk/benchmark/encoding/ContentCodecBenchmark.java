@@ -0,0 +1,144 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.benchmark.encoding;
+
+import io.servicetalk.buffer.api.Buffer;
+import io.servicetalk.encoding.api.ContentCodec;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import javax.annotation.Nullable;
+
+import static io.servicetalk.buffer.netty.BufferAllocators.DEFAULT_ALLOCATOR;
+import static io.servicetalk.concurrent.api.Publisher.fromIterable;
+import static io.servicetalk.encoding.api.ContentCodings.deflateDefault;
+import static io.servicetalk.encoding.api.ContentCodings.gzipDefault;
+import static io.servicetalk.encoding.lz4.Lz4ContentCodings.lz4Default;
+import static io.servicetalk.encoding.zstd.ZstdContentCodings.zstdDefault;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+/**
+ * Compares the throughput of {@link ContentCodec}s. The compression ratio is reported through the
+ * {@code encodedBytes} counter, the number of bytes the {@link #payloadSize} bytes were encoded into.
+ */
+@Fork(value = 1)
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 3)
+@Measurement(iterations = 5, time = 3)
+@BenchmarkMode(Mode.Throughput)
+public class ContentCodecBenchmark {
+    private static final int STREAMING_CHUNK_SIZE = 8 << 10;
+
+    @Param({"gzip", "deflate", "zstd", "lz4"})
+    private String codecName;
+    @Param({"1024", "65536", "1048576"})
+    private int payloadSize;
+    @Param({"text", "random"})
+    private String payloadType;
+
+    @Nullable
+    private ContentCodec codec;
+    @Nullable
+    private Buffer payload;
+    @Nullable
+    private Buffer encoded;
+    private final List<Buffer> chunks = new ArrayList<>();
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Ratio {
+        public long encodedBytes;
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        codec = codec(codecName);
+        final byte[] bytes = "text".equals(payloadType) ? text(payloadSize) : random(payloadSize);
+        payload = DEFAULT_ALLOCATOR.wrap(bytes);
+        encoded = codec.encode(payload.duplicate(), DEFAULT_ALLOCATOR);
+        for (int i = 0; i < bytes.length; i += STREAMING_CHUNK_SIZE) {
+            chunks.add(DEFAULT_ALLOCATOR.wrap(bytes, i, Math.min(STREAMING_CHUNK_SIZE, bytes.length - i)));
+        }
+    }
+
+    @Benchmark
+    public Buffer encode(final Ratio ratio) {
+        assert codec != null && payload != null;
+        final Buffer result = codec.encode(payload.duplicate(), DEFAULT_ALLOCATOR);
+        ratio.encodedBytes = result.readableBytes();
+        return result;
+    }
+
+    @Benchmark
+    public Buffer decode() {
+        assert codec != null && encoded != null;
+        return codec.decode(encoded.duplicate(), DEFAULT_ALLOCATOR);
+    }
+
+    @Benchmark
+    public long encodeStreaming() throws Exception {
+        assert codec != null;
+        return codec.encode(fromIterable(chunks).map(Buffer::duplicate), DEFAULT_ALLOCATOR)
+                .collect(() -> 0L, (count, buffer) -> count + buffer.readableBytes()).toFuture().get();
+    }
+
+    private static ContentCodec codec(final String name) {
+        switch (name) {
+            case "gzip":
+                return gzipDefault();
+            case "deflate":
+                return deflateDefault();
+            case "zstd":
+                return zstdDefault();
+            case "lz4":
+                return lz4Default();
+            default:
+                throw new IllegalArgumentException("Unknown codec: " + name);
+        }
+    }
+
+    private static byte[] text(final int length) {
+        // JSON like, repetitive payload typical for service to service traffic.
+        final Random random = new Random(0);
+        final StringBuilder sb = new StringBuilder(length);
+        while (sb.length() < length) {
+            sb.append("{\"id\":").append(random.nextInt(100_000))
+                    .append(",\"name\":\"user-").append(random.nextInt(1000))
+                    .append("\",\"active\":").append(random.nextBoolean()).append("},");
+        }
+        return sb.substring(0, length).getBytes(US_ASCII);
+    }
+
+    private static byte[] random(final int length) {
+        final byte[] bytes = new byte[length];
+        new Random(0).nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,309 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.benchmark.http;
+
+import io.servicetalk.buffer.api.Buffer;
+import io.servicetalk.concurrent.BlockingIterator;
+import io.servicetalk.concurrent.api.AsyncContext;
+import io.servicetalk.http.api.BlockingHttpClient;
+import io.servicetalk.http.api.BlockingStreamingHttpClient;
+import io.servicetalk.http.api.BlockingStreamingHttpResponse;
+import io.servicetalk.http.api.HttpClient;
+import io.servicetalk.http.api.HttpExecutionStrategy;
+import io.servicetalk.http.api.HttpPayloadWriter;
+import io.servicetalk.http.api.HttpProtocolConfig;
+import io.servicetalk.http.api.HttpResponse;
+import io.servicetalk.http.api.HttpServerBuilder;
+import io.servicetalk.http.api.SingleAddressHttpClientBuilder;
+import io.servicetalk.http.api.StreamingHttpClient;
+import io.servicetalk.http.netty.HttpClients;
+import io.servicetalk.http.netty.HttpServers;
+import io.servicetalk.transport.api.DomainSocketAddress;
+import io.servicetalk.transport.api.ServerContext;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static io.servicetalk.buffer.api.ReadOnlyBufferAllocators.DEFAULT_RO_ALLOCATOR;
+import static io.servicetalk.concurrent.api.Publisher.from;
+import static io.servicetalk.concurrent.api.Single.succeeded;
+import static io.servicetalk.http.api.HttpExecutionStrategies.defaultStrategy;
+import static io.servicetalk.http.api.HttpExecutionStrategies.noOffloadsStrategy;
+import static io.servicetalk.http.netty.HttpProtocolConfigs.h1Default;
+import static io.servicetalk.http.netty.HttpProtocolConfigs.h2Default;
+import static io.servicetalk.transport.netty.internal.GlobalExecutionContext.globalExecutionContext;
+import static java.util.Collections.singletonList;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+
+/*
+ * End-to-end benchmark of a request/response round trip through HttpClients and HttpServers over loopback TCP or
+ * UDS. Client and server use the same programming model, the server echoes the request payload body.
+ *
+ * Async models keep "concurrency" requests in flight per invocation, blocking models issue them from a thread pool
+ * of the same size. UDS requires a native transport (epoll or kqueue) and is not run by default, select it via JMH
+ * parameters (e.g. "-p transport=UDS").
+ */
+@Fork(value = 1)
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 3)
+@Measurement(iterations = 5, time = 3)
+@BenchmarkMode(Mode.Throughput)
+public class HttpClientServerBenchmark {
+    static {
+        AsyncContext.disable(); // reduce noise in benchmarks.
+    }
+
+    public enum Api {
+        AGGREGATED, STREAMING, BLOCKING, BLOCKING_STREAMING
+    }
+
+    public enum Protocol {
+        HTTP_1, HTTP_2
+    }
+
+    public enum Transport {
+        TCP, UDS
+    }
+
+    public enum Strategy {
+        NO_OFFLOAD, DEFAULT
+    }
+
+    @Param({"AGGREGATED", "STREAMING", "BLOCKING", "BLOCKING_STREAMING"})
+    public Api api;
+
+    @Param({"HTTP_1", "HTTP_2"})
+    public Protocol protocol;
+
+    @Param({"TCP"})
+    public Transport transport;
+
+    @Param({"NO_OFFLOAD", "DEFAULT"})
+    public Strategy strategy;
+
+    @Param({"0", "1024", "65536"})
+    public int payloadSize;
+
+    @Param({"1", "16"})
+    public int concurrency;
+
+    private byte[] payload;
+    private ServerContext serverContext;
+    private StreamingHttpClient client;
+    private HttpClient aggregatedClient;
+    private BlockingHttpClient blockingClient;
+    private BlockingStreamingHttpClient blockingStreamingClient;
+    private ExecutorService blockingExecutor;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        payload = new byte[payloadSize];
+        final HttpProtocolConfig config = protocol == Protocol.HTTP_2 ? h2Default() : h1Default();
+        final HttpExecutionStrategy executionStrategy = strategy == Strategy.NO_OFFLOAD ? noOffloadsStrategy() :
+                defaultStrategy();
+
+        final HttpServerBuilder serverBuilder = HttpServers.forAddress(bindAddress())
+                .protocols(config)
+                .executionStrategy(executionStrategy);
+        switch (api) {
+            case AGGREGATED:
+                serverContext = serverBuilder.listenAndAwait((ctx, request, responseFactory) ->
+                        succeeded(responseFactory.ok().payloadBody(request.payloadBody())));
+                break;
+            case STREAMING:
+                serverContext = serverBuilder.listenStreamingAndAwait((ctx, request, responseFactory) ->
+                        succeeded(responseFactory.ok().payloadBody(request.payloadBody())));
+                break;
+            case BLOCKING:
+                serverContext = serverBuilder.listenBlockingAndAwait((ctx, request, responseFactory) ->
+                        responseFactory.ok().payloadBody(request.payloadBody()));
+                break;
+            case BLOCKING_STREAMING:
+                serverContext = serverBuilder.listenBlockingStreamingAndAwait((ctx, request, response) -> {
+                    try (HttpPayloadWriter<Buffer> writer = response.sendMetaData()) {
+                        for (Buffer buffer : request.payloadBody()) {
+                            writer.write(buffer);
+                        }
+                    }
+                });
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown api: " + api);
+        }
+
+        final SingleAddressHttpClientBuilder<SocketAddress, SocketAddress> clientBuilder =
+                HttpClients.forResolvedAddress(serverContext.listenAddress())
+                        .protocols(config)
+                        .executionStrategy(executionStrategy);
+        switch (api) {
+            case AGGREGATED:
+                aggregatedClient = clientBuilder.build();
+                break;
+            case STREAMING:
+                client = clientBuilder.buildStreaming();
+                break;
+            case BLOCKING:
+                blockingClient = clientBuilder.buildBlocking();
+                break;
+            case BLOCKING_STREAMING:
+                blockingStreamingClient = clientBuilder.buildBlockingStreaming();
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown api: " + api);
+        }
+        if (concurrency > 1) {
+            blockingExecutor = newFixedThreadPool(concurrency);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        if (blockingExecutor != null) {
+            blockingExecutor.shutdown();
+        }
+        if (aggregatedClient != null) {
+            aggregatedClient.close();
+        }
+        if (client != null) {
+            client.close();
+        }
+        if (blockingClient != null) {
+            blockingClient.close();
+        }
+        if (blockingStreamingClient != null) {
+            blockingStreamingClient.close();
+        }
+        serverContext.close();
+    }
+
+    @Benchmark
+    public int roundTrip() throws Exception {
+        switch (api) {
+            case AGGREGATED:
+                return aggregated();
+            case STREAMING:
+                return streaming();
+            case BLOCKING:
+                return blocking(this::blockingRequest);
+            case BLOCKING_STREAMING:
+                return blocking(this::blockingStreamingRequest);
+            default:
+                throw new IllegalArgumentException("Unknown api: " + api);
+        }
+    }
+
+    private int aggregated() throws Exception {
+        final List<Future<HttpResponse>> responses = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; ++i) {
+            responses.add(aggregatedClient.request(aggregatedClient.post("/")
+                    .payloadBody(DEFAULT_RO_ALLOCATOR.wrap(payload))).toFuture());
+        }
+        int readableBytes = 0;
+        for (Future<HttpResponse> response : responses) {
+            readableBytes += response.get().payloadBody().readableBytes();
+        }
+        return readableBytes;
+    }
+
+    private int streaming() throws Exception {
+        final List<Future<Integer>> responses = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; ++i) {
+            responses.add(client.request(client.post("/").payloadBody(from(DEFAULT_RO_ALLOCATOR.wrap(payload))))
+                    .flatMap(response -> response.payloadBody()
+                            .collect(() -> 0, (count, buffer) -> count + buffer.readableBytes()))
+                    .toFuture());
+        }
+        int readableBytes = 0;
+        for (Future<Integer> response : responses) {
+            readableBytes += response.get();
+        }
+        return readableBytes;
+    }
+
+    private int blocking(final BlockingRequest request) throws Exception {
+        if (blockingExecutor == null) {
+            return request.execute();
+        }
+        final List<Future<Integer>> responses = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; ++i) {
+            responses.add(blockingExecutor.submit(request::execute));
+        }
+        int readableBytes = 0;
+        for (Future<Integer> response : responses) {
+            readableBytes += response.get();
+        }
+        return readableBytes;
+    }
+
+    private int blockingRequest() throws Exception {
+        return blockingClient.request(blockingClient.post("/").payloadBody(DEFAULT_RO_ALLOCATOR.wrap(payload)))
+                .payloadBody().readableBytes();
+    }
+
+    private int blockingStreamingRequest() throws Exception {
+        final BlockingStreamingHttpResponse response = blockingStreamingClient.request(
+                blockingStreamingClient.post("/").payloadBody(singletonList(DEFAULT_RO_ALLOCATOR.wrap(payload))));
+        int readableBytes = 0;
+        try (BlockingIterator<Buffer> iterator = response.payloadBody().iterator()) {
+            while (iterator.hasNext()) {
+                final Buffer buffer = iterator.next();
+                if (buffer != null) {
+                    readableBytes += buffer.readableBytes();
+                }
+            }
+        }
+        return readableBytes;
+    }
+
+    private SocketAddress bindAddress() throws Exception {
+        if (transport == Transport.TCP) {
+            return new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+        }
+        if (!globalExecutionContext().ioExecutor().isUnixDomainSocketSupported()) {
+            throw new IllegalStateException("UDS requires a native transport which is not available");
+        }
+        final File file = File.createTempFile("servicetalk", ".uds");
+        if (!file.delete()) {
+            throw new IllegalStateException("Unable to delete " + file + " before binding to it");
+        }
+        file.deleteOnExit();
+        return new DomainSocketAddress(file);
+    }
+
+    @FunctionalInterface
+    private interface BlockingRequest {
+        int execute() throws Exception;
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.transport.netty.internal;
+
+import io.servicetalk.concurrent.api.AsyncContext;
+import io.servicetalk.concurrent.api.Publisher;
+import io.servicetalk.transport.netty.internal.NoopTransportObserver.NoopWriteObserver;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.ReferenceCountUtil;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.annotation.Nullable;
+
+import static io.servicetalk.concurrent.api.Publisher.from;
+import static io.servicetalk.transport.netty.internal.Flush.composeFlushes;
+import static io.servicetalk.transport.netty.internal.FlushStrategies.adaptiveFlush;
+import static io.servicetalk.transport.netty.internal.FlushStrategies.flushOnEach;
+import static io.servicetalk.transport.netty.internal.FlushStrategies.flushOnEnd;
+
+/**
+ * Compares the number of flushes which write data to the transport for pipelined writes issued during a single event
+ * loop task. The {@code transportFlushes} counter reports the flushes per operation.
+ * <p>
+ * The writes go to an {@link EmbeddedChannel}, so this counts flushes rather than measuring system calls or their
+ * cost. With the NIO and epoll transports each of these flushes results in a {@code write}/{@code writev} system
+ * call, so the counts are a proxy for the syscall savings; the end-to-end effect has to be measured with a real
+ * transport, e.g. with pipelined requests against a server.
+ */
+@Fork(value = 1)
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 3)
+@Measurement(iterations = 5, time = 3)
+@BenchmarkMode(Mode.Throughput)
+public class FlushStrategyBenchmark {
+    static {
+        AsyncContext.disable(); // reduce noise in benchmarks.
+    }
+
+    private static final String[] ITEMS = {"headers", "payload", "trailers"};
+
+    @Param({"flushOnEach", "flushOnEnd", "adaptive"})
+    private String strategyName;
+    @Param({"1", "16"})
+    private int pipelinedWrites;
+
+    @Nullable
+    private FlushStrategy strategy;
+    @Nullable
+    private EmbeddedChannel channel;
+    @Nullable
+    private FlushCounter counter;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Flushes {
+        public long transportFlushes;
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        strategy = strategy(strategyName);
+        counter = new FlushCounter();
+        channel = new EmbeddedChannel(counter);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        assert channel != null;
+        channel.close();
+    }
+
+    @Benchmark
+    public void pipelinedWrites(final Flushes flushes) {
+        assert channel != null && strategy != null && counter != null;
+        final EmbeddedChannel channel = this.channel;
+        for (int i = 0; i < pipelinedWrites; ++i) {
+            final Publisher<String> items = from(ITEMS).beforeOnNext(channel::write);
+            composeFlushes(channel, items, strategy, NoopWriteObserver.INSTANCE).forEach(__ -> { });
+        }
+        // Tasks scheduled during the pipelined writes run when the event loop is done with the current task.
+        channel.runPendingTasks();
+        flushes.transportFlushes += counter.getAndReset();
+    }
+
+    private static FlushStrategy strategy(final String name) {
+        switch (name) {
+            case "flushOnEach":
+                return flushOnEach();
+            case "flushOnEnd":
+                return flushOnEnd();
+            case "adaptive":
+                return adaptiveFlush(Integer.MAX_VALUE);
+            default:
+                throw new IllegalArgumentException("Unknown strategy: " + name);
+        }
+    }
+
+    /**
+     * Discards writes and counts the flushes which would have written data to the transport.
+     */
+    private static final class FlushCounter extends ChannelOutboundHandlerAdapter {
+        private boolean unflushedWrites;
+        private long flushes;
+
+        @Override
+        public void write(final ChannelHandlerContext ctx, final Object msg, final ChannelPromise promise) {
+            ReferenceCountUtil.release(msg);
+            unflushedWrites = true;
+            promise.setSuccess();
+        }
+
+        @Override
+        public void flush(final ChannelHandlerContext ctx) {
+            if (unflushedWrites) {
+                unflushedWrites = false;
+                ++flushes;
+            }
+        }
+
+        long getAndReset() {
+            final long result = flushes;
+            flushes = 0;
+            return result;
+        }
+    }
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright © 2018 Apple Inc. and the ServiceTalk project authors
+ * Copyright © 2018-2021 Apple Inc. and the ServiceTalk project authors
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -28,7 +28,7 @@ final class BufferOutputStream extends OutputStream {
 
     @Override
     public void write(final int b) {
-        buffer.writeInt(b);
+        buffer.writeByte(b);
     }
 
     @Override
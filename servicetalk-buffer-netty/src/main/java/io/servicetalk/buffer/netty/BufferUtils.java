@@ -22,11 +22,16 @@ import io.servicetalk.buffer.api.EmptyBuffer;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.CompositeByteBuf;
 import io.netty.buffer.Unpooled;
+import io.netty.util.ResourceLeakDetector;
+
+import java.util.List;
 
 import javax.annotation.Nullable;
 
 import static io.netty.buffer.Unpooled.EMPTY_BUFFER;
+import static io.netty.buffer.Unpooled.wrappedBuffer;
 import static io.netty.util.internal.PlatformDependent.directBufferPreferred;
 
 /**
@@ -119,6 +124,51 @@ public final class BufferUtils {
         return new NettyBuffer<>(buffer);
     }
 
+    /**
+     * Releases the memory backing the passed {@link Buffer}, if it is reference counted.
+     * <p>
+     * {@link Buffer}s are not reference counted by default, and releasing them is a noop. Reference counted
+     * {@link Buffer}s are only emitted by transports which are explicitly configured to pass pooled memory through to
+     * the user, in which case each {@link Buffer} has to be released exactly once, either by calling this method or
+     * by writing it to a transport with the same configuration. Buffers which are not released are reported by
+     * Netty's {@link ResourceLeakDetector}.
+     *
+     * @param buffer the {@link Buffer} to release.
+     */
+    public static void release(Buffer buffer) {
+        final ByteBuf byteBuf = toByteBufNoThrow(buffer);
+        if (byteBuf instanceof UnreleasableCompositeByteBuf) {
+            // ServiceTalk composites can not be released, but they may aggregate reference counted components.
+            final CompositeByteBuf composite = (CompositeByteBuf) byteBuf;
+            for (int i = 0; i < composite.numComponents(); ++i) {
+                composite.component(i).release();
+            }
+        } else if (byteBuf != null) {
+            byteBuf.release();
+        }
+    }
+
+    /**
+     * Converts the passed {@code buffer} to a {@link ByteBuf} which owns the memory backing the {@code buffer}, or
+     * returns {@code null} if not possible. Releasing the returned {@link ByteBuf} is equivalent to
+     * {@link #release(Buffer) releasing} the {@code buffer}.
+     *
+     * @param buffer The {@link Buffer} to convert.
+     * @return a {@link ByteBuf} which owns the memory backing {@code buffer}, or {@code null} if no equivalent can be
+     * found.
+     */
+    @Nullable
+    public static ByteBuf toReleasableByteBufNoThrow(Buffer buffer) {
+        final ByteBuf byteBuf = toByteBufNoThrow(buffer);
+        if (byteBuf instanceof UnreleasableCompositeByteBuf) {
+            // Transfer ownership of the components into a releasable composite without copying.
+            final List<ByteBuf> components = ((CompositeByteBuf) byteBuf).decompose(byteBuf.readerIndex(),
+                    byteBuf.readableBytes());
+            return wrappedBuffer(components.size(), components.toArray(new ByteBuf[0]));
+        }
+        return byteBuf;
+    }
+
     /**
      * Calculate the max bytes length of UTF8 character sequence.
      * @param data the data to be encoded in UTF8.
@@ -0,0 +1,66 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.buffer.netty;
+
+import io.servicetalk.buffer.api.Buffer;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import static io.servicetalk.buffer.api.Buffer.asOutputStream;
+import static io.servicetalk.buffer.netty.BufferAllocators.DEFAULT_ALLOCATOR;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class BufferOutputStreamTest {
+
+    @Test
+    public void writeSingleBytes() throws IOException {
+        final Buffer buffer = DEFAULT_ALLOCATOR.newBuffer();
+        final OutputStream out = asOutputStream(buffer);
+        out.write('a');
+        out.write('b');
+        out.write('c');
+
+        assertThat(buffer.readableBytes(), is(3));
+        assertThat(buffer.toString(US_ASCII), is("abc"));
+    }
+
+    @Test
+    public void writeSingleByteIgnoresHighOrderBits() throws IOException {
+        final Buffer buffer = DEFAULT_ALLOCATOR.newBuffer();
+        asOutputStream(buffer).write(0x12345678);
+
+        assertThat(buffer.readableBytes(), is(1));
+        assertThat(buffer.getByte(0), is((byte) 0x78));
+    }
+
+    @Test
+    public void writeSingleBytesAndArrays() throws IOException {
+        final Buffer buffer = DEFAULT_ALLOCATOR.newBuffer();
+        final OutputStream out = asOutputStream(buffer);
+        out.write('a');
+        out.write("bcd".getBytes(US_ASCII));
+        out.write('e');
+        out.write("xfgx".getBytes(US_ASCII), 1, 2);
+
+        assertThat(buffer.readableBytes(), is(7));
+        assertThat(buffer.toString(US_ASCII), is("abcdefg"));
+    }
+}
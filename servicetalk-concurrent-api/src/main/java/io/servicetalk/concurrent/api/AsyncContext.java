@@ -1,5 +1,5 @@
 /*
- * Copyright © 2018-2019 Apple Inc. and the ServiceTalk project authors
+ * Copyright © 2018-2021 Apple Inc. and the ServiceTalk project authors
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -35,6 +35,10 @@ import static io.servicetalk.concurrent.api.Executors.EXECUTOR_PLUGINS;
  * This should not be used as a "catch all" to avoid designing APIs which accommodate for your needs. This should be
  * used as a last resort (e.g. for low level framework or infrastructure like tasks) because there maybe non-trivial
  * overhead required to maintain this context.
+ * <p>
+ * The default {@link AsyncContextMap} is optimized for a few {@link AsyncContextMap.Key}s. If many keys are used, a
+ * map based on a persistent hash trie can be selected with the
+ * {@code io.servicetalk.concurrent.api.asyncContextMap=trie} system property.
  */
 public final class AsyncContext {
     private static final int STATE_DISABLED = -1;
@@ -1,5 +1,5 @@
 /*
- * Copyright © 2019 Apple Inc. and the ServiceTalk project authors
+ * Copyright © 2019-2021 Apple Inc. and the ServiceTalk project authors
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -15,14 +15,46 @@
  */
 package io.servicetalk.concurrent.api;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
+
 import static java.lang.ThreadLocal.withInitial;
 
 final class AsyncContextMapThreadLocal {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsyncContextMapThreadLocal.class);
+    /**
+     * System property which selects the {@link AsyncContextMap} implementation, see {@link #contextMapFactory(String)}.
+     */
+    static final String CONTEXT_MAP_PROPERTY = "io.servicetalk.concurrent.api.asyncContextMap";
+    private static final Supplier<AsyncContextMap> CONTEXT_MAP_FACTORY =
+            contextMapFactory(System.getProperty(CONTEXT_MAP_PROPERTY));
     static final ThreadLocal<AsyncContextMap> contextThreadLocal =
             withInitial(AsyncContextMapThreadLocal::newContextMap);
 
     private static AsyncContextMap newContextMap() {
-        return new CopyOnWriteAsyncContextMap();
+        return CONTEXT_MAP_FACTORY.get();
+    }
+
+    /**
+     * Selects the {@link AsyncContextMap} implementation.
+     *
+     * @param name {@code copyOnWrite} (default) for {@link CopyOnWriteAsyncContextMap} which is optimized for a few
+     * keys, or {@code trie} for {@link TrieAsyncContextMap} which scales better to many keys.
+     * @return a factory of {@link AsyncContextMap}s.
+     */
+    static Supplier<AsyncContextMap> contextMapFactory(@Nullable final String name) {
+        if (name == null || "copyOnWrite".equalsIgnoreCase(name)) {
+            return CopyOnWriteAsyncContextMap::new;
+        }
+        if ("trie".equalsIgnoreCase(name)) {
+            return TrieAsyncContextMap::new;
+        }
+        LOGGER.warn("Unknown value {}={}, expected copyOnWrite or trie. Using copyOnWrite.",
+                CONTEXT_MAP_PROPERTY, name);
+        return CopyOnWriteAsyncContextMap::new;
     }
 
     AsyncContextMap get() {
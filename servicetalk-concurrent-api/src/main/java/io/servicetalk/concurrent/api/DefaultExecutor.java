@@ -85,8 +85,8 @@ final class DefaultExecutor extends AbstractOffloaderAwareExecutor implements Co
         this(jdkExecutor, newScheduler(scheduler, interruptOnCancel), interruptOnCancel);
     }
 
-    private DefaultExecutor(@Nullable java.util.concurrent.Executor jdkExecutor, @Nullable InternalScheduler scheduler,
-                            boolean interruptOnCancel) {
+    DefaultExecutor(@Nullable java.util.concurrent.Executor jdkExecutor, @Nullable InternalScheduler scheduler,
+                    boolean interruptOnCancel) {
         if (jdkExecutor == null) {
             if (scheduler != null) {
                 scheduler.run();
@@ -145,7 +145,7 @@ final class DefaultExecutor extends AbstractOffloaderAwareExecutor implements Co
     /**
      * {@link Runnable} interface will invoke {@link ScheduledExecutorService#shutdown()}.
      */
-    private interface InternalScheduler extends Runnable {
+    interface InternalScheduler extends Runnable {
         Cancellable apply(Runnable task, long delay, TimeUnit unit);
     }
 
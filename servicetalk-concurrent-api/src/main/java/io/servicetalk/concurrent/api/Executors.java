@@ -1,5 +1,5 @@
 /*
- * Copyright © 2018 Apple Inc. and the ServiceTalk project authors
+ * Copyright © 2018-2021 Apple Inc. and the ServiceTalk project authors
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -21,12 +21,16 @@ import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 
 import static io.servicetalk.concurrent.api.ImmediateExecutor.IMMEDIATE_EXECUTOR;
+import static java.lang.Thread.NORM_PRIORITY;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
 /**
  * Utility methods to create various {@link Executor}s.
  */
 public final class Executors {
     static final CopyOnWriteExecutorPluginSet EXECUTOR_PLUGINS = new CopyOnWriteExecutorPluginSet();
+    private static final long DEFAULT_TICK_DURATION_MS = 10;
+    private static final int DEFAULT_TICKS_PER_WHEEL = 512;
 
     static {
         AsyncContext.autoEnable();
@@ -88,6 +92,20 @@ public final class Executors {
         return EXECUTOR_PLUGINS.wrapExecutor(new DefaultExecutor(1, Integer.MAX_VALUE, threadFactory));
     }
 
+    /**
+     * Creates a new {@link Executor} that runs each task on a new virtual thread.
+     * <p>
+     * Virtual threads are cheap to create and to block, so this {@link Executor} is a good fit to offload blocking
+     * code, e.g. blocking services, without dedicating a platform thread to each concurrent task. Delayed task
+     * execution is delegated to a global scheduler. Running tasks are interrupted when cancelled.
+     *
+     * @return A new {@link Executor} that runs each task on a new virtual thread.
+     * @throws UnsupportedOperationException if virtual threads are not available, they require Java 21+.
+     */
+    public static Executor newVirtualThreadExecutor() {
+        return EXECUTOR_PLUGINS.wrapExecutor(new DefaultExecutor(VirtualThreads.newThreadPerTaskExecutor()));
+    }
+
     /**
      * Creates a new {@link Executor} from the provided {@code jdkExecutor}. <p>
      * Delayed task execution will be delegated to a global scheduler, unless passed
@@ -242,4 +260,53 @@ public final class Executors {
         return EXECUTOR_PLUGINS.wrapExecutor(
                 new DefaultExecutor(jdkExecutor, scheduledExecutorService, mayInterruptOnCancel));
     }
+
+    /**
+     * Creates a new {@link Executor} using {@code jdkExecutor} to execute tasks and a
+     * <a href="http://www.cs.columbia.edu/~nahum/w6998/papers/sosp87-timing-wheels.pdf">hashed wheel timer</a> to
+     * schedule delayed tasks, with a tick duration of 10 milliseconds.
+     *
+     * @param jdkExecutor {@link java.util.concurrent.Executor} to use for executing tasks, including the scheduled
+     * tasks once they expire.
+     * The lifetime of this object is transferred to the return value. In other words {@link Executor#closeAsync()} will
+     * call {@link ExecutorService#shutdown()} (if possible).
+     * @return A new {@link Executor}.
+     * @see #newHashedWheelTimerExecutor(java.util.concurrent.Executor, long, TimeUnit, int)
+     */
+    public static Executor newHashedWheelTimerExecutor(java.util.concurrent.Executor jdkExecutor) {
+        return newHashedWheelTimerExecutor(jdkExecutor, DEFAULT_TICK_DURATION_MS, MILLISECONDS,
+                DEFAULT_TICKS_PER_WHEEL);
+    }
+
+    /**
+     * Creates a new {@link Executor} using {@code jdkExecutor} to execute tasks and a
+     * <a href="http://www.cs.columbia.edu/~nahum/w6998/papers/sosp87-timing-wheels.pdf">hashed wheel timer</a> to
+     * schedule delayed tasks.
+     * <p>
+     * Scheduling and cancelling a task are {@code O(1)}, unlike the {@link ScheduledExecutorService} used by default,
+     * which makes this {@link Executor} a good fit for a large number of timeouts, e.g. with
+     * {@link Single#timeout(long, TimeUnit, io.servicetalk.concurrent.Executor)}. The precision of the scheduled tasks
+     * is limited to {@code tickDuration}. The timer uses a dedicated thread, which is stopped when the returned
+     * {@link Executor} is closed.
+     * <p>
+     * Scheduled tasks are executed on {@code jdkExecutor} once they expire. An {@link java.util.concurrent.Executor}
+     * which executes tasks on the calling thread will execute them on the timer thread, which avoids a thread hop
+     * when the scheduled tasks never block.
+     *
+     * @param jdkExecutor {@link java.util.concurrent.Executor} to use for executing tasks, including the scheduled
+     * tasks once they expire.
+     * The lifetime of this object is transferred to the return value. In other words {@link Executor#closeAsync()} will
+     * call {@link ExecutorService#shutdown()} (if possible).
+     * @param tickDuration the duration of a tick of the timer.
+     * @param unit the {@link TimeUnit} of {@code tickDuration}.
+     * @param ticksPerWheel the number of ticks in one rotation of the wheel, rounded up to a power of two. Tasks which
+     * are scheduled further than one rotation in the future are visited once per rotation.
+     * @return A new {@link Executor}.
+     */
+    public static Executor newHashedWheelTimerExecutor(java.util.concurrent.Executor jdkExecutor, long tickDuration,
+                                                       TimeUnit unit, int ticksPerWheel) {
+        return EXECUTOR_PLUGINS.wrapExecutor(new DefaultExecutor(jdkExecutor, new HashedWheelScheduler(jdkExecutor,
+                new DefaultThreadFactory("servicetalk-hashed-wheel-timer", true, NORM_PRIORITY), tickDuration, unit,
+                ticksPerWheel), true));
+    }
 }
@@ -0,0 +1,227 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.concurrent.api;
+
+import io.servicetalk.concurrent.Cancellable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import javax.annotation.Nullable;
+
+import static java.lang.Math.max;
+import static java.lang.System.nanoTime;
+import static java.util.concurrent.locks.LockSupport.parkNanos;
+import static java.util.concurrent.locks.LockSupport.unpark;
+
+/**
+ * A scheduler based on a
+ * <a href="http://www.cs.columbia.edu/~nahum/w6998/papers/sosp87-timing-wheels.pdf">hashed timing wheel</a>.
+ * <p>
+ * Scheduling and cancelling a task are {@code O(1)} and do not allocate beyond the returned {@link Cancellable}, at the
+ * cost of a precision limited to the tick duration. This makes it a good fit for a large number of timeouts which are
+ * usually cancelled before they expire. A single thread advances the wheel, expired tasks are executed on the
+ * {@link java.util.concurrent.Executor} provided at construction.
+ */
+final class HashedWheelScheduler implements DefaultExecutor.InternalScheduler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(HashedWheelScheduler.class);
+    private static final AtomicReferenceFieldUpdater<HashedWheelScheduler, ScheduledTask> pendingUpdater =
+            AtomicReferenceFieldUpdater.newUpdater(HashedWheelScheduler.class, ScheduledTask.class, "pending");
+
+    private final java.util.concurrent.Executor offloadExecutor;
+    private final long tickNanos;
+    private final ScheduledTask[] wheel;
+    private final int mask;
+    private final long startTime;
+    private final Thread worker;
+    /**
+     * Stack of tasks which have been scheduled but not yet added to the wheel. The worker thread takes the whole stack
+     * at every tick.
+     */
+    @Nullable
+    private volatile ScheduledTask pending;
+    private volatile boolean stopped;
+
+    HashedWheelScheduler(final java.util.concurrent.Executor offloadExecutor, final ThreadFactory threadFactory,
+                         final long tickDuration, final TimeUnit unit, final int ticksPerWheel) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("tickDuration: " + tickDuration + " (expected >0)");
+        }
+        if (ticksPerWheel <= 0 || ticksPerWheel > 1 << 30) {
+            throw new IllegalArgumentException("ticksPerWheel: " + ticksPerWheel + " (expected (0, 2^30])");
+        }
+        this.offloadExecutor = offloadExecutor;
+        tickNanos = unit.toNanos(tickDuration);
+        final int wheelSize = ticksPerWheel == 1 ? 1 : Integer.highestOneBit(ticksPerWheel - 1) << 1;
+        wheel = new ScheduledTask[wheelSize];
+        mask = wheelSize - 1;
+        startTime = nanoTime();
+        worker = threadFactory.newThread(this::runWorker);
+        worker.start();
+    }
+
+    @Override
+    public Cancellable apply(final Runnable task, final long delay, final TimeUnit unit) {
+        if (stopped) {
+            throw new RejectedExecutionException("Scheduler is stopped");
+        }
+        final long delayNanos = unit.toNanos(delay);
+        long deadline = nanoTime() - startTime + max(0, delayNanos);
+        if (deadline < 0) {
+            // Overflow, the task will effectively never run.
+            deadline = Long.MAX_VALUE;
+        }
+        final ScheduledTask scheduledTask = new ScheduledTask(task, deadline);
+        for (;;) {
+            final ScheduledTask head = pending;
+            scheduledTask.next = head;
+            if (pendingUpdater.compareAndSet(this, head, scheduledTask)) {
+                return scheduledTask;
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        stopped = true;
+        unpark(worker);
+    }
+
+    private void runWorker() {
+        long tick = 0;
+        while (!stopped) {
+            final long tickDeadline = tickNanos * (tick + 1);
+            for (;;) {
+                final long sleepNanos = tickDeadline - (nanoTime() - startTime);
+                if (sleepNanos <= 0 || stopped) {
+                    break;
+                }
+                parkNanos(this, sleepNanos);
+            }
+            if (stopped) {
+                break;
+            }
+            addPendingTasks(tick);
+            expireTasks((int) (tick & mask), tickDeadline);
+            ++tick;
+        }
+        // Tasks which did not expire are dropped, like ScheduledExecutorService#shutdownNow() would do.
+        pendingUpdater.set(this, null);
+    }
+
+    private void addPendingTasks(final long currentTick) {
+        ScheduledTask task = pendingUpdater.getAndSet(this, null);
+        while (task != null) {
+            final ScheduledTask next = task.next;
+            if (!task.isCancelled()) {
+                final long taskTick = task.deadline / tickNanos;
+                task.remainingRounds = (taskTick - currentTick) / wheel.length;
+                // A deadline which is already passed is put in the current bucket to expire as soon as possible.
+                final int bucket = (int) (max(taskTick, currentTick) & mask);
+                task.next = wheel[bucket];
+                wheel[bucket] = task;
+            }
+            task = next;
+        }
+    }
+
+    private void expireTasks(final int bucket, final long tickDeadline) {
+        ScheduledTask prev = null;
+        ScheduledTask task = wheel[bucket];
+        while (task != null) {
+            final ScheduledTask next = task.next;
+            final boolean remove;
+            if (task.isCancelled()) {
+                remove = true;
+            } else if (task.remainingRounds <= 0 && task.deadline < tickDeadline) {
+                remove = true;
+                expire(task);
+            } else {
+                remove = false;
+                --task.remainingRounds;
+            }
+            if (remove) {
+                if (prev == null) {
+                    wheel[bucket] = next;
+                } else {
+                    prev.next = next;
+                }
+                task.next = null;
+            } else {
+                prev = task;
+            }
+            task = next;
+        }
+    }
+
+    private void expire(final ScheduledTask task) {
+        final Runnable runnable = task.expire();
+        if (runnable != null) {
+            try {
+                offloadExecutor.execute(runnable);
+            } catch (Throwable cause) {
+                LOGGER.warn("Failed to execute expired task {}.", runnable, cause);
+            }
+        }
+    }
+
+    private static final class ScheduledTask implements Cancellable {
+        private static final int STATE_SCHEDULED = 0;
+        private static final int STATE_CANCELLED = 1;
+        private static final int STATE_EXPIRED = 2;
+        private static final AtomicIntegerFieldUpdater<ScheduledTask> stateUpdater =
+                AtomicIntegerFieldUpdater.newUpdater(ScheduledTask.class, "state");
+
+        final long deadline;
+        @Nullable
+        private Runnable task;
+        private volatile int state;
+        /**
+         * Link in the pending stack, then in the bucket of the wheel. Only modified by the worker thread once the
+         * task has been added to the pending stack.
+         */
+        @Nullable
+        ScheduledTask next;
+        long remainingRounds;
+
+        ScheduledTask(final Runnable task, final long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public void cancel() {
+            if (stateUpdater.compareAndSet(this, STATE_SCHEDULED, STATE_CANCELLED)) {
+                // The task is removed from the wheel lazily, release the reference now.
+                task = null;
+            }
+        }
+
+        boolean isCancelled() {
+            return state == STATE_CANCELLED;
+        }
+
+        @Nullable
+        Runnable expire() {
+            return stateUpdater.compareAndSet(this, STATE_SCHEDULED, STATE_EXPIRED) ? task : null;
+        }
+    }
+}
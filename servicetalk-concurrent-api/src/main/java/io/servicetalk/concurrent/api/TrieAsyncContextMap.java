@@ -0,0 +1,455 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.concurrent.api;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
+import javax.annotation.Nullable;
+
+import static io.servicetalk.concurrent.api.AsyncContextMapUtils.contextMapToString;
+import static java.lang.Integer.bitCount;
+import static java.lang.System.arraycopy;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * An {@link AsyncContextMap} backed by a persistent
+ * <a href="https://en.wikipedia.org/wiki/Hash_array_mapped_trie">hash array mapped trie</a>.
+ * <p>
+ * Updates copy only the path from the root to the modified entry, which is {@code O(log32 n)}, and share the rest of
+ * the trie with previous versions, so {@link #copy()} is {@code O(1)}. This scales better than
+ * {@link CopyOnWriteAsyncContextMap} when there are more {@link Key}-value pairs than it is specialized for.
+ */
+final class TrieAsyncContextMap implements AsyncContextMap {
+    private static final AtomicReferenceFieldUpdater<TrieAsyncContextMap, Node> rootUpdater =
+            AtomicReferenceFieldUpdater.newUpdater(TrieAsyncContextMap.class, Node.class, "root");
+    private volatile Node root;
+
+    TrieAsyncContextMap() {
+        this(BitmapNode.EMPTY);
+    }
+
+    private TrieAsyncContextMap(Node root) {
+        this.root = root;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Nullable
+    @Override
+    public <T> T get(final Key<T> key) {
+        final Leaf leaf = root.find(key.hashCode(), 0, key);
+        return leaf == null ? null : (T) leaf.value;
+    }
+
+    @Override
+    public boolean containsKey(final Key<?> key) {
+        return root.find(key.hashCode(), 0, key) != null;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return root.size() == 0;
+    }
+
+    @Override
+    public int size() {
+        return root.size();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Nullable
+    @Override
+    public <T> T put(final Key<T> key, @Nullable final T value) {
+        final int hash = requireNonNull(key).hashCode();
+        for (;;) {
+            final Node root = this.root;
+            final Leaf previous = root.find(hash, 0, key);
+            if (previous != null && previous.value == value) {
+                return value;
+            }
+            if (rootUpdater.compareAndSet(this, root, root.put(hash, 0, key, value, previous == null))) {
+                return previous == null ? null : (T) previous.value;
+            }
+        }
+    }
+
+    @Override
+    public void putAll(final Map<Key<?>, Object> map) {
+        for (;;) {
+            final Node root = this.root;
+            final PutAllBuilder builder = new PutAllBuilder(root);
+            map.forEach(builder);
+            if (builder.node == root || rootUpdater.compareAndSet(this, root, builder.node)) {
+                return;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Nullable
+    @Override
+    public <T> T remove(final Key<T> key) {
+        final int hash = key.hashCode();
+        for (;;) {
+            final Node root = this.root;
+            final Leaf previous = root.find(hash, 0, key);
+            if (previous == null) {
+                return null;
+            }
+            if (rootUpdater.compareAndSet(this, root, nonNull(root.remove(hash, 0, key)))) {
+                return (T) previous.value;
+            }
+        }
+    }
+
+    @Override
+    public boolean removeAll(final Iterable<Key<?>> entries) {
+        for (;;) {
+            final Node root = this.root;
+            Node node = root;
+            for (Key<?> key : entries) {
+                final int hash = key.hashCode();
+                if (node.find(hash, 0, key) != null) {
+                    node = nonNull(node.remove(hash, 0, key));
+                }
+            }
+            if (node == root) {
+                return false;
+            }
+            if (rootUpdater.compareAndSet(this, root, node)) {
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        root = BitmapNode.EMPTY;
+    }
+
+    @Nullable
+    @Override
+    public Key<?> forEach(final BiPredicate<Key<?>, Object> consumer) {
+        return root.forEach(consumer);
+    }
+
+    @Override
+    public AsyncContextMap copy() {
+        return new TrieAsyncContextMap(root);
+    }
+
+    @Override
+    public String toString() {
+        return contextMapToString(this);
+    }
+
+    private static Node nonNull(@Nullable Node node) {
+        return node == null ? BitmapNode.EMPTY : node;
+    }
+
+    /**
+     * An immutable node of the trie. {@code hash} is the {@link Key#hashCode()} of {@code key}, {@code shift} is the
+     * number of hash bits consumed by the parent nodes.
+     */
+    abstract static class Node {
+        static final int BITS_PER_LEVEL = 5;
+        private static final int LEVEL_MASK = (1 << BITS_PER_LEVEL) - 1;
+
+        abstract int size();
+
+        @Nullable
+        abstract Leaf find(int hash, int shift, Key<?> key);
+
+        /**
+         * Returns a new node with {@code key} mapped to {@code value}.
+         *
+         * @param added {@code true} if {@code key} is not contained in this node.
+         */
+        abstract Node put(int hash, int shift, Key<?> key, @Nullable Object value, boolean added);
+
+        /**
+         * Returns a new node without {@code key}, which must be contained in this node, or {@code null} if the new
+         * node would be empty.
+         */
+        @Nullable
+        abstract Node remove(int hash, int shift, Key<?> key);
+
+        @Nullable
+        abstract Key<?> forEach(BiPredicate<Key<?>, Object> consumer);
+
+        static int index(final int hash, final int shift) {
+            return (hash >>> shift) & LEVEL_MASK;
+        }
+
+        /**
+         * Creates a node which contains two nodes with different hashes which collide for all levels before
+         * {@code shift}.
+         */
+        static Node merge(final Node first, final int firstHash, final Node second, final int secondHash,
+                          final int shift) {
+            assert firstHash != secondHash;
+            final int firstIndex = index(firstHash, shift);
+            final int secondIndex = index(secondHash, shift);
+            final int size = first.size() + second.size();
+            if (firstIndex == secondIndex) {
+                return new BitmapNode(1 << firstIndex,
+                        new Node[] {merge(first, firstHash, second, secondHash, shift + BITS_PER_LEVEL)}, size);
+            }
+            return new BitmapNode((1 << firstIndex) | (1 << secondIndex),
+                    firstIndex < secondIndex ? new Node[] {first, second} : new Node[] {second, first}, size);
+        }
+    }
+
+    static final class Leaf extends Node {
+        final int hash;
+        final Key<?> key;
+        @Nullable
+        final Object value;
+
+        Leaf(final int hash, final Key<?> key, @Nullable final Object value) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        int size() {
+            return 1;
+        }
+
+        @Nullable
+        @Override
+        Leaf find(final int hash, final int shift, final Key<?> key) {
+            return this.key.equals(key) ? this : null;
+        }
+
+        @Override
+        Node put(final int hash, final int shift, final Key<?> key, @Nullable final Object value,
+                 final boolean added) {
+            final Leaf leaf = new Leaf(hash, key, value);
+            if (this.key.equals(key)) {
+                return leaf;
+            }
+            if (this.hash == hash) {
+                return new CollisionNode(hash, new Leaf[] {this, leaf});
+            }
+            return merge(this, this.hash, leaf, hash, shift);
+        }
+
+        @Nullable
+        @Override
+        Node remove(final int hash, final int shift, final Key<?> key) {
+            assert this.key.equals(key);
+            return null;
+        }
+
+        @Nullable
+        @Override
+        Key<?> forEach(final BiPredicate<Key<?>, Object> consumer) {
+            return consumer.test(key, value) ? null : key;
+        }
+    }
+
+    /**
+     * Keys with the same hash, which can not be distinguished by a {@link BitmapNode} at any level.
+     */
+    private static final class CollisionNode extends Node {
+        private final int hash;
+        private final Leaf[] leaves;
+
+        CollisionNode(final int hash, final Leaf[] leaves) {
+            this.hash = hash;
+            this.leaves = leaves;
+        }
+
+        @Override
+        int size() {
+            return leaves.length;
+        }
+
+        @Nullable
+        @Override
+        Leaf find(final int hash, final int shift, final Key<?> key) {
+            if (this.hash == hash) {
+                for (Leaf leaf : leaves) {
+                    if (leaf.key.equals(key)) {
+                        return leaf;
+                    }
+                }
+            }
+            return null;
+        }
+
+        @Override
+        Node put(final int hash, final int shift, final Key<?> key, @Nullable final Object value,
+                 final boolean added) {
+            final Leaf leaf = new Leaf(hash, key, value);
+            if (this.hash != hash) {
+                return merge(this, this.hash, leaf, hash, shift);
+            }
+            if (added) {
+                final Leaf[] newLeaves = new Leaf[leaves.length + 1];
+                arraycopy(leaves, 0, newLeaves, 0, leaves.length);
+                newLeaves[leaves.length] = leaf;
+                return new CollisionNode(hash, newLeaves);
+            }
+            final Leaf[] newLeaves = leaves.clone();
+            newLeaves[indexOf(key)] = leaf;
+            return new CollisionNode(hash, newLeaves);
+        }
+
+        @Override
+        Node remove(final int hash, final int shift, final Key<?> key) {
+            final int i = indexOf(key);
+            if (leaves.length == 2) {
+                return leaves[i ^ 1];
+            }
+            final Leaf[] newLeaves = new Leaf[leaves.length - 1];
+            arraycopy(leaves, 0, newLeaves, 0, i);
+            arraycopy(leaves, i + 1, newLeaves, i, newLeaves.length - i);
+            return new CollisionNode(hash, newLeaves);
+        }
+
+        @Nullable
+        @Override
+        Key<?> forEach(final BiPredicate<Key<?>, Object> consumer) {
+            for (Leaf leaf : leaves) {
+                if (!consumer.test(leaf.key, leaf.value)) {
+                    return leaf.key;
+                }
+            }
+            return null;
+        }
+
+        private int indexOf(final Key<?> key) {
+            for (int i = 0; i < leaves.length; ++i) {
+                if (leaves[i].key.equals(key)) {
+                    return i;
+                }
+            }
+            throw new IllegalStateException("key not found: " + key);
+        }
+    }
+
+    /**
+     * A node with up to 32 children, indexed by {@link #BITS_PER_LEVEL} bits of the hash. Only the children which are
+     * present are stored, the bitmap identifies their index.
+     */
+    static final class BitmapNode extends Node {
+        static final Node EMPTY = new BitmapNode(0, new Node[0], 0);
+
+        private final int bitmap;
+        private final Node[] children;
+        private final int size;
+
+        BitmapNode(final int bitmap, final Node[] children, final int size) {
+            this.bitmap = bitmap;
+            this.children = children;
+            this.size = size;
+        }
+
+        @Override
+        int size() {
+            return size;
+        }
+
+        @Nullable
+        @Override
+        Leaf find(final int hash, final int shift, final Key<?> key) {
+            final int bit = 1 << index(hash, shift);
+            return (bitmap & bit) == 0 ? null :
+                    children[position(bit)].find(hash, shift + BITS_PER_LEVEL, key);
+        }
+
+        @Override
+        Node put(final int hash, final int shift, final Key<?> key, @Nullable final Object value,
+                 final boolean added) {
+            final int bit = 1 << index(hash, shift);
+            final int position = position(bit);
+            if ((bitmap & bit) == 0) {
+                final Node[] newChildren = new Node[children.length + 1];
+                arraycopy(children, 0, newChildren, 0, position);
+                newChildren[position] = new Leaf(hash, key, value);
+                arraycopy(children, position, newChildren, position + 1, children.length - position);
+                return new BitmapNode(bitmap | bit, newChildren, size + 1);
+            }
+            final Node[] newChildren = children.clone();
+            newChildren[position] = children[position].put(hash, shift + BITS_PER_LEVEL, key, value, added);
+            return new BitmapNode(bitmap, newChildren, added ? size + 1 : size);
+        }
+
+        @Nullable
+        @Override
+        Node remove(final int hash, final int shift, final Key<?> key) {
+            final int bit = 1 << index(hash, shift);
+            final int position = position(bit);
+            final Node newChild = children[position].remove(hash, shift + BITS_PER_LEVEL, key);
+            if (newChild != null) {
+                if (children.length == 1 && !(newChild instanceof BitmapNode)) {
+                    // Leaves and collisions do not depend on the level, so they can replace this node.
+                    return newChild;
+                }
+                final Node[] newChildren = children.clone();
+                newChildren[position] = newChild;
+                return new BitmapNode(bitmap, newChildren, size - 1);
+            }
+            if (children.length == 1) {
+                return null;
+            }
+            if (children.length == 2 && !(children[position ^ 1] instanceof BitmapNode)) {
+                return children[position ^ 1];
+            }
+            final Node[] newChildren = new Node[children.length - 1];
+            arraycopy(children, 0, newChildren, 0, position);
+            arraycopy(children, position + 1, newChildren, position, newChildren.length - position);
+            return new BitmapNode(bitmap & ~bit, newChildren, size - 1);
+        }
+
+        @Nullable
+        @Override
+        Key<?> forEach(final BiPredicate<Key<?>, Object> consumer) {
+            for (Node child : children) {
+                final Key<?> key = child.forEach(consumer);
+                if (key != null) {
+                    return key;
+                }
+            }
+            return null;
+        }
+
+        private int position(final int bit) {
+            return bitCount(bitmap & (bit - 1));
+        }
+    }
+
+    private static final class PutAllBuilder implements BiConsumer<Key<?>, Object> {
+        Node node;
+
+        PutAllBuilder(final Node node) {
+            this.node = node;
+        }
+
+        @Override
+        public void accept(final Key<?> key, final Object value) {
+            final int hash = requireNonNull(key).hashCode();
+            final Leaf previous = node.find(hash, 0, key);
+            if (previous == null || previous.value != value) {
+                node = node.put(hash, 0, key, value, previous == null);
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.concurrent.api;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import javax.annotation.Nullable;
+
+/**
+ * Access to virtual threads, which are available on Java 21+.
+ * <p>
+ * The APIs are looked up reflectively so this module can still be compiled for and run on older Java versions.
+ */
+final class VirtualThreads {
+    private static final String THREAD_NAME_PREFIX = "servicetalk-virtual-executor-";
+    @Nullable
+    private static final Method OF_VIRTUAL;
+    @Nullable
+    private static final Method BUILDER_NAME;
+    @Nullable
+    private static final Method BUILDER_FACTORY;
+    @Nullable
+    private static final Method NEW_THREAD_PER_TASK_EXECUTOR;
+    @Nullable
+    private static final Throwable UNAVAILABILITY_CAUSE;
+
+    static {
+        Method ofVirtual = null;
+        Method builderName = null;
+        Method builderFactory = null;
+        Method newThreadPerTaskExecutor = null;
+        Throwable cause = null;
+        try {
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builderName = builderClass.getMethod("name", String.class, long.class);
+            builderFactory = builderClass.getMethod("factory");
+            newThreadPerTaskExecutor = java.util.concurrent.Executors.class.getMethod("newThreadPerTaskExecutor",
+                    ThreadFactory.class);
+            // Virtual threads are a preview feature on Java 19 and 20, and fail unless previews are enabled.
+            newThreadFactory(ofVirtual, builderName, builderFactory);
+        } catch (Throwable t) {
+            ofVirtual = null;
+            builderName = null;
+            builderFactory = null;
+            newThreadPerTaskExecutor = null;
+            cause = t;
+        }
+        OF_VIRTUAL = ofVirtual;
+        BUILDER_NAME = builderName;
+        BUILDER_FACTORY = builderFactory;
+        NEW_THREAD_PER_TASK_EXECUTOR = newThreadPerTaskExecutor;
+        UNAVAILABILITY_CAUSE = cause;
+    }
+
+    private VirtualThreads() {
+        // no instances
+    }
+
+    /**
+     * Determine if virtual threads are available.
+     *
+     * @return {@code true} if virtual threads are available.
+     */
+    static boolean isAvailable() {
+        return UNAVAILABILITY_CAUSE == null;
+    }
+
+    /**
+     * Creates a new {@link ExecutorService} which starts a new virtual thread for each task.
+     *
+     * @return a new {@link ExecutorService} which starts a new virtual thread for each task.
+     * @throws UnsupportedOperationException if virtual threads are not available.
+     */
+    static ExecutorService newThreadPerTaskExecutor() {
+        if (UNAVAILABILITY_CAUSE != null) {
+            throw new UnsupportedOperationException("Virtual threads are not available (requires Java 21+)",
+                    UNAVAILABILITY_CAUSE);
+        }
+        assert OF_VIRTUAL != null && BUILDER_NAME != null && BUILDER_FACTORY != null &&
+                NEW_THREAD_PER_TASK_EXECUTOR != null;
+        try {
+            return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null,
+                    newThreadFactory(OF_VIRTUAL, BUILDER_NAME, BUILDER_FACTORY));
+        } catch (ReflectiveOperationException e) {
+            throw new UnsupportedOperationException("Failed to create a virtual thread executor", e);
+        }
+    }
+
+    private static ThreadFactory newThreadFactory(final Method ofVirtual, final Method builderName,
+                                                  final Method builderFactory)
+            throws ReflectiveOperationException {
+        final Object builder = builderName.invoke(ofVirtual.invoke(null), THREAD_NAME_PREFIX, 0L);
+        return (ThreadFactory) builderFactory.invoke(builder);
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.concurrent.api;
+
+import io.servicetalk.concurrent.Cancellable;
+import io.servicetalk.concurrent.internal.ServiceTalkTestTimeout;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+
+import static java.lang.System.nanoTime;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+
+public class HashedWheelSchedulerTest {
+    @Rule
+    public final Timeout timeout = new ServiceTalkTestTimeout();
+
+    // 3 ticks of 1ms per wheel (rounded up to 4 per rotation), so that tests cover tasks which span multiple rotations.
+    private final HashedWheelScheduler scheduler = new HashedWheelScheduler(Runnable::run,
+            new DefaultThreadFactory("hashed-wheel-test", true, Thread.NORM_PRIORITY), 1, MILLISECONDS, 3);
+
+    @After
+    public void tearDown() {
+        scheduler.run();
+    }
+
+    @Test
+    public void tasksExpireInOrderOfDeadline() throws Exception {
+        final List<Integer> expired = new CopyOnWriteArrayList<>();
+        final CountDownLatch latch = new CountDownLatch(3);
+        scheduler.apply(() -> {
+            expired.add(3);
+            latch.countDown();
+        }, 30, MILLISECONDS);
+        scheduler.apply(() -> {
+            expired.add(1);
+            latch.countDown();
+        }, 2, MILLISECONDS);
+        scheduler.apply(() -> {
+            expired.add(2);
+            latch.countDown();
+        }, 15, MILLISECONDS);
+        latch.await();
+        assertThat(expired, contains(1, 2, 3));
+    }
+
+    @Test
+    public void taskDoesNotExpireBeforeDeadline() throws Exception {
+        final BlockingQueue<Long> expired = new LinkedBlockingQueue<>();
+        final long start = nanoTime();
+        scheduler.apply(() -> expired.add(nanoTime()), 20, MILLISECONDS);
+        assertThat(expired.take() - start, is(greaterThanOrEqualTo(MILLISECONDS.toNanos(20))));
+    }
+
+    @Test
+    public void nonPositiveDelayExpires() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(2);
+        scheduler.apply(latch::countDown, 0, NANOSECONDS);
+        scheduler.apply(latch::countDown, -1, NANOSECONDS);
+        latch.await();
+    }
+
+    @Test
+    public void cancelledTaskDoesNotExpire() throws Exception {
+        final List<String> expired = new CopyOnWriteArrayList<>();
+        final CountDownLatch latch = new CountDownLatch(1);
+        final Cancellable cancellable = scheduler.apply(() -> expired.add("cancelled"), 5, MILLISECONDS);
+        cancellable.cancel();
+        scheduler.apply(latch::countDown, 20, MILLISECONDS);
+        latch.await();
+        assertThat(expired, is(empty()));
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void rejectsAfterStop() {
+        scheduler.run();
+        scheduler.apply(() -> { }, 1, MILLISECONDS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidTickDuration() {
+        new HashedWheelScheduler(Runnable::run, new DefaultThreadFactory(), 0, MILLISECONDS, 4);
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.concurrent.api;
+
+import io.servicetalk.concurrent.api.AsyncContextMap.Key;
+import io.servicetalk.concurrent.api.TrieAsyncContextMap.BitmapNode;
+import io.servicetalk.concurrent.api.TrieAsyncContextMap.Leaf;
+import io.servicetalk.concurrent.api.TrieAsyncContextMap.Node;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static io.servicetalk.concurrent.api.AsyncContextMapThreadLocal.contextMapFactory;
+import static java.util.Arrays.asList;
+import static java.util.Collections.shuffle;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class TrieAsyncContextMapTest {
+    private static final Key<String> K1 = Key.newKey("k1");
+    private static final Key<String> K2 = Key.newKey("k2");
+    private static final Key<String> K3 = Key.newKey("k3");
+
+    @Test
+    public void putGetRemove() {
+        TrieAsyncContextMap map = new TrieAsyncContextMap();
+        assertThat(map.isEmpty(), is(true));
+        assertThat(map.put(K1, "v1"), is(nullValue()));
+        assertThat(map.put(K2, null), is(nullValue()));
+        assertThat(map.get(K1), is("v1"));
+        assertThat(map.containsKey(K2), is(true));
+        assertThat(map.get(K3), is(nullValue()));
+        assertThat(map.containsKey(K3), is(false));
+        assertThat(map.size(), is(2));
+
+        assertThat(map.put(K1, "v1'"), is("v1"));
+        assertThat(map.get(K1), is("v1'"));
+        assertThat(map.size(), is(2));
+
+        assertThat(map.remove(K1), is("v1'"));
+        assertThat(map.remove(K1), is(nullValue()));
+        assertThat(map.containsKey(K1), is(false));
+        assertThat(map.size(), is(1));
+        map.clear();
+        assertThat(map.isEmpty(), is(true));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void putNullKey() {
+        new TrieAsyncContextMap().put(null, "v");
+    }
+
+    @Test
+    public void putAllRemoveAll() {
+        TrieAsyncContextMap map = new TrieAsyncContextMap();
+        map.put(K1, "v1");
+        Map<Key<?>, Object> entries = new HashMap<>();
+        entries.put(K1, "v1'");
+        entries.put(K2, "v2");
+        map.putAll(entries);
+        assertThat(map.get(K1), is("v1'"));
+        assertThat(map.get(K2), is("v2"));
+        assertThat(map.size(), is(2));
+
+        assertThat(map.removeAll(asList(K2, K3)), is(true));
+        assertThat(map.removeAll(asList(K2, K3)), is(false));
+        assertThat(map.size(), is(1));
+        assertThat(map.get(K1), is("v1'"));
+    }
+
+    @Test
+    public void forEachStops() {
+        TrieAsyncContextMap map = new TrieAsyncContextMap();
+        map.put(K1, "v1");
+        map.put(K2, "v2");
+        map.put(K3, "v3");
+        Map<Key<?>, Object> visited = new HashMap<>();
+        assertThat(map.forEach((key, value) -> visited.put(key, value) == null), is(nullValue()));
+        assertThat(visited.size(), is(3));
+        assertThat(visited.get(K2), is("v2"));
+
+        List<Key<?>> stopped = new ArrayList<>();
+        Key<?> stoppedAt = map.forEach((key, value) -> !stopped.add(key));
+        assertThat(stopped.size(), is(1));
+        assertThat(stoppedAt, sameInstance(stopped.get(0)));
+    }
+
+    @Test
+    public void copyIsIsolated() {
+        TrieAsyncContextMap map = new TrieAsyncContextMap();
+        map.put(K1, "v1");
+        AsyncContextMap copy = map.copy();
+        copy.put(K1, "v1'");
+        copy.put(K2, "v2");
+        map.remove(K1);
+
+        assertThat(map.isEmpty(), is(true));
+        assertThat(copy.get(K1), is("v1'"));
+        assertThat(copy.get(K2), is("v2"));
+        assertThat(copy.size(), is(2));
+    }
+
+    @Test
+    public void manyKeys() {
+        TrieAsyncContextMap map = new TrieAsyncContextMap();
+        List<Key<Integer>> keys = new ArrayList<>();
+        for (int i = 0; i < 1000; ++i) {
+            Key<Integer> key = Key.newKey("key" + i);
+            keys.add(key);
+            assertThat(map.put(key, i), is(nullValue()));
+        }
+        AsyncContextMap copy = map.copy();
+        assertThat(map.size(), is(1000));
+        for (int i = 0; i < keys.size(); ++i) {
+            assertThat(map.get(keys.get(i)), is(i));
+            if (i % 2 == 0) {
+                assertThat(map.remove(keys.get(i)), is(i));
+            }
+        }
+        assertThat(map.size(), is(500));
+        assertThat(copy.size(), is(1000));
+        for (int i = 0; i < keys.size(); ++i) {
+            assertThat(map.get(keys.get(i)), is(i % 2 == 0 ? null : i));
+            assertThat(copy.get(keys.get(i)), is(i));
+        }
+        assertThat(map.removeAll(new ArrayList<>(keys)), is(true));
+        assertThat(map.isEmpty(), is(true));
+    }
+
+    @Test
+    public void nodesWithCollidingHashes() {
+        // Key uses identity hash codes, so the nodes are tested directly to control the hashes.
+        final int[] hashes = {0, 0, 0, 1, 1 << 5, 1 << 30, 1 << 31, (1 << 31) | 1, -1, -1, 32 << 5};
+        final List<Key<Integer>> keys = new ArrayList<>();
+        Node node = BitmapNode.EMPTY;
+        for (int i = 0; i < hashes.length; ++i) {
+            final Key<Integer> key = Key.newKey("key" + i);
+            keys.add(key);
+            node = node.put(hashes[i], 0, key, i, true);
+            assertThat(node.size(), is(i + 1));
+        }
+        for (int i = 0; i < hashes.length; ++i) {
+            final Leaf leaf = node.find(hashes[i], 0, keys.get(i));
+            assertThat(leaf, is(instanceOf(Leaf.class)));
+            assertThat(leaf.value, is(i));
+        }
+        node = node.put(hashes[1], 0, keys.get(1), "replaced", false);
+        assertThat(node.size(), is(hashes.length));
+        assertThat(node.find(hashes[1], 0, keys.get(1)).value, is("replaced"));
+
+        // Remove in a random order to exercise collapsing of the nodes.
+        final List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < hashes.length; ++i) {
+            order.add(i);
+        }
+        shuffle(order, new Random(42));
+        final Set<Integer> removed = new HashSet<>();
+        for (int i : order) {
+            node = node.remove(hashes[i], 0, keys.get(i));
+            removed.add(i);
+            assertThat(node == null ? 0 : node.size(), is(hashes.length - removed.size()));
+            for (int j = 0; node != null && j < hashes.length; ++j) {
+                assertThat(node.find(hashes[j], 0, keys.get(j)) == null, is(removed.contains(j)));
+            }
+        }
+        assertThat(node, is(nullValue()));
+    }
+
+    @Test
+    public void factorySelection() {
+        assertThat(contextMapFactory(null).get(), is(instanceOf(CopyOnWriteAsyncContextMap.class)));
+        assertThat(contextMapFactory("copyOnWrite").get(), is(instanceOf(CopyOnWriteAsyncContextMap.class)));
+        assertThat(contextMapFactory("trie").get(), is(instanceOf(TrieAsyncContextMap.class)));
+        assertThat(contextMapFactory("unknown").get(), is(instanceOf(CopyOnWriteAsyncContextMap.class)));
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.concurrent.api;
+
+import io.servicetalk.concurrent.internal.ServiceTalkTestTimeout;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.annotation.Nullable;
+
+import static io.servicetalk.concurrent.api.Executors.newVirtualThreadExecutor;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assume.assumeFalse;
+import static org.junit.Assume.assumeTrue;
+
+public class VirtualThreadExecutorTest {
+    private static final AsyncContextMap.Key<String> KEY = AsyncContextMap.Key.newKey("virtual-thread-key");
+
+    @Rule
+    public final Timeout timeout = new ServiceTalkTestTimeout();
+
+    @Nullable
+    private Executor executor;
+
+    @After
+    public void tearDown() throws Exception {
+        AsyncContext.clear();
+        if (executor != null) {
+            executor.closeAsync().toFuture().get();
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void unsupportedWithoutVirtualThreads() {
+        assumeFalse("Virtual threads are available", VirtualThreads.isAvailable());
+        executor = newVirtualThreadExecutor();
+    }
+
+    @Test
+    public void runsOnVirtualThreadWithAsyncContext() throws Exception {
+        assumeTrue("Virtual threads are not available", VirtualThreads.isAvailable());
+        executor = newVirtualThreadExecutor();
+        AsyncContext.put(KEY, "value");
+        AtomicReference<String> threadName = new AtomicReference<>();
+        AtomicReference<String> contextValue = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(1);
+        executor.execute(() -> {
+            threadName.set(Thread.currentThread().getName());
+            contextValue.set(AsyncContext.get(KEY));
+            done.countDown();
+        });
+        done.await();
+        assertThat("Unexpected thread.", threadName.get(), startsWith("servicetalk-virtual-executor-"));
+        assertThat("AsyncContext not propagated.", contextValue.get(), is("value"));
+    }
+
+    @Test
+    public void asyncContextIsolatedAcrossTasks() throws Exception {
+        assumeTrue("Virtual threads are not available", VirtualThreads.isAvailable());
+        executor = newVirtualThreadExecutor();
+        AsyncContext.put(KEY, "value");
+        executor.submit(() -> AsyncContext.put(KEY, "changed")).toFuture().get();
+        assertThat("Unexpected value in the caller's context.", AsyncContext.get(KEY), is("value"));
+        assertThat("Unexpected value in the task's context.",
+                executor.submit(() -> AsyncContext.get(KEY)).toFuture().get(), is("value"));
+    }
+}
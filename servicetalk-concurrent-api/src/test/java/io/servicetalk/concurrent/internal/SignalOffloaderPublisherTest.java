@@ -1,5 +1,5 @@
 /*
- * Copyright © 2018 Apple Inc. and the ServiceTalk project authors
+ * Copyright © 2018-2021 Apple Inc. and the ServiceTalk project authors
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -82,6 +82,8 @@ public class SignalOffloaderPublisherTest {
                 new OffloaderHolder(ThreadBasedSignalOffloader::new), true});
         offloaders.add(new Object[]{(Supplier<OffloaderHolder>) () ->
                 new OffloaderHolder(TaskBasedSignalOffloader::new), false});
+        offloaders.add(new Object[]{(Supplier<OffloaderHolder>) () ->
+                new OffloaderHolder(executor -> new TaskBasedSignalOffloader(executor, 2, 4, 16)), false});
         return offloaders;
     }
 
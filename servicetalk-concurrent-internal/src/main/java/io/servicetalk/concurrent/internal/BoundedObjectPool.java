@@ -0,0 +1,91 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.concurrent.internal;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A pool of objects which are expensive to create, e.g. because they hold native memory. The pool keeps a bounded
+ * number of idle objects, objects released to a full pool are disposed.
+ *
+ * @param <T> the type of pooled objects.
+ */
+public final class BoundedObjectPool<T> {
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<BoundedObjectPool> sizeUpdater =
+            AtomicIntegerFieldUpdater.newUpdater(BoundedObjectPool.class, "size");
+
+    private final Queue<T> pool = new ConcurrentLinkedQueue<>();
+    private final int maxPooled;
+    private final Supplier<T> factory;
+    private final Consumer<T> reset;
+    private final Consumer<T> dispose;
+    private volatile int size;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param maxPooled the maximum number of idle objects kept by the pool.
+     * @param factory creates new objects if the pool is empty.
+     * @param reset resets objects before they are returned to the pool.
+     * @param dispose disposes objects which exceed {@code maxPooled}.
+     */
+    public BoundedObjectPool(final int maxPooled, final Supplier<T> factory, final Consumer<T> reset,
+                             final Consumer<T> dispose) {
+        if (maxPooled < 0) {
+            throw new IllegalArgumentException("maxPooled: " + maxPooled + " (expected >=0)");
+        }
+        this.maxPooled = maxPooled;
+        this.factory = requireNonNull(factory);
+        this.reset = requireNonNull(reset);
+        this.dispose = requireNonNull(dispose);
+    }
+
+    /**
+     * Takes an object from the pool, or creates a new one if the pool is empty.
+     *
+     * @return an object which is exclusively owned by the caller until it is {@link #release(Object) released}.
+     */
+    public T acquire() {
+        final T pooled = pool.poll();
+        if (pooled == null) {
+            return factory.get();
+        }
+        sizeUpdater.decrementAndGet(this);
+        return pooled;
+    }
+
+    /**
+     * Returns an object to the pool, or disposes it if the pool is full. The object must not be used afterwards.
+     *
+     * @param object an object previously returned by {@link #acquire()}.
+     */
+    public void release(final T object) {
+        if (sizeUpdater.incrementAndGet(this) > maxPooled) {
+            sizeUpdater.decrementAndGet(this);
+            dispose.accept(object);
+            return;
+        }
+        reset.accept(object);
+        pool.offer(object);
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.concurrent.internal;
+
+import io.servicetalk.concurrent.PublisherSource.Subscriber;
+import io.servicetalk.concurrent.PublisherSource.Subscription;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A {@link Subscription} which owns an object of a {@link BoundedObjectPool} for the lifetime of a
+ * {@link Subscriber}, and releases it exactly once on {@link #cancel()} or termination, whichever comes first.
+ * <p>
+ * {@link #cancel()} may be called concurrently with {@link Subscriber#onNext(Object)}, so {@code onNext} uses the
+ * pooled object between {@link #enter()} and {@link #exit()} and the object is released by {@link #exit()} if it was
+ * cancelled or terminated in the meantime. {@code onNext} may be re-entered if the downstream {@link Subscriber}
+ * requests more items from within {@code onNext}.
+ * <p>
+ * A {@link Subscriber} which fails in {@code onNext} should {@link #cancel()} and deliver the error downstream
+ * directly. Signals after {@link #cancel()} or termination are dropped: {@link #enter()} and {@link #release()}
+ * return {@code false}.
+ *
+ * @param <T> the type of the pooled object.
+ */
+public final class PooledObjectSubscription<T> implements Subscription {
+    private static final int IDLE = 0;
+    private static final int IN_USE = 1;
+    private static final int RELEASE_PENDING = 2;
+    private static final int RELEASED = 3;
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<PooledObjectSubscription> stateUpdater =
+            AtomicIntegerFieldUpdater.newUpdater(PooledObjectSubscription.class, "state");
+
+    private final Subscription subscription;
+    private final BoundedObjectPool<T> pool;
+    private final T object;
+    private volatile int state;
+    // Only accessed from onNext, which is not invoked concurrently.
+    private int depth;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param subscription the upstream {@link Subscription}.
+     * @param pool the {@link BoundedObjectPool} to release {@code object} to.
+     * @param object the pooled object, acquired from {@code pool}.
+     */
+    public PooledObjectSubscription(final Subscription subscription, final BoundedObjectPool<T> pool,
+                                    final T object) {
+        this.subscription = requireNonNull(subscription);
+        this.pool = requireNonNull(pool);
+        this.object = requireNonNull(object);
+    }
+
+    /**
+     * Marks the pooled object as in use by {@code onNext}.
+     *
+     * @return {@code false} if cancelled or terminated, the pooled object must not be used and the item should be
+     * dropped.
+     */
+    public boolean enter() {
+        if (depth > 0) {
+            if (state != IN_USE) {
+                return false;
+            }
+            ++depth;
+            return true;
+        }
+        if (stateUpdater.compareAndSet(this, IDLE, IN_USE)) {
+            depth = 1;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Marks the pooled object as no longer in use by the outermost {@code onNext}, releases it if cancelled or
+     * terminated in the meantime.
+     */
+    public void exit() {
+        if (--depth > 0) {
+            return;
+        }
+        if (!stateUpdater.compareAndSet(this, IN_USE, IDLE) &&
+                stateUpdater.compareAndSet(this, RELEASE_PENDING, RELEASED)) {
+            pool.release(object);
+        }
+    }
+
+    /**
+     * Releases the pooled object on termination, once it is no longer in use by {@code onNext}.
+     *
+     * @return {@code false} if already cancelled or terminated, the terminal signal should be dropped.
+     */
+    public boolean release() {
+        for (;;) {
+            final int currentState = state;
+            if (currentState == IDLE) {
+                if (stateUpdater.compareAndSet(this, IDLE, RELEASED)) {
+                    pool.release(object);
+                    return true;
+                }
+            } else if (currentState == IN_USE) {
+                if (stateUpdater.compareAndSet(this, IN_USE, RELEASE_PENDING)) {
+                    return true;
+                }
+            } else {
+                return false;
+            }
+        }
+    }
+
+    @Override
+    public void request(final long n) {
+        subscription.request(n);
+    }
+
+    @Override
+    public void cancel() {
+        try {
+            subscription.cancel();
+        } finally {
+            release();
+        }
+    }
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright © 2018 Apple Inc. and the ServiceTalk project authors
+ * Copyright © 2018-2021 Apple Inc. and the ServiceTalk project authors
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,7 @@
 package io.servicetalk.concurrent.internal;
 
 import io.servicetalk.concurrent.Executor;
+import io.servicetalk.concurrent.PublisherSource.Subscriber;
 
 /**
  * A factory for creating different {@link SignalOffloader}s.
@@ -46,6 +47,21 @@ public final class SignalOffloaders {
         }
     };
 
+    private static final SignalOffloaderFactory BATCHING_OFFLOADER_FACTORY = new SignalOffloaderFactory() {
+        @Override
+        public SignalOffloader newSignalOffloader(final Executor executor) {
+            return newBatchingOffloader(executor);
+        }
+
+        @Override
+        public boolean hasThreadAffinity() {
+            return false;
+        }
+    };
+
+    private static final int DEFAULT_MAX_BATCH_SIZE = 1024;
+    private static final int DEFAULT_SPINS_BEFORE_IDLE = 16;
+
     private static final SignalOffloaderFactory DEFAULT_OFFLOADER_FACTORY = TASK_BASED_OFFLOADER_FACTORY;
 
     private SignalOffloaders() {
@@ -79,6 +95,17 @@ public final class SignalOffloaders {
         return TASK_BASED_OFFLOADER_FACTORY;
     }
 
+    /**
+     * Return a {@link SignalOffloaderFactory} that uses granular tasks for sending signals, but delivers signals to a
+     * {@link Subscriber} in batches under load.
+     *
+     * @return A {@link SignalOffloaderFactory} that delivers signals to a {@link Subscriber} in batches under load.
+     * @see #newBatchingOffloader(Executor, int, int)
+     */
+    public static SignalOffloaderFactory batchingOffloaderFactory() {
+        return BATCHING_OFFLOADER_FACTORY;
+    }
+
     /**
      * Create a new instance of {@link SignalOffloader} using the passed {@code executor}.
      *
@@ -102,6 +129,39 @@ public final class SignalOffloaders {
         return new TaskBasedSignalOffloader(executor);
     }
 
+    /**
+     * Create a new instance of {@link SignalOffloader} using the passed {@code executor} that delivers signals to a
+     * {@link Subscriber} in batches under load, with default limits.
+     *
+     * @param executor {@link Executor} to be used by the returned {@link SignalOffloader} to offload signals.
+     * @return Newly created {@link SignalOffloader}.
+     * @see #newBatchingOffloader(Executor, int, int)
+     */
+    public static SignalOffloader newBatchingOffloader(final Executor executor) {
+        return newBatchingOffloader(executor, DEFAULT_MAX_BATCH_SIZE, DEFAULT_SPINS_BEFORE_IDLE);
+    }
+
+    /**
+     * Create a new instance of {@link SignalOffloader} using the passed {@code executor} that delivers signals to a
+     * {@link Subscriber} in batches under load.
+     * <p>
+     * Like {@link #newTaskBasedOffloader(Executor)} a task delivers all signals queued for a {@link Subscriber}, but if
+     * it delivered more than one signal and the {@link Subscriber} has outstanding demand, it polls for new signals
+     * {@code spinsBeforeIdle} times before completing. While the producer keeps up, the {@link Subscriber} stays on the
+     * same thread similar to {@link #newThreadBasedOffloader(Executor)}, without a task submission and a wake up per
+     * signal. After {@code maxBatchSize} signals a new task is submitted so that the thread can be used by other tasks.
+     *
+     * @param executor {@link Executor} to be used by the returned {@link SignalOffloader} to offload signals.
+     * @param maxBatchSize Maximum number of signals delivered by a single task.
+     * @param spinsBeforeIdle Number of times to poll for new signals before a task completes, while there is
+     * outstanding demand.
+     * @return Newly created {@link SignalOffloader}.
+     */
+    public static SignalOffloader newBatchingOffloader(final Executor executor, final int maxBatchSize,
+                                                       final int spinsBeforeIdle) {
+        return new TaskBasedSignalOffloader(executor, 2, maxBatchSize, spinsBeforeIdle);
+    }
+
     /**
      * Create a new instance of {@link SignalOffloader} using the passed {@code executor} that captures a thread for
      * its lifetime.
@@ -1,5 +1,5 @@
 /*
- * Copyright © 2018-2019 Apple Inc. and the ServiceTalk project authors
+ * Copyright © 2018-2021 Apple Inc. and the ServiceTalk project authors
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -56,6 +56,8 @@ final class TaskBasedSignalOffloader implements SignalOffloader {
 
     private final Executor executor;
     private final int publisherSignalQueueInitialCapacity;
+    private final int maxBatchSize;
+    private final int spinsBeforeIdle;
 
     TaskBasedSignalOffloader(final Executor executor) {
         this(executor, 2);
@@ -68,13 +70,38 @@ final class TaskBasedSignalOffloader implements SignalOffloader {
      * @param publisherSignalQueueInitialCapacity Initial capacity for the queue of signals to a {@link Subscriber}.
      */
     TaskBasedSignalOffloader(final Executor executor, final int publisherSignalQueueInitialCapacity) {
+        this(executor, publisherSignalQueueInitialCapacity, Integer.MAX_VALUE, 0);
+    }
+
+    /**
+     * New instance.
+     *
+     * @param executor A {@link Executor} to use for offloading signals.
+     * @param publisherSignalQueueInitialCapacity Initial capacity for the queue of signals to a {@link Subscriber}.
+     * @param maxBatchSize Maximum number of signals delivered to a {@link Subscriber} by a single task, before a new
+     * task is submitted to let other tasks use the thread.
+     * @param spinsBeforeIdle Number of times a task which delivered more than one signal polls for more signals before
+     * it completes while the {@link Subscriber} has outstanding demand, {@code 0} to complete as soon as there are no
+     * signals.
+     */
+    TaskBasedSignalOffloader(final Executor executor, final int publisherSignalQueueInitialCapacity,
+                             final int maxBatchSize, final int spinsBeforeIdle) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("maxBatchSize: " + maxBatchSize + " (expected >0)");
+        }
+        if (spinsBeforeIdle < 0) {
+            throw new IllegalArgumentException("spinsBeforeIdle: " + spinsBeforeIdle + " (expected >=0)");
+        }
         this.executor = requireNonNull(executor);
         this.publisherSignalQueueInitialCapacity = publisherSignalQueueInitialCapacity;
+        this.maxBatchSize = maxBatchSize;
+        this.spinsBeforeIdle = spinsBeforeIdle;
     }
 
     @Override
     public <T> Subscriber<? super T> offloadSubscriber(final Subscriber<? super T> subscriber) {
-        return new OffloadedSubscriber<>(subscriber, executor, publisherSignalQueueInitialCapacity);
+        return new OffloadedSubscriber<>(subscriber, executor, publisherSignalQueueInitialCapacity, maxBatchSize,
+                spinsBeforeIdle);
     }
 
     @Override
@@ -283,12 +310,22 @@ final class TaskBasedSignalOffloader implements SignalOffloader {
         @SuppressWarnings("rawtypes")
         private static final AtomicIntegerFieldUpdater<OffloadedSubscriber> stateUpdater =
                 newUpdater(OffloadedSubscriber.class, "state");
+        @SuppressWarnings("rawtypes")
+        private static final AtomicLongFieldUpdater<OffloadedSubscriber> demandUpdater =
+                AtomicLongFieldUpdater.newUpdater(OffloadedSubscriber.class, "demand");
 
         private volatile int state = STATE_IDLE;
+        /**
+         * Items requested by {@link #target} which are not yet delivered. Only tracked if {@link #spinsBeforeIdle} is
+         * positive, to decide whether waiting for more signals is worthwhile.
+         */
+        private volatile long demand;
 
         private final Subscriber<? super T> target;
         private final Executor executor;
         private final Queue<Object> signals;
+        private final int maxBatchSize;
+        private final int spinsBeforeIdle;
         // Set in onSubscribe before we enqueue the task which provides memory visibility inside the task.
         // Since any further action happens after onSubscribe, we always guarantee visibility of this field inside
         // run()
@@ -296,9 +333,12 @@ final class TaskBasedSignalOffloader implements SignalOffloader {
         private Subscription subscription;
 
         OffloadedSubscriber(final Subscriber<? super T> target, final Executor executor,
-                                    final int publisherSignalQueueInitialCapacity) {
+                            final int publisherSignalQueueInitialCapacity, final int maxBatchSize,
+                            final int spinsBeforeIdle) {
             this.target = target;
             this.executor = executor;
+            this.maxBatchSize = maxBatchSize;
+            this.spinsBeforeIdle = spinsBeforeIdle;
             // Queue is bounded by request-n
             signals = newUnboundedSpscQueue(publisherSignalQueueInitialCapacity);
         }
@@ -327,13 +367,15 @@ final class TaskBasedSignalOffloader implements SignalOffloader {
         @Override
         public void run() {
             state = STATE_EXECUTING;
+            int delivered = 0;
             for (;;) {
                 Object signal;
-                while ((signal = signals.poll()) != null) {
+                while ((signal = pollSignal(delivered)) != null) {
                     if (signal instanceof Subscription) {
                         Subscription subscription = (Subscription) signal;
                         try {
-                            target.onSubscribe(subscription);
+                            target.onSubscribe(spinsBeforeIdle > 0 ? new DemandTrackingSubscription(subscription) :
+                                    subscription);
                         } catch (Throwable t) {
                             clearSignalsFromExecutorThread();
                             safeOnError(target, t);
@@ -352,6 +394,9 @@ final class TaskBasedSignalOffloader implements SignalOffloader {
                     } else {
                         @SuppressWarnings("unchecked")
                         T t = signal == NULL_WRAPPER ? null : (T) signal;
+                        if (spinsBeforeIdle > 0 && demand != Long.MAX_VALUE) {
+                            demandUpdater.decrementAndGet(this);
+                        }
                         try {
                             target.onNext(t);
                         } catch (Throwable th) {
@@ -362,6 +407,12 @@ final class TaskBasedSignalOffloader implements SignalOffloader {
                             return; // We can't interact with the queue any more because we terminated, so bail.
                         }
                     }
+                    if (++delivered == maxBatchSize) {
+                        if (resubmit()) {
+                            return;
+                        }
+                        delivered = 0;
+                    }
                 }
                 for (;;) {
                     final int cState = state;
@@ -380,6 +431,58 @@ final class TaskBasedSignalOffloader implements SignalOffloader {
             }
         }
 
+        @Nullable
+        private Object pollSignal(final int delivered) {
+            Object signal = signals.poll();
+            if (signal == null && delivered > 1 && demand > 0) {
+                // Delivering more than one signal per task indicates the producer keeps up with the consumer. Hold on
+                // to the thread for a little while instead of paying for a new task and a wake up for the next signal.
+                // Without outstanding demand no more items can arrive, so there is nothing to wait for.
+                for (int i = 0; i < spinsBeforeIdle && (signal = signals.poll()) == null; ++i) {
+                    Thread.yield();
+                }
+            }
+            return signal;
+        }
+
+        /**
+         * Tracks the {@link #demand} of {@link #target}, delegating all calls to the original {@link Subscription}.
+         */
+        private final class DemandTrackingSubscription implements Subscription {
+            private final Subscription delegate;
+
+            DemandTrackingSubscription(final Subscription delegate) {
+                this.delegate = delegate;
+            }
+
+            @Override
+            public void request(final long n) {
+                if (isRequestNValid(n)) {
+                    demandUpdater.accumulateAndGet(OffloadedSubscriber.this, n,
+                            FlowControlUtils::addWithOverflowProtection);
+                }
+                delegate.request(n);
+            }
+
+            @Override
+            public void cancel() {
+                delegate.cancel();
+            }
+        }
+
+        private boolean resubmit() {
+            // Producers only submit a task when the state is STATE_IDLE, which is not the case while this task runs.
+            state = STATE_ENQUEUED;
+            try {
+                executor.execute(this);
+                return true;
+            } catch (Throwable t) {
+                // The executor is saturated, continue delivering from this task.
+                state = STATE_EXECUTING;
+                return false;
+            }
+        }
+
         private void clearSignalsFromExecutorThread() {
             do {
                 state = STATE_TERMINATING;
@@ -0,0 +1,66 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.concurrent.internal;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class BoundedObjectPoolTest {
+
+    private final AtomicInteger created = new AtomicInteger();
+    private final List<Object> reset = new ArrayList<>();
+    private final List<Object> disposed = new ArrayList<>();
+    private final BoundedObjectPool<Object> pool = new BoundedObjectPool<>(1, () -> {
+        created.incrementAndGet();
+        return new Object();
+    }, reset::add, disposed::add);
+
+    @Test
+    public void releasedObjectIsReused() {
+        final Object object = pool.acquire();
+        pool.release(object);
+        assertThat(reset, contains(object));
+        assertThat(pool.acquire(), is(sameInstance(object)));
+        assertThat(created.get(), is(1));
+    }
+
+    @Test
+    public void objectsExceedingTheBoundAreDisposed() {
+        final Object first = pool.acquire();
+        final Object second = pool.acquire();
+        pool.release(first);
+        pool.release(second);
+        assertThat(reset, contains(first));
+        assertThat(disposed, contains(second));
+
+        assertThat(pool.acquire(), is(sameInstance(first)));
+        pool.acquire();
+        assertThat(created.get(), is(3));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeBound() {
+        new BoundedObjectPool<>(-1, Object::new, __ -> { }, __ -> { });
+    }
+}
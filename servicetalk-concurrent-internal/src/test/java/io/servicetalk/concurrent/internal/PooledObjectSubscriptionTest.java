@@ -0,0 +1,90 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.concurrent.internal;
+
+import io.servicetalk.concurrent.PublisherSource.Subscription;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+public class PooledObjectSubscriptionTest {
+
+    private final Subscription upstream = mock(Subscription.class);
+    private final List<Object> released = new ArrayList<>();
+    private final BoundedObjectPool<Object> pool = new BoundedObjectPool<>(1, Object::new, released::add,
+            released::add);
+    private final Object object = pool.acquire();
+    private final PooledObjectSubscription<Object> subscription =
+            new PooledObjectSubscription<>(upstream, pool, object);
+
+    @Test
+    public void cancelWhenIdleReleases() {
+        subscription.cancel();
+        verify(upstream).cancel();
+        assertThat(released, contains(object));
+        assertThat(subscription.enter(), is(false));
+        assertThat(subscription.release(), is(false));
+        assertThat(released, contains(object));
+    }
+
+    @Test
+    public void cancelWhenInUseReleasesOnExit() {
+        assertThat(subscription.enter(), is(true));
+        subscription.cancel();
+        verify(upstream).cancel();
+        assertThat(released, is(empty()));
+        subscription.exit();
+        assertThat(released, contains(object));
+        assertThat(subscription.enter(), is(false));
+    }
+
+    @Test
+    public void releaseWhenInUseReleasesOnOutermostExit() {
+        assertThat(subscription.enter(), is(true));
+        assertThat(subscription.enter(), is(true));
+        assertThat(subscription.release(), is(true));
+        // Items are dropped once terminated, also when re-entered.
+        assertThat(subscription.enter(), is(false));
+        subscription.exit();
+        assertThat(released, is(empty()));
+        subscription.exit();
+        assertThat(released, contains(object));
+
+        subscription.cancel();
+        assertThat(subscription.release(), is(false));
+        assertThat(released, contains(object));
+    }
+
+    @Test
+    public void releaseWhenIdle() {
+        assertThat(subscription.enter(), is(true));
+        subscription.exit();
+        assertThat(subscription.release(), is(true));
+        assertThat(released, contains(object));
+        assertThat(subscription.release(), is(false));
+        subscription.cancel();
+        assertThat(released, contains(object));
+    }
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright © 2018 Apple Inc. and the ServiceTalk project authors
+ * Copyright © 2018-2021 Apple Inc. and the ServiceTalk project authors
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -24,7 +24,9 @@ import io.servicetalk.concurrent.SingleSource;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 
+import java.util.concurrent.CountDownLatch;
 import java.util.function.Consumer;
 
 import static io.servicetalk.concurrent.internal.DeliberateException.DELIBERATE_EXCEPTION;
@@ -35,6 +37,8 @@ import static org.hamcrest.Matchers.is;
 import static org.mockito.ArgumentCaptor.forClass;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -448,6 +452,119 @@ public class TaskBasedSignalOffloaderTest extends AbstractSignalOffloaderTest<Ta
         verifyNoMoreInteractions(pubSub);
     }
 
+    @Test
+    public void batchLimitResubmitsTask() {
+        Subscriber<? super Integer> offloaded = new TaskBasedSignalOffloader(executor, 2, 2, 0)
+                .offloadSubscriber(pubSub);
+        emitAll(offloaded);
+        verify(executor.mock).execute(any());
+        assertThat("Unexpected tasks executed.", executor.executeAllTasks(), is(2));
+        verifyEmitted();
+    }
+
+    @Test
+    public void batchLimitContinuesWhenResubmitRejected() {
+        Subscriber<? super Integer> offloaded = new TaskBasedSignalOffloader(executor, 2, 2, 0)
+                .offloadSubscriber(pubSub);
+        emitAll(offloaded);
+        doThrow(DELIBERATE_EXCEPTION).when(executor.mock).execute(any());
+        assertThat("Unexpected tasks executed.", executor.executeAllTasks(), is(1));
+        verify(executor.mock, times(2)).execute(any());
+        verifyEmitted();
+    }
+
+    @Test
+    public void spinDeliversSignalsWhileDemandOutstanding() throws Exception {
+        // The task spins until the last requested item arrives from another thread, and stops spinning once the
+        // demand is fulfilled. It would not complete otherwise with this number of spins.
+        Subscriber<? super Integer> offloaded = new TaskBasedSignalOffloader(executor, 2, Integer.MAX_VALUE,
+                Integer.MAX_VALUE).offloadSubscriber(pubSub);
+        CountDownLatch spinning = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            invocation.<Subscription>getArgument(0).request(3);
+            return null;
+        }).when(pubSub).onSubscribe(any());
+        doAnswer(invocation -> {
+            spinning.countDown();
+            return null;
+        }).when(pubSub).onNext(2);
+        Thread producer = new Thread(() -> {
+            try {
+                spinning.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            offloaded.onNext(3);
+        });
+        producer.start();
+        offloaded.onSubscribe(subscription);
+        offloaded.onNext(1);
+        offloaded.onNext(2);
+
+        assertThat("Unexpected tasks executed.", executor.executeAllTasks(), is(1));
+        producer.join();
+        verify(executor.mock).execute(any());
+        verify(subscription).request(3);
+        InOrder order = inOrder(pubSub);
+        order.verify(pubSub).onSubscribe(any());
+        order.verify(pubSub).onNext(1);
+        order.verify(pubSub).onNext(2);
+        order.verify(pubSub).onNext(3);
+        order.verifyNoMoreInteractions();
+    }
+
+    @Test
+    public void noSpinWithoutDemand() {
+        // All requested items are delivered, so the task completes right away even with this number of spins.
+        Subscriber<? super Integer> offloaded = new TaskBasedSignalOffloader(executor, 2, Integer.MAX_VALUE,
+                Integer.MAX_VALUE).offloadSubscriber(pubSub);
+        doAnswer(invocation -> {
+            invocation.<Subscription>getArgument(0).request(2);
+            return null;
+        }).when(pubSub).onSubscribe(any());
+        offloaded.onSubscribe(subscription);
+        offloaded.onNext(1);
+        offloaded.onNext(2);
+        assertThat("Unexpected tasks executed.", executor.executeAllTasks(), is(1));
+
+        offloaded.onComplete();
+        assertThat("Unexpected tasks executed.", executor.executeAllTasks(), is(1));
+        verify(executor.mock, times(2)).execute(any());
+        InOrder order = inOrder(pubSub);
+        order.verify(pubSub).onSubscribe(any());
+        order.verify(pubSub).onNext(1);
+        order.verify(pubSub).onNext(2);
+        order.verify(pubSub).onComplete();
+        order.verifyNoMoreInteractions();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidBatchSize() {
+        new TaskBasedSignalOffloader(executor, 2, 0, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidSpinsBeforeIdle() {
+        new TaskBasedSignalOffloader(executor, 2, 1, -1);
+    }
+
+    private void emitAll(final Subscriber<? super Integer> offloaded) {
+        offloaded.onSubscribe(subscription);
+        offloaded.onNext(1);
+        offloaded.onNext(2);
+        offloaded.onComplete();
+    }
+
+    private void verifyEmitted() {
+        InOrder order = inOrder(pubSub);
+        order.verify(pubSub).onSubscribe(subscription);
+        order.verify(pubSub).onNext(1);
+        order.verify(pubSub).onNext(2);
+        order.verify(pubSub).onComplete();
+        order.verifyNoMoreInteractions();
+    }
+
     private void requestNAndVerify(final Subscription offloaded) {
         offloaded.request(1);
         verify(executor.mock).execute(any());
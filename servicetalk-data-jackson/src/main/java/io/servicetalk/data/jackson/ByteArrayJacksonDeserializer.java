@@ -1,5 +1,5 @@
 /*
- * Copyright © 2018 Apple Inc. and the ServiceTalk project authors
+ * Copyright © 2018-2021 Apple Inc. and the ServiceTalk project authors
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -26,10 +26,15 @@ import java.util.List;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
+import static java.lang.Math.min;
 import static java.util.Collections.emptyList;
 
 final class ByteArrayJacksonDeserializer<T> extends AbstractJacksonDeserializer<T> {
+    private static final int MAX_COPY_BUFFER_SIZE = 8192;
+
     private final ByteArrayFeeder feeder;
+    @Nullable
+    private byte[] copyBuffer;
 
     ByteArrayJacksonDeserializer(ObjectReader reader, JsonParser parser, ByteArrayFeeder feeder) {
         super(reader, parser);
@@ -39,18 +44,36 @@ final class ByteArrayJacksonDeserializer<T> extends AbstractJacksonDeserializer<
     @Nonnull
     Iterable<T> doDeserialize(final Buffer buffer, @Nullable List<T> resultHolder) throws IOException {
         if (buffer.hasArray()) {
-            feeder.feedInput(buffer.array(), buffer.arrayOffset() + buffer.readerIndex(),
-                    buffer.arrayOffset() + buffer.readableBytes());
-        } else {
-            int readableBytes = buffer.readableBytes();
-            if (readableBytes != 0) {
-                byte[] copy = new byte[readableBytes];
-                buffer.readBytes(copy);
-                feeder.feedInput(copy, 0, copy.length);
+            final int start = buffer.arrayOffset() + buffer.readerIndex();
+            feeder.feedInput(buffer.array(), start, start + buffer.readableBytes());
+            return !feeder.needMoreInput() ? consumeParserTokens(resultHolder) : emptyList();
+        }
+
+        // The parser consumes all fed input before it needs more, so a bounded array can be reused to copy the buffer
+        // in chunks instead of allocating an array as large as the buffer.
+        List<T> result = resultHolder;
+        int readableBytes;
+        while ((readableBytes = buffer.readableBytes()) != 0) {
+            final byte[] copy = copyBuffer(readableBytes);
+            final int length = min(readableBytes, copy.length);
+            buffer.readBytes(copy, 0, length);
+            feeder.feedInput(copy, 0, length);
+            if (!feeder.needMoreInput()) {
+                final List<T> parsed = consumeParserTokens(result);
+                if (!parsed.isEmpty()) {
+                    result = parsed;
+                }
             }
         }
+        return result == null ? emptyList() : result;
+    }
 
-        return !feeder.needMoreInput() ? consumeParserTokens(resultHolder) : emptyList();
+    private byte[] copyBuffer(final int readableBytes) {
+        final int size = min(readableBytes, MAX_COPY_BUFFER_SIZE);
+        if (copyBuffer == null || copyBuffer.length < size) {
+            copyBuffer = new byte[size];
+        }
+        return copyBuffer;
     }
 
     @Override
@@ -1,5 +1,5 @@
 /*
- * Copyright © 2018 Apple Inc. and the ServiceTalk project authors
+ * Copyright © 2018-2021 Apple Inc. and the ServiceTalk project authors
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -22,6 +22,7 @@ import com.fasterxml.jackson.core.async.ByteBufferFeeder;
 import com.fasterxml.jackson.databind.ObjectReader;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.List;
 import javax.annotation.Nullable;
 
@@ -37,8 +38,21 @@ final class ByteBufferJacksonDeserializer<T> extends AbstractJacksonDeserializer
 
     @Override
     Iterable<T> doDeserialize(final Buffer buffer, @Nullable final List<T> resultHolder) throws IOException {
-        feeder.feedInput(buffer.toNioBuffer());
-        return !feeder.needMoreInput() ? consumeParserTokens(resultHolder) : emptyList();
+        // Feed each component separately instead of toNioBuffer() which would copy a composite buffer.
+        List<T> result = resultHolder;
+        for (ByteBuffer nioBuffer : buffer.toNioBuffers()) {
+            if (!nioBuffer.hasRemaining()) {
+                continue;
+            }
+            feeder.feedInput(nioBuffer);
+            if (!feeder.needMoreInput()) {
+                final List<T> parsed = consumeParserTokens(result);
+                if (!parsed.isEmpty()) {
+                    result = parsed;
+                }
+            }
+        }
+        return result == null ? emptyList() : result;
     }
 
     @Override
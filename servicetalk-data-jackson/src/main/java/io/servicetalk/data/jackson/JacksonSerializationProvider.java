@@ -1,5 +1,5 @@
 /*
- * Copyright © 2018 Apple Inc. and the ServiceTalk project authors
+ * Copyright © 2018-2021 Apple Inc. and the ServiceTalk project authors
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -31,6 +31,9 @@ import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.ObjectWriter;
 
 import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import javax.annotation.Nullable;
 
 import static io.servicetalk.buffer.api.Buffer.asOutputStream;
 import static io.servicetalk.utils.internal.PlatformDependent.throwException;
@@ -40,6 +43,8 @@ import static java.util.Objects.requireNonNull;
  * {@link SerializationProvider} implementation using jackson.
  */
 public final class JacksonSerializationProvider implements SerializationProvider {
+    @Nullable
+    private static final Method CREATE_BYTE_BUFFER_PARSER = createByteBufferParserMethod();
 
     private final ObjectMapper mapper;
 
@@ -96,15 +101,13 @@ public final class JacksonSerializationProvider implements SerializationProvider
 
     private static <T> StreamingDeserializer<T> newDeserializer(ObjectReader reader) {
         final JsonFactory factory = reader.getFactory();
-        final JsonParser parser;
-        try {
-            // TODO(scott): ByteBufferFeeder is currently not supported by jackson, and the current API throws
-            // UnsupportedOperationException if not supported. When jackson does support two NonBlockingInputFeeder
-            // types we need an approach which doesn't involve catching UnsupportedOperationException to try to get
-            // ByteBufferFeeder and then ByteArrayFeeder.
-            parser = factory.createNonBlockingByteArrayParser();
-        } catch (IOException e) {
-            throw new IllegalArgumentException("parser initialization error for factory: " + factory, e);
+        JsonParser parser = newByteBufferParser(factory);
+        if (parser == null) {
+            try {
+                parser = factory.createNonBlockingByteArrayParser();
+            } catch (IOException e) {
+                throw new IllegalArgumentException("parser initialization error for factory: " + factory, e);
+            }
         }
         NonBlockingInputFeeder rawFeeder = parser.getNonBlockingInputFeeder();
         if (rawFeeder instanceof ByteBufferFeeder) {
@@ -115,4 +118,39 @@ public final class JacksonSerializationProvider implements SerializationProvider
         }
         throw new IllegalArgumentException("unsupported feeder type: " + rawFeeder);
     }
+
+    /**
+     * Creates a parser backed by a {@link ByteBufferFeeder} if supported by the {@link JsonFactory}. A
+     * {@link ByteBufferFeeder} reads direct memory without copying it into a {@code byte[]} first.
+     *
+     * @param factory the {@link JsonFactory} to create a parser from.
+     * @return a parser backed by a {@link ByteBufferFeeder}, or {@code null} if not supported.
+     */
+    @Nullable
+    private static JsonParser newByteBufferParser(final JsonFactory factory) {
+        // JsonFactory#createNonBlockingByteBufferParser() is only available in newer versions of jackson, and
+        // factories which don't support it throw UnsupportedOperationException.
+        if (CREATE_BYTE_BUFFER_PARSER == null) {
+            return null;
+        }
+        try {
+            return (JsonParser) CREATE_BYTE_BUFFER_PARSER.invoke(factory);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof UnsupportedOperationException) {
+                return null;
+            }
+            throw new IllegalArgumentException("parser initialization error for factory: " + factory, e.getCause());
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    @Nullable
+    private static Method createByteBufferParserMethod() {
+        try {
+            return JsonFactory.class.getMethod("createNonBlockingByteBufferParser");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
 }
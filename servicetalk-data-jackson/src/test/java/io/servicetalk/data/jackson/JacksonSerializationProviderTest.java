@@ -1,5 +1,5 @@
 /*
- * Copyright © 2018 Apple Inc. and the ServiceTalk project authors
+ * Copyright © 2018-2021 Apple Inc. and the ServiceTalk project authors
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -33,6 +33,7 @@ import java.util.List;
 import javax.annotation.Nonnull;
 
 import static io.servicetalk.buffer.netty.BufferAllocators.DEFAULT_ALLOCATOR;
+import static java.util.Arrays.fill;
 import static java.util.Collections.singletonList;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.core.Is.is;
@@ -164,6 +165,64 @@ public class JacksonSerializationProviderTest {
         assertThat("Unexpected data remaining in deserializer", deserializer.hasData(), is(false));
     }
 
+    @Test
+    public void deserializeFromArrayBufferWithReaderIndex() {
+        TestPojo expected = new TestPojo(true, (byte) -2, (short) -3, 'a', 2, 5, 3.2f, -8.5, null, new String[] {"bar"},
+                null);
+        final Buffer serialized = serializePojo(expected);
+        final Buffer buffer = DEFAULT_ALLOCATOR.newBuffer(serialized.readableBytes() + 2, false);
+        buffer.writeBytes(new byte[] {'x', 'x'}).writeBytes(serialized).skipBytes(2);
+
+        final StreamingDeserializer<TestPojo> deserializer = serializationProvider.getDeserializer(TestPojo.class);
+        Iterator<TestPojo> iter = deserializer.deserialize(buffer).iterator();
+        assertTrue(iter.hasNext());
+        assertEquals(expected, iter.next());
+        assertFalse(iter.hasNext());
+        assertThat("Unexpected data remaining in deserializer", deserializer.hasData(), is(false));
+    }
+
+    @Test
+    public void deserializeTwoItemsFromDirectBuffer() {
+        final char[] largeString = new char[10000];
+        fill(largeString, 'a');
+        TestPojo expected1 = new TestPojo(true, (byte) -2, (short) -3, 'a', 2, 5, 3.2f, -8.5, new String(largeString),
+                new String[] {"bar", "baz"}, null);
+        TestPojo expected2 = new TestPojo(false, (byte) 500, (short) 353, 'r', 100, 534, 33.25f, 888.5, null,
+                new String[] {"foo"}, expected1);
+
+        final Buffer buffer1 = serializePojo(expected1);
+        final Buffer buffer2 = serializePojo(expected2);
+        Buffer direct = DEFAULT_ALLOCATOR.newBuffer(buffer1.readableBytes() + buffer2.readableBytes(), true);
+        direct.writeBytes(buffer1).writeBytes(buffer2);
+
+        final StreamingDeserializer<TestPojo> deserializer = serializationProvider.getDeserializer(TestPojo.class);
+        Iterator<TestPojo> iter = deserializer.deserialize(direct).iterator();
+        assertTrue(iter.hasNext());
+        assertEquals(expected1, iter.next());
+        assertTrue(iter.hasNext());
+        assertEquals(expected2, iter.next());
+        assertFalse(iter.hasNext());
+        assertThat("Unexpected data remaining in deserializer", deserializer.hasData(), is(false));
+    }
+
+    @Test
+    public void deserializeFromCompositeBuffer() {
+        TestPojo expected = new TestPojo(true, (byte) -2, (short) -3, 'a', 2, 5, 3.2f, -8.5, null, new String[] {"bar"},
+                null);
+        final Buffer serialized = serializePojo(expected);
+        final int half = serialized.readableBytes() / 2;
+        final Buffer composite = DEFAULT_ALLOCATOR.newCompositeBuffer()
+                .addBuffer(DEFAULT_ALLOCATOR.newBuffer(half, true).writeBytes(serialized, half))
+                .addBuffer(DEFAULT_ALLOCATOR.newBuffer(serialized.readableBytes(), false).writeBytes(serialized));
+
+        final StreamingDeserializer<TestPojo> deserializer = serializationProvider.getDeserializer(TestPojo.class);
+        Iterator<TestPojo> iter = deserializer.deserialize(composite).iterator();
+        assertTrue(iter.hasNext());
+        assertEquals(expected, iter.next());
+        assertFalse(iter.hasNext());
+        assertThat("Unexpected data remaining in deserializer", deserializer.hasData(), is(false));
+    }
+
     @Test
     public void deserializeSplitAcrossMultipleBuffers() {
         TestPojo expected1 = new TestPojo(true, (byte) -2, (short) -3, 'a', 2, 5, 3.2f, -8.5, null,
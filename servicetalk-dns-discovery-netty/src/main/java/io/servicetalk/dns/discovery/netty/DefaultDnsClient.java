@@ -1,5 +1,5 @@
 /*
- * Copyright © 2018 Apple Inc. and the ServiceTalk project authors
+ * Copyright © 2018, 2021 Apple Inc. and the ServiceTalk project authors
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -25,7 +25,6 @@ import io.servicetalk.concurrent.api.ListenableAsyncCloseable;
 import io.servicetalk.concurrent.api.Publisher;
 import io.servicetalk.concurrent.api.PublisherOperator;
 import io.servicetalk.concurrent.api.internal.SubscribablePublisher;
-import io.servicetalk.concurrent.internal.CancelImmediatelySubscriber;
 import io.servicetalk.concurrent.internal.DuplicateSubscribeException;
 import io.servicetalk.concurrent.internal.RejectedSubscribeError;
 import io.servicetalk.dns.discovery.netty.DnsServiceDiscovererObserver.DnsDiscoveryObserver;
@@ -63,6 +62,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.RandomAccess;
+import java.util.function.Function;
 import java.util.function.IntFunction;
 import javax.annotation.Nullable;
 
@@ -81,12 +81,14 @@ import static io.servicetalk.concurrent.internal.SubscriberUtils.deliverErrorFro
 import static io.servicetalk.concurrent.internal.SubscriberUtils.handleExceptionFromOnSubscribe;
 import static io.servicetalk.concurrent.internal.SubscriberUtils.isRequestNValid;
 import static io.servicetalk.concurrent.internal.SubscriberUtils.newExceptionForInvalidRequestN;
+import static io.servicetalk.concurrent.internal.SubscriberUtils.safeOnComplete;
 import static io.servicetalk.concurrent.internal.SubscriberUtils.safeOnError;
 import static io.servicetalk.concurrent.internal.ThrowableUtils.unknownStackTrace;
 import static io.servicetalk.dns.discovery.netty.DnsClients.mapEventList;
 import static io.servicetalk.transport.netty.internal.BuilderUtils.datagramChannel;
 import static io.servicetalk.transport.netty.internal.BuilderUtils.socketChannel;
 import static io.servicetalk.transport.netty.internal.EventLoopAwareNettyIoExecutors.toEventLoopAwareNettyIoExecutor;
+import static java.lang.Math.min;
 import static java.lang.System.nanoTime;
 import static java.nio.ByteBuffer.wrap;
 import static java.util.Collections.emptyList;
@@ -115,6 +117,13 @@ final class DefaultDnsClient implements DnsClient {
     private final int srvConcurrency;
     private final boolean srvFilterDuplicateEvents;
     private final boolean inactiveEventsOnError;
+    private final long minTtlNanos;
+    private final long serveStaleNanos;
+    private final double prefetchTtlFraction;
+    @Nullable
+    private final Map<String, SharedDnsDiscovery<InetAddress>> aDiscoveries;
+    @Nullable
+    private final Map<String, SharedDnsDiscovery<HostAndPort>> srvDiscoveries;
     private boolean closed;
 
     DefaultDnsClient(final IoExecutor ioExecutor, final int minTTL, int srvConcurrency, boolean inactiveEventsOnError,
@@ -124,10 +133,23 @@ final class DefaultDnsClient implements DnsClient {
                      @Nullable final Boolean optResourceEnabled, @Nullable final Duration queryTimeout,
                      @Nullable final DnsResolverAddressTypes dnsResolverAddressTypes,
                      @Nullable final DnsServerAddressStreamProvider dnsServerAddressStreamProvider,
-                     @Nullable final DnsServiceDiscovererObserver observer) {
+                     @Nullable final DnsServiceDiscovererObserver observer, final Duration serveStaleGracePeriod,
+                     final double prefetchTtlFraction, final boolean shareDiscoveries) {
         if (srvConcurrency <= 0) {
             throw new IllegalArgumentException("srvConcurrency: " + srvConcurrency + " (expected >0)");
         }
+        if (serveStaleGracePeriod.isNegative()) {
+            throw new IllegalArgumentException("serveStaleGracePeriod: " + serveStaleGracePeriod + " (expected >=0)");
+        }
+        if (!(prefetchTtlFraction > 0 && prefetchTtlFraction <= 1)) {
+            throw new IllegalArgumentException("prefetchTtlFraction: " + prefetchTtlFraction + " (expected (0, 1])");
+        }
+        this.minTtlNanos = SECONDS.toNanos(minTTL);
+        this.serveStaleNanos = serveStaleGracePeriod.toNanos();
+        this.prefetchTtlFraction = prefetchTtlFraction;
+        // Only accessed from the event loop.
+        aDiscoveries = shareDiscoveries ? new HashMap<>() : null;
+        srvDiscoveries = shareDiscoveries ? new HashMap<>() : null;
         this.srvConcurrency = srvConcurrency;
         this.srvFilterDuplicateEvents = srvFilterDuplicateEvents;
         this.inactiveEventsOnError = inactiveEventsOnError;
@@ -198,7 +220,9 @@ final class DefaultDnsClient implements DnsClient {
     public Publisher<Collection<ServiceDiscovererEvent<InetAddress>>> dnsQuery(final String address) {
         requireNonNull(address);
         return defer(() -> {
-            ARecordPublisher pub = new ARecordPublisher(address, newDiscoveryObserver(address));
+            DnsDiscoveryPublisher<InetAddress> pub = new DnsDiscoveryPublisher<>(address, aDiscoveries,
+                    newDiscoveryObserver(address), sharedObserver -> new ARecordPublisher(address, sharedObserver),
+                    INET_ADDRESS_COMPARATOR);
             return inactiveEventsOnError ? recoverWithInactiveEvents(pub, false) : pub;
         });
     }
@@ -208,22 +232,26 @@ final class DefaultDnsClient implements DnsClient {
         requireNonNull(serviceName);
         return defer(() -> {
         // State per subscribe requires defer so each subscribe gets independent state.
-        final Map<String, ARecordPublisher> aRecordMap = new HashMap<>(8);
+        final Map<String, DnsDiscoveryPublisher<InetAddress>> aRecordMap = new HashMap<>(8);
         final Map<InetSocketAddress, Integer> availableAddresses = srvFilterDuplicateEvents ?
                 new HashMap<>(8) : emptyMap();
         final DnsDiscoveryObserver discoveryObserver = newDiscoveryObserver(serviceName);
         // We "recover" unconditionally to force inactive events to propagate to all mapped A* publishers to cancel
         // any pending scheduled tasks. SrvInactiveCombinerOperator is used to filter the aggregated collection of
         // inactive events if necessary.
-        return recoverWithInactiveEvents(new SrvRecordPublisher(serviceName, discoveryObserver), true)
+        return recoverWithInactiveEvents(new DnsDiscoveryPublisher<>(serviceName, srvDiscoveries, discoveryObserver,
+                sharedObserver -> new SrvRecordPublisher(serviceName, sharedObserver), HOST_AND_PORT_COMPARATOR), true)
                 .flatMapConcatIterable(identity())
                 .flatMapMerge(srvEvent -> {
                 assertInEventloop();
                 if (srvEvent.isAvailable()) {
                     return defer(() -> {
-                        final ARecordPublisher aPublisher =
-                                new ARecordPublisher(srvEvent.address().hostName(), discoveryObserver);
-                        final ARecordPublisher prevAPublisher = aRecordMap.putIfAbsent(srvEvent.address().hostName(),
+                        final String hostName = srvEvent.address().hostName();
+                        final DnsDiscoveryPublisher<InetAddress> aPublisher = new DnsDiscoveryPublisher<>(hostName,
+                                aDiscoveries, discoveryObserver,
+                                sharedObserver -> new ARecordPublisher(hostName, sharedObserver),
+                                INET_ADDRESS_COMPARATOR);
+                        final DnsDiscoveryPublisher<InetAddress> prevAPublisher = aRecordMap.putIfAbsent(hostName,
                                 aPublisher);
                         if (prevAPublisher != null) {
                             return newDuplicateSrv(serviceName, srvEvent.address().hostName());
@@ -247,7 +275,8 @@ final class DefaultDnsClient implements DnsClient {
                     // Unwrap the list so we can use it in SrvInactiveCombinerOperator below.
                     return from(((SrvInactiveEvent<HostAndPort, InetSocketAddress>) srvEvent).aggregatedEvents);
                 } else {
-                    final ARecordPublisher aPublisher = aRecordMap.remove(srvEvent.address().hostName());
+                    final DnsDiscoveryPublisher<InetAddress> aPublisher =
+                            aRecordMap.remove(srvEvent.address().hostName());
                     if (aPublisher != null) {
                         aPublisher.cancelAndFail0(SrvAddressRemovedException.DNS_SRV_ADDR_REMOVED);
                     }
@@ -376,6 +405,11 @@ final class DefaultDnsClient implements DnsClient {
                 @Override
                 protected Future<DnsAnswer<InetAddress>> doDnsQuery() {
                     ttlCache.prepareForResolution(name);
+                    if (prefetchTtlFraction < 1) {
+                        // Queries happen before the cached entries expire, they have to reach the DNS server to
+                        // refresh the answer.
+                        ttlCache.clear(name);
+                    }
                     Promise<DnsAnswer<InetAddress>> dnsAnswerPromise = ImmediateEventExecutor.INSTANCE.newPromise();
                     resolver.resolveAll(name).addListener(completedFuture -> {
                         Throwable cause = completedFuture.cause();
@@ -435,7 +469,7 @@ final class DefaultDnsClient implements DnsClient {
         @Nullable
         protected final DnsDiscoveryObserver discoveryObserver;
         @Nullable
-        AbstractDnsSubscription subscription;
+        private AbstractDnsSubscription subscription;
 
         AbstractDnsPublisher(final String name, @Nullable final DnsDiscoveryObserver discoveryObserver) {
             this.name = name;
@@ -480,20 +514,12 @@ final class DefaultDnsClient implements DnsClient {
             }
         }
 
-        final void cancelAndFail0(Throwable cause) {
-            assertInEventloop();
-            if (subscription != null) {
-                subscription.cancelAndTerminate0(cause);
-            } else {
-                subscription = newSubscription(CancelImmediatelySubscriber.INSTANCE);
-            }
-        }
-
         abstract class AbstractDnsSubscription implements Subscription {
             private final Subscriber<? super List<ServiceDiscovererEvent<T>>> subscriber;
             private long pendingRequests;
             private List<T> activeAddresses;
             private long resolveDoneNoScheduleTime;
+            private long staleDeadlineNanos;
             @Nullable
             private Cancellable cancellableForQuery;
             private long ttlNanos;
@@ -634,7 +660,15 @@ final class DefaultDnsClient implements DnsClient {
                 final Throwable cause = addressFuture.cause();
                 if (cause != null) {
                     reportResolutionFailed(resolutionObserver, cause);
-                    cancelAndTerminate0(cause);
+                    final long staleNanos = serveStaleNanos == 0 || ttlNanos < 0 ? -1 : staleDeadlineNanos - nanoTime();
+                    if (staleNanos > 0) {
+                        // Keep the last answer active and retry until it is too stale.
+                        LOGGER.debug("DnsClient {}, query failed for {}, serving stale addresses for up to {} nanos.",
+                                DefaultDnsClient.this, AbstractDnsPublisher.this, staleNanos, cause);
+                        scheduleQuery0(min(minTtlNanos, staleNanos));
+                    } else {
+                        cancelAndTerminate0(cause);
+                    }
                 } else {
                     // DNS lookup can return duplicate InetAddress
                     final DnsAnswer<T> dnsAnswer = addressFuture.getNow();
@@ -642,7 +676,12 @@ final class DefaultDnsClient implements DnsClient {
                     final List<ServiceDiscovererEvent<T>> events = calculateDifference(activeAddresses, addresses,
                             comparator(), resolutionObserver == null ? null : (nAvailable, nUnavailable) ->
                                     reportResolutionResult(resolutionObserver, dnsAnswer, nAvailable, nUnavailable));
-                    ttlNanos = dnsAnswer.ttlNanos();
+                    // With prefetching the next query happens before the answer expires.
+                    ttlNanos = prefetchTtlFraction < 1 ? (long) (dnsAnswer.ttlNanos() * prefetchTtlFraction) :
+                            dnsAnswer.ttlNanos();
+                    if (serveStaleNanos > 0) {
+                        staleDeadlineNanos = nanoTime() + dnsAnswer.ttlNanos() + serveStaleNanos;
+                    }
                     if (events != null) {
                         activeAddresses = addresses;
                         if (--pendingRequests > 0) {
@@ -702,9 +741,216 @@ final class DefaultDnsClient implements DnsClient {
                     cancelAndTerminate0(cause);
                 }
             }
+        }
+    }
+
+    /**
+     * A {@link Publisher} of the discovery events for a name, which shares the {@link AbstractDnsPublisher} querying
+     * the name with all other {@link DnsDiscoveryPublisher}s for the same name, if enabled.
+     * <p>
+     * Each {@link DnsDiscoveryPublisher} has its own {@link DnsDiscoveryObserver}, which observes the resolutions of a
+     * shared {@link AbstractDnsPublisher} that start while it is subscribed.
+     *
+     * @param <T> the type of the discovered addresses
+     */
+    private final class DnsDiscoveryPublisher<T> extends SubscribablePublisher<List<ServiceDiscovererEvent<T>>> {
+        private final String name;
+        @Nullable
+        private final Map<String, SharedDnsDiscovery<T>> sharedDiscoveries;
+        @Nullable
+        private final DnsDiscoveryObserver discoveryObserver;
+        private final Function<DnsDiscoveryObserver, AbstractDnsPublisher<T>> publisherFactory;
+        private final Comparator<T> comparator;
+        @Nullable
+        private DiscoverySubscription subscription;
+        @Nullable
+        private Throwable failedCause;
+
+        DnsDiscoveryPublisher(final String name, @Nullable final Map<String, SharedDnsDiscovery<T>> sharedDiscoveries,
+                              @Nullable final DnsDiscoveryObserver discoveryObserver,
+                              final Function<DnsDiscoveryObserver, AbstractDnsPublisher<T>> publisherFactory,
+                              final Comparator<T> comparator) {
+            this.name = name;
+            this.sharedDiscoveries = sharedDiscoveries;
+            this.discoveryObserver = discoveryObserver;
+            this.publisherFactory = publisherFactory;
+            this.comparator = comparator;
+        }
+
+        @Override
+        protected void handleSubscribe(final Subscriber<? super List<ServiceDiscovererEvent<T>>> subscriber) {
+            if (nettyIoExecutor.isCurrentThreadEventLoop()) {
+                handleSubscribe0(subscriber);
+            } else {
+                nettyIoExecutor.asExecutor().execute(() -> handleSubscribe0(subscriber));
+            }
+        }
+
+        private void handleSubscribe0(final Subscriber<? super List<ServiceDiscovererEvent<T>>> subscriber) {
+            assertInEventloop();
+
+            if (subscription != null) {
+                deliverErrorFromSource(subscriber, new DuplicateSubscribeException(subscription, subscriber));
+                return;
+            }
+            if (failedCause != null) {
+                deliverErrorFromSource(subscriber, failedCause);
+                return;
+            }
+            SharedDnsDiscovery<T> discovery = sharedDiscoveries == null ? null : sharedDiscoveries.get(name);
+            if (discovery == null) {
+                discovery = new SharedDnsDiscovery<>(name, sharedDiscoveries, comparator);
+                if (sharedDiscoveries != null) {
+                    sharedDiscoveries.put(name, discovery);
+                }
+                // A shared discovery notifies the observers of all its subscriptions, otherwise there is only this one.
+                // Subscribing from the event loop is synchronous, a closed client terminates the discovery here.
+                publisherFactory.apply(sharedDiscoveries == null || observer == null ? discoveryObserver : discovery)
+                        .subscribe(discovery);
+            }
+            final DiscoverySubscription newSubscription = new DiscoverySubscription(subscriber, discovery);
+            if (!discovery.add0(newSubscription)) {
+                final Throwable cause = discovery.terminalCause;
+                deliverErrorFromSource(subscriber, cause != null ? cause :
+                        new ClosedServiceDiscovererException(DefaultDnsClient.this + " has been closed!"));
+                return;
+            }
+            subscription = newSubscription;
+            try {
+                subscriber.onSubscribe(newSubscription);
+            } catch (Throwable cause) {
+                newSubscription.cancel0();
+                handleExceptionFromOnSubscribe(subscriber, cause);
+            }
+        }
+
+        void cancelAndFail0(final Throwable cause) {
+            assertInEventloop();
+            if (subscription != null) {
+                subscription.cancelAndTerminate0(cause);
+            } else {
+                failedCause = cause;
+            }
+        }
+
+        final class DiscoverySubscription implements Subscription {
+            private final Subscriber<? super List<ServiceDiscovererEvent<T>>> subscriber;
+            private final SharedDnsDiscovery<T> discovery;
+            /**
+             * The addresses this {@link Subscriber} has seen, which may lag behind the shared discovery.
+             */
+            private List<T> activeAddresses;
+            private long pendingRequests;
+            private boolean terminated;
+
+            DiscoverySubscription(final Subscriber<? super List<ServiceDiscovererEvent<T>>> subscriber,
+                                  final SharedDnsDiscovery<T> discovery) {
+                this.subscriber = subscriber;
+                this.discovery = discovery;
+                activeAddresses = emptyList();
+            }
+
+            @Override
+            public void request(final long n) {
+                if (nettyIoExecutor.isCurrentThreadEventLoop()) {
+                    request0(n);
+                } else {
+                    nettyIoExecutor.asExecutor().execute(() -> request0(n));
+                }
+            }
+
+            @Override
+            public void cancel() {
+                if (nettyIoExecutor.isCurrentThreadEventLoop()) {
+                    cancel0();
+                } else {
+                    nettyIoExecutor.asExecutor().execute(this::cancel0);
+                }
+            }
+
+            private void request0(final long n) {
+                assertInEventloop();
+                if (terminated) {
+                    return;
+                }
+                if (!isRequestNValid(n)) {
+                    cancelAndTerminate0(newExceptionForInvalidRequestN(n));
+                    return;
+                }
+                pendingRequests = addWithOverflowProtection(pendingRequests, n);
+                deliver0();
+                discovery.requestIfNeeded0();
+            }
+
+            private void cancel0() {
+                assertInEventloop();
+                if (!terminated) {
+                    terminated = true;
+                    discovery.remove0(this);
+                }
+            }
+
+            void cancelAndTerminate0(final Throwable cause) {
+                if (!terminated) {
+                    cancel0();
+                    safeOnError(subscriber, cause);
+                }
+            }
+
+            /**
+             * Delivers the difference between the addresses this {@link Subscriber} has seen and the latest
+             * addresses of the shared discovery, if there is demand.
+             */
+            void deliver0() {
+                final List<T> latestAddresses = discovery.activeAddresses;
+                if (terminated || pendingRequests == 0 || activeAddresses == latestAddresses) {
+                    return;
+                }
+                final List<ServiceDiscovererEvent<T>> events = calculateDifference(activeAddresses,
+                        latestAddresses, comparator, null);
+                activeAddresses = latestAddresses;
+                if (events != null) {
+                    --pendingRequests;
+                    try {
+                        subscriber.onNext(events);
+                    } catch (Throwable cause) {
+                        cancelAndTerminate0(cause);
+                    }
+                }
+            }
+
+            void terminate0(@Nullable final Throwable cause) {
+                if (terminated) {
+                    return;
+                }
+                terminated = true;
+                if (cause == null) {
+                    safeOnComplete(subscriber);
+                } else {
+                    safeOnError(subscriber, cause);
+                }
+            }
+
+            boolean hasDemand() {
+                return !terminated && pendingRequests > 0;
+            }
+
+            @Nullable
+            DnsResolutionObserver newResolutionObserver(final String resolutionName) {
+                if (discoveryObserver == null) {
+                    return null;
+                }
+                try {
+                    return discoveryObserver.onNewResolution(resolutionName);
+                } catch (Throwable unexpected) {
+                    LOGGER.warn("Unexpected exception from {} while reporting new DNS resolution for: {}",
+                            discoveryObserver, resolutionName, unexpected);
+                    return null;
+                }
+            }
 
             @SuppressWarnings("ForLoopReplaceableByForEach")
-            private List<ServiceDiscovererEvent<T>> generateInactiveEvent() {
+            List<ServiceDiscovererEvent<T>> generateInactiveEvent() {
                 final List<ServiceDiscovererEvent<T>> events = new ArrayList<>(activeAddresses.size());
                 if (activeAddresses instanceof RandomAccess) {
                     for (int i = 0; i < activeAddresses.size(); ++i) {
@@ -721,6 +967,183 @@ final class DefaultDnsClient implements DnsClient {
         }
     }
 
+    /**
+     * Multicasts the events of an {@link AbstractDnsPublisher} to all subscriptions for its name.
+     * <p>
+     * The latest addresses are kept, so subscriptions which join later or which have no demand when addresses change
+     * receive the difference to the addresses they have seen instead of every intermediate change. One event is
+     * requested from the {@link AbstractDnsPublisher} at a time while any subscription has demand, which preserves its
+     * TTL based scheduling. The {@link AbstractDnsPublisher} is cancelled when the last subscription is cancelled.
+     * <p>
+     * As the {@link DnsDiscoveryObserver} of the {@link AbstractDnsPublisher} it notifies the observers of all
+     * subscriptions about every resolution, so each discovery is observed as if it ran its own queries.
+     *
+     * @param <T> the type of the discovered addresses
+     */
+    private final class SharedDnsDiscovery<T> implements Subscriber<List<ServiceDiscovererEvent<T>>>,
+                                                           DnsDiscoveryObserver {
+        private final String name;
+        @Nullable
+        private final Map<String, SharedDnsDiscovery<T>> sharedDiscoveries;
+        private final Comparator<T> comparator;
+        private final List<DnsDiscoveryPublisher<T>.DiscoverySubscription> subscriptions = new ArrayList<>(2);
+        private List<T> activeAddresses = emptyList();
+        @Nullable
+        private Subscription subscription;
+        private boolean requested;
+        private boolean terminated;
+        @Nullable
+        private Throwable terminalCause;
+
+        SharedDnsDiscovery(final String name, @Nullable final Map<String, SharedDnsDiscovery<T>> sharedDiscoveries,
+                           final Comparator<T> comparator) {
+            this.name = name;
+            this.sharedDiscoveries = sharedDiscoveries;
+            this.comparator = comparator;
+        }
+
+        @Override
+        public void onSubscribe(final Subscription s) {
+            assertInEventloop();
+            subscription = s;
+            requestIfNeeded0();
+        }
+
+        @Override
+        public void onNext(@Nullable final List<ServiceDiscovererEvent<T>> events) {
+            assertInEventloop();
+            assert events != null;
+            requested = false;
+            final List<T> newActiveAddresses = new ArrayList<>(activeAddresses);
+            for (ServiceDiscovererEvent<T> event : events) {
+                if (event.isAvailable()) {
+                    newActiveAddresses.add(event.address());
+                } else {
+                    newActiveAddresses.remove(event.address());
+                }
+            }
+            newActiveAddresses.sort(comparator);
+            activeAddresses = newActiveAddresses;
+            // Subscriptions may be removed while delivering.
+            for (DnsDiscoveryPublisher<T>.DiscoverySubscription s : new ArrayList<>(subscriptions)) {
+                s.deliver0();
+            }
+            requestIfNeeded0();
+        }
+
+        @Override
+        public void onError(final Throwable t) {
+            terminate0(t);
+        }
+
+        @Override
+        public void onComplete() {
+            terminate0(null);
+        }
+
+        @Override
+        public DnsResolutionObserver onNewResolution(final String resolutionName) {
+            assertInEventloop();
+            final List<DnsResolutionObserver> observers = new ArrayList<>(subscriptions.size());
+            for (DnsDiscoveryPublisher<T>.DiscoverySubscription s : subscriptions) {
+                final DnsResolutionObserver resolutionObserver = s.newResolutionObserver(resolutionName);
+                if (resolutionObserver != null) {
+                    observers.add(resolutionObserver);
+                }
+            }
+            return observers.size() == 1 ? observers.get(0) : new CompositeDnsResolutionObserver(observers);
+        }
+
+        boolean add0(final DnsDiscoveryPublisher<T>.DiscoverySubscription s) {
+            assertInEventloop();
+            if (terminated) {
+                return false;
+            }
+            subscriptions.add(s);
+            return true;
+        }
+
+        void remove0(final DnsDiscoveryPublisher<T>.DiscoverySubscription s) {
+            assertInEventloop();
+            if (subscriptions.remove(s) && subscriptions.isEmpty() && !terminated) {
+                terminated = true;
+                unregister0();
+                if (subscription != null) {
+                    subscription.cancel();
+                }
+            }
+        }
+
+        void requestIfNeeded0() {
+            if (requested || terminated || subscription == null) {
+                return;
+            }
+            for (DnsDiscoveryPublisher<T>.DiscoverySubscription s : subscriptions) {
+                if (s.hasDemand()) {
+                    requested = true;
+                    subscription.request(1);
+                    return;
+                }
+            }
+        }
+
+        private void terminate0(@Nullable final Throwable cause) {
+            assertInEventloop();
+            if (terminated) {
+                return;
+            }
+            terminated = true;
+            terminalCause = cause;
+            unregister0();
+            for (DnsDiscoveryPublisher<T>.DiscoverySubscription s : new ArrayList<>(subscriptions)) {
+                s.terminate0(cause);
+            }
+            subscriptions.clear();
+        }
+
+        private void unregister0() {
+            if (sharedDiscoveries != null) {
+                sharedDiscoveries.remove(name, this);
+            }
+        }
+    }
+
+    /**
+     * Notifies the {@link DnsResolutionObserver}s of all subscriptions to a {@link SharedDnsDiscovery} about a single
+     * resolution.
+     */
+    private static final class CompositeDnsResolutionObserver implements DnsResolutionObserver {
+        private final List<DnsResolutionObserver> observers;
+
+        CompositeDnsResolutionObserver(final List<DnsResolutionObserver> observers) {
+            this.observers = observers;
+        }
+
+        @Override
+        public void resolutionFailed(final Throwable cause) {
+            for (DnsResolutionObserver observer : observers) {
+                try {
+                    observer.resolutionFailed(cause);
+                } catch (Throwable unexpected) {
+                    LOGGER.warn("Unexpected exception from {} while reporting DNS resolution failure",
+                            observer, unexpected);
+                }
+            }
+        }
+
+        @Override
+        public void resolutionCompleted(final ResolutionResult result) {
+            for (DnsResolutionObserver observer : observers) {
+                try {
+                    observer.resolutionCompleted(result);
+                } catch (Throwable unexpected) {
+                    LOGGER.warn("Unexpected exception from {} while reporting DNS resolution result {}",
+                            observer, result, unexpected);
+                }
+            }
+        }
+    }
+
     private static Publisher<? extends Collection<ServiceDiscovererEvent<InetSocketAddress>>> srvFilterDups(
             Publisher<? extends Collection<ServiceDiscovererEvent<InetAddress>>> returnPub,
             Map<InetSocketAddress, Integer> availableAddresses, int port) {
@@ -754,9 +1177,9 @@ final class DefaultDnsClient implements DnsClient {
     }
 
     private static <T, A> Publisher<? extends Collection<ServiceDiscovererEvent<T>>> recoverWithInactiveEvents(
-            AbstractDnsPublisher<T> pub, boolean generateAggregateEvent) {
+            DnsDiscoveryPublisher<T> pub, boolean generateAggregateEvent) {
         return pub.recoverWith(cause -> {
-            AbstractDnsPublisher<T>.AbstractDnsSubscription subscription = pub.subscription;
+            DnsDiscoveryPublisher<T>.DiscoverySubscription subscription = pub.subscription;
             if (subscription != null) {
                 List<ServiceDiscovererEvent<T>> events = subscription.generateInactiveEvent();
                 if (!events.isEmpty()) {
@@ -1,5 +1,5 @@
 /*
- * Copyright © 2018 Apple Inc. and the ServiceTalk project authors
+ * Copyright © 2018, 2021 Apple Inc. and the ServiceTalk project authors
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -27,6 +27,7 @@ import javax.annotation.Nullable;
 import static io.servicetalk.dns.discovery.netty.DnsClients.asHostAndPortDiscoverer;
 import static io.servicetalk.dns.discovery.netty.DnsClients.asSrvDiscoverer;
 import static io.servicetalk.transport.netty.internal.GlobalExecutionContext.globalExecutionContext;
+import static java.time.Duration.ZERO;
 import static java.time.Duration.ofSeconds;
 import static java.util.Objects.requireNonNull;
 
@@ -60,6 +61,9 @@ public final class DefaultDnsServiceDiscovererBuilder {
     private DnsClientFilterFactory filterFactory;
     @Nullable
     private DnsServiceDiscovererObserver observer;
+    private Duration serveStaleGracePeriod = ZERO;
+    private double prefetchTtlFraction = 1;
+    private boolean shareDiscoveries;
 
     /**
      * The minimum allowed TTL. This will be the minimum poll interval.
@@ -162,6 +166,62 @@ public final class DefaultDnsServiceDiscovererBuilder {
         return this;
     }
 
+    /**
+     * Sets the grace period for which the last successful answer is served after its TTL expired, if the DNS server
+     * fails to answer.
+     * <p>
+     * Failed queries are retried every {@link #minTTL(int) minimum TTL} while the stale answer is served, the addresses
+     * of the last answer stay available until the grace period is over. With {@link #shareDiscoveries(boolean) shared
+     * discoveries} all discoveries of a name are served the same stale answer. Defaults to {@link Duration#ZERO} which
+     * propagates query failures immediately.
+     *
+     * @param gracePeriod the maximum duration past the TTL to serve the last successful answer.
+     * @return {@code this}.
+     */
+    public DefaultDnsServiceDiscovererBuilder serveStale(final Duration gracePeriod) {
+        if (gracePeriod.isNegative()) {
+            throw new IllegalArgumentException("gracePeriod: " + gracePeriod + " (expected >= 0)");
+        }
+        this.serveStaleGracePeriod = gracePeriod;
+        return this;
+    }
+
+    /**
+     * Sets the fraction of the TTL after which an answer is refreshed.
+     * <p>
+     * A value lower than {@code 1} refreshes answers before they expire, so slow queries do not delay updates and
+     * failed queries can be retried while the answer is still valid. This increases the number of queries by
+     * {@code 1 / ttlFraction}, unless the discoveries of a name {@link #shareDiscoveries(boolean) share} their queries.
+     * Defaults to {@code 1}, answers are refreshed when they expire.
+     *
+     * @param ttlFraction the fraction of the TTL after which an answer is refreshed.
+     * @return {@code this}.
+     */
+    public DefaultDnsServiceDiscovererBuilder prefetch(final double ttlFraction) {
+        if (!(ttlFraction > 0 && ttlFraction <= 1)) {
+            throw new IllegalArgumentException("ttlFraction: " + ttlFraction + " (expected (0, 1])");
+        }
+        this.prefetchTtlFraction = ttlFraction;
+        return this;
+    }
+
+    /**
+     * Sets if all discoveries of the same name and record type share the DNS queries and their results, instead of
+     * querying the name for each discovery.
+     * <p>
+     * A discovery which starts while others for the same name are active first receives the latest known addresses.
+     * Every discovery still gets its own {@link DnsServiceDiscovererObserver#onNewDiscovery(String) discovery
+     * observer}, which is notified about the shared resolutions that start while the discovery is active. Defaults to
+     * {@code false}.
+     *
+     * @param shareDiscoveries {@code true} to share the DNS queries of discoveries for the same name.
+     * @return {@code this}.
+     */
+    public DefaultDnsServiceDiscovererBuilder shareDiscoveries(final boolean shareDiscoveries) {
+        this.shareDiscoveries = shareDiscoveries;
+        return this;
+    }
+
     /**
      * Sets a {@link DnsServiceDiscovererObserver} that provides visibility into
      * <a href="https://tools.ietf.org/html/rfc1034">DNS</a> {@link ServiceDiscoverer} built by this builder.
@@ -266,7 +326,8 @@ public final class DefaultDnsServiceDiscovererBuilder {
                 ioExecutor == null ? globalExecutionContext().ioExecutor() : ioExecutor, minTTLSeconds, srvConcurrency,
                 inactiveEventsOnError, completeOncePreferredResolved, srvFilterDuplicateEvents,
                 srvHostNameRepeatInitialDelay, srvHostNameRepeatJitter, maxUdpPayloadSize, ndots, optResourceEnabled,
-                queryTimeout, dnsResolverAddressTypes, dnsServerAddressStreamProvider, observer);
+                queryTimeout, dnsResolverAddressTypes, dnsServerAddressStreamProvider, observer, serveStaleGracePeriod,
+                prefetchTtlFraction, shareDiscoveries);
         return filterFactory == null ? rawClient : filterFactory.create(rawClient);
     }
 }
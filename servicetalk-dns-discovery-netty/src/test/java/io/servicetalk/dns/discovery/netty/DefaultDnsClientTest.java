@@ -1,5 +1,5 @@
 /*
- * Copyright © 2018-2020 Apple Inc. and the ServiceTalk project authors
+ * Copyright © 2018-2021 Apple Inc. and the ServiceTalk project authors
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -24,6 +24,8 @@ import io.servicetalk.concurrent.api.Completable;
 import io.servicetalk.concurrent.api.Publisher;
 import io.servicetalk.concurrent.internal.ServiceTalkTestTimeout;
 import io.servicetalk.concurrent.test.internal.TestPublisherSubscriber;
+import io.servicetalk.dns.discovery.netty.DnsServiceDiscovererObserver.DnsResolutionObserver;
+import io.servicetalk.dns.discovery.netty.DnsServiceDiscovererObserver.ResolutionResult;
 import io.servicetalk.transport.netty.internal.EventLoopAwareNettyIoExecutor;
 
 import org.junit.After;
@@ -41,6 +43,7 @@ import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicInteger;
 import javax.annotation.Nullable;
@@ -57,13 +60,18 @@ import static io.servicetalk.dns.discovery.netty.TestRecordStore.createCnameReco
 import static io.servicetalk.dns.discovery.netty.TestRecordStore.createSrvRecord;
 import static io.servicetalk.transport.netty.NettyIoExecutors.createIoExecutor;
 import static io.servicetalk.transport.netty.internal.EventLoopAwareNettyIoExecutors.toEventLoopAwareNettyIoExecutor;
+import static java.lang.System.nanoTime;
 import static java.net.InetAddress.getByName;
 import static java.time.Duration.ofMillis;
+import static java.time.Duration.ofSeconds;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static java.util.function.Function.identity;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.hasItems;
+import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.nullValue;
@@ -667,6 +675,201 @@ public class DefaultDnsClientTest {
         assertEvent(subscriber.takeOnNext(), ip, true);
     }
 
+    @Test
+    public void serveStaleUntilGracePeriodEnds() throws Exception {
+        client.closeAsync().toFuture().get();
+        client = dnsClientBuilder().serveStale(ofSeconds(1)).inactiveEventsOnError(true).build();
+        final String ip = nextIp();
+        final String domain = "servicetalk.io";
+        recordStore.addIPv4Address(domain, DEFAULT_TTL, ip);
+
+        TestPublisherSubscriber<ServiceDiscovererEvent<InetAddress>> subscriber = dnsQuery(domain);
+        Subscription subscription = subscriber.awaitSubscription();
+        subscription.request(2);
+
+        assertEvent(subscriber.takeOnNext(), ip, true);
+        final long startTime = nanoTime();
+        recordStore.removeIPv4Address(domain, DEFAULT_TTL, ip);
+        assertEvent(subscriber.takeOnNext(), ip, false);
+        assertThat(NANOSECONDS.toMillis(nanoTime() - startTime), greaterThanOrEqualTo(1000L));
+        assertThat(subscriber.awaitOnError(), instanceOf(UnknownHostException.class));
+    }
+
+    @Test
+    public void serveStaleAndRecover() throws Exception {
+        client.closeAsync().toFuture().get();
+        CountDownLatch resolutionFailed = new CountDownLatch(1);
+        client = dnsClientBuilder().serveStale(ofSeconds(30))
+                .observer(name -> resolutionName -> new DnsResolutionObserver() {
+                    @Override
+                    public void resolutionFailed(final Throwable cause) {
+                        resolutionFailed.countDown();
+                    }
+
+                    @Override
+                    public void resolutionCompleted(final ResolutionResult result) {
+                        // noop
+                    }
+                }).build();
+        final String ip1 = nextIp();
+        final String ip2 = nextIp();
+        final String domain = "servicetalk.io";
+        recordStore.addIPv4Address(domain, DEFAULT_TTL, ip1);
+
+        TestPublisherSubscriber<ServiceDiscovererEvent<InetAddress>> subscriber = dnsQuery(domain);
+        Subscription subscription = subscriber.awaitSubscription();
+        subscription.request(1);
+
+        assertEvent(subscriber.takeOnNext(), ip1, true);
+        recordStore.removeIPv4Address(domain, DEFAULT_TTL, ip1);
+        subscription.request(1);
+        resolutionFailed.await();
+        // The stale address stayed available, so the only difference is the new address.
+        recordStore.addIPv4Address(domain, DEFAULT_TTL, ip1, ip2);
+        assertEvent(subscriber.takeOnNext(), ip2, true);
+    }
+
+    @Test
+    public void prefetchDiscoversUpdates() throws Exception {
+        client.closeAsync().toFuture().get();
+        client = dnsClientBuilder().prefetch(0.5).build();
+        final String ip1 = nextIp();
+        final String ip2 = nextIp();
+        final String domain = "servicetalk.io";
+        recordStore.addIPv4Address(domain, DEFAULT_TTL + 1, ip1);
+
+        TestPublisherSubscriber<ServiceDiscovererEvent<InetAddress>> subscriber = dnsQuery(domain);
+        Subscription subscription = subscriber.awaitSubscription();
+        subscription.request(1);
+
+        assertEvent(subscriber.takeOnNext(), ip1, true);
+        recordStore.addIPv4Address(domain, DEFAULT_TTL + 1, ip2);
+        subscription.request(1);
+        assertEvent(subscriber.takeOnNext(), ip2, true);
+    }
+
+    @Test
+    public void sameNameQueriesShareResults() throws Exception {
+        client.closeAsync().toFuture().get();
+        client = dnsClientBuilder().shareDiscoveries(true).build();
+        final String ip1 = nextIp();
+        final String ip2 = nextIp();
+        final String domain = "servicetalk.io";
+        recordStore.addIPv4Address(domain, DEFAULT_TTL, ip1);
+
+        TestPublisherSubscriber<ServiceDiscovererEvent<InetAddress>> subscriber1 = dnsQuery(domain);
+        TestPublisherSubscriber<ServiceDiscovererEvent<InetAddress>> subscriber2 = dnsQuery(domain);
+        Subscription subscription1 = subscriber1.awaitSubscription();
+        Subscription subscription2 = subscriber2.awaitSubscription();
+        subscription1.request(2);
+        subscription2.request(2);
+
+        assertEvent(subscriber1.takeOnNext(), ip1, true);
+        assertEvent(subscriber2.takeOnNext(), ip1, true);
+
+        // Cancelling one subscriber must not affect the queries of the other.
+        subscription1.cancel();
+        recordStore.addIPv4Address(domain, DEFAULT_TTL, ip2);
+        assertEvent(subscriber2.takeOnNext(), ip2, true);
+
+        recordStore.removeIPv4Address(domain, DEFAULT_TTL, ip1, ip2);
+        subscription2.request(1);
+        assertThat(subscriber2.awaitOnError(), instanceOf(UnknownHostException.class));
+    }
+
+    @Test
+    public void lateSubscriberReceivesLatestAddresses() throws Exception {
+        client.closeAsync().toFuture().get();
+        final List<AtomicInteger> completedResolutions = new CopyOnWriteArrayList<>();
+        client = dnsClientBuilder().shareDiscoveries(true).observer(countingObserver(completedResolutions)).build();
+        final String ip1 = nextIp();
+        final String ip2 = nextIp();
+        final String domain = "servicetalk.io";
+        recordStore.addIPv4Address(domain, DEFAULT_TTL, ip1);
+
+        TestPublisherSubscriber<ServiceDiscovererEvent<InetAddress>> subscriber1 = dnsQuery(domain);
+        Subscription subscription1 = subscriber1.awaitSubscription();
+        subscription1.request(1);
+        assertEvent(subscriber1.takeOnNext(), ip1, true);
+
+        TestPublisherSubscriber<ServiceDiscovererEvent<InetAddress>> subscriber2 = dnsQuery(domain);
+        Subscription subscription2 = subscriber2.awaitSubscription();
+        subscription2.request(1);
+        assertEvent(subscriber2.takeOnNext(), ip1, true);
+        // Every discovery is observed, but the late subscriber got the shared answer without a query.
+        assertThat(completedResolutions, hasSize(2));
+        assertThat(completedResolutions.get(0).get(), is(1));
+        assertThat(completedResolutions.get(1).get(), is(0));
+
+        recordStore.addIPv4Address(domain, DEFAULT_TTL, ip2);
+        subscription1.request(1);
+        subscription2.request(1);
+        assertEvent(subscriber1.takeOnNext(), ip2, true);
+        assertEvent(subscriber2.takeOnNext(), ip2, true);
+        // Both observers are notified about the shared resolutions.
+        assertThat(completedResolutions.get(1).get(), is(greaterThanOrEqualTo(1)));
+        assertThat(completedResolutions.get(0).get(), is(completedResolutions.get(1).get() + 1));
+    }
+
+    @Test
+    public void sharedDiscoveryWithMultipleSubscribers() throws Exception {
+        client.closeAsync().toFuture().get();
+        final List<AtomicInteger> completedResolutions = new CopyOnWriteArrayList<>();
+        client = dnsClientBuilder().shareDiscoveries(true).observer(countingObserver(completedResolutions)).build();
+        final String ip1 = nextIp();
+        final String ip2 = nextIp();
+        final String domain = "servicetalk.io";
+        recordStore.addIPv4Address(domain, DEFAULT_TTL, ip1);
+
+        final List<TestPublisherSubscriber<ServiceDiscovererEvent<InetAddress>>> subscribers = new ArrayList<>();
+        for (int i = 0; i < 3; ++i) {
+            subscribers.add(dnsQuery(domain));
+        }
+        for (TestPublisherSubscriber<ServiceDiscovererEvent<InetAddress>> subscriber : subscribers) {
+            subscriber.awaitSubscription().request(1);
+        }
+        for (TestPublisherSubscriber<ServiceDiscovererEvent<InetAddress>> subscriber : subscribers) {
+            assertEvent(subscriber.takeOnNext(), ip1, true);
+        }
+        assertThat(completedResolutions, hasSize(3));
+        final int resolutions = completedResolutions.get(0).get();
+        for (AtomicInteger completed : completedResolutions) {
+            assertThat(completed.get(), is(resolutions));
+        }
+
+        // A subscriber which cancels is no longer observed, the others still share the discovery.
+        subscribers.get(0).awaitSubscription().cancel();
+        recordStore.addIPv4Address(domain, DEFAULT_TTL, ip2);
+        subscribers.get(1).awaitSubscription().request(1);
+        subscribers.get(2).awaitSubscription().request(1);
+        assertEvent(subscribers.get(1).takeOnNext(), ip2, true);
+        assertEvent(subscribers.get(2).takeOnNext(), ip2, true);
+        assertThat(completedResolutions.get(0).get(), is(resolutions));
+        assertThat(completedResolutions.get(1).get(), is(greaterThanOrEqualTo(resolutions + 1)));
+        assertThat(completedResolutions.get(2).get(), is(completedResolutions.get(1).get()));
+    }
+
+    @Test
+    public void discoveriesAreNotSharedByDefault() throws Exception {
+        client.closeAsync().toFuture().get();
+        final List<AtomicInteger> completedResolutions = new CopyOnWriteArrayList<>();
+        client = dnsClientBuilder().observer(countingObserver(completedResolutions)).build();
+        final String ip = nextIp();
+        final String domain = "servicetalk.io";
+        recordStore.addIPv4Address(domain, DEFAULT_TTL, ip);
+
+        TestPublisherSubscriber<ServiceDiscovererEvent<InetAddress>> subscriber1 = dnsQuery(domain);
+        subscriber1.awaitSubscription().request(1);
+        assertEvent(subscriber1.takeOnNext(), ip, true);
+
+        TestPublisherSubscriber<ServiceDiscovererEvent<InetAddress>> subscriber2 = dnsQuery(domain);
+        subscriber2.awaitSubscription().request(1);
+        assertEvent(subscriber2.takeOnNext(), ip, true);
+        // The second discovery ran its own query.
+        assertThat(completedResolutions, hasSize(2));
+        assertThat(completedResolutions.get(1).get(), is(1));
+    }
+
     @Test
     public void preferIpv4() throws Exception {
         client.closeAsync().toFuture().get();
@@ -805,6 +1008,24 @@ public class DefaultDnsClientTest {
         return subscriber;
     }
 
+    private static DnsServiceDiscovererObserver countingObserver(final List<AtomicInteger> completedResolutions) {
+        return name -> {
+            final AtomicInteger completed = new AtomicInteger();
+            completedResolutions.add(completed);
+            return resolutionName -> new DnsResolutionObserver() {
+                @Override
+                public void resolutionFailed(final Throwable cause) {
+                    // noop
+                }
+
+                @Override
+                public void resolutionCompleted(final ResolutionResult result) {
+                    completed.incrementAndGet();
+                }
+            };
+        };
+    }
+
     private DefaultDnsServiceDiscovererBuilder dnsClientBuilder() {
         return new DefaultDnsServiceDiscovererBuilder()
                 .ioExecutor(nettyIoExecutor)
@@ -19,36 +19,47 @@ import io.servicetalk.buffer.api.Buffer;
 import io.servicetalk.buffer.api.BufferAllocator;
 import io.servicetalk.concurrent.PublisherSource;
 import io.servicetalk.concurrent.api.Publisher;
+import io.servicetalk.concurrent.internal.BoundedObjectPool;
+import io.servicetalk.concurrent.internal.PooledObjectSubscription;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.Closeable;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
 import java.util.zip.CRC32;
 import java.util.zip.DataFormatException;
 import java.util.zip.Deflater;
-import java.util.zip.DeflaterOutputStream;
 import java.util.zip.Inflater;
-import java.util.zip.InflaterInputStream;
 import javax.annotation.Nullable;
 
 import static io.servicetalk.buffer.api.ReadOnlyBufferAllocators.DEFAULT_RO_ALLOCATOR;
 import static io.servicetalk.concurrent.api.Single.succeeded;
 import static io.servicetalk.concurrent.internal.SubscriberUtils.deliverErrorFromSource;
+import static java.lang.Math.max;
 import static java.lang.Math.min;
-import static java.util.Objects.requireNonNull;
+import static java.util.zip.Deflater.NO_FLUSH;
+import static java.util.zip.Deflater.SYNC_FLUSH;
 
 abstract class AbstractZipContentCodec extends AbstractContentCodec {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(AbstractZipContentCodec.class);
     private static final Buffer END_OF_STREAM = DEFAULT_RO_ALLOCATOR.fromAscii(" ");
     private static final int FOOTER_LEN = 10;
+    private static final int GZIP_MAGIC = 0x8b1f;
+    // Same header as GZIPOutputStream: magic, deflate method, no flags, no modification time, no extra flags and
+    // OS 0.
+    private static final byte[] GZIP_HEADER = {(byte) GZIP_MAGIC, (byte) (GZIP_MAGIC >> 8), Deflater.DEFLATED,
+            0, 0, 0, 0, 0, 0, 0};
+    private static final int MAX_POOLED = Runtime.getRuntime().availableProcessors() * 2;
 
     protected final int chunkSize;
     private final int maxPayloadSize;
+    // Deflater and Inflater hold native memory which is only released by end() or finalization, reuse them instead
+    // of creating new instances per message or stream.
+    private final BoundedObjectPool<Deflater> deflaters =
+            new BoundedObjectPool<>(MAX_POOLED, this::newDeflater, Deflater::reset, Deflater::end);
+    private final BoundedObjectPool<Inflater> inflaters =
+            new BoundedObjectPool<>(MAX_POOLED, this::newRawInflater, Inflater::reset, Inflater::end);
 
     AbstractZipContentCodec(final CharSequence name, final int chunkSize, final int maxPayloadSize) {
         super(name);
@@ -60,9 +71,7 @@ abstract class AbstractZipContentCodec extends AbstractContentCodec {
 
     abstract Inflater newRawInflater();
 
-    abstract DeflaterOutputStream newDeflaterOutputStream(OutputStream out) throws IOException;
-
-    abstract InflaterInputStream newInflaterInputStream(InputStream in) throws IOException;
+    abstract Deflater newDeflater();
 
     @Override
     public final Buffer encode(final Buffer src, final int offset, final int length, final BufferAllocator allocator) {
@@ -71,28 +80,17 @@ abstract class AbstractZipContentCodec extends AbstractContentCodec {
         }
 
         final Buffer dst = allocator.newBuffer(chunkSize);
-        DeflaterOutputStream output = null;
+        final Deflater deflater = deflaters.acquire();
         try {
             src.readerIndex(src.readerIndex() + offset);
-            output = newDeflaterOutputStream(Buffer.asOutputStream(dst));
-
-            if (src.hasArray()) {
-                output.write(src.array(), src.arrayOffset() + src.readerIndex(), length);
-                src.readerIndex(src.readerIndex() + length);
-            } else {
-                while (src.readableBytes() > 0) {
-                    byte[] onHeap = new byte[min(src.readableBytes(), min(chunkSize, length))];
-                    src.readBytes(onHeap);
-                    output.write(onHeap);
-                }
-            }
-
-            output.finish();
+            final ZLibStreamEncoder encoder = new ZLibStreamEncoder(deflater, supportsChecksum(), chunkSize);
+            encoder.encode(src.readSlice(length), dst, false);
+            encoder.finish(dst);
         } catch (Exception e) {
             LOGGER.error("Error while encoding with {}", name(), e);
             throw new RuntimeException(e);
         } finally {
-            close(output);
+            deflaters.release(deflater);
         }
 
         return dst;
@@ -105,83 +103,61 @@ abstract class AbstractZipContentCodec extends AbstractContentCodec {
                 .concat(succeeded(END_OF_STREAM))
                 .liftSync(subscriber -> new PublisherSource.Subscriber<Buffer>() {
 
-                    private final SwappableBufferOutputStream stream = new SwappableBufferOutputStream();
-
                     @Nullable
-                    private DeflaterOutputStream output;
-
-                    private boolean headerWritten;
+                    private PooledObjectSubscription<Deflater> pooled;
+                    @Nullable
+                    private ZLibStreamEncoder encoder;
 
                     @Override
                     public void onSubscribe(PublisherSource.Subscription subscription) {
-                        subscriber.onSubscribe(subscription);
+                        final Deflater deflater = deflaters.acquire();
+                        pooled = new PooledObjectSubscription<>(subscription, deflaters, deflater);
+                        encoder = new ZLibStreamEncoder(deflater, supportsChecksum(), chunkSize);
+                        subscriber.onSubscribe(pooled);
                     }
 
                     @Override
                     public void onNext(Buffer next) {
+                        assert pooled != null;
+                        assert encoder != null;
+                        if (!pooled.enter()) {
+                            // Cancelled or terminated, the Deflater is already returned to the pool.
+                            return;
+                        }
                         // onNext will produce AT-MOST N items (from upstream)
                         // +1 for the encoding footer (ie. END_OF_STREAM)
                         try {
                             Buffer dst = allocator.newBuffer(next == END_OF_STREAM ? FOOTER_LEN : chunkSize);
-                            stream.swap(dst);
-
-                            if (!headerWritten) {
-                                // This will produce header bytes
-                                output = newDeflaterOutputStream(stream);
-                            }
-
-                            assert output != null;
                             if (next == END_OF_STREAM) {
-                                output.finish();
-                                subscriber.onNext(dst);
-                                return;
+                                encoder.finish(dst);
+                            } else {
+                                encoder.encode(next, dst, true);
                             }
-
-                            consume(next);
-
-                            headerWritten = true;
                             subscriber.onNext(dst);
                         } catch (Exception e) {
                             LOGGER.error("Error while encoding with {}", name(), e);
-                            onError(e);
+                            // The Deflater is returned to the pool once no longer in use.
+                            pooled.cancel();
+                            subscriber.onError(e);
+                        } finally {
+                            pooled.exit();
                         }
                     }
 
-                    private void consume(final Buffer next) throws IOException {
-                        assert output != null;
-
-                        if (next.hasArray()) {
-                            output.write(next.array(), next.arrayOffset() + next.readerIndex(),
-                                    next.readableBytes());
-                        } else {
-                            while (next.readableBytes() > 0) {
-                                byte[] onHeap = new byte[min(next.readableBytes(), chunkSize)];
-                                next.readBytes(onHeap);
-                                output.write(onHeap);
-                            }
-                        }
-
-                        output.flush();
-                    }
-
                     @Override
                     public void onError(Throwable t) {
-                        close(output);
-                        subscriber.onError(t);
+                        assert pooled != null;
+                        if (pooled.release()) {
+                            subscriber.onError(t);
+                        }
                     }
 
                     @Override
                     public void onComplete() {
-                        try {
-                            if (output != null) {
-                                output.close();
-                            }
-                        } catch (IOException e) {
-                            onError(e);
-                            return;
+                        assert pooled != null;
+                        if (pooled.release()) {
+                            subscriber.onComplete();
                         }
-
-                        subscriber.onComplete();
                     }
                 });
     }
@@ -194,50 +170,59 @@ abstract class AbstractZipContentCodec extends AbstractContentCodec {
 
         src.readerIndex(src.readerIndex() + offset);
         final Buffer dst = allocator.newBuffer(chunkSize, maxPayloadSize);
-        InflaterInputStream input = null;
+        final Inflater inflater = inflaters.acquire();
         try {
-            input = newInflaterInputStream(new BufferBoundedInputStream(src, length));
-
-            int read = dst.setBytesUntilEndStream(0, input, chunkSize);
-            dst.writerIndex(read);
+            final Buffer in = src.readSlice(length);
+            do {
+                // Concatenated gzip members decode to the concatenation of their data, like GZIPInputStream.
+                inflater.reset();
+                final ZLibStreamDecoder decoder = new ZLibStreamDecoder(inflater, supportsChecksum(),
+                        maxPayloadSize - dst.readableBytes());
+                decoder.decode(in, dst);
+                if (!decoder.isFinished()) {
+                    throw new IOException("Unexpected end of " + name() + " input");
+                }
+            } while (supportsChecksum() && isGzipMember(in));
         } catch (Exception e) {
             LOGGER.error("Error while decoding with {}", name(), e);
             throw new RuntimeException(e);
         } finally {
-            close(input);
+            inflaters.release(inflater);
         }
 
         return dst;
     }
 
+    /**
+     * Checks if the readable bytes start with another gzip member, other trailing data is ignored.
+     */
+    private static boolean isGzipMember(final Buffer in) {
+        return in.readableBytes() >= 2 && in.getUnsignedShortLE(in.readerIndex()) == GZIP_MAGIC;
+    }
+
     @Override
     public final Publisher<Buffer> decode(final Publisher<Buffer> from, final BufferAllocator allocator) {
         return from.liftSync(subscriber -> new PublisherSource.Subscriber<Buffer>() {
 
             @Nullable
-            Inflater inflater;
+            PooledObjectSubscription<Inflater> subscription;
             @Nullable
             ZLibStreamDecoder streamDecoder;
-            @Nullable
-            PublisherSource.Subscription subscription;
 
             @Override
             public void onSubscribe(final PublisherSource.Subscription subscription) {
+                final Inflater inflater;
                 try {
-                    inflater = newRawInflater();
-                    streamDecoder = new ZLibStreamDecoder(inflater, supportsChecksum(), maxPayloadSize);
-                    this.subscription = subscription;
+                    inflater = inflaters.acquire();
                 } catch (Exception e) {
-                    if (inflater != null) {
-                        inflater.end();
-                    }
-
+                    subscription.cancel();
                     LOGGER.error("Error while decoding with {}", name(), e);
                     deliverErrorFromSource(subscriber, e);
                     return;
                 }
-
-                subscriber.onSubscribe(subscription);
+                this.subscription = new PooledObjectSubscription<>(subscription, inflaters, inflater);
+                streamDecoder = new ZLibStreamDecoder(inflater, supportsChecksum(), maxPayloadSize);
+                subscriber.onSubscribe(this.subscription);
             }
 
             @Override
@@ -246,6 +231,10 @@ abstract class AbstractZipContentCodec extends AbstractContentCodec {
                 assert subscription != null;
                 assert src != null;
 
+                if (!subscription.enter()) {
+                    // Cancelled or terminated, the Inflater is already returned to the pool.
+                    return;
+                }
                 // onNext will produce AT-MOST N items (as received)
                 try {
                     if (streamDecoder.isFinished()) {
@@ -262,35 +251,147 @@ abstract class AbstractZipContentCodec extends AbstractContentCodec {
                     subscription.request(1);
                 } catch (Exception e) {
                     LOGGER.error("Error while decoding with {}", name(), e);
-                    onError(e);
+                    // The Inflater is returned to the pool once no longer in use.
+                    subscription.cancel();
+                    subscriber.onError(e);
+                } finally {
+                    subscription.exit();
                 }
             }
 
             @Override
             public void onError(final Throwable t) {
-                assert inflater != null;
-
-                inflater.end();
-                subscriber.onError(t);
+                // No subscription if acquiring the Inflater failed, the error is already delivered.
+                if (subscription != null && subscription.release()) {
+                    subscriber.onError(t);
+                }
             }
 
             @Override
             public void onComplete() {
-                assert inflater != null;
-
-                inflater.end();
-                subscriber.onComplete();
+                if (subscription != null && subscription.release()) {
+                    subscriber.onComplete();
+                }
             }
         });
     }
 
-    private void close(@Nullable final Closeable closeable) {
-        try {
-            if (closeable != null) {
-                closeable.close();
+    /**
+     * Writes deflated data directly from and into {@link Buffer}s. Heap buffers are accessed through their backing
+     * array, other buffers through a scratch arrays which are reused for the lifetime of the encoder.
+     */
+    static final class ZLibStreamEncoder {
+        private final Deflater deflater;
+        @Nullable
+        private final CRC32 crc;
+        private final int chunkSize;
+        @Nullable
+        private byte[] inputScratch;
+        @Nullable
+        private byte[] outputScratch;
+        private boolean headerWritten;
+
+        ZLibStreamEncoder(final Deflater deflater, final boolean gzip, final int chunkSize) {
+            this.deflater = deflater;
+            this.chunkSize = chunkSize;
+            crc = gzip ? new CRC32() : null;
+        }
+
+        /**
+         * Deflates all readable bytes of {@code in} into {@code out}.
+         *
+         * @param in the data to deflate.
+         * @param out the buffer to write deflated data to.
+         * @param flush {@code true} to flush all pending output so the data written so far can be fully inflated.
+         */
+        void encode(final Buffer in, final Buffer out, final boolean flush) {
+            writeHeader(out);
+            if (in.hasArray()) {
+                final int length = in.readableBytes();
+                setInput(in.array(), in.arrayOffset() + in.readerIndex(), length);
+                in.skipBytes(length);
+                deflate(out, flush);
+            } else {
+                while (in.readableBytes() > 0) {
+                    if (inputScratch == null) {
+                        inputScratch = new byte[chunkSize];
+                    }
+                    final int length = min(inputScratch.length, in.readableBytes());
+                    in.readBytes(inputScratch, 0, length);
+                    setInput(inputScratch, 0, length);
+                    // The scratch array is reused for the next chunk, all input has to be consumed before.
+                    deflate(out, flush);
+                }
+            }
+        }
+
+        /**
+         * Writes the remaining deflated data and the trailer into {@code out}.
+         *
+         * @param out the buffer to write to.
+         */
+        void finish(final Buffer out) {
+            writeHeader(out);
+            deflater.finish();
+            while (!deflater.finished()) {
+                deflateInto(out, NO_FLUSH);
+            }
+            if (crc != null) {
+                out.writeIntLE((int) crc.getValue());
+                out.writeIntLE((int) deflater.getBytesRead());
+            }
+        }
+
+        private void writeHeader(final Buffer out) {
+            if (!headerWritten) {
+                headerWritten = true;
+                if (crc != null) {
+                    out.writeBytes(GZIP_HEADER);
+                }
+            }
+        }
+
+        private void setInput(final byte[] input, final int offset, final int length) {
+            deflater.setInput(input, offset, length);
+            if (crc != null) {
+                crc.update(input, offset, length);
+            }
+        }
+
+        private void deflate(final Buffer out, final boolean flush) {
+            if (flush) {
+                // Output was truncated if the available space was filled, repeat until it is not.
+                while (deflateInto(out, SYNC_FLUSH)) {
+                    // continue
+                }
+            } else {
+                while (!deflater.needsInput()) {
+                    deflateInto(out, NO_FLUSH);
+                }
             }
-        } catch (IOException e) {
-            LOGGER.error("Unexpected IO exception while closing buffer streams", e);
+        }
+
+        /**
+         * Deflates into {@code out}.
+         *
+         * @return {@code true} if all available space was filled.
+         */
+        private boolean deflateInto(final Buffer out, final int flushMode) {
+            if (out.hasArray()) {
+                out.ensureWritable(out.writableBytes() > 0 ? 1 : chunkSize);
+                final int writerIndex = out.writerIndex();
+                final int writable = out.writableBytes();
+                final int written = deflater.deflate(out.array(), out.arrayOffset() + writerIndex, writable,
+                        flushMode);
+                out.writerIndex(writerIndex + written);
+                return written == writable;
+            }
+            if (outputScratch == null) {
+                outputScratch = new byte[chunkSize];
+            }
+            final int written = deflater.deflate(outputScratch, 0, outputScratch.length, flushMode);
+            out.writeBytes(outputScratch, 0, written);
+            return written == outputScratch.length;
         }
     }
 
@@ -301,6 +402,7 @@ abstract class AbstractZipContentCodec extends AbstractContentCodec {
         private static final int FNAME = 0x08;
         private static final int FCOMMENT = 0x10;
         private static final int FRESERVED = 0xE0;
+        private static final int MIN_OUTPUT_GROWTH = 256;
 
         @Nullable
         private final CRC32 crc;
@@ -324,6 +426,10 @@ abstract class AbstractZipContentCodec extends AbstractContentCodec {
 
         private int payloadSizeAcc;
         private boolean finished;
+        @Nullable
+        private byte[] inputScratch;
+        @Nullable
+        private byte[] outputScratch;
 
         ZLibStreamDecoder(Inflater inflater, boolean supportsChksum, int maxPayloadSize) {
             this.inflater = inflater;
@@ -367,36 +473,26 @@ abstract class AbstractZipContentCodec extends AbstractContentCodec {
             if (in.hasArray()) {
                 inflater.setInput(in.array(), in.arrayOffset() + in.readerIndex(), readableBytes);
             } else {
-                byte[] array = new byte[readableBytes];
-                in.getBytes(in.readerIndex(), array);
-                inflater.setInput(array);
+                if (inputScratch == null || inputScratch.length < readableBytes) {
+                    inputScratch = new byte[readableBytes];
+                }
+                in.getBytes(in.readerIndex(), inputScratch, 0, readableBytes);
+                inflater.setInput(inputScratch, 0, readableBytes);
             }
 
             try {
                 boolean readFooter = false;
-                while (!inflater.needsInput()) {
-                    byte[] outArray = out.array();
-                    int writerIndex = out.writerIndex();
-                    int outIndex = out.arrayOffset() + writerIndex;
-                    int outputLength = inflater.inflate(outArray, outIndex, out.writableBytes());
+                for (;;) {
+                    if (out.writableBytes() == 0) {
+                        out.ensureWritable(max(MIN_OUTPUT_GROWTH, inflater.getRemaining() << 1));
+                    }
+                    final int outputLength = inflateInto(out);
                     payloadSizeAcc += outputLength;
                     if (payloadSizeAcc > maxPayloadSize) {
                         throw new IllegalStateException("Max decompressed payload limit has been reached: " +
                                 payloadSizeAcc + " (expected <= " + maxPayloadSize + ") bytes");
                     }
 
-                    if (outputLength > 0) {
-                        out.writerIndex(writerIndex + outputLength);
-                        if (crc != null) {
-                            crc.update(outArray, outIndex, outputLength);
-                        }
-                    } else {
-                        if (inflater.needsDictionary()) {
-                            throw new IOException(
-                                    "decompression failure, unable to set dictionary as non was specified");
-                        }
-                    }
-
                     if (inflater.finished()) {
                         if (crc == null) {
                             finished = true; // Do not decode anymore.
@@ -404,8 +500,15 @@ abstract class AbstractZipContentCodec extends AbstractContentCodec {
                             readFooter = true;
                         }
                         break;
-                    } else {
-                        out.ensureWritable(inflater.getRemaining() << 1);
+                    }
+                    if (outputLength == 0) {
+                        if (inflater.needsDictionary()) {
+                            throw new IOException(
+                                    "decompression failure, unable to set dictionary as non was specified");
+                        }
+                        if (inflater.needsInput()) {
+                            break;
+                        }
                     }
                 }
 
@@ -415,7 +518,6 @@ abstract class AbstractZipContentCodec extends AbstractContentCodec {
                     state = State.FOOTER_START;
                     if (readGZIPFooter(in)) {
                         finished = true;
-                        inflater.end();
                     }
                 }
             } catch (DataFormatException e) {
@@ -423,6 +525,29 @@ abstract class AbstractZipContentCodec extends AbstractContentCodec {
             }
         }
 
+        private int inflateInto(final Buffer out) throws DataFormatException {
+            final int outputLength;
+            if (out.hasArray()) {
+                final int writerIndex = out.writerIndex();
+                final int outIndex = out.arrayOffset() + writerIndex;
+                outputLength = inflater.inflate(out.array(), outIndex, out.writableBytes());
+                out.writerIndex(writerIndex + outputLength);
+                if (crc != null) {
+                    crc.update(out.array(), outIndex, outputLength);
+                }
+            } else {
+                if (outputScratch == null) {
+                    outputScratch = new byte[max(MIN_OUTPUT_GROWTH, out.capacity())];
+                }
+                outputLength = inflater.inflate(outputScratch, 0, min(outputScratch.length, out.writableBytes()));
+                out.writeBytes(outputScratch, 0, outputLength);
+                if (crc != null) {
+                    crc.update(outputScratch, 0, outputLength);
+                }
+            }
+            return outputLength;
+        }
+
         private boolean readGZIPHeader(Buffer in) throws IOException {
             switch (state) {
                 case HEADER_START:
@@ -475,7 +600,8 @@ abstract class AbstractZipContentCodec extends AbstractContentCodec {
                         crc.update(xlen1);
                         crc.update(xlen2);
 
-                        xlen |= xlen1 << 8 | xlen2;
+                        // XLEN is little endian.
+                        xlen = xlen1 | xlen2 << 8;
                     }
                     state = State.XLEN_READ;
                     // fall through
@@ -491,41 +617,30 @@ abstract class AbstractZipContentCodec extends AbstractContentCodec {
                     state = State.SKIP_FNAME;
                     // fall through
                 case SKIP_FNAME:
-                    if ((flags & FNAME) != 0) {
-                        if (in.readableBytes() > 0) {
-                            return false;
-                        }
-                        do {
-                            int b = in.readUnsignedByte();
-                            crc.update(b);
-                            if (b == 0x00) {
-                                break;
-                            }
-                        } while (in.readableBytes() > 0);
+                    if ((flags & FNAME) != 0 && !skipZeroTerminated(in)) {
+                        // The zero terminated field continues in the next input.
+                        return false;
                     }
                     state = State.SKIP_COMMENT;
                     // fall through
                 case SKIP_COMMENT:
-                    if ((flags & FCOMMENT) != 0) {
-                        if (in.readableBytes() > 0) {
-                            return false;
-                        }
-                        do {
-                            int b = in.readUnsignedByte();
-                            crc.update(b);
-                            if (b == 0x00) {
-                                break;
-                            }
-                        } while (in.readableBytes() > 0);
+                    if ((flags & FCOMMENT) != 0 && !skipZeroTerminated(in)) {
+                        // The zero terminated field continues in the next input.
+                        return false;
                     }
                     state = State.PROCESS_FHCRC;
                     // fall through
                 case PROCESS_FHCRC:
                     if ((flags & FHCRC) != 0) {
-                        if (in.readableBytes() < 4) {
+                        if (in.readableBytes() < 2) {
                             return false;
                         }
-                        verifyCrc(in);
+                        // The header CRC is the two least significant bytes of the CRC32 of the header.
+                        int headerCrc = in.readUnsignedByte() | in.readUnsignedByte() << 8;
+                        if (headerCrc != (int) (crc.getValue() & 0xffff)) {
+                            throw new IOException("Header CRC value mismatch. Expected: " + headerCrc + ", Got: " +
+                                    (crc.getValue() & 0xffff));
+                        }
                     }
                     crc.reset();
                     state = State.HEADER_END;
@@ -537,6 +652,17 @@ abstract class AbstractZipContentCodec extends AbstractContentCodec {
             }
         }
 
+        private boolean skipZeroTerminated(Buffer in) {
+            while (in.readableBytes() > 0) {
+                int b = in.readUnsignedByte();
+                crc.update(b);
+                if (b == 0x00) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
         private boolean readGZIPFooter(Buffer buf) throws IOException {
             if (buf.readableBytes() < 8) {
                 return false;
@@ -569,79 +695,4 @@ abstract class AbstractZipContentCodec extends AbstractContentCodec {
             }
         }
     }
-
-    private static class SwappableBufferOutputStream extends OutputStream {
-        @Nullable
-        private Buffer buffer;
-
-        private void swap(final Buffer buffer) {
-            this.buffer = requireNonNull(buffer);
-        }
-
-        @Override
-        public void write(final int b) {
-            assert buffer != null;
-            buffer.writeInt(b);
-        }
-
-        @Override
-        public void write(byte[] b) {
-            assert buffer != null;
-            buffer.writeBytes(b);
-        }
-
-        @Override
-        public void write(byte[] b, int off, int len) {
-            assert buffer != null;
-            buffer.writeBytes(b, off, len);
-        }
-    }
-
-    private static final class BufferBoundedInputStream extends InputStream {
-        private final Buffer buffer;
-        private int count;
-
-        BufferBoundedInputStream(Buffer buffer, int limit) {
-            this.buffer = requireNonNull(buffer);
-            this.count = limit;
-        }
-
-        @Override
-        public int read() {
-            if (buffer.readableBytes() == 0 || --count <= 0) {
-                return -1;
-            }
-
-            return buffer.readByte() & 0xff;
-        }
-
-        @Override
-        public int read(byte[] b, int off, int len) {
-            int bytes = min(buffer.readableBytes(), min(count, len));
-            if (bytes <= 0) {
-                return -1;
-            }
-
-            count -= bytes;
-            buffer.readBytes(b, off, bytes);
-            return bytes;
-        }
-
-        @Override
-        public long skip(long n) {
-            int skipped = (int) min(buffer.readableBytes(), n);
-            if (skipped <= 0) {
-                return 0;
-            }
-
-            count -= skipped;
-            buffer.skipBytes(skipped);
-            return skipped;
-        }
-
-        @Override
-        public int available() {
-            return buffer.readableBytes();
-        }
-    }
 }
@@ -0,0 +1,313 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.encoding.api;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import javax.annotation.Nullable;
+
+import static io.servicetalk.buffer.api.CharSequences.regionMatches;
+import static java.lang.Math.floorMod;
+import static java.lang.Math.max;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+
+/**
+ * Decides whether a message is worth compressing.
+ * <p>
+ * Compressing small messages or content that is already compressed wastes CPU and may even grow the message. A policy
+ * skips messages smaller than a {@link Builder#minSize(int) minimum size} and messages with an
+ * {@link Builder#excludedContentTypes(Collection) excluded content type}. It also samples how well messages of each
+ * route (e.g. a request path or a message type) compress, and backs off from compressing routes which do not compress
+ * well. Backed off routes are still compressed and sampled periodically to detect when their content changes.
+ */
+public final class CompressionPolicy {
+    private static final List<CharSequence> DEFAULT_EXCLUDED_CONTENT_TYPES = asList(
+            "image/jpeg", "image/png", "image/gif", "image/webp", "image/avif", "video/", "audio/", "font/woff",
+            "application/zip", "application/gzip", "application/x-gzip", "application/zstd", "application/x-bzip2",
+            "application/x-7z-compressed", "application/x-rar-compressed");
+    private static final double SMOOTHING = 0.5;
+    private static final CompressionPolicy ALWAYS = new CompressionPolicy(0, emptyList(), 0, 1, 0);
+
+    private final int minSize;
+    private final List<CharSequence> excludedContentTypes;
+    private final double minCompressionRatio;
+    private final int sampleInterval;
+    private final int maxRoutes;
+    // Guarded by itself.
+    private final RouteCache routes;
+
+    private CompressionPolicy(final int minSize, final List<CharSequence> excludedContentTypes,
+                              final double minCompressionRatio, final int sampleInterval, final int maxRoutes) {
+        this.minSize = minSize;
+        this.excludedContentTypes = excludedContentTypes;
+        this.minCompressionRatio = minCompressionRatio;
+        this.sampleInterval = sampleInterval;
+        this.maxRoutes = maxRoutes;
+        routes = new RouteCache(maxRoutes);
+    }
+
+    /**
+     * Returns a {@link CompressionPolicy} which compresses all messages.
+     *
+     * @return a {@link CompressionPolicy} which compresses all messages.
+     */
+    public static CompressionPolicy alwaysCompress() {
+        return ALWAYS;
+    }
+
+    /**
+     * Returns the minimum size of a message to be compressed.
+     *
+     * @return the minimum size of a message to be compressed, in bytes.
+     */
+    public int minSize() {
+        return minSize;
+    }
+
+    /**
+     * Checks whether a message with the given content type and size may be compressed.
+     *
+     * @param contentType the content type of the message, or {@code null} if unknown.
+     * @param size the size of the message in bytes, or a negative value if unknown.
+     * @return {@code true} if the message may be compressed.
+     */
+    public boolean isCompressible(@Nullable final CharSequence contentType, final long size) {
+        if (size >= 0 && size < minSize) {
+            return false;
+        }
+        if (contentType != null) {
+            for (CharSequence excluded : excludedContentTypes) {
+                if (contentType.length() >= excluded.length() &&
+                        regionMatches(contentType, true, 0, excluded, 0, excluded.length())) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Decides whether the next message of a route is compressed, based on how well previous messages of that route
+     * compressed.
+     *
+     * @param route identifies messages with similar content, e.g. a request path or a message type.
+     * @return the {@link Decision} for the next message of the {@code route}.
+     */
+    public Decision decide(final String route) {
+        if (maxRoutes == 0) {
+            return Decision.COMPRESS;
+        }
+        final RouteStats stats;
+        synchronized (routes) {
+            // Evicts the least recently used route if there are too many distinct routes, e.g. paths containing
+            // identifiers.
+            stats = routes.computeIfAbsent(route, __ -> new RouteStats());
+        }
+        final boolean sample = floorMod(stats.nextMessage(), sampleInterval) == 0;
+        if (stats.poorlyCompressing) {
+            return sample ? Decision.COMPRESS_AND_SAMPLE : Decision.SKIP;
+        }
+        return sample ? Decision.COMPRESS_AND_SAMPLE : Decision.COMPRESS;
+    }
+
+    /**
+     * Reports the result of compressing a message for which {@link #decide(String)} returned
+     * {@link Decision#COMPRESS_AND_SAMPLE}.
+     *
+     * @param route the route passed to {@link #decide(String)}.
+     * @param uncompressedSize the size of the message before compression, in bytes.
+     * @param compressedSize the size of the message after compression, in bytes.
+     */
+    public void onSample(final String route, final long uncompressedSize, final long compressedSize) {
+        final RouteStats stats;
+        synchronized (routes) {
+            stats = routes.get(route);
+        }
+        if (stats != null) {
+            stats.onSample((double) uncompressedSize / max(1, compressedSize), minCompressionRatio);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{minSize=" + minSize + ", excludedContentTypes=" + excludedContentTypes +
+                ", minCompressionRatio=" + minCompressionRatio + ", sampleInterval=" + sampleInterval +
+                ", maxRoutes=" + maxRoutes + '}';
+    }
+
+    /**
+     * The result of {@link #decide(String)}.
+     */
+    public enum Decision {
+        /**
+         * The message should not be compressed.
+         */
+        SKIP,
+        /**
+         * The message should be compressed.
+         */
+        COMPRESS,
+        /**
+         * The message should be compressed and the sizes before and after compression reported to
+         * {@link #onSample(String, long, long)}.
+         */
+        COMPRESS_AND_SAMPLE
+    }
+
+    private static final class RouteStats {
+        private static final AtomicIntegerFieldUpdater<RouteStats> messagesUpdater =
+                AtomicIntegerFieldUpdater.newUpdater(RouteStats.class, "messages");
+
+        private volatile int messages = -1;
+        private volatile boolean poorlyCompressing;
+        // Guarded by this.
+        private double compressionRatio;
+
+        int nextMessage() {
+            return messagesUpdater.incrementAndGet(this);
+        }
+
+        synchronized void onSample(final double ratio, final double minCompressionRatio) {
+            compressionRatio = compressionRatio == 0 ? ratio :
+                    compressionRatio + (ratio - compressionRatio) * SMOOTHING;
+            poorlyCompressing = compressionRatio < minCompressionRatio;
+        }
+    }
+
+    /**
+     * {@link RouteStats} by route in access order, bounded by evicting the least recently used route.
+     */
+    private static final class RouteCache extends LinkedHashMap<String, RouteStats> {
+        private static final long serialVersionUID = 4523620271826137472L;
+
+        private final int maxRoutes;
+
+        RouteCache(final int maxRoutes) {
+            super(16, 0.75f, true);
+            this.maxRoutes = maxRoutes;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, RouteStats> eldest) {
+            return size() > maxRoutes;
+        }
+    }
+
+    /**
+     * A builder for {@link CompressionPolicy}.
+     */
+    public static final class Builder {
+        private int minSize = 1024;
+        private List<CharSequence> excludedContentTypes = DEFAULT_EXCLUDED_CONTENT_TYPES;
+        private double minCompressionRatio = 1.1;
+        private int sampleInterval = 16;
+        private int maxRoutes = 1024;
+
+        /**
+         * Sets the minimum size of a message to be compressed.
+         * <p>
+         * Defaults to {@code 1024} bytes.
+         *
+         * @param minSize the minimum size of a message to be compressed, in bytes.
+         * @return {@code this}
+         */
+        public Builder minSize(final int minSize) {
+            if (minSize < 0) {
+                throw new IllegalArgumentException("minSize: " + minSize + " (expected >=0)");
+            }
+            this.minSize = minSize;
+            return this;
+        }
+
+        /**
+         * Sets the content types which are not compressed, typically because they are compressed already. Content
+         * types are matched case-insensitively by prefix, e.g. {@code video/} excludes all video types.
+         * <p>
+         * Defaults to common image, video, audio, font and archive formats which are compressed.
+         *
+         * @param excludedContentTypes the content type prefixes which are not compressed.
+         * @return {@code this}
+         */
+        public Builder excludedContentTypes(final Collection<? extends CharSequence> excludedContentTypes) {
+            this.excludedContentTypes = new ArrayList<>(excludedContentTypes);
+            return this;
+        }
+
+        /**
+         * Sets the minimum ratio of uncompressed to compressed size for a route to be considered as compressing
+         * well. Routes below the ratio are only compressed for sampling.
+         * <p>
+         * Defaults to {@code 1.1}, i.e. compression has to save about 10%.
+         *
+         * @param minCompressionRatio the minimum ratio of uncompressed to compressed size.
+         * @return {@code this}
+         */
+        public Builder minCompressionRatio(final double minCompressionRatio) {
+            if (!(minCompressionRatio >= 1)) {
+                throw new IllegalArgumentException("minCompressionRatio: " + minCompressionRatio + " (expected >=1)");
+            }
+            this.minCompressionRatio = minCompressionRatio;
+            return this;
+        }
+
+        /**
+         * Sets how often messages of a route are sampled, one in {@code sampleInterval} messages is sampled.
+         * <p>
+         * Defaults to {@code 16}.
+         *
+         * @param sampleInterval the number of messages of a route per sample.
+         * @return {@code this}
+         */
+        public Builder sampleInterval(final int sampleInterval) {
+            if (sampleInterval <= 0) {
+                throw new IllegalArgumentException("sampleInterval: " + sampleInterval + " (expected >0)");
+            }
+            this.sampleInterval = sampleInterval;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of routes for which statistics are kept, the least recently used routes are evicted
+         * beyond that. {@code 0} disables the sampling.
+         * <p>
+         * Defaults to {@code 1024}.
+         *
+         * @param maxRoutes the maximum number of tracked routes.
+         * @return {@code this}
+         */
+        public Builder maxRoutes(final int maxRoutes) {
+            if (maxRoutes < 0) {
+                throw new IllegalArgumentException("maxRoutes: " + maxRoutes + " (expected >=0)");
+            }
+            this.maxRoutes = maxRoutes;
+            return this;
+        }
+
+        /**
+         * Builds a new {@link CompressionPolicy}.
+         *
+         * @return a new {@link CompressionPolicy}.
+         */
+        public CompressionPolicy build() {
+            return new CompressionPolicy(minSize, excludedContentTypes, minCompressionRatio, sampleInterval, maxRoutes);
+        }
+    }
+}
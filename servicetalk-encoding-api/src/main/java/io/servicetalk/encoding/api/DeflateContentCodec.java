@@ -15,12 +15,8 @@
  */
 package io.servicetalk.encoding.api;
 
-import java.io.InputStream;
-import java.io.OutputStream;
 import java.util.zip.Deflater;
-import java.util.zip.DeflaterOutputStream;
 import java.util.zip.Inflater;
-import java.util.zip.InflaterInputStream;
 
 final class DeflateContentCodec extends AbstractZipContentCodec {
 
@@ -41,14 +37,7 @@ final class DeflateContentCodec extends AbstractZipContentCodec {
     }
 
     @Override
-    InflaterInputStream newInflaterInputStream(final InputStream in) {
-        return new InflaterInputStream(in, newRawInflater(), chunkSize);
-    }
-
-    @Override
-    DeflaterOutputStream newDeflaterOutputStream(final OutputStream out) {
-        // TODO tk - Optimization, we could rely on the Deflater directly to avoid the intermediate
-        // copy on the stream buffer
-        return new DeflaterOutputStream(out, new Deflater(), chunkSize, true);
+    Deflater newDeflater() {
+        return new Deflater();
     }
 }
@@ -15,14 +15,8 @@
  */
 package io.servicetalk.encoding.api;
 
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.util.zip.DeflaterOutputStream;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
+import java.util.zip.Deflater;
 import java.util.zip.Inflater;
-import java.util.zip.InflaterInputStream;
 
 final class GzipContentCodec extends AbstractZipContentCodec {
 
@@ -43,14 +37,7 @@ final class GzipContentCodec extends AbstractZipContentCodec {
     }
 
     @Override
-    InflaterInputStream newInflaterInputStream(final InputStream in) throws IOException {
-        return new GZIPInputStream(in, chunkSize);
-    }
-
-    @Override
-    DeflaterOutputStream newDeflaterOutputStream(final OutputStream out) throws IOException {
-        // TODO tk - Optimization, we could rely on the Deflater directly to avoid the intermediate
-        // copy on the stream buffer
-        return new GZIPOutputStream(out, chunkSize, true);
+    Deflater newDeflater() {
+        return new Deflater(Deflater.DEFAULT_COMPRESSION, true);
     }
 }
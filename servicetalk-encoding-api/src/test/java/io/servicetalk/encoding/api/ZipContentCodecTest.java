@@ -0,0 +1,388 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.encoding.api;
+
+import io.servicetalk.buffer.api.Buffer;
+import io.servicetalk.buffer.api.BufferAllocator;
+import io.servicetalk.concurrent.PublisherSource;
+import io.servicetalk.concurrent.api.TestPublisher;
+import io.servicetalk.concurrent.api.TestSubscription;
+import io.servicetalk.concurrent.test.internal.TestPublisherSubscriber;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+
+import static io.servicetalk.buffer.netty.BufferAllocators.DEFAULT_ALLOCATOR;
+import static io.servicetalk.buffer.netty.BufferAllocators.PREFER_DIRECT_ALLOCATOR;
+import static io.servicetalk.concurrent.api.Publisher.from;
+import static io.servicetalk.concurrent.api.SourceAdapters.toSource;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class ZipContentCodecTest {
+
+    private static final String PAYLOAD = payload(100_000);
+
+    private final CountingGzipCodec codec = new CountingGzipCodec();
+
+    @Test
+    public void aggregatedReusesPooledInstances() {
+        for (int i = 0; i < 3; ++i) {
+            final Buffer encoded = codec.encode(DEFAULT_ALLOCATOR.fromAscii(PAYLOAD), DEFAULT_ALLOCATOR);
+            assertThat(codec.decode(encoded, DEFAULT_ALLOCATOR).toString(US_ASCII), is(PAYLOAD));
+        }
+        assertThat(codec.deflaters.get(), is(1));
+        assertThat(codec.inflaters.get(), is(1));
+    }
+
+    @Test
+    public void streamingReusesPooledInstances() throws Exception {
+        for (int i = 0; i < 3; ++i) {
+            assertThat(streamingRoundTrip(DEFAULT_ALLOCATOR), is(PAYLOAD));
+        }
+        assertThat(codec.deflaters.get(), is(1));
+        assertThat(codec.inflaters.get(), is(1));
+    }
+
+    @Test
+    public void cancelledEncodeReturnsDeflater() {
+        final TestPublisher<Buffer> source = new TestPublisher<>();
+        final TestSubscription subscription = new TestSubscription();
+        final TestPublisherSubscriber<Buffer> subscriber = new TestPublisherSubscriber<>();
+        toSource(codec.encode(source, DEFAULT_ALLOCATOR)).subscribe(subscriber);
+        source.onSubscribe(subscription);
+        subscriber.awaitSubscription().request(1);
+        source.onNext(DEFAULT_ALLOCATOR.fromAscii(PAYLOAD));
+        subscriber.takeOnNext();
+        subscriber.awaitSubscription().cancel();
+        assertThat(subscription.isCancelled(), is(true));
+
+        codec.encode(DEFAULT_ALLOCATOR.fromAscii(PAYLOAD), DEFAULT_ALLOCATOR);
+        assertThat(codec.deflaters.get(), is(1));
+    }
+
+    @Test
+    public void cancelledDecodeReturnsInflater() {
+        final TestPublisher<Buffer> source = new TestPublisher<>();
+        final TestSubscription subscription = new TestSubscription();
+        final TestPublisherSubscriber<Buffer> subscriber = new TestPublisherSubscriber<>();
+        toSource(codec.decode(source, DEFAULT_ALLOCATOR)).subscribe(subscriber);
+        source.onSubscribe(subscription);
+        subscriber.awaitSubscription().cancel();
+        assertThat(subscription.isCancelled(), is(true));
+
+        final Buffer encoded = codec.encode(DEFAULT_ALLOCATOR.fromAscii(PAYLOAD), DEFAULT_ALLOCATOR);
+        assertThat(codec.decode(encoded, DEFAULT_ALLOCATOR).toString(US_ASCII), is(PAYLOAD));
+        assertThat(codec.inflaters.get(), is(1));
+    }
+
+    @Test
+    public void failedDecodeCancelsUpstreamAndReturnsInflater() {
+        final TestPublisher<Buffer> source = new TestPublisher<>();
+        final TestSubscription subscription = new TestSubscription();
+        final TestPublisherSubscriber<Buffer> subscriber = new TestPublisherSubscriber<>();
+        toSource(codec.decode(source, DEFAULT_ALLOCATOR)).subscribe(subscriber);
+        source.onSubscribe(subscription);
+        subscriber.awaitSubscription().request(2);
+        source.onNext(DEFAULT_ALLOCATOR.fromAscii("not a gzip member"));
+        subscriber.awaitOnError();
+        assertThat(subscription.isCancelled(), is(true));
+
+        // Signals after the failure are dropped and must not use the Inflater, which is back in the pool.
+        final Buffer encoded = codec.encode(DEFAULT_ALLOCATOR.fromAscii(PAYLOAD), DEFAULT_ALLOCATOR);
+        source.onNext(encoded.duplicate());
+        source.onComplete();
+        assertThat(subscriber.pollOnNext(10, MILLISECONDS), is(nullValue()));
+        assertThat(codec.decode(encoded, DEFAULT_ALLOCATOR).toString(US_ASCII), is(PAYLOAD));
+        assertThat(codec.inflaters.get(), is(1));
+    }
+
+    @Test
+    public void cancelFromOnNextReturnsDeflater() {
+        final AtomicInteger received = new AtomicInteger();
+        toSource(codec.encode(from(DEFAULT_ALLOCATOR.fromAscii(PAYLOAD), DEFAULT_ALLOCATOR.fromAscii(PAYLOAD)),
+                DEFAULT_ALLOCATOR)).subscribe(new PublisherSource.Subscriber<Buffer>() {
+            private PublisherSource.Subscription subscription;
+
+            @Override
+            public void onSubscribe(final PublisherSource.Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(final Buffer buffer) {
+                received.incrementAndGet();
+                // The Deflater is in use while onNext is called, it is returned after onNext returns.
+                subscription.cancel();
+            }
+
+            @Override
+            public void onError(final Throwable t) {
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+        assertThat(received.get(), is(1));
+
+        codec.encode(DEFAULT_ALLOCATOR.fromAscii(PAYLOAD), DEFAULT_ALLOCATOR);
+        assertThat(codec.deflaters.get(), is(1));
+    }
+
+    @Test
+    public void reentrantRequestFromOnNext() {
+        final Buffer[] chunks = {DEFAULT_ALLOCATOR.fromAscii(PAYLOAD), DEFAULT_ALLOCATOR.fromAscii("b")};
+        final RequestingCollector encoded = new RequestingCollector();
+        toSource(codec.encode(from(chunks), DEFAULT_ALLOCATOR)).subscribe(encoded);
+        assertThat(encoded.completed, is(true));
+
+        final RequestingCollector decoded = new RequestingCollector();
+        toSource(codec.decode(from(encoded.buffer), DEFAULT_ALLOCATOR)).subscribe(decoded);
+        assertThat(decoded.completed, is(true));
+        assertThat(decoded.buffer.toString(US_ASCII), is(PAYLOAD + "b"));
+    }
+
+    @Test
+    public void aggregatedRoundTripDirect() {
+        final Buffer encoded = codec.encode(PREFER_DIRECT_ALLOCATOR.fromAscii(PAYLOAD), PREFER_DIRECT_ALLOCATOR);
+        assertThat(encoded.hasArray(), is(false));
+        final Buffer decoded = codec.decode(encoded, PREFER_DIRECT_ALLOCATOR);
+        assertThat(decoded.hasArray(), is(false));
+        assertThat(decoded.toString(US_ASCII), is(PAYLOAD));
+    }
+
+    @Test
+    public void streamingRoundTripDirect() throws Exception {
+        assertThat(streamingRoundTrip(PREFER_DIRECT_ALLOCATOR), is(PAYLOAD));
+    }
+
+    @Test
+    public void encodedIsReadableByGzipInputStream() throws Exception {
+        final Buffer encoded = codec.encode(PREFER_DIRECT_ALLOCATOR.fromAscii(PAYLOAD), PREFER_DIRECT_ALLOCATOR);
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(toByteArray(encoded)))) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] chunk = new byte[1024];
+            int read;
+            while ((read = in.read(chunk)) >= 0) {
+                out.write(chunk, 0, read);
+            }
+            assertThat(new String(out.toByteArray(), US_ASCII), is(PAYLOAD));
+        }
+    }
+
+    @Test
+    public void decodesGzipOutputStream() throws Exception {
+        final byte[] encoded = gzip(PAYLOAD);
+        assertThat(codec.decode(PREFER_DIRECT_ALLOCATOR.wrap(encoded), PREFER_DIRECT_ALLOCATOR).toString(US_ASCII),
+                is(PAYLOAD));
+    }
+
+    @Test
+    public void aggregatedDecodesConcatenatedMembers() throws Exception {
+        final ByteArrayOutputStream members = new ByteArrayOutputStream();
+        members.write(gzip("hello "));
+        members.write(gzip("world"));
+        assertThat(codec.decode(DEFAULT_ALLOCATOR.wrap(members.toByteArray()), DEFAULT_ALLOCATOR)
+                .toString(US_ASCII), is("hello world"));
+    }
+
+    @Test
+    public void aggregatedIgnoresTrailingData() throws Exception {
+        final ByteArrayOutputStream data = new ByteArrayOutputStream();
+        data.write(gzip("hello"));
+        data.write(new byte[] {0, 0, 0, 0});
+        assertThat(codec.decode(DEFAULT_ALLOCATOR.wrap(data.toByteArray()), DEFAULT_ALLOCATOR).toString(US_ASCII),
+                is("hello"));
+    }
+
+    @Test
+    public void aggregatedDecodesOptionalHeaderFields() {
+        final byte[] encoded = gzipWithOptionalHeaderFields("hello");
+        assertThat(codec.decode(DEFAULT_ALLOCATOR.wrap(encoded), DEFAULT_ALLOCATOR).toString(US_ASCII), is("hello"));
+    }
+
+    @Test
+    public void streamingDecodesOptionalHeaderFieldsSplitInFileName() throws Exception {
+        final byte[] encoded = gzipWithOptionalHeaderFields("hello");
+        // Fixed header (10), XLEN (2), extra field (4) and the first two bytes of the file name.
+        final int split = 18;
+        final Buffer first = DEFAULT_ALLOCATOR.wrap(encoded, 0, split);
+        final Buffer second = DEFAULT_ALLOCATOR.wrap(encoded, split, encoded.length - split);
+        assertThat(codec.decode(from(first, second), DEFAULT_ALLOCATOR)
+                .collect(StringBuilder::new, (sb, buffer) -> sb.append(buffer.toString(US_ASCII)))
+                .toFuture().get().toString(), is("hello"));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void headerCrcMismatch() {
+        final byte[] encoded = gzipWithOptionalHeaderFields("hello");
+        // The header CRC follows the comment.
+        final int headerCrcIndex = 10 + 2 + 4 + "file.txt".length() + 1 + "comment".length() + 1;
+        encoded[headerCrcIndex] ^= 1;
+        codec.decode(DEFAULT_ALLOCATOR.wrap(encoded), DEFAULT_ALLOCATOR);
+    }
+
+    private String streamingRoundTrip(final BufferAllocator allocator) throws Exception {
+        final int chunkSize = PAYLOAD.length() / 10;
+        final Buffer[] chunks = new Buffer[10];
+        for (int i = 0; i < chunks.length; ++i) {
+            chunks[i] = allocator.fromAscii(PAYLOAD.substring(i * chunkSize, (i + 1) * chunkSize));
+        }
+        return codec.decode(codec.encode(from(chunks), allocator), allocator)
+                .collect(StringBuilder::new, (sb, buffer) -> sb.append(buffer.toString(US_ASCII)))
+                .toFuture().get().toString();
+    }
+
+    private static byte[] gzip(final String data) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data.getBytes(US_ASCII));
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Creates a gzip member with the FEXTRA, FNAME, FCOMMENT and FHCRC header fields, which
+     * {@link GZIPOutputStream} does not write.
+     */
+    private static byte[] gzipWithOptionalHeaderFields(final String data) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        // Magic, deflate method, FHCRC | FEXTRA | FNAME | FCOMMENT, modification time, extra flags and OS.
+        out.write(new byte[] {0x1f, (byte) 0x8b, 8, 0x1e, 1, 2, 3, 4, 0, 3}, 0, 10);
+        // XLEN (little endian) and a subfield with an empty payload.
+        out.write(new byte[] {4, 0, 'S', 'T', 0, 0}, 0, 6);
+        writeZeroTerminated(out, "file.txt");
+        writeZeroTerminated(out, "comment");
+        final CRC32 headerCrc = new CRC32();
+        headerCrc.update(out.toByteArray());
+        writeLE(out, (int) headerCrc.getValue(), 2);
+
+        final byte[] bytes = data.getBytes(US_ASCII);
+        final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+            final byte[] chunk = new byte[1024];
+            while (!deflater.finished()) {
+                out.write(chunk, 0, deflater.deflate(chunk));
+            }
+        } finally {
+            deflater.end();
+        }
+        final CRC32 crc = new CRC32();
+        crc.update(bytes);
+        writeLE(out, (int) crc.getValue(), 4);
+        writeLE(out, bytes.length, 4);
+        return out.toByteArray();
+    }
+
+    private static void writeZeroTerminated(final ByteArrayOutputStream out, final String value) {
+        final byte[] bytes = value.getBytes(US_ASCII);
+        out.write(bytes, 0, bytes.length);
+        out.write(0);
+    }
+
+    private static void writeLE(final ByteArrayOutputStream out, final int value, final int length) {
+        for (int i = 0; i < length; ++i) {
+            out.write(value >>> (i * 8));
+        }
+    }
+
+    private static byte[] toByteArray(final Buffer buffer) {
+        final byte[] bytes = new byte[buffer.readableBytes()];
+        buffer.getBytes(buffer.readerIndex(), bytes);
+        return bytes;
+    }
+
+    private static String payload(final int length) {
+        final StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; ++i) {
+            sb.append((char) ('a' + i % 7 + (i / 1000) % 13));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Requests one item at a time from within {@link #onNext(Buffer)}, which re-enters {@code onNext} for synchronous
+     * sources.
+     */
+    private static final class RequestingCollector implements PublisherSource.Subscriber<Buffer> {
+        final Buffer buffer = DEFAULT_ALLOCATOR.newBuffer();
+        boolean completed;
+        private PublisherSource.Subscription subscription;
+
+        @Override
+        public void onSubscribe(final PublisherSource.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(final Buffer next) {
+            buffer.writeBytes(next);
+            subscription.request(1);
+        }
+
+        @Override
+        public void onError(final Throwable t) {
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+
+    private static final class CountingGzipCodec extends AbstractZipContentCodec {
+        final AtomicInteger deflaters = new AtomicInteger();
+        final AtomicInteger inflaters = new AtomicInteger();
+
+        CountingGzipCodec() {
+            super("gzip", 1 << 10, 1 << 20);
+        }
+
+        @Override
+        boolean supportsChecksum() {
+            return true;
+        }
+
+        @Override
+        Inflater newRawInflater() {
+            inflaters.incrementAndGet();
+            return new Inflater(true);
+        }
+
+        @Override
+        Deflater newDeflater() {
+            deflaters.incrementAndGet();
+            return new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        }
+    }
+}
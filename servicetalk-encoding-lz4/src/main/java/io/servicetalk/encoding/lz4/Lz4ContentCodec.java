@@ -0,0 +1,563 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.encoding.lz4;
+
+import io.servicetalk.buffer.api.Buffer;
+import io.servicetalk.buffer.api.BufferAllocator;
+import io.servicetalk.concurrent.PublisherSource;
+import io.servicetalk.concurrent.api.Publisher;
+import io.servicetalk.encoding.api.ContentCodec;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FrameInputStream;
+import net.jpountz.lz4.LZ4FrameOutputStream;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+import net.jpountz.xxhash.StreamingXXHash32;
+import net.jpountz.xxhash.XXHash32;
+import net.jpountz.xxhash.XXHashFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import javax.annotation.Nullable;
+
+import static io.servicetalk.buffer.api.Buffer.asInputStream;
+import static io.servicetalk.buffer.api.Buffer.asOutputStream;
+import static io.servicetalk.buffer.api.CharSequences.newAsciiString;
+import static io.servicetalk.buffer.api.ReadOnlyBufferAllocators.DEFAULT_RO_ALLOCATOR;
+import static io.servicetalk.concurrent.api.Single.succeeded;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static net.jpountz.lz4.LZ4FrameOutputStream.BLOCKSIZE.SIZE_64KB;
+import static net.jpountz.lz4.LZ4FrameOutputStream.FLG.Bits.BLOCK_INDEPENDENCE;
+
+final class Lz4ContentCodec implements ContentCodec {
+
+    private static final CharSequence NAME = newAsciiString("lz4");
+    private static final Buffer END_OF_STREAM = DEFAULT_RO_ALLOCATOR.fromAscii(" ");
+    private static final int MAGIC = 0x184D2204;
+    private static final int SKIPPABLE_MAGIC_MASK = 0xFFFFFFF0;
+    private static final int SKIPPABLE_MAGIC = 0x184D2A50;
+    private static final int FLG_VERSION = 0x40;
+    private static final int FLG_BLOCK_INDEPENDENCE = 0x20;
+    private static final int FLG_BLOCK_CHECKSUM = 0x10;
+    private static final int FLG_CONTENT_SIZE = 0x08;
+    private static final int FLG_CONTENT_CHECKSUM = 0x04;
+    private static final int FLG_RESERVED = 0x02;
+    private static final int FLG_DICT_ID = 0x01;
+    private static final int BD_RESERVED = 0x8F;
+    private static final int BLOCK_UNCOMPRESSED = 0x80000000;
+    // 64KiB blocks, the smallest size the frame format supports, keeps the buffered data per stream small.
+    private static final int MIN_BLOCK_SIZE_ID = 4;
+    private static final int BLOCK_SIZE = blockMaxSize(MIN_BLOCK_SIZE_ID);
+    // Frame header without the optional content size, and the end mark.
+    private static final int FRAME_OVERHEAD = 7 + 4;
+
+    private final LZ4Compressor compressor;
+    private final LZ4SafeDecompressor decompressor;
+    private final XXHash32 hash;
+    private final int chunkSize;
+    private final int maxPayloadSize;
+
+    Lz4ContentCodec(final int compressionLevel, final int chunkSize, final int maxPayloadSize) {
+        final LZ4Factory factory = LZ4Factory.fastestInstance();
+        compressor = compressionLevel == 0 ? factory.fastCompressor() : factory.highCompressor(compressionLevel);
+        decompressor = factory.safeDecompressor();
+        hash = XXHashFactory.fastestInstance().hash32();
+        this.chunkSize = chunkSize;
+        this.maxPayloadSize = maxPayloadSize;
+    }
+
+    @Override
+    public CharSequence name() {
+        return NAME;
+    }
+
+    @Override
+    public Buffer encode(final Buffer src, final int offset, final int length, final BufferAllocator allocator) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("Invalid offset: " + offset + " (expected >= 0)");
+        }
+
+        src.readerIndex(src.readerIndex() + offset);
+        final Buffer dst = allocator.newBuffer(FRAME_OVERHEAD +
+                compressor.maxCompressedLength(min(length, BLOCK_SIZE)) + Integer.BYTES);
+        try (LZ4FrameOutputStream out = newFrameOutputStream(asOutputStream(dst))) {
+            write(src, length, out);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return dst;
+    }
+
+    @Override
+    public Buffer decode(final Buffer src, final int offset, final int length, final BufferAllocator allocator) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("Invalid offset: " + offset + " (expected >= 0)");
+        }
+
+        src.readerIndex(src.readerIndex() + offset);
+        final int chunk = min(chunkSize, BLOCK_SIZE);
+        final Buffer dst = allocator.newBuffer(max(chunkSize, length));
+        final int writerIndex = dst.writerIndex();
+        try (InputStream in = new LZ4FrameInputStream(asInputStream(src.readSlice(length)), decompressor, hash)) {
+            while (dst.writeBytes(in, chunk) >= 0) {
+                final int payloadSize = dst.writerIndex() - writerIndex;
+                if (payloadSize > maxPayloadSize) {
+                    throw new IllegalStateException("Max decompressed payload limit has been reached: " +
+                            payloadSize + " (expected <= " + maxPayloadSize + ") bytes");
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return dst;
+    }
+
+    @Override
+    public Publisher<Buffer> encode(final Publisher<Buffer> from, final BufferAllocator allocator) {
+        return from
+                .concat(succeeded(END_OF_STREAM))
+                .liftSync(subscriber -> new PublisherSource.Subscriber<Buffer>() {
+
+                    private final TargetBufferOutputStream target = new TargetBufferOutputStream();
+                    @Nullable
+                    private LZ4FrameOutputStream out;
+
+                    @Override
+                    public void onSubscribe(final PublisherSource.Subscription subscription) {
+                        subscriber.onSubscribe(subscription);
+                    }
+
+                    @Override
+                    public void onNext(@Nullable final Buffer next) {
+                        assert next != null;
+                        // onNext will produce AT-MOST N items (from upstream)
+                        // +1 for the end mark (ie. END_OF_STREAM)
+                        try {
+                            final Buffer dst;
+                            if (next == END_OF_STREAM) {
+                                dst = allocator.newBuffer(FRAME_OVERHEAD);
+                                target.buffer = dst;
+                                frameOutputStream().close();
+                            } else {
+                                dst = allocator.newBuffer(chunkSize);
+                                target.buffer = dst;
+                                final LZ4FrameOutputStream out = frameOutputStream();
+                                write(next, next.readableBytes(), out);
+                                // Every item is written as complete blocks, so the data written so far can be
+                                // fully decompressed.
+                                out.flush();
+                            }
+                            target.buffer = null;
+                            subscriber.onNext(dst);
+                        } catch (Throwable t) {
+                            onError(t);
+                        }
+                    }
+
+                    @Override
+                    public void onError(final Throwable t) {
+                        subscriber.onError(t);
+                    }
+
+                    @Override
+                    public void onComplete() {
+                        subscriber.onComplete();
+                    }
+
+                    private LZ4FrameOutputStream frameOutputStream() throws IOException {
+                        // The frame header is written on creation, so the stream is created once the first
+                        // target buffer is available.
+                        if (out == null) {
+                            out = newFrameOutputStream(target);
+                        }
+                        return out;
+                    }
+                });
+    }
+
+    @Override
+    public Publisher<Buffer> decode(final Publisher<Buffer> from, final BufferAllocator allocator) {
+        return from.liftSync(subscriber -> new PublisherSource.Subscriber<Buffer>() {
+
+            private final Lz4FrameDecoder decoder = new Lz4FrameDecoder(decompressor, hash, maxPayloadSize);
+            @Nullable
+            private PublisherSource.Subscription subscription;
+
+            @Override
+            public void onSubscribe(final PublisherSource.Subscription subscription) {
+                this.subscription = subscription;
+                subscriber.onSubscribe(subscription);
+            }
+
+            @Override
+            public void onNext(@Nullable final Buffer src) {
+                assert subscription != null;
+                assert src != null;
+
+                // onNext will produce AT-MOST N items (as received)
+                try {
+                    final Buffer part = allocator.newBuffer(chunkSize);
+                    decoder.decode(src, part);
+                    if (part.readableBytes() > 0) {
+                        subscriber.onNext(part);
+                    } else {
+                        // Not enough data to decompress, ask for more
+                        subscription.request(1);
+                    }
+                } catch (Throwable t) {
+                    onError(t);
+                }
+            }
+
+            @Override
+            public void onError(final Throwable t) {
+                subscriber.onError(t);
+            }
+
+            @Override
+            public void onComplete() {
+                if (decoder.isFinished()) {
+                    subscriber.onComplete();
+                } else {
+                    subscriber.onError(new IOException("Unexpected end of " + NAME + " input"));
+                }
+            }
+        });
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final Lz4ContentCodec that = (Lz4ContentCodec) o;
+        return NAME.equals(that.name());
+    }
+
+    @Override
+    public int hashCode() {
+        return NAME.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "ContentCodec{" +
+                "name=" + NAME +
+                '}';
+    }
+
+    private static int blockMaxSize(final int blockSizeId) {
+        // 4: 64KiB, 5: 256KiB, 6: 1MiB, 7: 4MiB
+        return 1 << (2 * blockSizeId + 8);
+    }
+
+    private LZ4FrameOutputStream newFrameOutputStream(final OutputStream out) throws IOException {
+        // Independent blocks without checksums, the transport already protects the data.
+        return new LZ4FrameOutputStream(out, SIZE_64KB, -1L, compressor, hash, BLOCK_INDEPENDENCE);
+    }
+
+    private static void write(final Buffer src, final int length, final OutputStream out) throws IOException {
+        if (src.hasArray()) {
+            out.write(src.array(), src.arrayOffset() + src.readerIndex(), length);
+            src.skipBytes(length);
+        } else {
+            final byte[] scratch = new byte[min(length, BLOCK_SIZE)];
+            int remaining = length;
+            while (remaining > 0) {
+                final int chunk = min(remaining, scratch.length);
+                src.readBytes(scratch, 0, chunk);
+                out.write(scratch, 0, chunk);
+                remaining -= chunk;
+            }
+        }
+    }
+
+    /**
+     * An {@link OutputStream} which writes to a {@link Buffer} that can be replaced for each item of a stream.
+     */
+    private static final class TargetBufferOutputStream extends OutputStream {
+        @Nullable
+        Buffer buffer;
+
+        @Override
+        public void write(final int b) {
+            assert buffer != null;
+            buffer.writeByte(b);
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) {
+            assert buffer != null;
+            buffer.writeBytes(b, off, len);
+        }
+    }
+
+    /**
+     * Reads LZ4 frames with independent blocks, including concatenated and skippable frames, and verifies block and
+     * content checksums. Input is accumulated until a complete header or block is available.
+     * <p>
+     * {@link LZ4FrameInputStream} pulls its input and fails when it runs out of data in the middle of a frame, it
+     * can't decode the partial frames of a {@link Publisher} without blocking for the rest of the input.
+     */
+    static final class Lz4FrameDecoder {
+        private static final byte[] EMPTY = new byte[0];
+
+        private enum State {
+            HEADER,
+            BLOCK_SIZE,
+            BLOCK,
+            CONTENT_CHECKSUM,
+            SKIP,
+        }
+
+        private final LZ4SafeDecompressor decompressor;
+        private final XXHash32 hash;
+        private final StreamingXXHash32 contentHash = XXHashFactory.fastestInstance().newStreamingHash32(0);
+        private final int maxPayloadSize;
+        private State state = State.HEADER;
+        private byte[] cumulation = EMPTY;
+        private int cumulationLength;
+        @Nullable
+        private byte[] outputScratch;
+        private int blockMaxSize;
+        private boolean blockChecksum;
+        private boolean contentChecksum;
+        private int blockSize;
+        private boolean blockUncompressed;
+        private long skipBytes;
+        private int payloadSize;
+        private boolean frameComplete;
+
+        Lz4FrameDecoder(final LZ4SafeDecompressor decompressor, final XXHash32 hash, final int maxPayloadSize) {
+            this.decompressor = decompressor;
+            this.hash = hash;
+            this.maxPayloadSize = maxPayloadSize;
+        }
+
+        /**
+         * Returns {@code true} if all frames received so far are complete.
+         *
+         * @return {@code true} if all frames received so far are complete.
+         */
+        boolean isFinished() {
+            return frameComplete && state == State.HEADER && cumulationLength == 0;
+        }
+
+        void decode(final Buffer in, final Buffer out) throws IOException {
+            append(in);
+            int position = 0;
+            decode:
+            for (;;) {
+                final int available = cumulationLength - position;
+                switch (state) {
+                    case HEADER: {
+                        if (available < Integer.BYTES) {
+                            break decode;
+                        }
+                        final int magic = getIntLE(position);
+                        if ((magic & SKIPPABLE_MAGIC_MASK) == SKIPPABLE_MAGIC) {
+                            if (available < 2 * Integer.BYTES) {
+                                break decode;
+                            }
+                            skipBytes = getIntLE(position + Integer.BYTES) & 0xFFFFFFFFL;
+                            position += 2 * Integer.BYTES;
+                            state = State.SKIP;
+                            continue;
+                        }
+                        if (magic != MAGIC) {
+                            throw new IOException("Input is not in the LZ4 frame format");
+                        }
+                        if (available < Integer.BYTES + 2) {
+                            break decode;
+                        }
+                        final int flg = cumulation[position + Integer.BYTES] & 0xFF;
+                        final int bd = cumulation[position + Integer.BYTES + 1] & 0xFF;
+                        if ((flg & 0xC0) != FLG_VERSION) {
+                            throw new IOException("Unsupported LZ4 frame version: " + (flg >>> 6));
+                        }
+                        if ((flg & FLG_RESERVED) != 0 || (bd & BD_RESERVED) != 0) {
+                            throw new IOException("Reserved bits set in the LZ4 frame descriptor");
+                        }
+                        if ((flg & FLG_BLOCK_INDEPENDENCE) == 0) {
+                            throw new IOException("Unsupported LZ4 frame with linked blocks");
+                        }
+                        if ((flg & FLG_DICT_ID) != 0) {
+                            throw new IOException("Unsupported LZ4 frame with a dictionary");
+                        }
+                        final int blockSizeId = bd >>> 4;
+                        if (blockSizeId < MIN_BLOCK_SIZE_ID) {
+                            throw new IOException("Invalid LZ4 block maximum size: " + blockSizeId);
+                        }
+                        final int descriptorLength = (flg & FLG_CONTENT_SIZE) != 0 ? 10 : 2;
+                        if (available < Integer.BYTES + descriptorLength + 1) {
+                            break decode;
+                        }
+                        final int descriptorOffset = position + Integer.BYTES;
+                        final int checksum = (hash.hash(cumulation, descriptorOffset, descriptorLength, 0) >> 8) &
+                                0xFF;
+                        if (checksum != (cumulation[descriptorOffset + descriptorLength] & 0xFF)) {
+                            throw new IOException("LZ4 frame descriptor checksum mismatch");
+                        }
+                        blockMaxSize = blockMaxSize(blockSizeId);
+                        blockChecksum = (flg & FLG_BLOCK_CHECKSUM) != 0;
+                        contentChecksum = (flg & FLG_CONTENT_CHECKSUM) != 0;
+                        contentHash.reset();
+                        frameComplete = false;
+                        position = descriptorOffset + descriptorLength + 1;
+                        state = State.BLOCK_SIZE;
+                        continue;
+                    }
+                    case BLOCK_SIZE: {
+                        if (available < Integer.BYTES) {
+                            break decode;
+                        }
+                        final int size = getIntLE(position);
+                        position += Integer.BYTES;
+                        if (size == 0) {
+                            if (contentChecksum) {
+                                state = State.CONTENT_CHECKSUM;
+                            } else {
+                                frameComplete = true;
+                                state = State.HEADER;
+                            }
+                            continue;
+                        }
+                        blockUncompressed = (size & BLOCK_UNCOMPRESSED) != 0;
+                        blockSize = size & ~BLOCK_UNCOMPRESSED;
+                        if (blockSize > blockMaxSize) {
+                            throw new IOException("LZ4 block size: " + blockSize + " (expected <= " +
+                                    blockMaxSize + ")");
+                        }
+                        state = State.BLOCK;
+                        continue;
+                    }
+                    case BLOCK: {
+                        final int length = blockSize + (blockChecksum ? Integer.BYTES : 0);
+                        if (available < length) {
+                            break decode;
+                        }
+                        if (blockChecksum && hash.hash(cumulation, position, blockSize, 0) !=
+                                getIntLE(position + blockSize)) {
+                            throw new IOException("LZ4 block checksum mismatch");
+                        }
+                        decodeBlock(position, out);
+                        position += length;
+                        state = State.BLOCK_SIZE;
+                        continue;
+                    }
+                    case CONTENT_CHECKSUM: {
+                        if (available < Integer.BYTES) {
+                            break decode;
+                        }
+                        if (contentHash.getValue() != getIntLE(position)) {
+                            throw new IOException("LZ4 content checksum mismatch");
+                        }
+                        position += Integer.BYTES;
+                        frameComplete = true;
+                        state = State.HEADER;
+                        continue;
+                    }
+                    case SKIP: {
+                        final int skipped = (int) min(skipBytes, available);
+                        position += skipped;
+                        skipBytes -= skipped;
+                        if (skipBytes > 0) {
+                            break decode;
+                        }
+                        state = State.HEADER;
+                        continue;
+                    }
+                    default:
+                        throw new IllegalStateException("Unknown state: " + state);
+                }
+            }
+            discard(position);
+        }
+
+        private void decodeBlock(final int position, final Buffer out) throws IOException {
+            if (blockUncompressed) {
+                addPayloadSize(blockSize);
+                updateContentHash(cumulation, position, blockSize);
+                out.writeBytes(cumulation, position, blockSize);
+                return;
+            }
+            final int length;
+            try {
+                if (out.hasArray()) {
+                    out.ensureWritable(blockMaxSize);
+                    final int writerIndex = out.writerIndex();
+                    length = decompressor.decompress(cumulation, position, blockSize, out.array(),
+                            out.arrayOffset() + writerIndex, out.writableBytes());
+                    updateContentHash(out.array(), out.arrayOffset() + writerIndex, length);
+                    out.writerIndex(writerIndex + length);
+                } else {
+                    if (outputScratch == null || outputScratch.length < blockMaxSize) {
+                        outputScratch = new byte[blockMaxSize];
+                    }
+                    length = decompressor.decompress(cumulation, position, blockSize, outputScratch, 0,
+                            blockMaxSize);
+                    updateContentHash(outputScratch, 0, length);
+                    out.writeBytes(outputScratch, 0, length);
+                }
+            } catch (LZ4Exception e) {
+                throw new IOException("decompression failure", e);
+            }
+            addPayloadSize(length);
+        }
+
+        private void updateContentHash(final byte[] array, final int offset, final int length) {
+            if (contentChecksum) {
+                contentHash.update(array, offset, length);
+            }
+        }
+
+        private void addPayloadSize(final int length) {
+            payloadSize += length;
+            if (payloadSize > maxPayloadSize) {
+                throw new IllegalStateException("Max decompressed payload limit has been reached: " +
+                        payloadSize + " (expected <= " + maxPayloadSize + ") bytes");
+            }
+        }
+
+        private int getIntLE(final int index) {
+            return (cumulation[index] & 0xFF) | (cumulation[index + 1] & 0xFF) << 8 |
+                    (cumulation[index + 2] & 0xFF) << 16 | (cumulation[index + 3] & 0xFF) << 24;
+        }
+
+        private void append(final Buffer in) {
+            final int length = in.readableBytes();
+            if (cumulation.length - cumulationLength < length) {
+                final byte[] newCumulation = new byte[max(cumulationLength + length, cumulation.length << 1)];
+                System.arraycopy(cumulation, 0, newCumulation, 0, cumulationLength);
+                cumulation = newCumulation;
+            }
+            in.readBytes(cumulation, cumulationLength, length);
+            cumulationLength += length;
+        }
+
+        private void discard(final int position) {
+            cumulationLength -= position;
+            System.arraycopy(cumulation, position, cumulation, 0, cumulationLength);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.encoding.lz4;
+
+import io.servicetalk.encoding.api.ContentCodec;
+import io.servicetalk.encoding.api.ContentCodecBuilder;
+
+/**
+ * A {@link ContentCodecBuilder} for LZ4 based {@link ContentCodec}s.
+ */
+public final class Lz4ContentCodecBuilder implements ContentCodecBuilder {
+
+    private static final int CHUNK_SIZE = 8 << 10; //8KiB
+    private static final int DEFAULT_MAX_ALLOWED_DECOMPRESSED_PAYLOAD = 16 << 20; //16MiB
+    private static final int MAX_COMPRESSION_LEVEL = 17;
+
+    private int maxAllowedPayloadSize = DEFAULT_MAX_ALLOWED_DECOMPRESSED_PAYLOAD;
+    private int compressionLevel;
+
+    Lz4ContentCodecBuilder() {
+    }
+
+    @Override
+    public Lz4ContentCodecBuilder setMaxAllowedPayloadSize(final int maxAllowedPayloadSize) {
+        if (maxAllowedPayloadSize <= 0) {
+            throw new IllegalArgumentException("maxAllowedPayloadSize: " + maxAllowedPayloadSize + " (expected > 0)");
+        }
+
+        this.maxAllowedPayloadSize = maxAllowedPayloadSize;
+        return this;
+    }
+
+    /**
+     * Sets the compression level. Level {@code 0} uses the fast compressor, levels {@code 1} to {@code 17} use the
+     * high compression (LZ4 HC) compressor which trades speed for a better compression ratio. The level has no
+     * effect on decompression speed.
+     * <p>
+     * Defaults to {@code 0}.
+     *
+     * @param compressionLevel the compression level.
+     * @return {@code this}
+     */
+    public Lz4ContentCodecBuilder compressionLevel(final int compressionLevel) {
+        if (compressionLevel < 0 || compressionLevel > MAX_COMPRESSION_LEVEL) {
+            throw new IllegalArgumentException("compressionLevel: " + compressionLevel +
+                    " (expected [0, " + MAX_COMPRESSION_LEVEL + "])");
+        }
+
+        this.compressionLevel = compressionLevel;
+        return this;
+    }
+
+    @Override
+    public ContentCodec build() {
+        return new Lz4ContentCodec(compressionLevel, CHUNK_SIZE, maxAllowedPayloadSize);
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.encoding.lz4;
+
+import io.servicetalk.encoding.api.ContentCodec;
+
+/**
+ * <a href="https://github.com/lz4/lz4/blob/dev/doc/lz4_Frame_format.md">LZ4 frame</a> based {@link ContentCodec}s.
+ * <p>
+ * LZ4 compresses at a lower ratio than GZIP but is several times faster, which makes it a good fit for service to
+ * service traffic where CPU is more expensive than bandwidth. The codecs negotiate as {@code lz4} through the
+ * {@code Accept-Encoding} and {@code grpc-accept-encoding} headers like any other {@link ContentCodec}. There is no
+ * registered HTTP content coding for LZ4, both sides have to be configured with these codecs.
+ */
+public final class Lz4ContentCodings {
+
+    private static final ContentCodec DEFAULT_LZ4 = lz4().build();
+
+    private Lz4ContentCodings() {
+        // no instances
+    }
+
+    /**
+     * Returns the default LZ4 {@link ContentCodec}.
+     * @return default LZ4 based {@link ContentCodec}
+     */
+    public static ContentCodec lz4Default() {
+        return DEFAULT_LZ4;
+    }
+
+    /**
+     * Returns a LZ4 based {@link Lz4ContentCodecBuilder} that allows building
+     * a customizable {@link ContentCodec}.
+     * @return a LZ4 based {@link Lz4ContentCodecBuilder} that allows building
+     *          a customizable LZ4 {@link ContentCodec}
+     */
+    public static Lz4ContentCodecBuilder lz4() {
+        return new Lz4ContentCodecBuilder();
+    }
+}
@@ -0,0 +1,270 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.encoding.lz4;
+
+import io.servicetalk.buffer.api.Buffer;
+import io.servicetalk.buffer.api.BufferAllocator;
+import io.servicetalk.encoding.api.ContentCodec;
+
+import net.jpountz.lz4.LZ4FrameInputStream;
+import net.jpountz.lz4.LZ4FrameOutputStream;
+import net.jpountz.xxhash.XXHash32;
+import net.jpountz.xxhash.XXHashFactory;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+
+import static io.servicetalk.buffer.api.Buffer.asInputStream;
+import static io.servicetalk.buffer.api.Buffer.asOutputStream;
+import static io.servicetalk.buffer.netty.BufferAllocators.DEFAULT_ALLOCATOR;
+import static io.servicetalk.buffer.netty.BufferAllocators.PREFER_DIRECT_ALLOCATOR;
+import static io.servicetalk.concurrent.api.Publisher.from;
+import static io.servicetalk.concurrent.api.Publisher.fromIterable;
+import static io.servicetalk.encoding.api.ContentCodings.gzipDefault;
+import static io.servicetalk.encoding.api.ContentCodings.identity;
+import static io.servicetalk.encoding.api.internal.HeaderUtils.negotiateAcceptedEncoding;
+import static io.servicetalk.encoding.lz4.Lz4ContentCodings.lz4;
+import static io.servicetalk.encoding.lz4.Lz4ContentCodings.lz4Default;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.util.Arrays.asList;
+import static net.jpountz.lz4.LZ4FrameOutputStream.BLOCKSIZE.SIZE_256KB;
+import static net.jpountz.lz4.LZ4FrameOutputStream.FLG.Bits.BLOCK_CHECKSUM;
+import static net.jpountz.lz4.LZ4FrameOutputStream.FLG.Bits.BLOCK_INDEPENDENCE;
+import static net.jpountz.lz4.LZ4FrameOutputStream.FLG.Bits.CONTENT_CHECKSUM;
+import static net.jpountz.lz4.LZ4FrameOutputStream.FLG.Bits.CONTENT_SIZE;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThrows;
+
+public class Lz4ContentCodecTest {
+
+    private static final String PAYLOAD = payload(100_000);
+    private static final XXHash32 HASH = XXHashFactory.fastestInstance().hash32();
+
+    @Test
+    public void aggregatedRoundTrip() {
+        roundTrip(DEFAULT_ALLOCATOR);
+    }
+
+    @Test
+    public void aggregatedRoundTripDirect() {
+        roundTrip(PREFER_DIRECT_ALLOCATOR);
+    }
+
+    @Test
+    public void aggregatedIsLz4Frame() {
+        final Buffer encoded = lz4Default().encode(DEFAULT_ALLOCATOR.fromAscii(PAYLOAD), DEFAULT_ALLOCATOR);
+        // Magic number, version 1 with independent blocks, 64KiB blocks and the descriptor checksum.
+        assertThat(encoded.readIntLE(), is(0x184D2204));
+        assertThat(encoded.readByte(), is((byte) 0x60));
+        assertThat(encoded.readByte(), is((byte) 0x40));
+        assertThat(encoded.readByte(), is((byte) 0x82));
+    }
+
+    @Test
+    public void decodesFrameWithChecksumsAndSkippableFrame() throws Exception {
+        final Buffer frames = DEFAULT_ALLOCATOR.newBuffer()
+                // Skippable frame with 3 bytes of user data.
+                .writeIntLE(0x184D2A53).writeIntLE(3).writeBytes(new byte[] {1, 2, 3})
+                // Frame with a content checksum and an uncompressed block.
+                .writeIntLE(0x184D2204).writeByte(0x64).writeByte(0x40).writeByte(0xA7)
+                .writeIntLE(0x80000005).writeBytes("hello".getBytes(US_ASCII))
+                .writeIntLE(0).writeIntLE(HASH.hash("hello".getBytes(US_ASCII), 0, 5, 0));
+        assertThat(lz4Default().decode(frames.duplicate(), DEFAULT_ALLOCATOR).toString(US_ASCII), is("hello"));
+        assertThat(decodeStreaming(frames, 1), is("hello"));
+    }
+
+    @Test
+    public void contentChecksumMismatchFails() {
+        final Buffer frame = DEFAULT_ALLOCATOR.newBuffer()
+                .writeIntLE(0x184D2204).writeByte(0x64).writeByte(0x40).writeByte(0xA7)
+                .writeIntLE(0x80000005).writeBytes("hello".getBytes(US_ASCII))
+                .writeIntLE(0).writeIntLE(HASH.hash("hellO".getBytes(US_ASCII), 0, 5, 0));
+        assertThrows(RuntimeException.class, () -> lz4Default().decode(frame.duplicate(), DEFAULT_ALLOCATOR));
+        final ExecutionException e = assertThrows(ExecutionException.class, () -> decodeStreaming(frame, 3));
+        assertThat(e.getCause(), instanceOf(IOException.class));
+    }
+
+    @Test
+    public void blockChecksumMismatchFails() throws Exception {
+        final Buffer frame = libraryEncode(PAYLOAD, BLOCK_CHECKSUM);
+        // Flip a bit in the last byte of the first block, the frame header is 7 bytes and the block size 4 bytes.
+        final int lastByte = 7 + 4 + (frame.getIntLE(7) & 0x7FFFFFFF) - 1;
+        frame.setByte(lastByte, frame.getByte(lastByte) ^ 1);
+        assertThrows(RuntimeException.class, () -> lz4Default().decode(frame.duplicate(), DEFAULT_ALLOCATOR));
+        final ExecutionException e = assertThrows(ExecutionException.class, () -> decodeStreaming(frame, 1000));
+        assertThat(e.getCause(), instanceOf(IOException.class));
+    }
+
+    @Test
+    public void decodesLibraryFrames() throws Exception {
+        // Concatenated frames with all optional fields, which the codec itself doesn't write.
+        final Buffer frames = libraryEncode(PAYLOAD, BLOCK_CHECKSUM, CONTENT_CHECKSUM)
+                .writeBytes(libraryEncode("frame", CONTENT_CHECKSUM, CONTENT_SIZE));
+        assertThat(lz4Default().decode(frames.duplicate(), DEFAULT_ALLOCATOR).toString(US_ASCII),
+                is(PAYLOAD + "frame"));
+        for (int chunkSize : new int[] {1, 7, 4096}) {
+            assertThat(decodeStreaming(frames.duplicate(), chunkSize), is(PAYLOAD + "frame"));
+        }
+    }
+
+    @Test
+    public void libraryDecodesStreamingEncoded() throws Exception {
+        final Buffer encoded = lz4Default().encode(fromIterable(chunks(PAYLOAD, 3000)), DEFAULT_ALLOCATOR)
+                .collect(DEFAULT_ALLOCATOR::newBuffer, Buffer::writeBytes).toFuture().get();
+        final byte[] decoded = new byte[PAYLOAD.length()];
+        try (DataInputStream in = new DataInputStream(new LZ4FrameInputStream(asInputStream(encoded)))) {
+            in.readFully(decoded);
+            assertThat(in.read(), is(-1));
+        }
+        assertThat(new String(decoded, US_ASCII), is(PAYLOAD));
+    }
+
+    @Test
+    public void linkedBlocksAreRejected() {
+        final Buffer frame = DEFAULT_ALLOCATOR.newBuffer()
+                .writeIntLE(0x184D2204).writeByte(0x40).writeByte(0x40).writeByte(0xC0).writeIntLE(0);
+        assertThrows(RuntimeException.class, () -> lz4Default().decode(frame, DEFAULT_ALLOCATOR));
+    }
+
+    @Test
+    public void incompressibleBlocksAreStored() {
+        final byte[] random = new byte[1000];
+        new Random(42).nextBytes(random);
+        final Buffer encoded = lz4Default().encode(DEFAULT_ALLOCATOR.wrap(random), DEFAULT_ALLOCATOR);
+        // Frame header, block size, data and end mark.
+        assertThat(encoded.readableBytes(), is(7 + 4 + random.length + 4));
+        final Buffer decoded = lz4Default().decode(encoded, DEFAULT_ALLOCATOR);
+        assertThat(decoded, is(DEFAULT_ALLOCATOR.wrap(random)));
+    }
+
+    @Test
+    public void streamingRoundTrip() throws Exception {
+        final List<Buffer> encoded = new ArrayList<>(lz4Default()
+                .encode(fromIterable(chunks(PAYLOAD, 3000)), DEFAULT_ALLOCATOR).toFuture().get());
+        // One item per chunk plus the end of the frame.
+        assertThat(encoded.size(), is(chunks(PAYLOAD, 3000).size() + 1));
+
+        final String decoded = lz4Default().decode(fromIterable(encoded), DEFAULT_ALLOCATOR)
+                .collect(StringBuilder::new, (sb, b) -> sb.append(b.toString(US_ASCII))).toFuture().get().toString();
+        assertThat(decoded, is(PAYLOAD));
+    }
+
+    @Test
+    public void streamingEncodedDecodesAggregated() throws Exception {
+        final Buffer encoded = lz4Default().encode(fromIterable(chunks(PAYLOAD, 1000)), PREFER_DIRECT_ALLOCATOR)
+                .collect(DEFAULT_ALLOCATOR::newBuffer, Buffer::writeBytes).toFuture().get();
+        assertThat(lz4Default().decode(encoded, DEFAULT_ALLOCATOR).toString(US_ASCII), is(PAYLOAD));
+    }
+
+    @Test
+    public void aggregatedEncodedDecodesStreaming() throws Exception {
+        final Buffer encoded = lz4().compressionLevel(10).build()
+                .encode(DEFAULT_ALLOCATOR.fromAscii(PAYLOAD), DEFAULT_ALLOCATOR);
+        // Feed the decoder one byte at a time.
+        final List<Buffer> bytes = new ArrayList<>();
+        while (encoded.readableBytes() > 0) {
+            bytes.add(encoded.readBytes(1));
+        }
+        final String decoded = lz4Default().decode(fromIterable(bytes), DEFAULT_ALLOCATOR)
+                .collect(StringBuilder::new, (sb, b) -> sb.append(b.toString(US_ASCII))).toFuture().get().toString();
+        assertThat(decoded, is(PAYLOAD));
+    }
+
+    @Test
+    public void maxPayloadSizeIsEnforced() {
+        final ContentCodec codec = lz4().setMaxAllowedPayloadSize(1000).build();
+        final Buffer encoded = codec.encode(DEFAULT_ALLOCATOR.fromAscii(PAYLOAD), DEFAULT_ALLOCATOR);
+        assertThrows(IllegalStateException.class, () -> codec.decode(encoded, DEFAULT_ALLOCATOR));
+    }
+
+    @Test
+    public void truncatedStreamFails() {
+        final Buffer encoded = lz4Default().encode(DEFAULT_ALLOCATOR.fromAscii(PAYLOAD), DEFAULT_ALLOCATOR);
+        final Buffer truncated = encoded.readSlice(encoded.readableBytes() / 2);
+        final ExecutionException e = assertThrows(ExecutionException.class,
+                () -> lz4Default().decode(from(truncated), DEFAULT_ALLOCATOR).toFuture().get());
+        assertThat(e.getCause(), instanceOf(IOException.class));
+    }
+
+    @Test
+    public void invalidLevel() {
+        assertThrows(IllegalArgumentException.class, () -> lz4().compressionLevel(18));
+    }
+
+    @Test
+    public void negotiatesByName() {
+        final List<ContentCodec> serverCodings = asList(lz4Default(), gzipDefault(), identity());
+        assertThat(negotiateAcceptedEncoding("gzip, LZ4", serverCodings), sameInstance(lz4Default()));
+        assertThat(negotiateAcceptedEncoding("gzip", serverCodings), sameInstance(gzipDefault()));
+    }
+
+    private static Buffer libraryEncode(final String payload, final LZ4FrameOutputStream.FLG.Bits... bits)
+            throws IOException {
+        final Buffer encoded = DEFAULT_ALLOCATOR.newBuffer();
+        final LZ4FrameOutputStream.FLG.Bits[] allBits = Arrays.copyOf(bits, bits.length + 1);
+        allBits[bits.length] = BLOCK_INDEPENDENCE;
+        try (OutputStream out = new LZ4FrameOutputStream(asOutputStream(encoded), SIZE_256KB, payload.length(),
+                allBits)) {
+            out.write(payload.getBytes(US_ASCII));
+        }
+        return encoded;
+    }
+
+    private static String decodeStreaming(final Buffer encoded, final int chunkSize) throws Exception {
+        final List<Buffer> chunks = new ArrayList<>();
+        while (encoded.readableBytes() > 0) {
+            chunks.add(encoded.readBytes(Math.min(chunkSize, encoded.readableBytes())));
+        }
+        return lz4Default().decode(fromIterable(chunks), DEFAULT_ALLOCATOR)
+                .collect(StringBuilder::new, (sb, b) -> sb.append(b.toString(US_ASCII))).toFuture().get().toString();
+    }
+
+    private static void roundTrip(final BufferAllocator allocator) {
+        final Buffer src = allocator.fromAscii(PAYLOAD);
+        final Buffer encoded = lz4Default().encode(src, allocator);
+        assertThat(src.readableBytes(), is(0));
+        assertThat(lz4Default().decode(encoded, allocator).toString(US_ASCII), is(PAYLOAD));
+        assertThat(encoded.readableBytes(), is(0));
+    }
+
+    private static List<Buffer> chunks(final String payload, final int chunkSize) {
+        final List<Buffer> chunks = new ArrayList<>();
+        for (int i = 0; i < payload.length(); i += chunkSize) {
+            chunks.add(DEFAULT_ALLOCATOR.fromAscii(payload.substring(i, Math.min(payload.length(), i + chunkSize))));
+        }
+        return chunks;
+    }
+
+    private static String payload(final int length) {
+        final String[] words = {"service", "talk", "content", "coding", "lz4", "frame", "buffer", "publisher"};
+        final Random random = new Random(42);
+        final StringBuilder sb = new StringBuilder(length);
+        while (sb.length() < length) {
+            sb.append(words[random.nextInt(words.length)]).append(' ');
+        }
+        return sb.substring(0, length);
+    }
+}
@@ -0,0 +1,397 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.encoding.zstd;
+
+import io.servicetalk.buffer.api.Buffer;
+import io.servicetalk.buffer.api.BufferAllocator;
+import io.servicetalk.concurrent.PublisherSource;
+import io.servicetalk.concurrent.api.Publisher;
+import io.servicetalk.concurrent.internal.BoundedObjectPool;
+import io.servicetalk.concurrent.internal.PooledObjectSubscription;
+import io.servicetalk.encoding.api.ContentCodec;
+
+import com.github.luben.zstd.EndDirective;
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdCompressCtx;
+import com.github.luben.zstd.ZstdDecompressCtx;
+
+import java.nio.ByteBuffer;
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
+
+import static io.servicetalk.buffer.api.CharSequences.newAsciiString;
+import static io.servicetalk.buffer.api.ReadOnlyBufferAllocators.DEFAULT_RO_ALLOCATOR;
+import static io.servicetalk.concurrent.api.Single.succeeded;
+import static java.lang.Math.min;
+import static java.nio.ByteBuffer.allocateDirect;
+
+final class ZstdContentCodec implements ContentCodec {
+
+    private static final CharSequence NAME = newAsciiString("zstd");
+    private static final Buffer END_OF_STREAM = DEFAULT_RO_ALLOCATOR.fromAscii(" ");
+    private static final int MAX_POOLED = Runtime.getRuntime().availableProcessors() * 2;
+
+    private final int chunkSize;
+    private final int maxPayloadSize;
+    // Contexts hold several hundred KiB of native memory each and are expensive to create, reuse them instead of
+    // creating new instances per message or stream.
+    private final BoundedObjectPool<ZstdCompressCtx> compressors;
+    private final BoundedObjectPool<ZstdDecompressCtx> decompressors;
+
+    ZstdContentCodec(final int compressionLevel, final int chunkSize, final int maxPayloadSize) {
+        this(compressionLevel, chunkSize, maxPayloadSize, ZstdCompressCtx::new, ZstdDecompressCtx::new);
+    }
+
+    ZstdContentCodec(final int compressionLevel, final int chunkSize, final int maxPayloadSize,
+                     final Supplier<ZstdCompressCtx> compressCtxFactory,
+                     final Supplier<ZstdDecompressCtx> decompressCtxFactory) {
+        this.chunkSize = chunkSize;
+        this.maxPayloadSize = maxPayloadSize;
+        compressors = new BoundedObjectPool<>(MAX_POOLED, () -> compressCtxFactory.get().setLevel(compressionLevel),
+                ctx -> {
+                    // reset() also clears the parameters.
+                    ctx.reset();
+                    ctx.setLevel(compressionLevel);
+                }, ZstdCompressCtx::close);
+        decompressors = new BoundedObjectPool<>(MAX_POOLED, decompressCtxFactory, ZstdDecompressCtx::reset,
+                ZstdDecompressCtx::close);
+    }
+
+    @Override
+    public CharSequence name() {
+        return NAME;
+    }
+
+    @Override
+    public Buffer encode(final Buffer src, final int offset, final int length, final BufferAllocator allocator) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("Invalid offset: " + offset + " (expected >= 0)");
+        }
+
+        src.readerIndex(src.readerIndex() + offset);
+        final byte[] input;
+        final int inputOffset;
+        if (src.hasArray()) {
+            input = src.array();
+            inputOffset = src.arrayOffset() + src.readerIndex();
+            src.skipBytes(length);
+        } else {
+            input = new byte[length];
+            inputOffset = 0;
+            src.readBytes(input);
+        }
+
+        final int bound = (int) Zstd.compressBound(length);
+        final Buffer dst = allocator.newBuffer(bound);
+        final ZstdCompressCtx ctx = compressors.acquire();
+        try {
+            // A single frame which includes the content size, so the decoder can allocate the output upfront.
+            if (dst.hasArray()) {
+                final int written = ctx.compressByteArray(dst.array(), dst.arrayOffset() + dst.writerIndex(), bound,
+                        input, inputOffset, length);
+                dst.writerIndex(dst.writerIndex() + written);
+            } else {
+                final byte[] output = new byte[bound];
+                final int written = ctx.compressByteArray(output, 0, bound, input, inputOffset, length);
+                dst.writeBytes(output, 0, written);
+            }
+        } finally {
+            compressors.release(ctx);
+        }
+        return dst;
+    }
+
+    @Override
+    public Buffer decode(final Buffer src, final int offset, final int length, final BufferAllocator allocator) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("Invalid offset: " + offset + " (expected >= 0)");
+        }
+
+        src.readerIndex(src.readerIndex() + offset);
+        final Buffer dst = allocator.newBuffer(min(chunkSize, maxPayloadSize), maxPayloadSize);
+        final ZstdDecompressCtx ctx = decompressors.acquire();
+        try {
+            final ZstdStreamDecoder decoder = new ZstdStreamDecoder(ctx, chunkSize, maxPayloadSize);
+            decoder.decode(src.readSlice(length), dst);
+            if (!decoder.isFinished()) {
+                throw new IllegalStateException("Unexpected end of " + NAME + " input");
+            }
+        } finally {
+            decompressors.release(ctx);
+        }
+        return dst;
+    }
+
+    @Override
+    public Publisher<Buffer> encode(final Publisher<Buffer> from, final BufferAllocator allocator) {
+        return from
+                .concat(succeeded(END_OF_STREAM))
+                .liftSync(subscriber -> new PublisherSource.Subscriber<Buffer>() {
+
+                    @Nullable
+                    private PooledObjectSubscription<ZstdCompressCtx> pooled;
+                    @Nullable
+                    private ZstdStreamEncoder encoder;
+
+                    @Override
+                    public void onSubscribe(final PublisherSource.Subscription subscription) {
+                        final ZstdCompressCtx ctx = compressors.acquire();
+                        pooled = new PooledObjectSubscription<>(subscription, compressors, ctx);
+                        encoder = new ZstdStreamEncoder(ctx, chunkSize);
+                        subscriber.onSubscribe(pooled);
+                    }
+
+                    @Override
+                    public void onNext(@Nullable final Buffer next) {
+                        assert pooled != null;
+                        assert encoder != null;
+                        assert next != null;
+                        if (!pooled.enter()) {
+                            // Cancelled or terminated, the context is already returned to the pool.
+                            return;
+                        }
+                        // onNext will produce AT-MOST N items (from upstream)
+                        // +1 for the end of the frame (ie. END_OF_STREAM)
+                        try {
+                            final Buffer dst = allocator.newBuffer(chunkSize);
+                            if (next == END_OF_STREAM) {
+                                encoder.finish(dst);
+                            } else {
+                                encoder.encode(next, dst);
+                            }
+                            subscriber.onNext(dst);
+                        } catch (Throwable t) {
+                            // The context is returned to the pool once no longer in use.
+                            pooled.cancel();
+                            subscriber.onError(t);
+                        } finally {
+                            pooled.exit();
+                        }
+                    }
+
+                    @Override
+                    public void onError(final Throwable t) {
+                        assert pooled != null;
+                        if (pooled.release()) {
+                            subscriber.onError(t);
+                        }
+                    }
+
+                    @Override
+                    public void onComplete() {
+                        assert pooled != null;
+                        if (pooled.release()) {
+                            subscriber.onComplete();
+                        }
+                    }
+                });
+    }
+
+    @Override
+    public Publisher<Buffer> decode(final Publisher<Buffer> from, final BufferAllocator allocator) {
+        return from.liftSync(subscriber -> new PublisherSource.Subscriber<Buffer>() {
+
+            @Nullable
+            private ZstdStreamDecoder decoder;
+            @Nullable
+            private PooledObjectSubscription<ZstdDecompressCtx> subscription;
+
+            @Override
+            public void onSubscribe(final PublisherSource.Subscription subscription) {
+                final ZstdDecompressCtx ctx = decompressors.acquire();
+                this.subscription = new PooledObjectSubscription<>(subscription, decompressors, ctx);
+                decoder = new ZstdStreamDecoder(ctx, chunkSize, maxPayloadSize);
+                subscriber.onSubscribe(this.subscription);
+            }
+
+            @Override
+            public void onNext(@Nullable final Buffer src) {
+                assert decoder != null;
+                assert subscription != null;
+                assert src != null;
+
+                if (!subscription.enter()) {
+                    // Cancelled or terminated, the context is already returned to the pool.
+                    return;
+                }
+                // onNext will produce AT-MOST N items (as received)
+                try {
+                    final Buffer part = allocator.newBuffer(chunkSize);
+                    decoder.decode(src, part);
+                    if (part.readableBytes() > 0) {
+                        subscriber.onNext(part);
+                    } else {
+                        // Not enough data to decompress, ask for more
+                        subscription.request(1);
+                    }
+                } catch (Throwable t) {
+                    // The context is returned to the pool once no longer in use.
+                    subscription.cancel();
+                    subscriber.onError(t);
+                } finally {
+                    subscription.exit();
+                }
+            }
+
+            @Override
+            public void onError(final Throwable t) {
+                assert subscription != null;
+                if (subscription.release()) {
+                    subscriber.onError(t);
+                }
+            }
+
+            @Override
+            public void onComplete() {
+                assert decoder != null;
+                assert subscription != null;
+                if (!subscription.release()) {
+                    return;
+                }
+                if (decoder.isFinished()) {
+                    subscriber.onComplete();
+                } else {
+                    subscriber.onError(new IllegalStateException("Unexpected end of " + NAME + " input"));
+                }
+            }
+        });
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final ZstdContentCodec that = (ZstdContentCodec) o;
+        return NAME.equals(that.name());
+    }
+
+    @Override
+    public int hashCode() {
+        return NAME.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "ContentCodec{" +
+                "name=" + NAME +
+                '}';
+    }
+
+    /**
+     * Compresses {@link Buffer}s into a single Zstandard frame, flushing after each {@link Buffer} so the data written
+     * so far can be fully decompressed. The context works on direct memory only, data is staged through direct
+     * {@link ByteBuffer}s which are reused for the lifetime of the encoder.
+     */
+    static final class ZstdStreamEncoder {
+        private final ZstdCompressCtx ctx;
+        private final ByteBuffer input;
+        private final ByteBuffer output;
+
+        ZstdStreamEncoder(final ZstdCompressCtx ctx, final int chunkSize) {
+            this.ctx = ctx;
+            input = allocateDirect(chunkSize);
+            output = allocateDirect(chunkSize);
+        }
+
+        void encode(final Buffer in, final Buffer out) {
+            while (in.readableBytes() > 0) {
+                input.clear();
+                input.limit(min(input.capacity(), in.readableBytes()));
+                in.readBytes(input);
+                input.flip();
+                while (input.hasRemaining()) {
+                    compress(out, EndDirective.CONTINUE);
+                }
+            }
+            end(out, EndDirective.FLUSH);
+        }
+
+        void finish(final Buffer out) {
+            end(out, EndDirective.END);
+        }
+
+        private void end(final Buffer out, final EndDirective directive) {
+            input.clear().flip();
+            while (!compress(out, directive)) {
+                // continue until all buffered data is written
+            }
+        }
+
+        private boolean compress(final Buffer out, final EndDirective directive) {
+            output.clear();
+            final boolean done = ctx.compressDirectByteBufferStream(output, input, directive);
+            output.flip();
+            out.writeBytes(output);
+            return done;
+        }
+    }
+
+    /**
+     * Decompresses Zstandard frames from {@link Buffer}s, staged through direct {@link ByteBuffer}s which are reused
+     * for the lifetime of the decoder.
+     */
+    static final class ZstdStreamDecoder {
+        private final ZstdDecompressCtx ctx;
+        private final ByteBuffer input;
+        private final ByteBuffer output;
+        private final int maxPayloadSize;
+        private int payloadSize;
+        private boolean finished;
+
+        ZstdStreamDecoder(final ZstdDecompressCtx ctx, final int chunkSize, final int maxPayloadSize) {
+            this.ctx = ctx;
+            this.maxPayloadSize = maxPayloadSize;
+            input = allocateDirect(chunkSize);
+            output = allocateDirect(chunkSize);
+        }
+
+        /**
+         * Returns {@code true} if all frames received so far are complete.
+         *
+         * @return {@code true} if all frames received so far are complete.
+         */
+        boolean isFinished() {
+            return finished;
+        }
+
+        void decode(final Buffer in, final Buffer out) {
+            while (in.readableBytes() > 0) {
+                input.clear();
+                input.limit(min(input.capacity(), in.readableBytes()));
+                in.readBytes(input);
+                input.flip();
+                // Also continue while the output is full, the context may hold more decompressed data.
+                boolean outputFull;
+                do {
+                    output.clear();
+                    finished = ctx.decompressDirectByteBufferStream(output, input);
+                    output.flip();
+                    outputFull = output.remaining() == output.capacity();
+                    payloadSize += output.remaining();
+                    if (payloadSize > maxPayloadSize) {
+                        throw new IllegalStateException("Max decompressed payload limit has been reached: " +
+                                payloadSize + " (expected <= " + maxPayloadSize + ") bytes");
+                    }
+                    out.writeBytes(output);
+                } while (input.hasRemaining() || outputFull);
+            }
+        }
+    }
+}
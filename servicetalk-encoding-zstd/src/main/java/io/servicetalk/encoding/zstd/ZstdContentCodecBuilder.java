@@ -0,0 +1,73 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.encoding.zstd;
+
+import io.servicetalk.encoding.api.ContentCodec;
+import io.servicetalk.encoding.api.ContentCodecBuilder;
+
+import com.github.luben.zstd.Zstd;
+
+/**
+ * A {@link ContentCodecBuilder} for Zstandard based {@link ContentCodec}s.
+ */
+public final class ZstdContentCodecBuilder implements ContentCodecBuilder {
+
+    private static final int CHUNK_SIZE = 8 << 10; //8KiB
+    private static final int DEFAULT_MAX_ALLOWED_DECOMPRESSED_PAYLOAD = 16 << 20; //16MiB
+    private static final int DEFAULT_COMPRESSION_LEVEL = 3;
+
+    private int maxAllowedPayloadSize = DEFAULT_MAX_ALLOWED_DECOMPRESSED_PAYLOAD;
+    private int compressionLevel = DEFAULT_COMPRESSION_LEVEL;
+
+    ZstdContentCodecBuilder() {
+    }
+
+    @Override
+    public ZstdContentCodecBuilder setMaxAllowedPayloadSize(final int maxAllowedPayloadSize) {
+        if (maxAllowedPayloadSize <= 0) {
+            throw new IllegalArgumentException("maxAllowedPayloadSize: " + maxAllowedPayloadSize + " (expected > 0)");
+        }
+
+        this.maxAllowedPayloadSize = maxAllowedPayloadSize;
+        return this;
+    }
+
+    /**
+     * Sets the compression level, higher levels trade speed for a better compression ratio and negative levels
+     * trade compression ratio for speed.
+     * <p>
+     * Defaults to {@code 3}, the default level of the Zstandard library.
+     *
+     * @param compressionLevel the compression level.
+     * @return {@code this}
+     */
+    public ZstdContentCodecBuilder compressionLevel(final int compressionLevel) {
+        final int min = Zstd.minCompressionLevel();
+        final int max = Zstd.maxCompressionLevel();
+        if (compressionLevel < min || compressionLevel > max) {
+            throw new IllegalArgumentException("compressionLevel: " + compressionLevel +
+                    " (expected [" + min + ", " + max + "])");
+        }
+
+        this.compressionLevel = compressionLevel;
+        return this;
+    }
+
+    @Override
+    public ContentCodec build() {
+        return new ZstdContentCodec(compressionLevel, CHUNK_SIZE, maxAllowedPayloadSize);
+    }
+}
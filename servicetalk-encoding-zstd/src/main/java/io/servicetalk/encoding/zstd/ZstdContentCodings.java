@@ -0,0 +1,52 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.encoding.zstd;
+
+import io.servicetalk.encoding.api.ContentCodec;
+
+/**
+ * <a href="https://tools.ietf.org/html/rfc8878">Zstandard</a> based {@link ContentCodec}s.
+ * <p>
+ * Zstandard compresses at a ratio comparable to GZIP while using considerably less CPU, which makes it a better fit
+ * for service to service traffic when both sides support it. The codecs negotiate as {@code zstd} through the
+ * {@code Accept-Encoding} and {@code grpc-accept-encoding} headers like any other {@link ContentCodec}.
+ */
+public final class ZstdContentCodings {
+
+    private static final ContentCodec DEFAULT_ZSTD = zstd().build();
+
+    private ZstdContentCodings() {
+        // no instances
+    }
+
+    /**
+     * Returns the default Zstandard {@link ContentCodec}.
+     * @return default Zstandard based {@link ContentCodec}
+     */
+    public static ContentCodec zstdDefault() {
+        return DEFAULT_ZSTD;
+    }
+
+    /**
+     * Returns a Zstandard based {@link ZstdContentCodecBuilder} that allows building
+     * a customizable {@link ContentCodec}.
+     * @return a Zstandard based {@link ZstdContentCodecBuilder} that allows building
+     *          a customizable Zstandard {@link ContentCodec}
+     */
+    public static ZstdContentCodecBuilder zstd() {
+        return new ZstdContentCodecBuilder();
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.encoding.zstd;
+
+import io.servicetalk.buffer.api.Buffer;
+import io.servicetalk.buffer.api.BufferAllocator;
+import io.servicetalk.concurrent.api.TestPublisher;
+import io.servicetalk.concurrent.api.TestSubscription;
+import io.servicetalk.concurrent.test.internal.TestPublisherSubscriber;
+import io.servicetalk.encoding.api.ContentCodec;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdCompressCtx;
+import com.github.luben.zstd.ZstdDecompressCtx;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.servicetalk.buffer.netty.BufferAllocators.DEFAULT_ALLOCATOR;
+import static io.servicetalk.buffer.netty.BufferAllocators.PREFER_DIRECT_ALLOCATOR;
+import static io.servicetalk.concurrent.api.Publisher.from;
+import static io.servicetalk.concurrent.api.Publisher.fromIterable;
+import static io.servicetalk.concurrent.api.SourceAdapters.toSource;
+import static io.servicetalk.concurrent.internal.DeliberateException.DELIBERATE_EXCEPTION;
+import static io.servicetalk.encoding.api.ContentCodings.gzipDefault;
+import static io.servicetalk.encoding.api.ContentCodings.identity;
+import static io.servicetalk.encoding.api.internal.HeaderUtils.negotiateAcceptedEncoding;
+import static io.servicetalk.encoding.zstd.ZstdContentCodings.zstd;
+import static io.servicetalk.encoding.zstd.ZstdContentCodings.zstdDefault;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.Arrays.asList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThrows;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ZstdContentCodecTest {
+
+    private static final String PAYLOAD = payload(100_000);
+
+    private final AtomicInteger compressCtxs = new AtomicInteger();
+    private final AtomicInteger decompressCtxs = new AtomicInteger();
+    private final ZstdContentCodec codec = new ZstdContentCodec(3, 8 << 10, 16 << 20, () -> {
+        compressCtxs.incrementAndGet();
+        return new ZstdCompressCtx();
+    }, () -> {
+        decompressCtxs.incrementAndGet();
+        return new ZstdDecompressCtx();
+    });
+
+    @Test
+    public void aggregatedRoundTrip() {
+        roundTrip(DEFAULT_ALLOCATOR);
+    }
+
+    @Test
+    public void aggregatedRoundTripDirect() {
+        roundTrip(PREFER_DIRECT_ALLOCATOR);
+    }
+
+    @Test
+    public void aggregatedIsZstdFrame() {
+        final Buffer encoded = zstdDefault().encode(DEFAULT_ALLOCATOR.fromAscii(PAYLOAD), DEFAULT_ALLOCATOR);
+        final byte[] compressed = new byte[encoded.readableBytes()];
+        encoded.readBytes(compressed);
+        assertThat(new String(Zstd.decompress(compressed, PAYLOAD.length()), US_ASCII), is(PAYLOAD));
+    }
+
+    @Test
+    public void streamingRoundTrip() throws Exception {
+        final List<Buffer> encoded = new ArrayList<>(zstdDefault()
+                .encode(fromIterable(chunks(PAYLOAD, 3000)), DEFAULT_ALLOCATOR).toFuture().get());
+        // One item per chunk plus the end of the frame.
+        assertThat(encoded.size(), is(chunks(PAYLOAD, 3000).size() + 1));
+
+        final String decoded = zstdDefault().decode(fromIterable(encoded), DEFAULT_ALLOCATOR)
+                .collect(StringBuilder::new, (sb, b) -> sb.append(b.toString(US_ASCII))).toFuture().get().toString();
+        assertThat(decoded, is(PAYLOAD));
+    }
+
+    @Test
+    public void streamingEncodedDecodesAggregated() throws Exception {
+        final Buffer encoded = zstdDefault().encode(fromIterable(chunks(PAYLOAD, 1000)), PREFER_DIRECT_ALLOCATOR)
+                .collect(DEFAULT_ALLOCATOR::newBuffer, Buffer::writeBytes).toFuture().get();
+        assertThat(zstdDefault().decode(encoded, DEFAULT_ALLOCATOR).toString(US_ASCII), is(PAYLOAD));
+    }
+
+    @Test
+    public void aggregatedEncodedDecodesStreaming() throws Exception {
+        final Buffer encoded = zstd().compressionLevel(10).build()
+                .encode(DEFAULT_ALLOCATOR.fromAscii(PAYLOAD), DEFAULT_ALLOCATOR);
+        // Feed the decoder one byte at a time.
+        final List<Buffer> bytes = new ArrayList<>();
+        while (encoded.readableBytes() > 0) {
+            bytes.add(encoded.readBytes(1));
+        }
+        final String decoded = zstdDefault().decode(fromIterable(bytes), DEFAULT_ALLOCATOR)
+                .collect(StringBuilder::new, (sb, b) -> sb.append(b.toString(US_ASCII))).toFuture().get().toString();
+        assertThat(decoded, is(PAYLOAD));
+    }
+
+    @Test
+    public void compressesBetterThanIdentity() {
+        final Buffer encoded = zstdDefault().encode(DEFAULT_ALLOCATOR.fromAscii(PAYLOAD), DEFAULT_ALLOCATOR);
+        assertThat(encoded.readableBytes(), lessThan(PAYLOAD.length() / 4));
+    }
+
+    @Test
+    public void maxPayloadSizeIsEnforced() {
+        final ContentCodec codec = zstd().setMaxAllowedPayloadSize(1000).build();
+        final Buffer encoded = codec.encode(DEFAULT_ALLOCATOR.fromAscii(PAYLOAD), DEFAULT_ALLOCATOR);
+        assertThrows(IllegalStateException.class, () -> codec.decode(encoded, DEFAULT_ALLOCATOR));
+    }
+
+    @Test
+    public void truncatedStreamFails() {
+        final Buffer encoded = zstdDefault().encode(DEFAULT_ALLOCATOR.fromAscii(PAYLOAD), DEFAULT_ALLOCATOR);
+        final Buffer truncated = encoded.readSlice(encoded.readableBytes() / 2);
+        final ExecutionException e = assertThrows(ExecutionException.class,
+                () -> zstdDefault().decode(from(truncated), DEFAULT_ALLOCATOR).toFuture().get());
+        assertThat(e.getCause(), instanceOf(IllegalStateException.class));
+    }
+
+    @Test
+    public void cancelledEncodeReturnsContext() {
+        final TestPublisher<Buffer> source = new TestPublisher<>();
+        final TestSubscription subscription = new TestSubscription();
+        final TestPublisherSubscriber<Buffer> subscriber = new TestPublisherSubscriber<>();
+        toSource(codec.encode(source, DEFAULT_ALLOCATOR)).subscribe(subscriber);
+        source.onSubscribe(subscription);
+        subscriber.awaitSubscription().request(1);
+        source.onNext(DEFAULT_ALLOCATOR.fromAscii(PAYLOAD));
+        subscriber.takeOnNext();
+        subscriber.awaitSubscription().cancel();
+        assertThat(subscription.isCancelled(), is(true));
+
+        codec.encode(DEFAULT_ALLOCATOR.fromAscii(PAYLOAD), DEFAULT_ALLOCATOR);
+        assertThat(compressCtxs.get(), is(1));
+    }
+
+    @Test
+    public void cancelledDecodeReturnsContext() {
+        final TestPublisher<Buffer> source = new TestPublisher<>();
+        final TestSubscription subscription = new TestSubscription();
+        final TestPublisherSubscriber<Buffer> subscriber = new TestPublisherSubscriber<>();
+        toSource(codec.decode(source, DEFAULT_ALLOCATOR)).subscribe(subscriber);
+        source.onSubscribe(subscription);
+        subscriber.awaitSubscription().cancel();
+        assertThat(subscription.isCancelled(), is(true));
+
+        final Buffer encoded = codec.encode(DEFAULT_ALLOCATOR.fromAscii(PAYLOAD), DEFAULT_ALLOCATOR);
+        assertThat(codec.decode(encoded, DEFAULT_ALLOCATOR).toString(US_ASCII), is(PAYLOAD));
+        assertThat(decompressCtxs.get(), is(1));
+    }
+
+    @Test
+    public void failedDecodeCancelsUpstreamAndReturnsContext() {
+        final TestPublisher<Buffer> source = new TestPublisher<>();
+        final TestSubscription subscription = new TestSubscription();
+        final TestPublisherSubscriber<Buffer> subscriber = new TestPublisherSubscriber<>();
+        toSource(codec.decode(source, DEFAULT_ALLOCATOR)).subscribe(subscriber);
+        source.onSubscribe(subscription);
+        subscriber.awaitSubscription().request(2);
+        source.onNext(DEFAULT_ALLOCATOR.fromAscii("not a zstd frame"));
+        subscriber.awaitOnError();
+        assertThat(subscription.isCancelled(), is(true));
+
+        // Signals after the failure are dropped and must not use the context, which is back in the pool.
+        final Buffer encoded = codec.encode(DEFAULT_ALLOCATOR.fromAscii(PAYLOAD), DEFAULT_ALLOCATOR);
+        source.onNext(encoded.duplicate());
+        source.onComplete();
+        assertThat(subscriber.pollOnNext(10, MILLISECONDS), is(nullValue()));
+        assertThat(codec.decode(encoded, DEFAULT_ALLOCATOR).toString(US_ASCII), is(PAYLOAD));
+        assertThat(decompressCtxs.get(), is(1));
+    }
+
+    @Test
+    public void failedEncodeCancelsUpstreamAndReturnsContext() {
+        final TestPublisher<Buffer> source = new TestPublisher<>();
+        final TestSubscription subscription = new TestSubscription();
+        final TestPublisherSubscriber<Buffer> subscriber = new TestPublisherSubscriber<>();
+        final BufferAllocator failingAllocator = mock(BufferAllocator.class);
+        when(failingAllocator.newBuffer(anyInt())).thenThrow(DELIBERATE_EXCEPTION);
+        toSource(codec.encode(source, failingAllocator)).subscribe(subscriber);
+        source.onSubscribe(subscription);
+        subscriber.awaitSubscription().request(2);
+        source.onNext(DEFAULT_ALLOCATOR.fromAscii(PAYLOAD));
+        assertThat(subscriber.awaitOnError(), is(sameInstance(DELIBERATE_EXCEPTION)));
+        assertThat(subscription.isCancelled(), is(true));
+
+        source.onNext(DEFAULT_ALLOCATOR.fromAscii(PAYLOAD));
+        source.onComplete();
+        assertThat(subscriber.pollOnNext(10, MILLISECONDS), is(nullValue()));
+        codec.encode(DEFAULT_ALLOCATOR.fromAscii(PAYLOAD), DEFAULT_ALLOCATOR);
+        assertThat(compressCtxs.get(), is(1));
+    }
+
+    @Test
+    public void invalidLevel() {
+        assertThrows(IllegalArgumentException.class, () -> zstd().compressionLevel(Zstd.maxCompressionLevel() + 1));
+    }
+
+    @Test
+    public void negotiatesByName() {
+        final List<ContentCodec> serverCodings = asList(zstdDefault(), gzipDefault(), identity());
+        assertThat(negotiateAcceptedEncoding("gzip, ZSTD", serverCodings), sameInstance(zstdDefault()));
+        assertThat(negotiateAcceptedEncoding("gzip", serverCodings), sameInstance(gzipDefault()));
+    }
+
+    private static void roundTrip(final BufferAllocator allocator) {
+        final Buffer src = allocator.fromAscii(PAYLOAD);
+        final Buffer encoded = zstdDefault().encode(src, allocator);
+        assertThat(src.readableBytes(), is(0));
+        assertThat(zstdDefault().decode(encoded, allocator).toString(US_ASCII), is(PAYLOAD));
+        assertThat(encoded.readableBytes(), is(0));
+    }
+
+    private static List<Buffer> chunks(final String payload, final int chunkSize) {
+        final List<Buffer> chunks = new ArrayList<>();
+        for (int i = 0; i < payload.length(); i += chunkSize) {
+            chunks.add(DEFAULT_ALLOCATOR.fromAscii(payload.substring(i, Math.min(payload.length(), i + chunkSize))));
+        }
+        return chunks;
+    }
+
+    private static String payload(final int length) {
+        final String[] words = {"service", "talk", "content", "coding", "zstd", "frame", "buffer", "publisher"};
+        final Random random = new Random(42);
+        final StringBuilder sb = new StringBuilder(length);
+        while (sb.length() < length) {
+            sb.append(words[random.nextInt(words.length)]).append(' ');
+        }
+        return sb.substring(0, length);
+    }
+}
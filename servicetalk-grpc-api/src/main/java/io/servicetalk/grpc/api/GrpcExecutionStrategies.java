@@ -1,5 +1,5 @@
 /*
- * Copyright © 2019 Apple Inc. and the ServiceTalk project authors
+ * Copyright © 2019-2021 Apple Inc. and the ServiceTalk project authors
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -50,6 +50,21 @@ public final class GrpcExecutionStrategies {
         return new DefaultGrpcExecutionStrategy(HttpExecutionStrategies.defaultStrategy(executor));
     }
 
+    /**
+     * The default {@link GrpcExecutionStrategy} using a shared {@link Executor} which runs each task on a new virtual
+     * thread.
+     * <p>
+     * This is a good fit for blocking services with many concurrent requests, because a blocked virtual thread does
+     * not hold up a platform thread.
+     *
+     * @return Default {@link GrpcExecutionStrategy} which offloads to virtual threads.
+     * @throws UnsupportedOperationException if virtual threads are not available, they require Java 21+.
+     * @see HttpExecutionStrategies#virtualThreadStrategy()
+     */
+    public static GrpcExecutionStrategy virtualThreadStrategy() {
+        return new DefaultGrpcExecutionStrategy(HttpExecutionStrategies.virtualThreadStrategy());
+    }
+
     /**
      * A {@link GrpcExecutionStrategy} that disables all offloads.
      *
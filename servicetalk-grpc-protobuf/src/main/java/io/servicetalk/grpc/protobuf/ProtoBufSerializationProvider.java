@@ -17,6 +17,8 @@ package io.servicetalk.grpc.protobuf;
 
 import io.servicetalk.buffer.api.Buffer;
 import io.servicetalk.buffer.api.CompositeBuffer;
+import io.servicetalk.encoding.api.CompressionPolicy;
+import io.servicetalk.encoding.api.CompressionPolicy.Decision;
 import io.servicetalk.encoding.api.ContentCodec;
 import io.servicetalk.serialization.api.SerializationException;
 import io.servicetalk.serialization.api.SerializationProvider;
@@ -37,10 +39,13 @@ import java.util.List;
 import javax.annotation.Nullable;
 
 import static com.google.protobuf.CodedOutputStream.newInstance;
-import static com.google.protobuf.UnsafeByteOperations.unsafeWrap;
 import static io.servicetalk.buffer.netty.BufferAllocators.DEFAULT_ALLOCATOR;
+import static io.servicetalk.encoding.api.CompressionPolicy.Decision.COMPRESS_AND_SAMPLE;
+import static io.servicetalk.encoding.api.CompressionPolicy.Decision.SKIP;
+import static io.servicetalk.encoding.api.CompressionPolicy.alwaysCompress;
 import static io.servicetalk.encoding.api.ContentCodings.identity;
 import static java.lang.Math.max;
+import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
 
@@ -57,9 +62,14 @@ final class ProtoBufSerializationProvider<T extends MessageLite> implements Seri
 
     ProtoBufSerializationProvider(final Class<T> targetClass, final ContentCodec codec,
                                   final Parser<T> parser) {
+        this(targetClass, codec, parser, alwaysCompress());
+    }
+
+    ProtoBufSerializationProvider(final Class<T> targetClass, final ContentCodec codec,
+                                  final Parser<T> parser, final CompressionPolicy compressionPolicy) {
         this.targetClass = targetClass;
         this.codec = codec;
-        this.serializer = new ProtoSerializer(this.codec);
+        this.serializer = new ProtoSerializer(this.codec, compressionPolicy, targetClass.getName());
         this.parser = parser;
     }
 
@@ -167,16 +177,14 @@ final class ProtoBufSerializationProvider<T extends MessageLite> implements Seri
                             in = CodedInputStream.newInstance(nioBuffer);
                         } else {
                             // Aggregated payload body may consist of multiple Buffers. In this case,
-                            // CompositeBuffer.toNioBuffer(idx, length) may return a single ByteBuffer (when requested
-                            // length < components[0].length) or create a new ByteBuffer and copy multiple components
-                            // into it. Later, proto parser will copy data from this temporary ByteBuffer again.
-                            // To avoid unnecessary copying, we use newCodedInputStream(buffers, lengthOfData).
+                            // CompositeBuffer.toNioBuffer(idx, length) may create a new ByteBuffer and copy multiple
+                            // components into it, so we parse the components in place instead.
                             final ByteBuffer[] buffers = buffer.toNioBuffers(buffer.readerIndex(),
-                                    buffer.readableBytes());
+                                    decodedLengthOfData);
 
                             in = buffers.length == 1 ?
                                     CodedInputStream.newInstance(buffers[0]) :
-                                    newCodedInputStream(buffers, decodedLengthOfData);
+                                    CodedInputStream.newInstance(asList(buffers));
                         }
 
                         t = parser.parseFrom(in);
@@ -222,23 +230,6 @@ final class ProtoBufSerializationProvider<T extends MessageLite> implements Seri
             }
         }
 
-        private static CodedInputStream newCodedInputStream(final ByteBuffer[] buffers, final int lengthOfData) {
-            // Because we allocated a new internal ByteBuffer that will never be mutated we may just wrap it and
-            // enable aliasing to avoid an extra copying inside parser for a deserialized message.
-            final CodedInputStream in = unsafeWrap(mergeByteBuffers(buffers, lengthOfData)).newCodedInput();
-            in.enableAliasing(true);
-            return in;
-        }
-
-        private static ByteBuffer mergeByteBuffers(final ByteBuffer[] buffers, final int lengthOfData) {
-            final ByteBuffer merged = ByteBuffer.allocate(lengthOfData);
-            for (ByteBuffer buf : buffers) {
-                merged.put(buf);
-            }
-            merged.flip();
-            return merged;
-        }
-
         @Override
         public boolean hasData() {
             return accumulate.readableBytes() > 0;
@@ -272,10 +263,14 @@ final class ProtoBufSerializationProvider<T extends MessageLite> implements Seri
 
         private final ContentCodec codec;
         private final boolean encode;
+        private final CompressionPolicy compressionPolicy;
+        private final String route;
 
-        ProtoSerializer(final ContentCodec codec) {
+        ProtoSerializer(final ContentCodec codec, final CompressionPolicy compressionPolicy, final String route) {
             this.codec = codec;
             this.encode = codec != identity();
+            this.compressionPolicy = compressionPolicy;
+            this.route = route;
         }
 
         @Override
@@ -303,10 +298,28 @@ final class ProtoBufSerializationProvider<T extends MessageLite> implements Seri
 
         private void serializeAndEncode(final MessageLite msg, final Buffer destination) {
             final int size = msg.getSerializedSize();
+            // Each message carries its own compression flag, messages which are not worth compressing are sent
+            // uncompressed even if an encoding was negotiated.
+            final Decision decision = compressionPolicy.isCompressible(null, size) ?
+                    compressionPolicy.decide(route) : SKIP;
+            if (decision == SKIP) {
+                serializeOnly(msg, destination);
+                return;
+            }
             Buffer serialized = DEFAULT_ALLOCATOR.newBuffer(size);
             serialize0(msg, serialized);
 
+            final int serializedIndex = serialized.readerIndex();
             Buffer encoded = codec.encode(serialized, 0, serialized.readableBytes(), DEFAULT_ALLOCATOR);
+            if (decision == COMPRESS_AND_SAMPLE) {
+                compressionPolicy.onSample(route, size, encoded.readableBytes());
+            }
+            if (compressionPolicy != alwaysCompress() && encoded.readableBytes() >= size) {
+                destination.writeByte(FLAG_UNCOMPRESSED);
+                destination.writeInt(size);
+                destination.writeBytes(serialized, serializedIndex, size);
+                return;
+            }
 
             destination.writeByte(FLAG_COMPRESSED);
             destination.writeInt(encoded.readableBytes());
@@ -317,13 +330,21 @@ final class ProtoBufSerializationProvider<T extends MessageLite> implements Seri
         private void serialize0(final MessageLite msg, final Buffer destination) {
             final int size = msg.getSerializedSize();
             final int writerIdx = destination.writerIndex();
-            final int writableBytes = destination.writableBytes();
-            final CodedOutputStream out = destination.hasArray() ?
-                    newInstance(destination.array(), destination.arrayOffset() + writerIdx, writableBytes) :
-                    newInstance(destination.toNioBuffer(writerIdx, writableBytes));
+            final CodedOutputStream out;
+            if (destination.hasArray()) {
+                out = newInstance(destination.array(), destination.arrayOffset() + writerIdx, size);
+            } else if (destination.nioBufferCount() == 1) {
+                // Writes directly into the memory of the Buffer, which may be direct memory.
+                out = newInstance(destination.toNioBuffer(writerIdx, size));
+            } else {
+                // A ByteBuffer of a CompositeBuffer spanning multiple components is a copy, writes would be lost.
+                destination.writeBytes(msg.toByteArray());
+                return;
+            }
 
             try {
                 msg.writeTo(out);
+                out.checkNoSpaceLeft();
             } catch (IOException e) {
                 throw new SerializationException(e);
             }
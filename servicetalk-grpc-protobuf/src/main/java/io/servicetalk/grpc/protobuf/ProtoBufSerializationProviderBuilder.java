@@ -19,6 +19,7 @@ import io.servicetalk.buffer.api.Buffer;
 import io.servicetalk.buffer.api.BufferAllocator;
 import io.servicetalk.concurrent.BlockingIterable;
 import io.servicetalk.concurrent.api.Publisher;
+import io.servicetalk.encoding.api.CompressionPolicy;
 import io.servicetalk.encoding.api.ContentCodec;
 import io.servicetalk.grpc.api.GrpcSerializationProvider;
 import io.servicetalk.grpc.api.MessageEncodingException;
@@ -40,11 +41,13 @@ import java.util.List;
 import java.util.Map;
 
 import static io.servicetalk.buffer.api.CharSequences.newAsciiString;
+import static io.servicetalk.encoding.api.CompressionPolicy.alwaysCompress;
 import static io.servicetalk.encoding.api.ContentCodings.identity;
 import static io.servicetalk.http.api.HttpHeaderNames.CONTENT_TYPE;
 import static java.util.Collections.singletonList;
 import static java.util.Collections.unmodifiableList;
 import static java.util.Collections.unmodifiableMap;
+import static java.util.Objects.requireNonNull;
 
 /**
  * A builder for building a {@link GrpcSerializationProvider} that can serialize and deserialize
@@ -61,6 +64,7 @@ public final class ProtoBufSerializationProviderBuilder {
     private final Map<Class, Map<ContentCodec, HttpDeserializer>> deserializers = new HashMap<>();
 
     private List<ContentCodec> supportedCodings = singletonList(identity());
+    private CompressionPolicy compressionPolicy = alwaysCompress();
 
     /**
      * Set the supported message encodings for the serializers and deserializers.
@@ -80,6 +84,21 @@ public final class ProtoBufSerializationProviderBuilder {
         return this;
     }
 
+    /**
+     * Set the {@link CompressionPolicy} which decides which messages are compressed when a message encoding other
+     * than {@link io.servicetalk.encoding.api.ContentCodings#identity()} is used.
+     * <p>
+     * The route of a message is its type. Messages which the policy skips, or which do not get smaller when
+     * compressed, are sent uncompressed. Defaults to {@link CompressionPolicy#alwaysCompress()}.
+     *
+     * @param compressionPolicy the {@link CompressionPolicy} for messages.
+     * @return {@code this}
+     */
+    public ProtoBufSerializationProviderBuilder compressionPolicy(final CompressionPolicy compressionPolicy) {
+        this.compressionPolicy = requireNonNull(compressionPolicy);
+        return this;
+    }
+
     /**
      * Register the passed {@code messageType} with the provided {@link Parser}.
      *
@@ -104,7 +123,7 @@ public final class ProtoBufSerializationProviderBuilder {
             Map<ContentCodec, HttpDeserializer> deserializersForType = new HashMap<>();
             for (ContentCodec codec : supportedCodings) {
                 DefaultSerializer serializer = new DefaultSerializer(
-                        new ProtoBufSerializationProvider<>(messageType, codec, parser));
+                        new ProtoBufSerializationProvider<>(messageType, codec, parser, compressionPolicy));
                 HttpSerializer<MessageLite> httpSerializer = new ProtoHttpSerializer<>(serializer, codec, messageType);
                 serializersForType.put(codec, httpSerializer);
                 deserializersForType.put(codec, new HttpDeserializer<MessageLite>() {
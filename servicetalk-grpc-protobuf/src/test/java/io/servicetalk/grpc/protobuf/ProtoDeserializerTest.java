@@ -28,8 +28,10 @@ import java.util.List;
 import java.util.function.Function;
 
 import static io.servicetalk.buffer.netty.BufferAllocators.DEFAULT_ALLOCATOR;
+import static io.servicetalk.buffer.netty.BufferAllocators.PREFER_DIRECT_ALLOCATOR;
 import static io.servicetalk.encoding.api.ContentCodings.identity;
 import static io.servicetalk.grpc.protobuf.test.TestProtos.DummyMessage;
+import static java.lang.Math.min;
 import static java.util.Arrays.asList;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.StreamSupport.stream;
@@ -101,6 +103,28 @@ public class ProtoDeserializerTest {
         assertThat("Unexpected messages deserialized.", deserialized, contains("Hello"));
     }
 
+    @Test
+    public void splitMessageInDirectBuffers() throws IOException {
+        Buffer msg = grpcBufferFor("Hello");
+        List<Buffer> buffers = new ArrayList<>();
+        while (msg.readableBytes() > 0) {
+            buffers.add(PREFER_DIRECT_ALLOCATOR.newBuffer(1).writeBytes(msg, 1));
+        }
+        List<String> deserialized = deserialize(buffers.toArray(new Buffer[0]));
+        assertThat("Unexpected messages deserialized.", deserialized, contains("Hello"));
+    }
+
+    @Test
+    public void multipleMessagesSplitInBuffers() throws IOException {
+        Buffer msg = grpcBufferFor("Hello1", "Hello2", "Hello3");
+        List<Buffer> buffers = new ArrayList<>();
+        while (msg.readableBytes() > 0) {
+            buffers.add(msg.readSlice(min(4, msg.readableBytes())));
+        }
+        List<String> deserialized = deserialize(buffers.toArray(new Buffer[0]));
+        assertThat("Unexpected messages deserialized.", deserialized, contains("Hello1", "Hello2", "Hello3"));
+    }
+
     private List<String> deserialize(Buffer buffer) {
         return deserialize(deserializer -> deserializer.deserialize(buffer));
     }
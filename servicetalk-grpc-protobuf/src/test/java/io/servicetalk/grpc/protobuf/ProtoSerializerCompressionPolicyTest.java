@@ -0,0 +1,124 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.grpc.protobuf;
+
+import io.servicetalk.buffer.api.Buffer;
+import io.servicetalk.encoding.api.CompressionPolicy;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.BytesValue;
+import org.junit.Test;
+
+import java.util.Iterator;
+import java.util.Random;
+
+import static io.servicetalk.buffer.netty.BufferAllocators.DEFAULT_ALLOCATOR;
+import static io.servicetalk.encoding.api.CompressionPolicy.alwaysCompress;
+import static io.servicetalk.encoding.api.ContentCodings.gzipDefault;
+import static java.util.Collections.emptyList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+
+public class ProtoSerializerCompressionPolicyTest {
+
+    private static final int FLAG_UNCOMPRESSED = 0;
+    private static final int FLAG_COMPRESSED = 1;
+
+    @Test
+    public void alwaysCompressCompressesSmallMessages() {
+        final BytesValue message = message(new byte[10]);
+        final Buffer serialized = serialize(alwaysCompress(), message);
+        assertThat(serialized.getByte(serialized.readerIndex()), is((byte) FLAG_COMPRESSED));
+        assertThat(deserialize(alwaysCompress(), serialized), is(message));
+    }
+
+    @Test
+    public void smallMessageIsNotCompressed() {
+        final CompressionPolicy policy = new CompressionPolicy.Builder().minSize(100).build();
+        final BytesValue message = message(new byte[10]);
+        final Buffer serialized = serialize(policy, message);
+        assertThat(serialized.getByte(serialized.readerIndex()), is((byte) FLAG_UNCOMPRESSED));
+        assertThat(deserialize(policy, serialized), is(message));
+    }
+
+    @Test
+    public void largeMessageIsCompressed() {
+        final CompressionPolicy policy = new CompressionPolicy.Builder().minSize(100).build();
+        final BytesValue message = message(new byte[1000]);
+        final Buffer serialized = serialize(policy, message);
+        assertThat(serialized.getByte(serialized.readerIndex()), is((byte) FLAG_COMPRESSED));
+        assertThat(serialized.getInt(serialized.readerIndex() + 1), is(lessThan(message.getSerializedSize())));
+        assertThat(deserialize(policy, serialized), is(message));
+    }
+
+    @Test
+    public void messageWhichDoesNotShrinkIsNotCompressed() {
+        final CompressionPolicy policy = new CompressionPolicy.Builder().minSize(0)
+                .excludedContentTypes(emptyList()).build();
+        final byte[] random = new byte[1000];
+        new Random(42).nextBytes(random);
+        final BytesValue message = message(random);
+        final Buffer serialized = serialize(policy, message);
+        assertThat(serialized.getByte(serialized.readerIndex()), is((byte) FLAG_UNCOMPRESSED));
+        assertThat(serialized.getInt(serialized.readerIndex() + 1), is(message.getSerializedSize()));
+        assertThat(deserialize(policy, serialized), is(message));
+    }
+
+    @Test
+    public void poorlyCompressingMessageTypeBacksOff() {
+        final CompressionPolicy policy = new CompressionPolicy.Builder().minSize(0).sampleInterval(2).build();
+        final byte[] random = new byte[1000];
+        new Random(42).nextBytes(random);
+        final ProtoBufSerializationProvider<BytesValue> provider = provider(policy);
+
+        // The first message is sampled and shows that the message type does not compress well.
+        assertThat(serializeFlag(provider, message(random)), is((byte) FLAG_UNCOMPRESSED));
+        // Backed off message types are not compressed, even if a message would compress well.
+        assertThat(serializeFlag(provider, message(new byte[1000])), is((byte) FLAG_UNCOMPRESSED));
+        // Backed off message types are still sampled.
+        assertThat(serializeFlag(provider, message(new byte[1000])), is((byte) FLAG_COMPRESSED));
+    }
+
+    private static byte serializeFlag(final ProtoBufSerializationProvider<BytesValue> provider,
+                                      final BytesValue message) {
+        final Buffer serialized = DEFAULT_ALLOCATOR.newBuffer();
+        provider.getSerializer(BytesValue.class).serialize(message, serialized);
+        return serialized.getByte(serialized.readerIndex());
+    }
+
+    private static Buffer serialize(final CompressionPolicy policy, final BytesValue message) {
+        final Buffer serialized = DEFAULT_ALLOCATOR.newBuffer();
+        provider(policy).getSerializer(BytesValue.class).serialize(message, serialized);
+        return serialized;
+    }
+
+    private static BytesValue deserialize(final CompressionPolicy policy, final Buffer serialized) {
+        final Iterator<BytesValue> messages = provider(policy).getDeserializer(BytesValue.class)
+                .deserialize(serialized).iterator();
+        final BytesValue message = messages.next();
+        assertThat(messages.hasNext(), is(false));
+        return message;
+    }
+
+    private static ProtoBufSerializationProvider<BytesValue> provider(final CompressionPolicy policy) {
+        return new ProtoBufSerializationProvider<>(BytesValue.class, gzipDefault(), BytesValue.parser(), policy);
+    }
+
+    private static BytesValue message(final byte[] value) {
+        return BytesValue.newBuilder().setValue(ByteString.copyFrom(value)).build();
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.grpc.protobuf;
+
+import io.servicetalk.buffer.api.Buffer;
+import io.servicetalk.buffer.api.CompositeBuffer;
+import io.servicetalk.serialization.api.StreamingSerializer;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static io.servicetalk.buffer.netty.BufferAllocators.DEFAULT_ALLOCATOR;
+import static io.servicetalk.buffer.netty.BufferAllocators.PREFER_DIRECT_ALLOCATOR;
+import static io.servicetalk.encoding.api.ContentCodings.identity;
+import static io.servicetalk.grpc.protobuf.test.TestProtos.DummyMessage;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.StreamSupport.stream;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+public class ProtoSerializerTest {
+
+    private final ProtoBufSerializationProvider<DummyMessage> serializationProvider =
+            new ProtoBufSerializationProvider<>(DummyMessage.class, identity(), DummyMessage.parser());
+    private final StreamingSerializer serializer = serializationProvider.getSerializer(DummyMessage.class);
+
+    @Test
+    public void serializeToHeapBuffer() {
+        assertRoundTrip(DEFAULT_ALLOCATOR.newBuffer(1));
+    }
+
+    @Test
+    public void serializeToDirectBuffer() {
+        Buffer buffer = PREFER_DIRECT_ALLOCATOR.newBuffer(1);
+        assertThat(buffer.hasArray(), is(false));
+        assertRoundTrip(buffer);
+    }
+
+    @Test
+    public void serializeToCompositeBuffer() {
+        CompositeBuffer buffer = DEFAULT_ALLOCATOR.newCompositeBuffer();
+        buffer.addBuffer(PREFER_DIRECT_ALLOCATOR.newBuffer(4).writeInt(0)).addBuffer(DEFAULT_ALLOCATOR.newBuffer(4)
+                .writeInt(0));
+        buffer.readerIndex(8);
+        assertRoundTrip(buffer);
+    }
+
+    private void assertRoundTrip(Buffer buffer) {
+        serializer.serialize(message("Hello1"), buffer);
+        serializer.serialize(message(""), buffer);
+        serializer.serialize(message("Hello2"), buffer);
+        List<String> deserialized = stream(serializationProvider.getDeserializer(DummyMessage.class)
+                .deserialize(buffer).spliterator(), false).map(DummyMessage::getMessage).collect(toList());
+        assertThat("Unexpected messages deserialized.", deserialized, contains("Hello1", "", "Hello2"));
+    }
+
+    private static DummyMessage message(String message) {
+        return DummyMessage.newBuilder().setMessage(message).build();
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.http.api;
+
+import io.servicetalk.buffer.api.Buffer;
+import io.servicetalk.buffer.api.BufferAllocator;
+import io.servicetalk.concurrent.api.Publisher;
+import io.servicetalk.encoding.api.CompressionPolicy;
+import io.servicetalk.encoding.api.CompressionPolicy.Decision;
+import io.servicetalk.encoding.api.ContentCodec;
+
+import javax.annotation.Nullable;
+
+import static io.servicetalk.concurrent.api.Publisher.defer;
+import static io.servicetalk.encoding.api.CompressionPolicy.Decision.SKIP;
+import static io.servicetalk.http.api.HttpHeaderNames.CONTENT_LENGTH;
+import static io.servicetalk.http.api.HttpHeaderNames.CONTENT_TYPE;
+
+/**
+ * Applies a {@link CompressionPolicy} to HTTP messages.
+ */
+final class CompressionPolicyUtils {
+
+    private CompressionPolicyUtils() {
+        // no instances
+    }
+
+    /**
+     * Decides whether a message is compressed based on its meta-data.
+     *
+     * @param policy the {@link CompressionPolicy} to apply.
+     * @param headers the {@link HttpHeaders} of the message.
+     * @param route the route of the message, see {@link CompressionPolicy#decide(String)}.
+     * @return the {@link Decision} for the message.
+     */
+    static Decision decide(final CompressionPolicy policy, final HttpHeaders headers, final String route) {
+        if (!isCompressible(policy, headers)) {
+            return SKIP;
+        }
+        return policy.decide(route);
+    }
+
+    /**
+     * Checks whether a message may be compressed based on its meta-data, without taking a sample of its route.
+     *
+     * @param policy the {@link CompressionPolicy} to apply.
+     * @param headers the {@link HttpHeaders} of the message.
+     * @return {@code true} if the message may be compressed.
+     */
+    static boolean isCompressible(final CompressionPolicy policy, final HttpHeaders headers) {
+        return policy.isCompressible(headers.get(CONTENT_TYPE), contentLength(headers));
+    }
+
+    /**
+     * Checks whether the size of the message is unknown from its meta-data and relevant for the policy, in which
+     * case the first item of the message body has to be inspected with {@link #isTooSmall(CompressionPolicy, Object)}.
+     *
+     * @param policy the {@link CompressionPolicy} to apply.
+     * @param headers the {@link HttpHeaders} of the message.
+     * @return {@code true} if the first item of the message body has to be inspected.
+     */
+    static boolean needsFirstItem(final CompressionPolicy policy, final HttpHeaders headers) {
+        return policy.minSize() > 0 && contentLength(headers) < 0;
+    }
+
+    /**
+     * Checks whether the first item of a message body is smaller than the minimum size of the policy.
+     *
+     * @param policy the {@link CompressionPolicy} to apply.
+     * @param firstItem the first item of the message body, {@code null} if the message body is empty.
+     * @return {@code true} if the message should not be compressed.
+     */
+    static boolean isTooSmall(final CompressionPolicy policy, @Nullable final Object firstItem) {
+        // Trailers as first item mean there is no payload body.
+        return !(firstItem instanceof Buffer) || ((Buffer) firstItem).readableBytes() < policy.minSize();
+    }
+
+    /**
+     * Encodes a payload body and reports the sizes before and after encoding to the policy if the message was
+     * selected for sampling.
+     *
+     * @param policy the {@link CompressionPolicy} to report samples to.
+     * @param decision the {@link Decision} for the message.
+     * @param route the route of the message.
+     * @param coding the {@link ContentCodec} to encode with.
+     * @param payload the payload body to encode.
+     * @param allocator the {@link BufferAllocator} to use.
+     * @return the encoded payload body.
+     */
+    static Publisher<Buffer> encode(final CompressionPolicy policy, final Decision decision, final String route,
+                                    final ContentCodec coding, final Publisher<Buffer> payload,
+                                    final BufferAllocator allocator) {
+        if (decision != Decision.COMPRESS_AND_SAMPLE) {
+            return coding.encode(payload, allocator);
+        }
+        return defer(() -> {
+            final long[] sizes = new long[2];
+            return coding.encode(payload.beforeOnNext(buffer -> sizes[0] += buffer.readableBytes()), allocator)
+                    .beforeOnNext(buffer -> sizes[1] += buffer.readableBytes())
+                    .beforeOnComplete(() -> policy.onSample(route, sizes[0], sizes[1]))
+                    .subscribeShareContext();
+        });
+    }
+
+    private static long contentLength(final HttpHeaders headers) {
+        final CharSequence value = headers.get(CONTENT_LENGTH);
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(value.toString());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
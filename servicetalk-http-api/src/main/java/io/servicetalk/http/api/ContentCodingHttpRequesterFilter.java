@@ -17,6 +17,8 @@ package io.servicetalk.http.api;
 
 import io.servicetalk.buffer.api.BufferAllocator;
 import io.servicetalk.concurrent.api.Single;
+import io.servicetalk.encoding.api.CompressionPolicy;
+import io.servicetalk.encoding.api.CompressionPolicy.Decision;
 import io.servicetalk.encoding.api.ContentCodec;
 
 import java.util.ArrayList;
@@ -24,10 +26,15 @@ import java.util.List;
 import javax.annotation.Nullable;
 
 import static io.servicetalk.buffer.api.CharSequences.newAsciiString;
+import static io.servicetalk.encoding.api.CompressionPolicy.Decision.SKIP;
+import static io.servicetalk.encoding.api.CompressionPolicy.alwaysCompress;
 import static io.servicetalk.encoding.api.ContentCodings.identity;
+import static io.servicetalk.http.api.CompressionPolicyUtils.decide;
+import static io.servicetalk.http.api.CompressionPolicyUtils.encode;
 import static io.servicetalk.http.api.HeaderUtils.identifyContentEncodingOrNullIfIdentity;
 import static io.servicetalk.http.api.HeaderUtils.setAcceptEncoding;
 import static io.servicetalk.http.api.HeaderUtils.setContentEncoding;
+import static java.util.Objects.requireNonNull;
 
 /**
  * A {@link StreamingHttpClientFilter} that adds encoding / decoding functionality for requests and responses
@@ -45,6 +52,7 @@ public final class ContentCodingHttpRequesterFilter
     private final List<ContentCodec> supportedCodings;
     @Nullable
     private final CharSequence acceptedEncodingsHeader;
+    private final CompressionPolicy compressionPolicy;
 
     /**
      * Enable support of the provided encodings for requests and responses.
@@ -55,8 +63,28 @@ public final class ContentCodingHttpRequesterFilter
      * and also used to advertise to the server.
      */
     public ContentCodingHttpRequesterFilter(final List<ContentCodec> supportedCodings) {
+        this(supportedCodings, alwaysCompress());
+    }
+
+    /**
+     * Enable support of the provided encodings for requests and responses, and compress requests only when the
+     * provided {@link CompressionPolicy} considers it worthwhile.
+     * <p>
+     * The route of a request is its path. The decision is made from the {@code content-type} and
+     * {@code content-length} headers only, requests without a {@code content-length} header are compressed unless
+     * their content type is excluded. The payload body is not inspected, because sending the request must not wait
+     * for it: the payload body may depend on the response, e.g. for bidirectional streaming or
+     * {@code Expect: 100-continue}.
+     *
+     * @param supportedCodings the codecs this clients supports to encode/decode requests and responses accordingly
+     * and also used to advertise to the server.
+     * @param compressionPolicy the {@link CompressionPolicy} which decides which requests are compressed.
+     */
+    public ContentCodingHttpRequesterFilter(final List<ContentCodec> supportedCodings,
+                                            final CompressionPolicy compressionPolicy) {
         this.supportedCodings = new ArrayList<>(supportedCodings);
         this.acceptedEncodingsHeader = buildAcceptEncodingsHeader(supportedCodings);
+        this.compressionPolicy = requireNonNull(compressionPolicy);
     }
 
     @Override
@@ -129,12 +157,23 @@ public final class ContentCodingHttpRequesterFilter
         return builder.length() > 0 ? newAsciiString(builder.toString()) : null;
     }
 
-    private static void encodePayloadContentIfAvailable(final StreamingHttpRequest request,
-                                                        final BufferAllocator allocator) {
+    private void encodePayloadContentIfAvailable(final StreamingHttpRequest request,
+                                                 final BufferAllocator allocator) {
         ContentCodec coding = request.encoding();
-        if (coding != null && !coding.equals(identity())) {
-            setContentEncoding(request.headers(), coding.name());
-            request.transformPayloadBody(pub -> coding.encode(pub, allocator));
+        if (coding == null || coding.equals(identity())) {
+            return;
+        }
+
+        final String route = request.rawPath();
+        final Decision decision = decide(compressionPolicy, request.headers(), route);
+        if (decision != SKIP) {
+            encodePayloadContent(coding, decision, route, request, allocator);
         }
     }
+
+    private void encodePayloadContent(final ContentCodec coding, final Decision decision, final String route,
+                                      final StreamingHttpRequest request, final BufferAllocator allocator) {
+        setContentEncoding(request.headers(), coding.name());
+        request.transformPayloadBody(pub -> encode(compressionPolicy, decision, route, coding, pub, allocator));
+    }
 }
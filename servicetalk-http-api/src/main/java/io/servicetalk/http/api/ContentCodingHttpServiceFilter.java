@@ -17,6 +17,8 @@ package io.servicetalk.http.api;
 
 import io.servicetalk.buffer.api.BufferAllocator;
 import io.servicetalk.concurrent.api.Single;
+import io.servicetalk.encoding.api.CompressionPolicy;
+import io.servicetalk.encoding.api.CompressionPolicy.Decision;
 import io.servicetalk.encoding.api.ContentCodec;
 
 import org.slf4j.Logger;
@@ -28,8 +30,15 @@ import java.util.List;
 import javax.annotation.Nullable;
 
 import static io.servicetalk.concurrent.api.Single.succeeded;
+import static io.servicetalk.encoding.api.CompressionPolicy.Decision.COMPRESS;
+import static io.servicetalk.encoding.api.CompressionPolicy.Decision.SKIP;
+import static io.servicetalk.encoding.api.CompressionPolicy.alwaysCompress;
 import static io.servicetalk.encoding.api.ContentCodings.identity;
 import static io.servicetalk.encoding.api.internal.HeaderUtils.negotiateAcceptedEncoding;
+import static io.servicetalk.http.api.CompressionPolicyUtils.encode;
+import static io.servicetalk.http.api.CompressionPolicyUtils.isCompressible;
+import static io.servicetalk.http.api.CompressionPolicyUtils.isTooSmall;
+import static io.servicetalk.http.api.CompressionPolicyUtils.needsFirstItem;
 import static io.servicetalk.http.api.HeaderUtils.hasContentEncoding;
 import static io.servicetalk.http.api.HeaderUtils.identifyContentEncodingOrNullIfIdentity;
 import static io.servicetalk.http.api.HeaderUtils.setContentEncoding;
@@ -41,6 +50,7 @@ import static io.servicetalk.http.api.HttpResponseStatus.NO_CONTENT;
 import static io.servicetalk.http.api.HttpResponseStatus.StatusClass.INFORMATIONAL_1XX;
 import static io.servicetalk.http.api.HttpResponseStatus.StatusClass.SUCCESSFUL_2XX;
 import static java.util.Collections.emptyList;
+import static java.util.Objects.requireNonNull;
 
 /**
  * A {@link StreamingHttpService} that adds encoding / decoding functionality for responses and requests respectively,
@@ -58,6 +68,7 @@ public final class ContentCodingHttpServiceFilter
 
     private final List<ContentCodec> requestCodings;
     private final List<ContentCodec> responseCodings;
+    private final CompressionPolicy compressionPolicy;
 
     /**
      * Enable support of the provided encodings for this server's responses.
@@ -71,6 +82,7 @@ public final class ContentCodingHttpServiceFilter
     public ContentCodingHttpServiceFilter(final List<ContentCodec> supportedCodings) {
         this.requestCodings = emptyList();
         this.responseCodings = new ArrayList<>(supportedCodings);
+        this.compressionPolicy = alwaysCompress();
     }
 
     /**
@@ -90,8 +102,30 @@ public final class ContentCodingHttpServiceFilter
      */
     public ContentCodingHttpServiceFilter(final List<ContentCodec> supportedRequestCodings,
                                           final List<ContentCodec> supportedResponseCodings) {
+        this(supportedRequestCodings, supportedResponseCodings, alwaysCompress());
+    }
+
+    /**
+     * Enable support of the provided encodings for both client requests and server responses, and compress responses
+     * only when the provided {@link CompressionPolicy} considers it worthwhile.
+     * <p>
+     * The policy applies to responses with a negotiated encoding, responses with an explicitly set
+     * {@link StreamingHttpResponse#encoding(ContentCodec) encoding} are always compressed. The route of a response is
+     * the path of its request. If the policy has a minimum size and a response has no {@code content-length} header,
+     * the response is delayed until the first chunk of its payload body is available, and it is not compressed if
+     * that chunk is smaller than the minimum size.
+     *
+     * @param supportedRequestCodings the codecs used to decompress client requests if compressed.
+     * @param supportedResponseCodings the codecs used to compress server responses if client accepts them.
+     * @param compressionPolicy the {@link CompressionPolicy} which decides which responses are compressed.
+     * @see #ContentCodingHttpServiceFilter(List, List)
+     */
+    public ContentCodingHttpServiceFilter(final List<ContentCodec> supportedRequestCodings,
+                                          final List<ContentCodec> supportedResponseCodings,
+                                          final CompressionPolicy compressionPolicy) {
         this.requestCodings = new ArrayList<>(supportedRequestCodings);
         this.responseCodings = new ArrayList<>(supportedResponseCodings);
+        this.compressionPolicy = requireNonNull(compressionPolicy);
     }
 
     @Override
@@ -111,11 +145,8 @@ public final class ContentCodingHttpServiceFilter
                             request.transformPayloadBody(bufferPublisher -> coding.decode(bufferPublisher, allocator));
                         }
 
-                        return super.handle(ctx, request, responseFactory).map(response -> {
-                            encodePayloadContentIfAvailable(request.headers(), request.method(), responseCodings,
-                                    response, allocator);
-                            return response;
-                        });
+                        return super.handle(ctx, request, responseFactory).flatMap(response ->
+                                encodePayloadContentIfAvailable(request, responseCodings, response, allocator));
                     } catch (UnsupportedContentEncodingException cause) {
                         LOGGER.error("Request failed for service={}, connection={}", service, this, cause);
                         // see https://tools.ietf.org/html/rfc7231#section-3.1.2.2
@@ -132,21 +163,58 @@ public final class ContentCodingHttpServiceFilter
         return strategy;
     }
 
-    private static void encodePayloadContentIfAvailable(final HttpHeaders requestHeaders,
-                                                        final HttpRequestMethod method,
-                                                        final List<ContentCodec> supportedEncodings,
-                                                        final StreamingHttpResponse response,
-                                                        final BufferAllocator allocator) {
+    private Single<StreamingHttpResponse> encodePayloadContentIfAvailable(final StreamingHttpRequest request,
+                                                                          final List<ContentCodec> supportedEncodings,
+                                                                          final StreamingHttpResponse response,
+                                                                          final BufferAllocator allocator) {
         if (supportedEncodings.isEmpty() || hasContentEncoding(response.headers()) ||
-                isPassThrough(method, response)) {
-            return;
+                isPassThrough(request.method(), response)) {
+            return succeeded(response);
         }
 
-        ContentCodec coding = codingForResponse(requestHeaders, response, supportedEncodings);
-        if (coding != null) {
-            setContentEncoding(response.headers(), coding.name());
-            response.transformPayloadBody(bufferPublisher -> coding.encode(bufferPublisher, allocator));
+        ContentCodec coding = codingForResponse(request.headers(), response, supportedEncodings);
+        if (coding == null) {
+            return succeeded(response);
         }
+        if (response.encoding() != null) {
+            // Enforced selection is not subject to the policy.
+            encodePayloadContent(coding, COMPRESS, "", response, allocator);
+            return succeeded(response);
+        }
+
+        final String route = request.rawPath();
+        if (!isCompressible(compressionPolicy, response.headers())) {
+            return succeeded(response);
+        }
+        if (needsFirstItem(compressionPolicy, response.headers())) {
+            final FirstItemPeekingPublisher<?> messageBody = FirstItemPeekingPublisher.peek(response.messageBody());
+            response.transformMessageBody(__ -> messageBody);
+            return messageBody.firstItem().map(firstItem -> {
+                // Too small messages must not take the sample of their route.
+                if (!isTooSmall(compressionPolicy, firstItem)) {
+                    encodePayloadContentIfDecided(coding, route, response, allocator);
+                }
+                return response;
+            });
+        }
+        encodePayloadContentIfDecided(coding, route, response, allocator);
+        return succeeded(response);
+    }
+
+    private void encodePayloadContentIfDecided(final ContentCodec coding, final String route,
+                                               final StreamingHttpResponse response,
+                                               final BufferAllocator allocator) {
+        final Decision decision = compressionPolicy.decide(route);
+        if (decision != SKIP) {
+            encodePayloadContent(coding, decision, route, response, allocator);
+        }
+    }
+
+    private void encodePayloadContent(final ContentCodec coding, final Decision decision, final String route,
+                                      final StreamingHttpResponse response, final BufferAllocator allocator) {
+        setContentEncoding(response.headers(), coding.name());
+        response.transformPayloadBody(bufferPublisher ->
+                encode(compressionPolicy, decision, route, coding, bufferPublisher, allocator));
     }
 
     private static boolean isPassThrough(final HttpRequestMethod method, final StreamingHttpResponse response) {
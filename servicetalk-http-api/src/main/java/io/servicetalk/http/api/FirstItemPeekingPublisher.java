@@ -0,0 +1,270 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.http.api;
+
+import io.servicetalk.concurrent.PublisherSource;
+import io.servicetalk.concurrent.SingleSource;
+import io.servicetalk.concurrent.api.Publisher;
+import io.servicetalk.concurrent.api.Single;
+import io.servicetalk.concurrent.api.internal.SubscribablePublisher;
+import io.servicetalk.concurrent.internal.DuplicateSubscribeException;
+
+import javax.annotation.Nullable;
+
+import static io.servicetalk.concurrent.api.Processors.newSingleProcessor;
+import static io.servicetalk.concurrent.api.SourceAdapters.fromSource;
+import static io.servicetalk.concurrent.api.SourceAdapters.toSource;
+import static io.servicetalk.concurrent.internal.SubscriberUtils.deliverErrorFromSource;
+
+/**
+ * Subscribes to a {@link Publisher} eagerly to make its first item available via {@link #firstItem()}, before the
+ * {@link Publisher} is consumed through this {@link Publisher}. Only the first item is requested until this
+ * {@link Publisher} is subscribed.
+ *
+ * @param <T> the type of items.
+ */
+final class FirstItemPeekingPublisher<T> extends SubscribablePublisher<T>
+        implements PublisherSource.Subscriber<T>, PublisherSource.Subscription {
+
+    private final SingleSource.Processor<T, T> firstItemProcessor = newSingleProcessor();
+    // All fields below are guarded by this.
+    @Nullable
+    private PublisherSource.Subscription upstream;
+    @Nullable
+    private Subscriber<? super T> downstream;
+    @Nullable
+    private T firstItem;
+    private boolean firstItemReceived;
+    private boolean firstItemDelivered;
+    private boolean firstItemPending;
+    private long pendingDemand;
+    private boolean terminated;
+    @Nullable
+    private Throwable terminalCause;
+    private boolean cancelled;
+
+    private FirstItemPeekingPublisher() {
+    }
+
+    /**
+     * Subscribes to the passed {@link Publisher} and requests its first item.
+     *
+     * @param original the {@link Publisher} to peek into.
+     * @param <T> the type of items.
+     * @return a {@link FirstItemPeekingPublisher} which emits all items of {@code original}.
+     */
+    static <T> FirstItemPeekingPublisher<T> peek(final Publisher<T> original) {
+        final FirstItemPeekingPublisher<T> peeking = new FirstItemPeekingPublisher<>();
+        toSource(original).subscribe(peeking);
+        return peeking;
+    }
+
+    /**
+     * Returns a {@link Single} which completes with the first item, or with {@code null} if the original
+     * {@link Publisher} terminated without items. Cancelling the {@link Single} before it completes cancels the
+     * original {@link Publisher}, as nothing may consume it afterwards.
+     *
+     * @return a {@link Single} which completes with the first item.
+     */
+    Single<T> firstItem() {
+        return fromSource(firstItemProcessor)
+                .beforeOnSuccess(__ -> {
+                    synchronized (this) {
+                        firstItemDelivered = true;
+                    }
+                })
+                .beforeCancel(this::cancelIfFirstItemNotDelivered);
+    }
+
+    private void cancelIfFirstItemNotDelivered() {
+        synchronized (this) {
+            if (firstItemDelivered) {
+                return;
+            }
+        }
+        cancel();
+    }
+
+    @Override
+    public void onSubscribe(final PublisherSource.Subscription subscription) {
+        final boolean cancel;
+        synchronized (this) {
+            upstream = subscription;
+            cancel = cancelled;
+        }
+        if (cancel) {
+            subscription.cancel();
+        } else {
+            subscription.request(1);
+        }
+    }
+
+    @Override
+    public void onNext(@Nullable final T item) {
+        final Subscriber<? super T> target;
+        final long forwardDemand;
+        final boolean first;
+        synchronized (this) {
+            first = !firstItemReceived;
+            firstItemReceived = true;
+            if (first && (downstream == null || pendingDemand == 0)) {
+                firstItem = item;
+                firstItemPending = true;
+                target = null;
+                forwardDemand = 0;
+            } else {
+                target = downstream;
+                forwardDemand = first ? pendingDemand - 1 : 0;
+                pendingDemand = 0;
+            }
+        }
+        if (first) {
+            firstItemProcessor.onSuccess(item);
+        }
+        if (target != null) {
+            target.onNext(item);
+            if (forwardDemand > 0) {
+                requestUpstream(forwardDemand);
+            }
+        }
+    }
+
+    @Override
+    public void onError(final Throwable t) {
+        terminate(t);
+    }
+
+    @Override
+    public void onComplete() {
+        terminate(null);
+    }
+
+    private void terminate(@Nullable final Throwable cause) {
+        final boolean noItems;
+        final Subscriber<? super T> target;
+        synchronized (this) {
+            noItems = !firstItemReceived;
+            firstItemReceived = true;
+            terminated = true;
+            terminalCause = cause;
+            target = firstItemPending ? null : downstream;
+        }
+        if (noItems) {
+            firstItemProcessor.onSuccess(null);
+        }
+        if (target != null) {
+            deliverTerminal(target, cause);
+        }
+    }
+
+    @Override
+    protected void handleSubscribe(final Subscriber<? super T> subscriber) {
+        @Nullable
+        final Subscriber<? super T> existing;
+        final boolean deliverTerminal;
+        final Throwable cause;
+        synchronized (this) {
+            existing = downstream;
+            if (existing == null) {
+                downstream = subscriber;
+            }
+            deliverTerminal = terminated && !firstItemPending;
+            cause = terminalCause;
+        }
+        if (existing != null) {
+            deliverErrorFromSource(subscriber, new DuplicateSubscribeException(existing, subscriber));
+            return;
+        }
+        subscriber.onSubscribe(this);
+        if (deliverTerminal) {
+            deliverTerminal(subscriber, cause);
+        }
+    }
+
+    @Override
+    public void request(final long n) {
+        final Subscriber<? super T> target;
+        final T item;
+        final boolean deliverTerminal;
+        final Throwable cause;
+        final long forwardDemand;
+        synchronized (this) {
+            if (firstItemPending && n > 0) {
+                firstItemPending = false;
+                target = downstream;
+                item = firstItem;
+                firstItem = null;
+                deliverTerminal = terminated;
+                cause = terminalCause;
+                forwardDemand = n - 1;
+            } else if (!firstItemReceived && n > 0) {
+                // Demand is forwarded once the first item arrives.
+                pendingDemand += n;
+                if (pendingDemand < 0) {
+                    pendingDemand = Long.MAX_VALUE;
+                }
+                return;
+            } else {
+                target = null;
+                item = null;
+                deliverTerminal = false;
+                cause = null;
+                forwardDemand = n;
+            }
+        }
+        if (target != null) {
+            target.onNext(item);
+            if (deliverTerminal) {
+                deliverTerminal(target, cause);
+                return;
+            }
+        }
+        if (forwardDemand != 0) {
+            requestUpstream(forwardDemand);
+        }
+    }
+
+    @Override
+    public void cancel() {
+        final PublisherSource.Subscription subscription;
+        synchronized (this) {
+            cancelled = true;
+            firstItem = null;
+            firstItemPending = false;
+            subscription = upstream;
+        }
+        if (subscription != null) {
+            subscription.cancel();
+        }
+    }
+
+    private void requestUpstream(final long n) {
+        final PublisherSource.Subscription subscription;
+        synchronized (this) {
+            subscription = upstream;
+        }
+        assert subscription != null;
+        subscription.request(n);
+    }
+
+    private static void deliverTerminal(final Subscriber<?> target, @Nullable final Throwable cause) {
+        if (cause == null) {
+            target.onComplete();
+        } else {
+            target.onError(cause);
+        }
+    }
+}
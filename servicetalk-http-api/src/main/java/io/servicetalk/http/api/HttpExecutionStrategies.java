@@ -1,5 +1,5 @@
 /*
- * Copyright © 2018 Apple Inc. and the ServiceTalk project authors
+ * Copyright © 2018-2021 Apple Inc. and the ServiceTalk project authors
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,6 +19,7 @@ import io.servicetalk.concurrent.api.Executor;
 
 import javax.annotation.Nullable;
 
+import static io.servicetalk.concurrent.api.Executors.newVirtualThreadExecutor;
 import static io.servicetalk.http.api.DefaultHttpExecutionStrategy.OFFLOAD_RECEIVE_DATA;
 import static io.servicetalk.http.api.DefaultHttpExecutionStrategy.OFFLOAD_RECEIVE_META;
 import static io.servicetalk.http.api.DefaultHttpExecutionStrategy.OFFLOAD_SEND;
@@ -69,6 +70,27 @@ public final class HttpExecutionStrategies {
         return customStrategyBuilder().offloadAll().executor(executor).mergeStrategy(ReturnOther).build();
     }
 
+    /**
+     * The default {@link HttpExecutionStrategy} using a shared {@link Executor} which runs each task on a new virtual
+     * thread.
+     * <p>
+     * This is a good fit for blocking APIs (e.g. {@link BlockingHttpService} and {@link BlockingStreamingHttpService})
+     * with many concurrent requests, because a blocked virtual thread does not hold up a platform thread.
+     * <p>
+     * The shared {@link Executor} is created on first use and lives for the whole lifetime of the process: it is never
+     * closed, and it must not be closed by users because every user of this strategy shares it. It does not pool
+     * threads, so it holds no resources while no tasks are running. Use {@link #defaultStrategy(Executor)} with
+     * {@link io.servicetalk.concurrent.api.Executors#newVirtualThreadExecutor()} for an {@link Executor} with a
+     * controlled lifecycle.
+     *
+     * @return Default {@link HttpExecutionStrategy} which offloads to virtual threads.
+     * @throws UnsupportedOperationException if virtual threads are not available, they require Java 21+.
+     * @see io.servicetalk.concurrent.api.Executors#newVirtualThreadExecutor()
+     */
+    public static HttpExecutionStrategy virtualThreadStrategy() {
+        return VirtualThreadStrategyHolder.strategy();
+    }
+
     /**
      * A {@link HttpExecutionStrategy} that disables all offloads.
      *
@@ -150,6 +172,41 @@ public final class HttpExecutionStrategies {
         return !es.isMetadataReceiveOffloaded() && !es.isDataReceiveOffloaded() && !es.isSendOffloaded();
     }
 
+    /**
+     * Creates the shared virtual thread {@link Executor} lazily, so it is only created if it is used. The
+     * {@link Executor} is held for the lifetime of the process and never closed.
+     */
+    private static final class VirtualThreadStrategyHolder {
+        @Nullable
+        private static final HttpExecutionStrategy STRATEGY;
+        @Nullable
+        private static final UnsupportedOperationException UNAVAILABILITY_CAUSE;
+
+        static {
+            HttpExecutionStrategy strategy = null;
+            UnsupportedOperationException cause = null;
+            try {
+                strategy = defaultStrategy(newVirtualThreadExecutor());
+            } catch (UnsupportedOperationException e) {
+                cause = e;
+            }
+            STRATEGY = strategy;
+            UNAVAILABILITY_CAUSE = cause;
+        }
+
+        private VirtualThreadStrategyHolder() {
+            // No instances.
+        }
+
+        static HttpExecutionStrategy strategy() {
+            if (STRATEGY == null) {
+                assert UNAVAILABILITY_CAUSE != null;
+                throw new UnsupportedOperationException(UNAVAILABILITY_CAUSE.getMessage(), UNAVAILABILITY_CAUSE);
+            }
+            return STRATEGY;
+        }
+    }
+
     /**
      * A builder to build an {@link HttpExecutionStrategy}.
      */
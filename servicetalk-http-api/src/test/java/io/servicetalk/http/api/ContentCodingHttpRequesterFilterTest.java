@@ -0,0 +1,146 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.http.api;
+
+import io.servicetalk.buffer.api.Buffer;
+import io.servicetalk.concurrent.api.TestPublisher;
+import io.servicetalk.concurrent.internal.ServiceTalkTestTimeout;
+import io.servicetalk.encoding.api.CompressionPolicy;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.servicetalk.buffer.netty.BufferAllocators.DEFAULT_ALLOCATOR;
+import static io.servicetalk.concurrent.api.Publisher.from;
+import static io.servicetalk.concurrent.api.Single.succeeded;
+import static io.servicetalk.encoding.api.ContentCodings.gzipDefault;
+import static io.servicetalk.encoding.api.ContentCodings.identity;
+import static io.servicetalk.http.api.HttpExecutionStrategies.noOffloadsStrategy;
+import static io.servicetalk.http.api.HttpHeaderNames.CONTENT_ENCODING;
+import static io.servicetalk.http.api.HttpHeaderNames.CONTENT_LENGTH;
+import static io.servicetalk.http.api.HttpHeaderNames.CONTENT_TYPE;
+import static io.servicetalk.http.api.HttpProtocolVersion.HTTP_1_1;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.util.Arrays.asList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ContentCodingHttpRequesterFilterTest {
+    @Rule
+    public final Timeout timeout = new ServiceTalkTestTimeout();
+
+    private static final String LARGE_PAYLOAD = new String(new char[2048]).replace('\0', 'a');
+
+    private final StreamingHttpRequestResponseFactory reqRespFactory = new DefaultStreamingHttpRequestResponseFactory(
+            DEFAULT_ALLOCATOR, DefaultHttpHeadersFactory.INSTANCE, HTTP_1_1);
+    private final FilterableStreamingHttpClient client = mock(FilterableStreamingHttpClient.class);
+    private final List<StreamingHttpRequest> requests = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        final HttpExecutionContext executionContext = mock(HttpExecutionContext.class);
+        when(executionContext.bufferAllocator()).thenReturn(DEFAULT_ALLOCATOR);
+        when(client.executionContext()).thenReturn(executionContext);
+        when(client.request(any(), any())).thenAnswer(invocation -> {
+            requests.add(invocation.getArgument(1));
+            return succeeded(reqRespFactory.ok());
+        });
+    }
+
+    @Test
+    public void streamingRequestIsSentBeforePayloadBody() throws Exception {
+        // A payload body which depends on the response, e.g. with "Expect: 100-continue", must not delay the request.
+        final TestPublisher<Buffer> payloadBody = new TestPublisher<>();
+        request(newFilter(new CompressionPolicy.Builder().minSize(100)), reqRespFactory.post("/path")
+                .payloadBody(payloadBody).encoding(gzipDefault()));
+
+        assertThat(requests, hasSize(1));
+        assertThat(payloadBody.isSubscribed(), is(false));
+        // The size of a streaming request is unknown, it is compressed unless its content type is excluded.
+        assertThat(requests.get(0).headers().get(CONTENT_ENCODING).toString(), is("gzip"));
+    }
+
+    @Test
+    public void streamingRequestIsCompressed() throws Exception {
+        request(newFilter(new CompressionPolicy.Builder().minSize(100)), reqRespFactory.post("/path")
+                .payloadBody(from(buffer(LARGE_PAYLOAD), buffer("b"))).encoding(gzipDefault()));
+
+        assertThat(requests.get(0).headers().get(CONTENT_ENCODING).toString(), is("gzip"));
+        assertThat(decodedPayload(requests.get(0)), is(LARGE_PAYLOAD + "b"));
+    }
+
+    @Test
+    public void smallContentLengthIsNotCompressed() throws Exception {
+        request(newFilter(new CompressionPolicy.Builder().minSize(100)), reqRespFactory.post("/path")
+                .setHeader(CONTENT_LENGTH, "5").payloadBody(from(buffer("hello"))).encoding(gzipDefault()));
+
+        assertThat(requests.get(0).headers().get(CONTENT_ENCODING), is(nullValue()));
+        assertThat(payload(requests.get(0)), is("hello"));
+    }
+
+    @Test
+    public void excludedContentTypeIsNotCompressed() throws Exception {
+        request(newFilter(new CompressionPolicy.Builder().excludedContentTypes(asList("image/", "video/"))),
+                reqRespFactory.post("/path").setHeader(CONTENT_TYPE, "image/png")
+                        .payloadBody(from(buffer(LARGE_PAYLOAD))).encoding(gzipDefault()));
+
+        assertThat(requests.get(0).headers().get(CONTENT_ENCODING), is(nullValue()));
+        assertThat(payload(requests.get(0)), is(LARGE_PAYLOAD));
+    }
+
+    @Test
+    public void requestWithoutEncodingIsNotCompressed() throws Exception {
+        request(newFilter(new CompressionPolicy.Builder().minSize(0)), reqRespFactory.post("/path")
+                .payloadBody(from(buffer(LARGE_PAYLOAD))));
+
+        assertThat(requests.get(0).headers().get(CONTENT_ENCODING), is(nullValue()));
+        assertThat(payload(requests.get(0)), is(LARGE_PAYLOAD));
+    }
+
+    private static ContentCodingHttpRequesterFilter newFilter(final CompressionPolicy.Builder policy) {
+        return new ContentCodingHttpRequesterFilter(asList(gzipDefault(), identity()), policy.build());
+    }
+
+    private void request(final ContentCodingHttpRequesterFilter filter, final StreamingHttpRequest request)
+            throws Exception {
+        filter.create(client).request(noOffloadsStrategy(), request).toFuture().get();
+    }
+
+    private static Buffer buffer(final String content) {
+        return DEFAULT_ALLOCATOR.fromAscii(content);
+    }
+
+    private static String payload(final StreamingHttpRequest request) throws Exception {
+        return request.payloadBody().collect(StringBuilder::new, (sb, buffer) -> sb.append(buffer.toString(US_ASCII)))
+                .toFuture().get().toString();
+    }
+
+    private static String decodedPayload(final StreamingHttpRequest request) throws Exception {
+        return gzipDefault().decode(request.payloadBody(), DEFAULT_ALLOCATOR)
+                .collect(StringBuilder::new, (sb, buffer) -> sb.append(buffer.toString(US_ASCII)))
+                .toFuture().get().toString();
+    }
+}
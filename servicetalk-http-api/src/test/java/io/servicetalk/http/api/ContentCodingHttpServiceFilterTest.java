@@ -0,0 +1,246 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.http.api;
+
+import io.servicetalk.buffer.api.Buffer;
+import io.servicetalk.concurrent.api.TestPublisher;
+import io.servicetalk.concurrent.api.TestSubscription;
+import io.servicetalk.concurrent.internal.ServiceTalkTestTimeout;
+import io.servicetalk.encoding.api.CompressionPolicy;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import java.util.Random;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+import static io.servicetalk.buffer.netty.BufferAllocators.DEFAULT_ALLOCATOR;
+import static io.servicetalk.concurrent.api.Publisher.from;
+import static io.servicetalk.concurrent.api.Single.succeeded;
+import static io.servicetalk.encoding.api.ContentCodings.gzipDefault;
+import static io.servicetalk.encoding.api.ContentCodings.identity;
+import static io.servicetalk.http.api.HttpHeaderNames.ACCEPT_ENCODING;
+import static io.servicetalk.http.api.HttpHeaderNames.CONTENT_ENCODING;
+import static io.servicetalk.http.api.HttpHeaderNames.CONTENT_LENGTH;
+import static io.servicetalk.http.api.HttpHeaderNames.CONTENT_TYPE;
+import static io.servicetalk.http.api.HttpProtocolVersion.HTTP_1_1;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ContentCodingHttpServiceFilterTest {
+    @Rule
+    public final Timeout timeout = new ServiceTalkTestTimeout();
+
+    private static final String LARGE_PAYLOAD = new String(new char[2048]).replace('\0', 'a');
+
+    private final StreamingHttpRequestResponseFactory reqRespFactory = new DefaultStreamingHttpRequestResponseFactory(
+            DEFAULT_ALLOCATOR, DefaultHttpHeadersFactory.INSTANCE, HTTP_1_1);
+    private final HttpServiceContext ctx;
+
+    public ContentCodingHttpServiceFilterTest() {
+        final HttpExecutionContext executionContext = mock(HttpExecutionContext.class);
+        when(executionContext.bufferAllocator()).thenReturn(DEFAULT_ALLOCATOR);
+        ctx = new TestHttpServiceContext(DefaultHttpHeadersFactory.INSTANCE, reqRespFactory, executionContext);
+    }
+
+    @Test
+    public void compressesAllResponsesByDefault() throws Exception {
+        final StreamingHttpResponse response = handle(new ContentCodingHttpServiceFilter(
+                singletonList(gzipDefault())), () -> reqRespFactory.ok().payloadBody(from(buffer("hello"))));
+
+        assertThat(response.headers().get(CONTENT_ENCODING).toString(), is("gzip"));
+        assertThat(decodedPayload(response), is("hello"));
+    }
+
+    @Test
+    public void smallResponseIsNotCompressed() throws Exception {
+        final StreamingHttpResponse response = handle(newFilter(new CompressionPolicy.Builder().minSize(100)),
+                () -> reqRespFactory.ok().payloadBody(from(buffer("hello"))));
+
+        assertThat(response.headers().get(CONTENT_ENCODING), is(nullValue()));
+        assertThat(payload(response), is("hello"));
+    }
+
+    @Test
+    public void smallContentLengthIsNotCompressed() throws Exception {
+        final StreamingHttpResponse response = handle(newFilter(new CompressionPolicy.Builder().minSize(100)),
+                () -> reqRespFactory.ok().setHeader(CONTENT_LENGTH, "5")
+                        .payloadBody(from(buffer("hello"))));
+
+        assertThat(response.headers().get(CONTENT_ENCODING), is(nullValue()));
+        assertThat(payload(response), is("hello"));
+    }
+
+    @Test
+    public void largeResponseIsCompressed() throws Exception {
+        final StreamingHttpResponse response = handle(newFilter(new CompressionPolicy.Builder().minSize(100)),
+                () -> reqRespFactory.ok().payloadBody(from(buffer(LARGE_PAYLOAD), buffer("b"))));
+
+        assertThat(response.headers().get(CONTENT_ENCODING).toString(), is("gzip"));
+        assertThat(decodedPayload(response), is(LARGE_PAYLOAD + "b"));
+    }
+
+    @Test
+    public void emptyResponseIsNotCompressed() throws Exception {
+        final StreamingHttpResponse response = handle(newFilter(new CompressionPolicy.Builder().minSize(1)),
+                reqRespFactory::ok);
+
+        assertThat(response.headers().get(CONTENT_ENCODING), is(nullValue()));
+        assertThat(payload(response), is(""));
+    }
+
+    @Test
+    public void excludedContentTypeIsNotCompressed() throws Exception {
+        final StreamingHttpResponse response = handle(newFilter(new CompressionPolicy.Builder()
+                        .excludedContentTypes(asList("image/", "video/"))),
+                () -> reqRespFactory.ok().setHeader(CONTENT_TYPE, "Image/PNG")
+                        .payloadBody(from(buffer(LARGE_PAYLOAD))));
+
+        assertThat(response.headers().get(CONTENT_ENCODING), is(nullValue()));
+        assertThat(payload(response), is(LARGE_PAYLOAD));
+    }
+
+    @Test
+    public void poorlyCompressingRouteBacksOff() throws Exception {
+        final ContentCodingHttpServiceFilter filter = newFilter(new CompressionPolicy.Builder()
+                .minSize(0)
+                .excludedContentTypes(emptyList())
+                .sampleInterval(2));
+        final Supplier<StreamingHttpResponse> service = randomPayload();
+
+        // The first response is sampled and shows that the route does not compress well.
+        StreamingHttpResponse response = handle(filter, service);
+        assertThat(response.headers().get(CONTENT_ENCODING).toString(), is("gzip"));
+        response.payloadBody().ignoreElements().toFuture().get();
+
+        response = handle(filter, service);
+        assertThat(response.headers().get(CONTENT_ENCODING), is(nullValue()));
+        response.payloadBody().ignoreElements().toFuture().get();
+
+        // Backed off routes are still sampled.
+        response = handle(filter, service);
+        assertThat(response.headers().get(CONTENT_ENCODING).toString(), is("gzip"));
+    }
+
+    @Test
+    public void smallResponseDoesNotTakeSample() throws Exception {
+        final ContentCodingHttpServiceFilter filter = newFilter(new CompressionPolicy.Builder()
+                .minSize(100)
+                .excludedContentTypes(emptyList())
+                .sampleInterval(2));
+
+        StreamingHttpResponse response = handle(filter, () -> reqRespFactory.ok().payloadBody(from(buffer("hello"))));
+        assertThat(response.headers().get(CONTENT_ENCODING), is(nullValue()));
+        assertThat(payload(response), is("hello"));
+
+        // The sample is taken by the first compressed response, which shows that the route does not compress well.
+        response = handle(filter, randomPayload());
+        assertThat(response.headers().get(CONTENT_ENCODING).toString(), is("gzip"));
+        response.payloadBody().ignoreElements().toFuture().get();
+
+        response = handle(filter, randomPayload());
+        assertThat(response.headers().get(CONTENT_ENCODING), is(nullValue()));
+    }
+
+    @Test
+    public void leastRecentlyUsedRouteIsEvicted() throws Exception {
+        final ContentCodingHttpServiceFilter filter = newFilter(new CompressionPolicy.Builder()
+                .minSize(0)
+                .excludedContentTypes(emptyList())
+                .sampleInterval(2)
+                .maxRoutes(1));
+
+        StreamingHttpResponse response = handle(filter, "/a", randomPayload());
+        assertThat(response.headers().get(CONTENT_ENCODING).toString(), is("gzip"));
+        response.payloadBody().ignoreElements().toFuture().get();
+
+        // A new route evicts the first one and is sampled.
+        response = handle(filter, "/b", randomPayload());
+        assertThat(response.headers().get(CONTENT_ENCODING).toString(), is("gzip"));
+        response.payloadBody().ignoreElements().toFuture().get();
+
+        response = handle(filter, "/b", randomPayload());
+        assertThat(response.headers().get(CONTENT_ENCODING), is(nullValue()));
+        response.payloadBody().ignoreElements().toFuture().get();
+
+        // The evicted route starts over.
+        response = handle(filter, "/a", randomPayload());
+        assertThat(response.headers().get(CONTENT_ENCODING).toString(), is("gzip"));
+    }
+
+    @Test
+    public void cancelBeforeFirstItemCancelsPayload() throws Exception {
+        final TestPublisher<Buffer> payload = new TestPublisher.Builder<Buffer>().disableAutoOnSubscribe().build();
+        final TestSubscription subscription = new TestSubscription();
+        final StreamingHttpService service = (ctx, request, responseFactory) ->
+                succeeded(reqRespFactory.ok().payloadBody(payload));
+        final Future<StreamingHttpResponse> response = newFilter(new CompressionPolicy.Builder().minSize(100))
+                .create(service).handle(ctx, reqRespFactory.get("/path").setHeader(ACCEPT_ENCODING, "gzip"),
+                        reqRespFactory).toFuture();
+        payload.onSubscribe(subscription);
+        assertThat(subscription.requested(), is(1L));
+
+        response.cancel(true);
+        assertThat(subscription.isCancelled(), is(true));
+    }
+
+    private static ContentCodingHttpServiceFilter newFilter(final CompressionPolicy.Builder policy) {
+        return new ContentCodingHttpServiceFilter(emptyList(), asList(gzipDefault(), identity()), policy.build());
+    }
+
+    private Supplier<StreamingHttpResponse> randomPayload() {
+        final byte[] random = new byte[1024];
+        new Random(42).nextBytes(random);
+        return () -> reqRespFactory.ok().payloadBody(from(DEFAULT_ALLOCATOR.wrap(random)));
+    }
+
+    private StreamingHttpResponse handle(final ContentCodingHttpServiceFilter filter,
+                                         final Supplier<StreamingHttpResponse> response) throws Exception {
+        return handle(filter, "/path", response);
+    }
+
+    private StreamingHttpResponse handle(final ContentCodingHttpServiceFilter filter, final String path,
+                                         final Supplier<StreamingHttpResponse> response) throws Exception {
+        final StreamingHttpService service = (ctx, request, responseFactory) ->
+                succeeded(response.get());
+        return filter.create(service).handle(ctx, reqRespFactory.get(path).setHeader(ACCEPT_ENCODING, "gzip"),
+                reqRespFactory).toFuture().get();
+    }
+
+    private static Buffer buffer(final String content) {
+        return DEFAULT_ALLOCATOR.fromAscii(content);
+    }
+
+    private static String payload(final StreamingHttpResponse response) throws Exception {
+        return response.payloadBody().collect(StringBuilder::new, (sb, buffer) -> sb.append(buffer.toString(US_ASCII)))
+                .toFuture().get().toString();
+    }
+
+    private static String decodedPayload(final StreamingHttpResponse response) throws Exception {
+        return gzipDefault().decode(response.payloadBody(), DEFAULT_ALLOCATOR)
+                .collect(StringBuilder::new, (sb, buffer) -> sb.append(buffer.toString(US_ASCII)))
+                .toFuture().get().toString();
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.http.api;
+
+import io.servicetalk.concurrent.api.TestPublisher;
+import io.servicetalk.concurrent.api.TestSubscription;
+import io.servicetalk.concurrent.internal.DuplicateSubscribeException;
+import io.servicetalk.concurrent.internal.ServiceTalkTestTimeout;
+import io.servicetalk.concurrent.test.internal.TestPublisherSubscriber;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import java.util.concurrent.Future;
+
+import static io.servicetalk.concurrent.api.SourceAdapters.toSource;
+import static io.servicetalk.concurrent.internal.DeliberateException.DELIBERATE_EXCEPTION;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class FirstItemPeekingPublisherTest {
+    @Rule
+    public final Timeout timeout = new ServiceTalkTestTimeout();
+
+    private final TestPublisher<String> source = new TestPublisher<>();
+    private final TestSubscription subscription = new TestSubscription();
+    private final TestPublisherSubscriber<String> subscriber = new TestPublisherSubscriber<>();
+
+    @Test
+    public void firstItemIsAvailableBeforeSubscribe() throws Exception {
+        final FirstItemPeekingPublisher<String> peeking = FirstItemPeekingPublisher.peek(source);
+        source.onSubscribe(subscription);
+        assertThat(subscription.requested(), is(1L));
+        source.onNext("a");
+        assertThat(peeking.firstItem().toFuture().get(), is("a"));
+
+        toSource(peeking).subscribe(subscriber);
+        subscriber.awaitSubscription().request(2);
+        assertThat(subscriber.takeOnNext(), is("a"));
+        assertThat(subscription.requested(), is(2L));
+        source.onNext("b");
+        source.onComplete();
+        assertThat(subscriber.takeOnNext(), is("b"));
+        subscriber.awaitOnComplete();
+    }
+
+    @Test
+    public void demandBeforeFirstItemIsForwarded() throws Exception {
+        final FirstItemPeekingPublisher<String> peeking = FirstItemPeekingPublisher.peek(source);
+        source.onSubscribe(subscription);
+        toSource(peeking).subscribe(subscriber);
+        subscriber.awaitSubscription().request(3);
+        assertThat(subscription.requested(), is(1L));
+
+        source.onNext("a");
+        assertThat(subscriber.takeOnNext(), is("a"));
+        assertThat(peeking.firstItem().toFuture().get(), is("a"));
+        assertThat(subscription.requested(), is(3L));
+    }
+
+    @Test
+    public void emptyCompletesWithNull() throws Exception {
+        final FirstItemPeekingPublisher<String> peeking = FirstItemPeekingPublisher.peek(source);
+        source.onSubscribe(subscription);
+        source.onComplete();
+        assertThat(peeking.firstItem().toFuture().get(), is(nullValue()));
+
+        toSource(peeking).subscribe(subscriber);
+        subscriber.awaitOnComplete();
+    }
+
+    @Test
+    public void errorCompletesWithNullAndIsDelivered() throws Exception {
+        final FirstItemPeekingPublisher<String> peeking = FirstItemPeekingPublisher.peek(source);
+        source.onSubscribe(subscription);
+        source.onError(DELIBERATE_EXCEPTION);
+        assertThat(peeking.firstItem().toFuture().get(), is(nullValue()));
+
+        toSource(peeking).subscribe(subscriber);
+        assertThat(subscriber.awaitOnError(), is(sameInstance(DELIBERATE_EXCEPTION)));
+    }
+
+    @Test
+    public void errorAfterFirstItemIsDeliveredAfterFirstItem() throws Exception {
+        final FirstItemPeekingPublisher<String> peeking = FirstItemPeekingPublisher.peek(source);
+        source.onSubscribe(subscription);
+        source.onNext("a");
+        source.onError(DELIBERATE_EXCEPTION);
+
+        toSource(peeking).subscribe(subscriber);
+        subscriber.awaitSubscription().request(1);
+        assertThat(subscriber.takeOnNext(), is("a"));
+        assertThat(subscriber.awaitOnError(), is(sameInstance(DELIBERATE_EXCEPTION)));
+    }
+
+    @Test
+    public void cancelCancelsUpstream() {
+        final FirstItemPeekingPublisher<String> peeking = FirstItemPeekingPublisher.peek(source);
+        source.onSubscribe(subscription);
+        source.onNext("a");
+
+        toSource(peeking).subscribe(subscriber);
+        subscriber.awaitSubscription().cancel();
+        assertThat(subscription.isCancelled(), is(true));
+        subscriber.awaitSubscription().request(1);
+        assertThat(subscriber.pollOnNext(10, MILLISECONDS), is(nullValue()));
+    }
+
+    @Test
+    public void cancelBeforeUpstreamSubscription() {
+        final TestPublisher<String> source = new TestPublisher.Builder<String>().disableAutoOnSubscribe().build();
+        final FirstItemPeekingPublisher<String> peeking = FirstItemPeekingPublisher.peek(source);
+        toSource(peeking).subscribe(subscriber);
+        subscriber.awaitSubscription().cancel();
+
+        source.onSubscribe(subscription);
+        assertThat(subscription.isCancelled(), is(true));
+        assertThat(subscription.requested(), is(0L));
+    }
+
+    @Test
+    public void cancelFirstItemBeforeFirstItemCancelsUpstream() {
+        final FirstItemPeekingPublisher<String> peeking = FirstItemPeekingPublisher.peek(source);
+        source.onSubscribe(subscription);
+        peeking.firstItem().toFuture().cancel(true);
+        assertThat(subscription.isCancelled(), is(true));
+    }
+
+    @Test
+    public void cancelFirstItemAfterFirstItemDoesNotCancelUpstream() throws Exception {
+        final FirstItemPeekingPublisher<String> peeking = FirstItemPeekingPublisher.peek(source);
+        source.onSubscribe(subscription);
+        source.onNext("a");
+        final Future<String> firstItem = peeking.firstItem().toFuture();
+        assertThat(firstItem.get(), is("a"));
+        firstItem.cancel(true);
+        assertThat(subscription.isCancelled(), is(false));
+
+        toSource(peeking).subscribe(subscriber);
+        subscriber.awaitSubscription().request(1);
+        assertThat(subscriber.takeOnNext(), is("a"));
+    }
+
+    @Test
+    public void duplicateSubscribeIsRejected() {
+        final FirstItemPeekingPublisher<String> peeking = FirstItemPeekingPublisher.peek(source);
+        toSource(peeking).subscribe(subscriber);
+        final TestPublisherSubscriber<String> other = new TestPublisherSubscriber<>();
+        toSource(peeking).subscribe(other);
+        assertThat(other.awaitOnError(), is(instanceOf(DuplicateSubscribeException.class)));
+    }
+}
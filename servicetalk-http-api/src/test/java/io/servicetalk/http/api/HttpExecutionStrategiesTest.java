@@ -1,5 +1,5 @@
 /*
- * Copyright © 2018 Apple Inc. and the ServiceTalk project authors
+ * Copyright © 2018-2021 Apple Inc. and the ServiceTalk project authors
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -23,11 +23,16 @@ import static io.servicetalk.http.api.HttpExecutionStrategies.customStrategyBuil
 import static io.servicetalk.http.api.HttpExecutionStrategies.defaultStrategy;
 import static io.servicetalk.http.api.HttpExecutionStrategies.difference;
 import static io.servicetalk.http.api.HttpExecutionStrategies.noOffloadsStrategy;
+import static io.servicetalk.http.api.HttpExecutionStrategies.virtualThreadStrategy;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
 import static org.hamcrest.Matchers.sameInstance;
+import static org.hamcrest.Matchers.startsWith;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assume.assumeNoException;
+import static org.junit.Assume.assumeTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -41,6 +46,47 @@ public class HttpExecutionStrategiesTest {
         assertThat("receive data not offloaded by default.", strategy.isDataReceiveOffloaded(), is(true));
     }
 
+    @Test
+    public void virtualThreadShouldOffloadAllToSharedExecutor() {
+        final HttpExecutionStrategy strategy;
+        try {
+            strategy = virtualThreadStrategy();
+        } catch (UnsupportedOperationException e) {
+            assumeNoException("Virtual threads are not available", e);
+            return;
+        }
+        assertThat("send not offloaded.", strategy.isSendOffloaded(), is(true));
+        assertThat("receive meta not offloaded.", strategy.isMetadataReceiveOffloaded(), is(true));
+        assertThat("receive data not offloaded.", strategy.isDataReceiveOffloaded(), is(true));
+        assertThat("Executor not shared.", strategy.executor(), sameInstance(virtualThreadStrategy().executor()));
+    }
+
+    @Test
+    public void virtualThreadRunsTasksOnVirtualThreads() throws Exception {
+        final HttpExecutionStrategy strategy;
+        try {
+            strategy = virtualThreadStrategy();
+        } catch (UnsupportedOperationException e) {
+            assumeNoException("Virtual threads are not available", e);
+            return;
+        }
+        final Executor executor = strategy.executor();
+        assertThat("No executor.", executor, is(notNullValue()));
+        assertThat("Unexpected thread.", executor.submit(() -> Thread.currentThread().getName()).toFuture().get(),
+                startsWith("servicetalk-virtual-executor-"));
+    }
+
+    @Test
+    public void virtualThreadUnavailableFailsOnEveryCall() {
+        try {
+            virtualThreadStrategy();
+        } catch (UnsupportedOperationException e) {
+            assertThrows(UnsupportedOperationException.class, HttpExecutionStrategies::virtualThreadStrategy);
+            return;
+        }
+        assumeTrue("Virtual threads are available", false);
+    }
+
     @Test
     public void noOffloadsWithExecutor() {
         Executor executor = mock(Executor.class);
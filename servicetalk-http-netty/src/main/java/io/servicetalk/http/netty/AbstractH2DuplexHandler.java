@@ -39,6 +39,7 @@ import javax.annotation.Nullable;
 
 import static io.netty.buffer.Unpooled.EMPTY_BUFFER;
 import static io.netty.handler.codec.http.HttpHeaderNames.CONTENT_LENGTH;
+import static io.servicetalk.buffer.netty.BufferUtils.newBufferFrom;
 import static io.servicetalk.buffer.netty.BufferUtils.toByteBuf;
 import static io.servicetalk.http.netty.H2ToStH1Utils.h1HeadersToH2Headers;
 import static io.servicetalk.http.netty.Http2Exception.newStreamResetException;
@@ -61,15 +62,17 @@ abstract class AbstractH2DuplexHandler extends ChannelDuplexHandler {
     final HttpHeadersFactory headersFactory;
     final CloseHandler closeHandler;
     private final StreamObserver observer;
+    private final boolean pooledPayloadBody;
     private long contentLength = Long.MIN_VALUE;
     private long seenContentLength;
 
     AbstractH2DuplexHandler(BufferAllocator allocator, HttpHeadersFactory headersFactory, CloseHandler closeHandler,
-                            StreamObserver observer) {
+                            StreamObserver observer, boolean pooledPayloadBody) {
         this.allocator = allocator;
         this.headersFactory = headersFactory;
         this.closeHandler = closeHandler;
         this.observer = observer;
+        this.pooledPayloadBody = pooledPayloadBody;
     }
 
     @Override
@@ -81,8 +84,8 @@ abstract class AbstractH2DuplexHandler extends ChannelDuplexHandler {
         }
     }
 
-    static void writeBuffer(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
-        ctx.write(new DefaultHttp2DataFrame(encodeAndRetain((Buffer) msg), false), promise);
+    final void writeBuffer(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+        ctx.write(new DefaultHttp2DataFrame(encodeAndRetain((Buffer) msg, pooledPayloadBody), false), promise);
     }
 
     final void writeTrailers(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
@@ -102,10 +105,16 @@ abstract class AbstractH2DuplexHandler extends ChannelDuplexHandler {
             final int readableBytes = dataFrame.content().readableBytes();
             if (readableBytes > 0) {
                 updateSeenContentLength(readableBytes);
-                // Copy to unpooled memory before passing to the user
-                Buffer data = allocator.newBuffer(readableBytes);
-                ByteBuf nettyData = toByteBuf(data);
-                nettyData.writeBytes(dataFrame.content());
+                final Buffer data;
+                if (pooledPayloadBody) {
+                    // The user is responsible for releasing the pooled payload body
+                    data = newBufferFrom(dataFrame.content().retain());
+                } else {
+                    // Copy to unpooled memory before passing to the user
+                    data = allocator.newBuffer(readableBytes);
+                    ByteBuf nettyData = toByteBuf(data);
+                    nettyData.writeBytes(dataFrame.content());
+                }
                 toRelease = release(dataFrame);
                 ctx.fireChannelRead(data);
             } else {
@@ -63,12 +63,14 @@ abstract class AbstractStreamingHttpConnection<CC extends NettyConnectionContext
     private final StreamingHttpRequestResponseFactory reqRespFactory;
     private final HttpHeadersFactory headersFactory;
     private final boolean allowDropTrailersReadFromTransport;
+    private final boolean pooledPayloadBody;
 
     AbstractStreamingHttpConnection(final CC conn, final int maxPipelinedRequests,
                                     final HttpExecutionContext executionContext,
                                     final StreamingHttpRequestResponseFactory reqRespFactory,
                                     final HttpHeadersFactory headersFactory,
-                                    final boolean allowDropTrailersReadFromTransport) {
+                                    final boolean allowDropTrailersReadFromTransport,
+                                    final boolean pooledPayloadBody) {
         this.connection = requireNonNull(conn);
         this.connectionContext = new DefaultNettyHttpConnectionContext(conn, executionContext);
         this.executionContext = requireNonNull(executionContext);
@@ -77,6 +79,7 @@ abstract class AbstractStreamingHttpConnection<CC extends NettyConnectionContext
                 .concat(connection.onClosing()).concat(succeeded(ZERO_MAX_CONCURRECNY_EVENT));
         this.headersFactory = headersFactory;
         this.allowDropTrailersReadFromTransport = allowDropTrailersReadFromTransport;
+        this.pooledPayloadBody = pooledPayloadBody;
     }
 
     @Override
@@ -111,14 +114,17 @@ abstract class AbstractStreamingHttpConnection<CC extends NettyConnectionContext
                         .scanWith(HeaderUtils::insertTrailersMapper);
                 addRequestTransferEncodingIfNecessary(request);
             }
-            return strategy.invokeClient(executionContext.executor(), flatRequest,
-                    determineFlushStrategyForApi(request), this).subscribeShareContext();
+            final Single<StreamingHttpResponse> response = strategy.invokeClient(executionContext.executor(),
+                    flatRequest, determineFlushStrategyForApi(request), this);
+            return (pooledPayloadBody ? response.map(AbstractStreamingHttpConnection::allowPooledPayloadBody) :
+                    response).subscribeShareContext();
         });
     }
 
     @Nullable
     static FlushStrategy determineFlushStrategyForApi(final HttpMetaData request) {
-        // For non-aggregated, don't change the flush strategy, keep the default.
+        // For non-aggregated, don't change the flush strategy, keep the default. For aggregated, an adaptive default
+        // is kept as it already coalesces the writes of a message, see FlushStrategies.isAdaptiveFlush.
         return isSafeToAggregate(request) ? flushOnEnd() : null;
     }
 
@@ -130,9 +136,21 @@ abstract class AbstractStreamingHttpConnection<CC extends NettyConnectionContext
     protected abstract Publisher<Object> writeAndRead(Publisher<Object> stream,
                                                       @Nullable FlushStrategy flushStrategy);
 
+    private static StreamingHttpResponse allowPooledPayloadBody(final StreamingHttpResponse response) {
+        final Publisher<Object> messageBody = response.messageBody();
+        if (messageBody instanceof CopyingPayloadBodyPublisher) {
+            // The response payload body is not offloaded, so PooledPayloadBodies can pass pooled buffers.
+            ((CopyingPayloadBodyPublisher) messageBody).allowPooled();
+        }
+        return response;
+    }
+
     private StreamingHttpResponse newSplicedResponse(HttpResponseMetaData meta, Publisher<Object> pub) {
         return newTransportResponse(meta.status(), meta.version(), meta.headers(),
-                executionContext.bufferAllocator(), pub, allowDropTrailersReadFromTransport, headersFactory);
+                executionContext.bufferAllocator(),
+                // Only PooledPayloadBodies passes the pooled payload body to the user, everything else observes copies.
+                pooledPayloadBody ? new CopyingPayloadBodyPublisher(pub, executionContext.bufferAllocator()) : pub,
+                allowDropTrailersReadFromTransport, headersFactory);
     }
 
     @Override
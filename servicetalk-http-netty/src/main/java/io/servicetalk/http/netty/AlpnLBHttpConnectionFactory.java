@@ -90,7 +90,8 @@ final class AlpnLBHttpConnectionFactory<ResolvedAddress> extends AbstractLBHttpC
                     return H2ClientParentConnectionContext.initChannel(channel,
                             executionContext.bufferAllocator(), executionContext.executor(),
                             h2Config, reqRespFactoryFunc.apply(HttpProtocolVersion.HTTP_2_0), tcpConfig.flushStrategy(),
-                            tcpConfig.idleTimeoutMs(), executionContext.executionStrategy(),
+                            tcpConfig.idleTimeoutMs(), tcpConfig.writeDemandEstimatorSupplier(),
+                            executionContext.executionStrategy(),
                             new H2ClientParentChannelInitializer(h2Config), connectionObserver,
                             config.allowDropTrailersReadFromTransport());
                 default:
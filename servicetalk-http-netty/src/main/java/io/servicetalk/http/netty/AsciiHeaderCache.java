@@ -0,0 +1,144 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.http.netty;
+
+import io.netty.buffer.ByteBuf;
+
+import javax.annotation.Nullable;
+
+import static io.netty.buffer.Unpooled.wrappedBuffer;
+import static io.servicetalk.buffer.api.CharSequences.newAsciiString;
+import static io.servicetalk.buffer.netty.BufferUtils.newBufferFrom;
+
+/**
+ * A bounded cache of immutable header names or values, used to avoid allocating a new {@link CharSequence} for headers
+ * which are repeated on every message of a connection.
+ * <p>
+ * The cache is direct mapped: each entry has a single slot determined by the hash of its bytes. To avoid caching
+ * values which only appear once (e.g. request ids), and replacing entries with them, a slot is only filled when the
+ * same hash is seen twice in a row for that slot. Only well-known entries are cached on creation. This class is not
+ * thread safe and is expected to be used by a single connection.
+ */
+final class AsciiHeaderCache {
+    /**
+     * Longer names or values are not cached, they are unlikely to be repeated (e.g. cookies, tokens) and would increase
+     * the cost of a lookup.
+     */
+    static final int MAX_CACHED_LENGTH = 64;
+    /**
+     * Marks a slot which has a candidate, any {@code int} is a valid hash.
+     */
+    private static final long CANDIDATE = 1L << 32;
+
+    private final int mask;
+    private final byte[][] keys;
+    private final CharSequence[] entries;
+    private final long[] candidates;
+
+    /**
+     * Create a new instance.
+     *
+     * @param size the number of slots, must be a power of 2.
+     * @param wellKnown entries to pre-populate the cache with. These instances are returned when their content matches.
+     */
+    AsciiHeaderCache(final int size, final CharSequence... wellKnown) {
+        if (size <= 0 || (size & (size - 1)) != 0) {
+            throw new IllegalArgumentException("size: " + size + " (expected >0 and a power of 2)");
+        }
+        mask = size - 1;
+        keys = new byte[size][];
+        entries = new CharSequence[size];
+        candidates = new long[size];
+        for (CharSequence entry : wellKnown) {
+            final byte[] key = new byte[entry.length()];
+            for (int i = 0; i < key.length; ++i) {
+                key[i] = (byte) entry.charAt(i);
+            }
+            final int slot = slot(hash(key));
+            if (entries[slot] == null) {
+                keys[slot] = key;
+                entries[slot] = entry;
+            }
+        }
+    }
+
+    /**
+     * Get the cached {@link CharSequence} for the specified bytes, adding it to the cache if it is seen twice in a row.
+     *
+     * @param buffer the {@link ByteBuf} which contains the bytes.
+     * @param index the index of the first byte.
+     * @param length the number of bytes.
+     * @return the cached {@link CharSequence} or {@code null} if the bytes are not cached and the caller is expected to
+     * create a new {@link CharSequence} instead.
+     */
+    @Nullable
+    CharSequence get(final ByteBuf buffer, final int index, final int length) {
+        if (length > MAX_CACHED_LENGTH) {
+            return null;
+        }
+        final int hash = hash(buffer, index, length);
+        final int slot = slot(hash);
+        final byte[] key = keys[slot];
+        if (key != null && contentEquals(key, buffer, index, length)) {
+            return entries[slot];
+        }
+        final long candidate = CANDIDATE | (hash & 0xFFFFFFFFL);
+        if (candidates[slot] != candidate) {
+            candidates[slot] = candidate;
+            return null;
+        }
+        candidates[slot] = 0;
+        final byte[] newKey = new byte[length];
+        buffer.getBytes(index, newKey);
+        // The entry is shared by all messages of the connection, so it can not reference the pooled input buffer.
+        final CharSequence entry = newAsciiString(newBufferFrom(wrappedBuffer(newKey)));
+        keys[slot] = newKey;
+        entries[slot] = entry;
+        return entry;
+    }
+
+    private int slot(final int hash) {
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private static int hash(final byte[] bytes) {
+        int hash = 1;
+        for (byte b : bytes) {
+            hash = 31 * hash + b;
+        }
+        return hash;
+    }
+
+    private static int hash(final ByteBuf buffer, final int index, final int length) {
+        int hash = 1;
+        for (int i = index; i < index + length; ++i) {
+            hash = 31 * hash + buffer.getByte(i);
+        }
+        return hash;
+    }
+
+    private static boolean contentEquals(final byte[] key, final ByteBuf buffer, final int index, final int length) {
+        if (key.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; ++i) {
+            if (key[i] != buffer.getByte(index + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.http.netty;
+
+import io.servicetalk.buffer.api.Buffer;
+import io.servicetalk.buffer.api.BufferAllocator;
+import io.servicetalk.concurrent.api.Publisher;
+import io.servicetalk.concurrent.api.internal.SubscribablePublisher;
+
+import static io.servicetalk.buffer.netty.BufferUtils.release;
+import static io.servicetalk.concurrent.api.SourceAdapters.toSource;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Wraps a message body read from a transport which is configured to use the pooled payload body. Every pooled
+ * {@link Buffer} is copied to memory from the {@link BufferAllocator} and released before it is passed downstream,
+ * unless the message body is subscribed via {@link #subscribePooled(Publisher, Subscriber)} and the pooled
+ * {@link Buffer}s are allowed via {@link #allowPooled()}.
+ * <p>
+ * The request to subscribe to the pooled {@link Buffer}s is passed from {@link #subscribePooled(Publisher, Subscriber)}
+ * via a {@link ThreadLocal}, so it is only observed if all operators between the user and this {@link Publisher}
+ * subscribe synchronously. Anything which subscribes on a different thread (e.g. offloading) or subscribes on behalf of
+ * the transport (e.g. draining the request payload body) observes copies.
+ */
+final class CopyingPayloadBodyPublisher extends SubscribablePublisher<Object> {
+
+    private static final ThreadLocal<Boolean> SUBSCRIBE_POOLED = new ThreadLocal<>();
+
+    private final Publisher<Object> pooledMessageBody;
+    private final BufferAllocator allocator;
+    private volatile boolean pooledAllowed;
+
+    @SuppressWarnings("unchecked")
+    CopyingPayloadBodyPublisher(final Publisher<?> pooledMessageBody, final BufferAllocator allocator) {
+        this.pooledMessageBody = (Publisher<Object>) requireNonNull(pooledMessageBody);
+        this.allocator = requireNonNull(allocator);
+    }
+
+    /**
+     * Allows passing the pooled {@link Buffer}s downstream. Must only be called if nothing which may hold on to a
+     * {@link Buffer} without releasing it (e.g. an offloading queue) is between the user and this {@link Publisher}.
+     */
+    void allowPooled() {
+        pooledAllowed = true;
+    }
+
+    /**
+     * Subscribes to the passed message body and requests the pooled {@link Buffer}s from the
+     * {@link CopyingPayloadBodyPublisher} it is composed of, if any.
+     *
+     * @param messageBody the message body to subscribe
+     * @param subscriber the {@link Subscriber} of the message body
+     * @param <T> the type of items emitted by the message body
+     */
+    static <T> void subscribePooled(final Publisher<T> messageBody, final Subscriber<? super T> subscriber) {
+        SUBSCRIBE_POOLED.set(Boolean.TRUE);
+        try {
+            toSource(messageBody).subscribe(subscriber);
+        } finally {
+            SUBSCRIBE_POOLED.remove();
+        }
+    }
+
+    @Override
+    protected void handleSubscribe(final Subscriber<? super Object> subscriber) {
+        final boolean subscribePooled = SUBSCRIBE_POOLED.get() != null;
+        if (subscribePooled) {
+            // Consume the request, so nested subscribes to other message bodies observe copies.
+            SUBSCRIBE_POOLED.remove();
+        }
+        toSource(subscribePooled && pooledAllowed ? pooledMessageBody : pooledMessageBody.map(this::copy))
+                .subscribe(subscriber);
+    }
+
+    private Object copy(final Object item) {
+        if (!(item instanceof Buffer)) {
+            return item;
+        }
+        final Buffer pooled = (Buffer) item;
+        try {
+            return allocator.newBuffer(pooled.readableBytes()).writeBytes(pooled);
+        } finally {
+            release(pooled);
+        }
+    }
+}
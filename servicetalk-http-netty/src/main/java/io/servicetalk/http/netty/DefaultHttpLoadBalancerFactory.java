@@ -34,7 +34,13 @@ import io.servicetalk.http.api.HttpRequestMethod;
 import io.servicetalk.http.api.StreamingHttpRequest;
 import io.servicetalk.http.api.StreamingHttpResponse;
 import io.servicetalk.http.api.StreamingHttpResponseFactory;
+import io.servicetalk.loadbalancer.ConnectionAffinity;
+import io.servicetalk.loadbalancer.P2CLoadBalancer.P2CLoadBalancerFactory;
 import io.servicetalk.loadbalancer.RoundRobinLoadBalancer.RoundRobinLoadBalancerFactory;
+import io.servicetalk.transport.netty.internal.NettyConnectionContext;
+
+import io.netty.channel.EventLoop;
+import io.netty.util.internal.ThreadExecutorMap;
 
 import static io.servicetalk.http.api.HttpExecutionStrategyInfluencer.defaultStreamingInfluencer;
 import static io.servicetalk.loadbalancer.RoundRobinLoadBalancer.newRoundRobinFactory;
@@ -58,6 +64,26 @@ public final class DefaultHttpLoadBalancerFactory<ResolvedAddress>
         this.strategyInfluencer = strategyInfluencer;
     }
 
+    /**
+     * Returns a {@link ConnectionAffinity} which prefers connections bound to the IO thread selecting a connection,
+     * for use with {@link RoundRobinLoadBalancerFactory.Builder#connectionAffinity(ConnectionAffinity)}.
+     * <p>
+     * When a request is issued from an IO thread of the client, for example by a service which proxies requests
+     * without offloading, a connection bound to the same IO thread is selected, or created if none is available.
+     * This avoids a thread hop for every write at the cost of more connections: up to one connection per IO thread
+     * and host, times the number of concurrent requests a connection cannot serve. Requests issued from other threads
+     * select connections as usual.
+     * <p>
+     * New connections are only bound to the IO thread which creates them if
+     * {@link io.servicetalk.transport.api.ServiceTalkSocketOptions#CONNECTION_AFFINITY} is enabled on the client
+     * builder, which is required when using this {@link ConnectionAffinity}.
+     *
+     * @return a {@link ConnectionAffinity} which prefers connections bound to the IO thread selecting a connection.
+     */
+    public static ConnectionAffinity<FilterableStreamingHttpLoadBalancedConnection> eventLoopAffinity() {
+        return EventLoopAffinity.INSTANCE;
+    }
+
     @Override
     public <T extends FilterableStreamingHttpLoadBalancedConnection> LoadBalancer<T> newLoadBalancer(
             final Publisher<? extends ServiceDiscovererEvent<ResolvedAddress>> eventPublisher,
@@ -129,6 +155,8 @@ public final class DefaultHttpLoadBalancerFactory<ResolvedAddress>
                 strategyInfluencer = (HttpExecutionStrategyInfluencer) rawFactory;
             } else if (rawFactory instanceof RoundRobinLoadBalancerFactory) {
                 strategyInfluencer = strategy -> strategy; // RoundRobinLoadBalancer is non-blocking.
+            } else if (rawFactory instanceof P2CLoadBalancerFactory) {
+                strategyInfluencer = strategy -> strategy; // P2CLoadBalancer is non-blocking.
             } else {
                 // user provided load balancer assumed to be blocking unless it implements
                 // HttpExecutionStrategyInfluencer
@@ -138,6 +166,28 @@ public final class DefaultHttpLoadBalancerFactory<ResolvedAddress>
         }
     }
 
+    private static final class EventLoopAffinity
+            implements ConnectionAffinity<FilterableStreamingHttpLoadBalancedConnection> {
+        static final ConnectionAffinity<FilterableStreamingHttpLoadBalancedConnection> INSTANCE =
+                new EventLoopAffinity();
+
+        private EventLoopAffinity() {
+            // singleton
+        }
+
+        @Override
+        public boolean isAffineThread() {
+            return ThreadExecutorMap.currentExecutor() instanceof EventLoop;
+        }
+
+        @Override
+        public boolean hasAffinity(final FilterableStreamingHttpLoadBalancedConnection connection) {
+            final HttpConnectionContext connectionContext = connection.connectionContext();
+            return connectionContext instanceof NettyConnectionContext &&
+                    ((NettyConnectionContext) connectionContext).nettyChannel().eventLoop().inEventLoop();
+        }
+    }
+
     private static final class DefaultFilterableStreamingHttpLoadBalancedConnection
             implements FilterableStreamingHttpLoadBalancedConnection {
 
@@ -1,5 +1,5 @@
 /*
- * Copyright © 2018 Apple Inc. and the ServiceTalk project authors
+ * Copyright © 2018, 2021 Apple Inc. and the ServiceTalk project authors
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -31,6 +31,9 @@ import java.net.InetSocketAddress;
  * <p>
  * A lazily initialized singleton DNS {@link ServiceDiscoverer} using a default {@link ExecutionContext}, the lifecycle
  * of this instance shouldn't need to be managed by the user. Don't attempt to close the {@link ServiceDiscoverer}.
+ * <p>
+ * All clients which use it share the discoveries of the same name, so the number of DNS queries doesn't grow with the
+ * number of clients.
  */
 final class GlobalDnsServiceDiscoverer {
     private static final Logger LOGGER = LoggerFactory.getLogger(GlobalDnsServiceDiscoverer.class);
@@ -61,7 +64,7 @@ final class GlobalDnsServiceDiscoverer {
 
     private static final class HostAndPortClientInitializer {
         static final ServiceDiscoverer<HostAndPort, InetSocketAddress, ServiceDiscovererEvent<InetSocketAddress>>
-                HOST_PORT_SD = new DefaultDnsServiceDiscovererBuilder().buildARecordDiscoverer();
+                HOST_PORT_SD = new DefaultDnsServiceDiscovererBuilder().shareDiscoveries(true).buildARecordDiscoverer();
 
         static {
             LOGGER.debug("Initialized HostAndPortClientInitializer");
@@ -74,7 +77,7 @@ final class GlobalDnsServiceDiscoverer {
 
     private static final class SrvClientInitializer {
         static final ServiceDiscoverer<String, InetSocketAddress, ServiceDiscovererEvent<InetSocketAddress>> SRV_SD =
-                new DefaultDnsServiceDiscovererBuilder().buildSrvDiscoverer();
+                new DefaultDnsServiceDiscovererBuilder().shareDiscoveries(true).buildSrvDiscoverer();
 
         static {
             LOGGER.debug("Initialized SrvClientInitializer");
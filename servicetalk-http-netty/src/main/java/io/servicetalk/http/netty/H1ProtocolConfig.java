@@ -15,6 +15,7 @@
  */
 package io.servicetalk.http.netty;
 
+import io.servicetalk.buffer.api.Buffer;
 import io.servicetalk.http.api.HttpClient;
 import io.servicetalk.http.api.HttpProtocolConfig;
 
@@ -94,4 +95,16 @@ public interface H1ProtocolConfig extends HttpProtocolConfig {
      * @return exceptions for <a href="https://tools.ietf.org/html/rfc7230">HTTP/1.1</a> specification
      */
     H1SpecExceptions specExceptions();
+
+    /**
+     * Determines if the payload body is read from the transport into pooled, reference counted {@link Buffer}s which
+     * can be accessed via {@link PooledPayloadBodies}.
+     * <p>
+     * Every other way of consuming the payload body observes copies in unpooled memory. Headers and trailers are
+     * always copied and never need to be released.
+     *
+     * @return {@code true} if the payload body is available in pooled, reference counted {@link Buffer}s via
+     * {@link PooledPayloadBodies}
+     */
+    boolean pooledPayloadBody();
 }
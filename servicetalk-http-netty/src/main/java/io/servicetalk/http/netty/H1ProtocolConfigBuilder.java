@@ -15,6 +15,7 @@
  */
 package io.servicetalk.http.netty;
 
+import io.servicetalk.buffer.api.Buffer;
 import io.servicetalk.http.api.DefaultHttpHeadersFactory;
 import io.servicetalk.http.api.HttpClient;
 import io.servicetalk.http.api.HttpHeaders;
@@ -38,6 +39,7 @@ public final class H1ProtocolConfigBuilder {
     private int headersEncodedSizeEstimate = 256;
     private int trailersEncodedSizeEstimate = 256;
     private H1SpecExceptions specExceptions = DEFAULT_H1_SPEC_EXCEPTIONS;
+    private boolean pooledPayloadBody;
 
     H1ProtocolConfigBuilder() {
     }
@@ -144,6 +146,26 @@ public final class H1ProtocolConfigBuilder {
         return this;
     }
 
+    /**
+     * Sets whether the payload body is read from the transport into pooled, reference counted {@link Buffer}s which
+     * can be accessed via {@link PooledPayloadBodies}.
+     * <p>
+     * This avoids one copy of every received payload body byte for services that forward the payload body without
+     * inspecting it (e.g. proxies). Every other way of consuming the payload body observes copies in unpooled memory,
+     * and the transport releases the pooled {@link Buffer}s after copying them. When enabled, payload body
+     * {@link Buffer}s written to the transport are owned by the transport and released after the write. See
+     * {@link PooledPayloadBodies} for the responsibilities of the user of the pooled payload body, {@link Buffer}s
+     * which are not released are reported by Netty's {@code ResourceLeakDetector}.
+     *
+     * @param pooledPayloadBody {@code true} to make the payload body available in pooled, reference counted
+     * {@link Buffer}s via {@link PooledPayloadBodies}
+     * @return {@code this}
+     */
+    public H1ProtocolConfigBuilder pooledPayloadBody(final boolean pooledPayloadBody) {
+        this.pooledPayloadBody = pooledPayloadBody;
+        return this;
+    }
+
     /**
      * Builds {@link H1ProtocolConfig}.
      *
@@ -151,7 +173,8 @@ public final class H1ProtocolConfigBuilder {
      */
     public H1ProtocolConfig build() {
         return new DefaultH1ProtocolConfig(headersFactory, maxPipelinedRequests, maxStartLineLength,
-                maxHeaderFieldLength, headersEncodedSizeEstimate, trailersEncodedSizeEstimate, specExceptions);
+                maxHeaderFieldLength, headersEncodedSizeEstimate, trailersEncodedSizeEstimate, specExceptions,
+                pooledPayloadBody);
     }
 
     private static final class DefaultH1ProtocolConfig implements H1ProtocolConfig {
@@ -163,11 +186,12 @@ public final class H1ProtocolConfigBuilder {
         private final int headersEncodedSizeEstimate;
         private final int trailersEncodedSizeEstimate;
         private final H1SpecExceptions specExceptions;
+        private final boolean pooledPayloadBody;
 
         DefaultH1ProtocolConfig(final HttpHeadersFactory headersFactory, final int maxPipelinedRequests,
                                 final int maxStartLineLength, final int maxHeaderFieldLength,
                                 final int headersEncodedSizeEstimate, final int trailersEncodedSizeEstimate,
-                                final H1SpecExceptions specExceptions) {
+                                final H1SpecExceptions specExceptions, final boolean pooledPayloadBody) {
             this.headersFactory = headersFactory;
             this.maxPipelinedRequests = maxPipelinedRequests;
             this.maxStartLineLength = maxStartLineLength;
@@ -175,6 +199,7 @@ public final class H1ProtocolConfigBuilder {
             this.headersEncodedSizeEstimate = headersEncodedSizeEstimate;
             this.trailersEncodedSizeEstimate = trailersEncodedSizeEstimate;
             this.specExceptions = specExceptions;
+            this.pooledPayloadBody = pooledPayloadBody;
         }
 
         @Override
@@ -211,5 +236,10 @@ public final class H1ProtocolConfigBuilder {
         public H1SpecExceptions specExceptions() {
             return specExceptions;
         }
+
+        @Override
+        public boolean pooledPayloadBody() {
+            return pooledPayloadBody;
+        }
     }
 }
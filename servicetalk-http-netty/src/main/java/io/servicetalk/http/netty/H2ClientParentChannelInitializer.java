@@ -29,7 +29,9 @@ import java.util.function.BiPredicate;
 
 import static io.netty.handler.codec.http2.Http2Error.PROTOCOL_ERROR;
 import static io.netty.handler.codec.http2.Http2FrameCodecBuilder.forClient;
+import static io.servicetalk.http.netty.H2ServerParentChannelInitializer.initConnectionWindow;
 import static io.servicetalk.http.netty.H2ServerParentChannelInitializer.initFrameLogger;
+import static io.servicetalk.http.netty.H2ServerParentChannelInitializer.initSettings;
 
 final class H2ClientParentChannelInitializer implements ChannelInitializer {
 
@@ -54,6 +56,7 @@ final class H2ClientParentChannelInitializer implements ChannelInitializer {
 
         // Notify server that this client does not support server push and request it to be disabled.
         multiplexCodecBuilder.initialSettings().pushEnabled(false).maxConcurrentStreams(0L);
+        initSettings(multiplexCodecBuilder.initialSettings(), config);
 
         final BiPredicate<CharSequence, CharSequence> headersSensitivityDetector =
                 config.headersSensitivityDetector();
@@ -61,10 +64,11 @@ final class H2ClientParentChannelInitializer implements ChannelInitializer {
 
         initFrameLogger(multiplexCodecBuilder, config.frameLoggerConfig());
 
-        // TODO(scott): more configuration. header validation, settings stream, etc...
+        // TODO(scott): more configuration. header validation, etc...
 
-        channel.pipeline().addLast(multiplexCodecBuilder.build(),
-                new Http2MultiplexHandler(H2PushStreamHandler.INSTANCE));
+        channel.pipeline().addLast(multiplexCodecBuilder.build());
+        initConnectionWindow(channel, config);
+        channel.pipeline().addLast(new Http2MultiplexHandler(H2PushStreamHandler.INSTANCE));
     }
 
     @ChannelHandler.Sharable
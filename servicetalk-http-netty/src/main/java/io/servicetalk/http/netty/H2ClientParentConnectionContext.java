@@ -53,6 +53,7 @@ import io.servicetalk.transport.netty.internal.FlushStrategy;
 import io.servicetalk.transport.netty.internal.NettyConnectionContext;
 import io.servicetalk.transport.netty.internal.NettyPipelineSslUtils;
 import io.servicetalk.transport.netty.internal.NoopTransportObserver.NoopMultiplexedObserver;
+import io.servicetalk.transport.netty.internal.WriteDemandEstimator;
 
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
@@ -72,6 +73,7 @@ import java.net.SocketAddress;
 import java.net.SocketOption;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.function.Supplier;
 import javax.annotation.Nullable;
 import javax.net.ssl.SSLSession;
 
@@ -94,9 +96,11 @@ import static java.util.Objects.requireNonNull;
 final class H2ClientParentConnectionContext extends H2ParentConnectionContext {
     private H2ClientParentConnectionContext(Channel channel, BufferAllocator allocator, Executor executor,
                                             FlushStrategy flushStrategy, @Nullable Long idleTimeoutMs,
+                                            Supplier<WriteDemandEstimator> writeDemandEstimatorSupplier,
                                             HttpExecutionStrategy executionStrategy,
                                             final KeepAliveManager keepAliveManager) {
-        super(channel, allocator, executor, flushStrategy, idleTimeoutMs, executionStrategy, keepAliveManager);
+        super(channel, allocator, executor, flushStrategy, idleTimeoutMs, writeDemandEstimatorSupplier,
+                executionStrategy, keepAliveManager);
     }
 
     interface H2ClientParentConnection extends FilterableStreamingHttpConnection, NettyConnectionContext {
@@ -107,6 +111,7 @@ final class H2ClientParentConnectionContext extends H2ParentConnectionContext {
                                                         StreamingHttpRequestResponseFactory reqRespFactory,
                                                         FlushStrategy parentFlushStrategy,
                                                         @Nullable Long idleTimeoutMs,
+                                                        Supplier<WriteDemandEstimator> writeDemandEstimatorSupplier,
                                                         HttpExecutionStrategy executionStrategy,
                                                         ChannelInitializer initializer,
                                                         ConnectionObserver observer,
@@ -119,10 +124,11 @@ final class H2ClientParentConnectionContext extends H2ParentConnectionContext {
                 final ChannelPipeline pipeline;
                 try {
                     delayedCancellable = new DelayedCancellable();
-                    KeepAliveManager keepAliveManager = new KeepAliveManager(channel, config.keepAlivePolicy());
+                    KeepAliveManager keepAliveManager = new KeepAliveManager(channel, config.keepAlivePolicy(),
+                            config.connectionWindowSize(), config.connectionWindowAutoTuning());
                     H2ClientParentConnectionContext connection = new H2ClientParentConnectionContext(channel,
-                            allocator, executor, parentFlushStrategy, idleTimeoutMs, executionStrategy,
-                            keepAliveManager);
+                            allocator, executor, parentFlushStrategy, idleTimeoutMs, writeDemandEstimatorSupplier,
+                            executionStrategy, keepAliveManager);
                     channel.attr(CHANNEL_CLOSEABLE_KEY).set(connection);
                     // We need the NettyToStChannelInboundHandler to be last in the pipeline. We accomplish that by
                     // calling the ChannelInitializer before we do addLast for the NettyToStChannelInboundHandler.
@@ -134,7 +140,8 @@ final class H2ClientParentConnectionContext extends H2ParentConnectionContext {
                     pipeline = channel.pipeline();
                     parentChannelInitializer = new DefaultH2ClientParentConnection(connection, subscriber,
                             delayedCancellable, NettyPipelineSslUtils.isSslEnabled(pipeline),
-                            allowDropTrailersReadFromTransport, config.headersFactory(), reqRespFactory, observer);
+                            allowDropTrailersReadFromTransport, config.headersFactory(), config.pooledPayloadBody(),
+                            reqRespFactory, observer);
                 } catch (Throwable cause) {
                     close(channel, cause);
                     deliverErrorFromSource(subscriber, cause);
@@ -161,6 +168,7 @@ final class H2ClientParentConnectionContext extends H2ParentConnectionContext {
         private final StreamingHttpRequestResponseFactory reqRespFactory;
         private final Processor<ConsumableEvent<Integer>, ConsumableEvent<Integer>> maxConcurrencyProcessor;
         private final boolean allowDropTrailersReadFromTransport;
+        private final boolean pooledPayloadBody;
         @Nullable
         private Subscriber<? super H2ClientParentConnection> subscriber;
         private MultiplexedObserver multiplexedObserver = NoopMultiplexedObserver.INSTANCE;
@@ -171,6 +179,7 @@ final class H2ClientParentConnectionContext extends H2ParentConnectionContext {
                                         boolean waitForSslHandshake,
                                         boolean allowDropTrailersReadFromTransport,
                                         HttpHeadersFactory headersFactory,
+                                        boolean pooledPayloadBody,
                                         StreamingHttpRequestResponseFactory reqRespFactory,
                                         ConnectionObserver observer) {
             super(connection, delayedCancellable, waitForSslHandshake, observer);
@@ -178,6 +187,7 @@ final class H2ClientParentConnectionContext extends H2ParentConnectionContext {
             this.headersFactory = requireNonNull(headersFactory);
             this.reqRespFactory = requireNonNull(reqRespFactory);
             this.allowDropTrailersReadFromTransport = allowDropTrailersReadFromTransport;
+            this.pooledPayloadBody = pooledPayloadBody;
             maxConcurrencyProcessor = newPublisherProcessor(16);
             // Set maxConcurrency to the initial value recommended by the HTTP/2 spec
             maxConcurrencyProcessor.onNext(DEFAULT_H2_MAX_CONCURRENCY_EVENT);
@@ -338,13 +348,14 @@ final class H2ClientParentConnectionContext extends H2ParentConnectionContext {
                     final CloseHandler closeHandler = forNonPipelined(true, streamChannel.config());
                     streamChannel.pipeline().addLast(new H2ToStH1ClientDuplexHandler(waitForSslHandshake,
                             parentContext.executionContext().bufferAllocator(), headersFactory,
-                            closeHandler, streamObserver));
+                            closeHandler, streamObserver, pooledPayloadBody));
                     DefaultNettyConnection<Object, Object> nettyConnection =
                             DefaultNettyConnection.initChildChannel(streamChannel,
                                     parentContext.executionContext().bufferAllocator(),
                                     parentContext.executionContext().executor(), LAST_CHUNK_PREDICATE,
                                     closeHandler,
                                     parentContext.flushStrategyHolder.currentStrategy(),
+                                    parentContext.writeDemandEstimatorSupplier,
                                     parentContext.idleTimeoutMs,
                                     parentContext.executionContext().executionStrategy(),
                                     HTTP_2_0,
@@ -358,8 +369,8 @@ final class H2ClientParentConnectionContext extends H2ParentConnectionContext {
                     // pipelining on a stream so we can use the non-pipelined connection which is more light weight.
                     // https://tools.ietf.org/html/rfc7540#section-8.1
                     responseSingle = toSource(new NonPipelinedStreamingHttpConnection(nettyConnection,
-                            executionContext(), reqRespFactory, headersFactory, allowDropTrailersReadFromTransport)
-                            .request(strategy, request));
+                            executionContext(), reqRespFactory, headersFactory, allowDropTrailersReadFromTransport,
+                            pooledPayloadBody).request(strategy, request));
                 } catch (Throwable cause) {
                     if (streamChannel != null) {
                         try {
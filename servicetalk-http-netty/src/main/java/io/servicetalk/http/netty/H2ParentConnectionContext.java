@@ -35,6 +35,7 @@ import io.servicetalk.transport.netty.internal.NettyChannelListenableAsyncClosea
 import io.servicetalk.transport.netty.internal.NettyConnectionContext;
 import io.servicetalk.transport.netty.internal.NoopTransportObserver.NoopConnectionObserver;
 import io.servicetalk.transport.netty.internal.StacklessClosedChannelException;
+import io.servicetalk.transport.netty.internal.WriteDemandEstimator;
 
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
@@ -47,6 +48,7 @@ import io.netty.handler.ssl.SslHandshakeCompletionEvent;
 
 import java.net.SocketAddress;
 import java.net.SocketOption;
+import java.util.function.Supplier;
 import javax.annotation.Nullable;
 import javax.net.ssl.SSLSession;
 
@@ -70,11 +72,13 @@ class H2ParentConnectionContext extends NettyChannelListenableAsyncCloseable imp
     private final KeepAliveManager keepAliveManager;
     @Nullable
     final Long idleTimeoutMs;
+    final Supplier<WriteDemandEstimator> writeDemandEstimatorSupplier;
     @Nullable
     private SSLSession sslSession;
 
     H2ParentConnectionContext(final Channel channel, final BufferAllocator allocator, final Executor executor,
                               final FlushStrategy flushStrategy, @Nullable final Long idleTimeoutMs,
+                              final Supplier<WriteDemandEstimator> writeDemandEstimatorSupplier,
                               final HttpExecutionStrategy executionStrategy,
                               final KeepAliveManager keepAliveManager) {
         super(channel, executor);
@@ -82,6 +86,7 @@ class H2ParentConnectionContext extends NettyChannelListenableAsyncCloseable imp
                 executor, executionStrategy);
         this.flushStrategyHolder = new FlushStrategyHolder(flushStrategy);
         this.idleTimeoutMs = idleTimeoutMs;
+        this.writeDemandEstimatorSupplier = writeDemandEstimatorSupplier;
         this.keepAliveManager = keepAliveManager;
         // Just in case the channel abruptly closes, we should complete the onClosing Completable.
         onClose().subscribe(onClosing::onComplete);
@@ -15,6 +15,7 @@
  */
 package io.servicetalk.http.netty;
 
+import io.servicetalk.buffer.api.Buffer;
 import io.servicetalk.http.api.HttpProtocolConfig;
 import io.servicetalk.logging.api.UserDataLoggerConfig;
 
@@ -60,6 +61,69 @@ public interface H2ProtocolConfig extends HttpProtocolConfig {
     @Nullable
     KeepAlivePolicy keepAlivePolicy();
 
+    /**
+     * Determines if the payload body is read from the transport into pooled, reference counted {@link Buffer}s which
+     * can be accessed via {@link PooledPayloadBodies}.
+     * <p>
+     * Every other way of consuming the payload body observes copies in unpooled memory. Headers and trailers are
+     * always copied and never need to be released.
+     *
+     * @return {@code true} if the payload body is available in pooled, reference counted {@link Buffer}s via
+     * {@link PooledPayloadBodies}
+     */
+    boolean pooledPayloadBody();
+
+    /**
+     * Initial <a href="https://tools.ietf.org/html/rfc7540#section-6.9.2">flow-control window size</a> for streams,
+     * advertised to the peer via {@code SETTINGS_INITIAL_WINDOW_SIZE}.
+     *
+     * @return initial flow-control window size in bytes for streams
+     */
+    int initialWindowSize();
+
+    /**
+     * Size of the connection level <a href="https://tools.ietf.org/html/rfc7540#section-6.9">flow-control window</a>.
+     *
+     * @return size of the connection level flow-control window in bytes
+     */
+    int connectionWindowSize();
+
+    /**
+     * Determines if the connection level <a href="https://tools.ietf.org/html/rfc7540#section-6.9">flow-control
+     * window</a> is automatically increased beyond {@link #connectionWindowSize()} to match the
+     * bandwidth-delay product observed using <a href="https://tools.ietf.org/html/rfc7540#section-6.7">PING</a>
+     * round trips.
+     *
+     * @return {@code true} if the connection level flow-control window is automatically tuned
+     */
+    boolean connectionWindowAutoTuning();
+
+    /**
+     * Largest <a href="https://tools.ietf.org/html/rfc7540#section-4.2">frame payload</a> the local endpoint is
+     * willing to receive, advertised to the peer via {@code SETTINGS_MAX_FRAME_SIZE}.
+     *
+     * @return largest frame payload size in bytes the local endpoint is willing to receive
+     */
+    int maxFrameSize();
+
+    /**
+     * Maximum number of concurrent streams the peer is allowed to open, advertised to the peer via
+     * {@code SETTINGS_MAX_CONCURRENT_STREAMS}.
+     * <p>
+     * <b>Note:</b> only applies to servers, clients do not support server push and always advertise {@code 0}.
+     *
+     * @return maximum number of concurrent streams the peer is allowed to open
+     */
+    long maxConcurrentStreams();
+
+    /**
+     * Maximum size of the <a href="https://tools.ietf.org/html/rfc7541#section-4.2">HPACK dynamic table</a> used
+     * to decode header blocks, advertised to the peer via {@code SETTINGS_HEADER_TABLE_SIZE}.
+     *
+     * @return maximum size in bytes of the HPACK dynamic table used to decode header blocks
+     */
+    long headerTableSize();
+
     /**
      * A policy for sending <a href="https://tools.ietf.org/html/rfc7540#section-6.7">PING frames</a> to the peer.
      */
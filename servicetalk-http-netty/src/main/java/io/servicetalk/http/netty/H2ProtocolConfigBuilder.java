@@ -15,6 +15,7 @@
  */
 package io.servicetalk.http.netty;
 
+import io.servicetalk.buffer.api.Buffer;
 import io.servicetalk.http.api.HttpHeaders;
 import io.servicetalk.http.api.HttpHeadersFactory;
 import io.servicetalk.http.netty.H2ProtocolConfig.KeepAlivePolicy;
@@ -26,6 +27,14 @@ import java.util.function.BiPredicate;
 import java.util.function.BooleanSupplier;
 import javax.annotation.Nullable;
 
+import static io.netty.handler.codec.http2.Http2CodecUtil.DEFAULT_HEADER_TABLE_SIZE;
+import static io.netty.handler.codec.http2.Http2CodecUtil.DEFAULT_MAX_FRAME_SIZE;
+import static io.netty.handler.codec.http2.Http2CodecUtil.DEFAULT_WINDOW_SIZE;
+import static io.netty.handler.codec.http2.Http2CodecUtil.MAX_CONCURRENT_STREAMS;
+import static io.netty.handler.codec.http2.Http2CodecUtil.MAX_FRAME_SIZE_LOWER_BOUND;
+import static io.netty.handler.codec.http2.Http2CodecUtil.MAX_FRAME_SIZE_UPPER_BOUND;
+import static io.netty.handler.codec.http2.Http2CodecUtil.MAX_HEADER_TABLE_SIZE;
+import static io.netty.handler.codec.http2.Http2CodecUtil.MIN_INITIAL_WINDOW_SIZE;
 import static io.servicetalk.http.netty.H2HeadersFactory.DEFAULT_SENSITIVITY_DETECTOR;
 import static io.servicetalk.http.netty.H2KeepAlivePolicies.DISABLE_KEEP_ALIVE;
 import static io.servicetalk.logging.api.LogLevel.TRACE;
@@ -44,6 +53,13 @@ public final class H2ProtocolConfigBuilder {
     private UserDataLoggerConfig frameLoggerConfig;
     @Nullable
     private KeepAlivePolicy keepAlivePolicy;
+    private boolean pooledPayloadBody;
+    private int initialWindowSize = DEFAULT_WINDOW_SIZE;
+    private int connectionWindowSize = DEFAULT_WINDOW_SIZE;
+    private boolean connectionWindowAutoTuning;
+    private int maxFrameSize = DEFAULT_MAX_FRAME_SIZE;
+    private long maxConcurrentStreams = MAX_CONCURRENT_STREAMS;
+    private long headerTableSize = DEFAULT_HEADER_TABLE_SIZE;
 
     H2ProtocolConfigBuilder() {
     }
@@ -115,6 +131,130 @@ public final class H2ProtocolConfigBuilder {
         return this;
     }
 
+    /**
+     * Sets whether the payload body is read from the transport into pooled, reference counted {@link Buffer}s which
+     * can be accessed via {@link PooledPayloadBodies}.
+     * <p>
+     * This avoids one copy of every received payload body byte for services that forward the payload body without
+     * inspecting it (e.g. proxies). Every other way of consuming the payload body observes copies in unpooled memory,
+     * and the transport releases the pooled {@link Buffer}s after copying them. When enabled, payload body
+     * {@link Buffer}s written to the transport are owned by the transport and released after the write. See
+     * {@link PooledPayloadBodies} for the responsibilities of the user of the pooled payload body, {@link Buffer}s
+     * which are not released are reported by Netty's {@code ResourceLeakDetector}.
+     *
+     * @param pooledPayloadBody {@code true} to make the payload body available in pooled, reference counted
+     * {@link Buffer}s via {@link PooledPayloadBodies}
+     * @return {@code this}
+     */
+    public H2ProtocolConfigBuilder pooledPayloadBody(final boolean pooledPayloadBody) {
+        this.pooledPayloadBody = pooledPayloadBody;
+        return this;
+    }
+
+    /**
+     * Sets the initial <a href="https://tools.ietf.org/html/rfc7540#section-6.9.2">flow-control window size</a> for
+     * streams, advertised to the peer via {@code SETTINGS_INITIAL_WINDOW_SIZE}.
+     * <p>
+     * Larger values allow a single stream to have more bytes in flight, which increases throughput of streaming
+     * payloads on links with a high bandwidth-delay product.
+     *
+     * @param initialWindowSize initial flow-control window size in bytes for streams
+     * @return {@code this}
+     */
+    public H2ProtocolConfigBuilder initialWindowSize(final int initialWindowSize) {
+        if (initialWindowSize < MIN_INITIAL_WINDOW_SIZE) {
+            throw new IllegalArgumentException("initialWindowSize: " + initialWindowSize + " (expected >=" +
+                    MIN_INITIAL_WINDOW_SIZE + ")");
+        }
+        this.initialWindowSize = initialWindowSize;
+        return this;
+    }
+
+    /**
+     * Sets the size of the connection level <a href="https://tools.ietf.org/html/rfc7540#section-6.9">flow-control
+     * window</a>.
+     * <p>
+     * The connection level window is shared between all streams of the connection, and therefore should be at least
+     * as large as {@link #initialWindowSize(int)}.
+     *
+     * @param connectionWindowSize size of the connection level flow-control window in bytes
+     * @return {@code this}
+     */
+    public H2ProtocolConfigBuilder connectionWindowSize(final int connectionWindowSize) {
+        if (connectionWindowSize < DEFAULT_WINDOW_SIZE) {
+            throw new IllegalArgumentException("connectionWindowSize: " + connectionWindowSize + " (expected >=" +
+                    DEFAULT_WINDOW_SIZE + ")");
+        }
+        this.connectionWindowSize = connectionWindowSize;
+        return this;
+    }
+
+    /**
+     * Sets whether the connection level <a href="https://tools.ietf.org/html/rfc7540#section-6.9">flow-control
+     * window</a> is automatically increased beyond {@link #connectionWindowSize(int)}.
+     * <p>
+     * When enabled, a <a href="https://tools.ietf.org/html/rfc7540#section-6.7">PING</a> is sent while data is being
+     * received to measure the round trip time and the amount of data received within it. The window is grown when the
+     * peer is limited by the window rather than by the link.
+     *
+     * @param connectionWindowAutoTuning {@code true} to automatically tune the connection level flow-control window
+     * @return {@code this}
+     */
+    public H2ProtocolConfigBuilder connectionWindowAutoTuning(final boolean connectionWindowAutoTuning) {
+        this.connectionWindowAutoTuning = connectionWindowAutoTuning;
+        return this;
+    }
+
+    /**
+     * Sets the largest <a href="https://tools.ietf.org/html/rfc7540#section-4.2">frame payload</a> the local endpoint
+     * is willing to receive, advertised to the peer via {@code SETTINGS_MAX_FRAME_SIZE}.
+     *
+     * @param maxFrameSize largest frame payload size in bytes the local endpoint is willing to receive
+     * @return {@code this}
+     */
+    public H2ProtocolConfigBuilder maxFrameSize(final int maxFrameSize) {
+        if (maxFrameSize < MAX_FRAME_SIZE_LOWER_BOUND || maxFrameSize > MAX_FRAME_SIZE_UPPER_BOUND) {
+            throw new IllegalArgumentException("maxFrameSize: " + maxFrameSize + " (expected [" +
+                    MAX_FRAME_SIZE_LOWER_BOUND + ", " + MAX_FRAME_SIZE_UPPER_BOUND + "])");
+        }
+        this.maxFrameSize = maxFrameSize;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of concurrent streams the peer is allowed to open, advertised to the peer via
+     * {@code SETTINGS_MAX_CONCURRENT_STREAMS}.
+     * <p>
+     * <b>Note:</b> only applies to servers, clients do not support server push and always advertise {@code 0}.
+     *
+     * @param maxConcurrentStreams maximum number of concurrent streams the peer is allowed to open
+     * @return {@code this}
+     */
+    public H2ProtocolConfigBuilder maxConcurrentStreams(final long maxConcurrentStreams) {
+        if (maxConcurrentStreams < 0 || maxConcurrentStreams > MAX_CONCURRENT_STREAMS) {
+            throw new IllegalArgumentException("maxConcurrentStreams: " + maxConcurrentStreams + " (expected [0, " +
+                    MAX_CONCURRENT_STREAMS + "])");
+        }
+        this.maxConcurrentStreams = maxConcurrentStreams;
+        return this;
+    }
+
+    /**
+     * Sets the maximum size of the <a href="https://tools.ietf.org/html/rfc7541#section-4.2">HPACK dynamic table</a>
+     * used to decode header blocks, advertised to the peer via {@code SETTINGS_HEADER_TABLE_SIZE}.
+     *
+     * @param headerTableSize maximum size in bytes of the HPACK dynamic table used to decode header blocks
+     * @return {@code this}
+     */
+    public H2ProtocolConfigBuilder headerTableSize(final long headerTableSize) {
+        if (headerTableSize < 0 || headerTableSize > MAX_HEADER_TABLE_SIZE) {
+            throw new IllegalArgumentException("headerTableSize: " + headerTableSize + " (expected [0, " +
+                    MAX_HEADER_TABLE_SIZE + "])");
+        }
+        this.headerTableSize = headerTableSize;
+        return this;
+    }
+
     /**
      * Builds {@link H2ProtocolConfig}.
      *
@@ -122,7 +262,8 @@ public final class H2ProtocolConfigBuilder {
      */
     public H2ProtocolConfig build() {
         return new DefaultH2ProtocolConfig(headersFactory, headersSensitivityDetector, frameLoggerConfig,
-                keepAlivePolicy);
+                keepAlivePolicy, pooledPayloadBody, initialWindowSize, connectionWindowSize, connectionWindowAutoTuning,
+                maxFrameSize, maxConcurrentStreams, headerTableSize);
     }
 
     private static final class DefaultH2ProtocolConfig implements H2ProtocolConfig {
@@ -133,15 +274,33 @@ public final class H2ProtocolConfigBuilder {
         private final UserDataLoggerConfig frameLoggerConfig;
         @Nullable
         private final KeepAlivePolicy keepAlivePolicy;
+        private final boolean pooledPayloadBody;
+        private final int initialWindowSize;
+        private final int connectionWindowSize;
+        private final boolean connectionWindowAutoTuning;
+        private final int maxFrameSize;
+        private final long maxConcurrentStreams;
+        private final long headerTableSize;
 
         DefaultH2ProtocolConfig(final HttpHeadersFactory headersFactory,
                                 final BiPredicate<CharSequence, CharSequence> headersSensitivityDetector,
                                 @Nullable final UserDataLoggerConfig frameLoggerConfig,
-                                @Nullable final KeepAlivePolicy keepAlivePolicy) {
+                                @Nullable final KeepAlivePolicy keepAlivePolicy,
+                                final boolean pooledPayloadBody, final int initialWindowSize,
+                                final int connectionWindowSize, final boolean connectionWindowAutoTuning,
+                                final int maxFrameSize, final long maxConcurrentStreams,
+                                final long headerTableSize) {
             this.headersFactory = headersFactory;
             this.headersSensitivityDetector = headersSensitivityDetector;
             this.frameLoggerConfig = frameLoggerConfig;
             this.keepAlivePolicy = keepAlivePolicy;
+            this.pooledPayloadBody = pooledPayloadBody;
+            this.initialWindowSize = initialWindowSize;
+            this.connectionWindowSize = connectionWindowSize;
+            this.connectionWindowAutoTuning = connectionWindowAutoTuning;
+            this.maxFrameSize = maxFrameSize;
+            this.maxConcurrentStreams = maxConcurrentStreams;
+            this.headerTableSize = headerTableSize;
         }
 
         @Override
@@ -165,5 +324,40 @@ public final class H2ProtocolConfigBuilder {
         public KeepAlivePolicy keepAlivePolicy() {
             return keepAlivePolicy;
         }
+
+        @Override
+        public boolean pooledPayloadBody() {
+            return pooledPayloadBody;
+        }
+
+        @Override
+        public int initialWindowSize() {
+            return initialWindowSize;
+        }
+
+        @Override
+        public int connectionWindowSize() {
+            return connectionWindowSize;
+        }
+
+        @Override
+        public boolean connectionWindowAutoTuning() {
+            return connectionWindowAutoTuning;
+        }
+
+        @Override
+        public int maxFrameSize() {
+            return maxFrameSize;
+        }
+
+        @Override
+        public long maxConcurrentStreams() {
+            return maxConcurrentStreams;
+        }
+
+        @Override
+        public long headerTableSize() {
+            return headerTableSize;
+        }
     }
 }
@@ -19,13 +19,21 @@ import io.servicetalk.logging.api.UserDataLoggerConfig;
 import io.servicetalk.transport.netty.internal.ChannelInitializer;
 
 import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.http2.DefaultHttp2WindowUpdateFrame;
 import io.netty.handler.codec.http2.Http2FrameCodecBuilder;
 import io.netty.handler.codec.http2.Http2MultiplexHandler;
+import io.netty.handler.codec.http2.Http2Settings;
 import io.netty.handler.codec.http2.Http2StreamChannel;
 
 import java.util.function.BiPredicate;
 import javax.annotation.Nullable;
 
+import static io.netty.handler.codec.http2.Http2CodecUtil.DEFAULT_HEADER_TABLE_SIZE;
+import static io.netty.handler.codec.http2.Http2CodecUtil.DEFAULT_MAX_FRAME_SIZE;
+import static io.netty.handler.codec.http2.Http2CodecUtil.DEFAULT_WINDOW_SIZE;
+import static io.netty.handler.codec.http2.Http2CodecUtil.MAX_CONCURRENT_STREAMS;
 import static io.netty.handler.codec.http2.Http2FrameCodecBuilder.forServer;
 import static io.servicetalk.logging.slf4j.internal.Slf4jFixedLevelLoggers.newLogger;
 
@@ -56,9 +64,51 @@ final class H2ServerParentChannelInitializer implements ChannelInitializer {
 
         initFrameLogger(multiplexCodecBuilder, config.frameLoggerConfig());
 
-        // TODO(scott): more configuration. header validation, settings stream, etc...
+        final Http2Settings initialSettings = multiplexCodecBuilder.initialSettings();
+        initSettings(initialSettings, config);
+        if (config.maxConcurrentStreams() != MAX_CONCURRENT_STREAMS) {
+            initialSettings.maxConcurrentStreams(config.maxConcurrentStreams());
+        }
+
+        // TODO(scott): more configuration. header validation, etc...
+
+        channel.pipeline().addLast(multiplexCodecBuilder.build());
+        initConnectionWindow(channel, config);
+        channel.pipeline().addLast(new Http2MultiplexHandler(streamChannelInitializer));
+    }
+
+    /**
+     * Applies the SETTINGS from {@link H2ProtocolConfig} that are common for client and server. Only values that
+     * differ from the RFC 7540 defaults are sent to avoid growing the initial SETTINGS frame.
+     *
+     * @param settings the initial {@link Http2Settings} to update.
+     * @param config the {@link H2ProtocolConfig} to apply.
+     */
+    static void initSettings(final Http2Settings settings, final H2ProtocolConfig config) {
+        if (config.initialWindowSize() != DEFAULT_WINDOW_SIZE) {
+            settings.initialWindowSize(config.initialWindowSize());
+        }
+        if (config.maxFrameSize() != DEFAULT_MAX_FRAME_SIZE) {
+            settings.maxFrameSize(config.maxFrameSize());
+        }
+        if (config.headerTableSize() != DEFAULT_HEADER_TABLE_SIZE) {
+            settings.headerTableSize(config.headerTableSize());
+        }
+    }
 
-        channel.pipeline().addLast(multiplexCodecBuilder.build(), new Http2MultiplexHandler(streamChannelInitializer));
+    /**
+     * The connection flow-control window can not be changed via SETTINGS, so if a larger window is configured a
+     * WINDOW_UPDATE frame is sent right after the connection preface. Must be called after the
+     * {@link Http2FrameCodecBuilder#build() codec} has been added to the pipeline.
+     *
+     * @param channel the {@link Channel} to initialize.
+     * @param config the {@link H2ProtocolConfig} to apply.
+     */
+    static void initConnectionWindow(final Channel channel, final H2ProtocolConfig config) {
+        final int increment = config.connectionWindowSize() - DEFAULT_WINDOW_SIZE;
+        if (increment > 0) {
+            channel.pipeline().addLast(new ConnectionWindowUpdateHandler(increment));
+        }
     }
 
     static void initFrameLogger(final Http2FrameCodecBuilder multiplexCodecBuilder,
@@ -69,4 +119,31 @@ final class H2ServerParentChannelInitializer implements ChannelInitializer {
                             frameLoggerConfig.logLevel()), frameLoggerConfig.logUserData()));
         }
     }
+
+    private static final class ConnectionWindowUpdateHandler extends ChannelInboundHandlerAdapter {
+        private final int increment;
+
+        ConnectionWindowUpdateHandler(final int increment) {
+            this.increment = increment;
+        }
+
+        @Override
+        public void handlerAdded(final ChannelHandlerContext ctx) {
+            if (ctx.channel().isActive()) {
+                sendWindowUpdate(ctx);
+            }
+        }
+
+        @Override
+        public void channelActive(final ChannelHandlerContext ctx) {
+            // The codec is before this handler, so the connection preface has already been written.
+            sendWindowUpdate(ctx);
+            ctx.fireChannelActive();
+        }
+
+        private void sendWindowUpdate(final ChannelHandlerContext ctx) {
+            ctx.writeAndFlush(new DefaultHttp2WindowUpdateFrame(increment));
+            ctx.pipeline().remove(this);
+        }
+    }
 }
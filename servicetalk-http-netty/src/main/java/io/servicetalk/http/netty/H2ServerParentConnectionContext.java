@@ -40,6 +40,7 @@ import io.servicetalk.transport.netty.internal.DefaultNettyConnection;
 import io.servicetalk.transport.netty.internal.FlushStrategy;
 import io.servicetalk.transport.netty.internal.NettyPipelineSslUtils;
 import io.servicetalk.transport.netty.internal.NoopTransportObserver.NoopMultiplexedObserver;
+import io.servicetalk.transport.netty.internal.WriteDemandEstimator;
 
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
@@ -50,6 +51,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.SocketAddress;
+import java.util.function.Supplier;
 import javax.annotation.Nullable;
 
 import static io.servicetalk.concurrent.internal.SubscriberUtils.deliverErrorFromSource;
@@ -66,10 +68,12 @@ final class H2ServerParentConnectionContext extends H2ParentConnectionContext im
     private H2ServerParentConnectionContext(final Channel channel, final BufferAllocator allocator,
                                             final Executor executor, final FlushStrategy flushStrategy,
                                             @Nullable final Long idleTimeoutMs,
+                                            final Supplier<WriteDemandEstimator> writeDemandEstimatorSupplier,
                                             final HttpExecutionStrategy executionStrategy,
                                             final SocketAddress listenAddress,
                                             final KeepAliveManager keepAliveManager) {
-        super(channel, allocator, executor, flushStrategy, idleTimeoutMs, executionStrategy, keepAliveManager);
+        super(channel, allocator, executor, flushStrategy, idleTimeoutMs, writeDemandEstimatorSupplier,
+                executionStrategy, keepAliveManager);
         this.listenAddress = requireNonNull(listenAddress);
     }
 
@@ -117,14 +121,16 @@ final class H2ServerParentConnectionContext extends H2ParentConnectionContext im
                 final ChannelPipeline pipeline;
                 try {
                     delayedCancellable = new DelayedCancellable();
-                    KeepAliveManager keepAliveManager = new KeepAliveManager(channel, h2ServerConfig.keepAlivePolicy());
+                    KeepAliveManager keepAliveManager = new KeepAliveManager(channel, h2ServerConfig.keepAlivePolicy(),
+                            h2ServerConfig.connectionWindowSize(), h2ServerConfig.connectionWindowAutoTuning());
                     final FlushStrategy parentFlushStrategy = config.tcpConfig().flushStrategy();
                     final BufferAllocator allocator = httpExecutionContext.bufferAllocator();
                     final Executor executor = httpExecutionContext.executor();
                     final HttpExecutionStrategy executionStrategy = httpExecutionContext.executionStrategy();
                     H2ServerParentConnectionContext connection = new H2ServerParentConnectionContext(channel,
                             allocator, executor, parentFlushStrategy, config.tcpConfig().idleTimeoutMs(),
-                            executionStrategy, listenAddress, keepAliveManager);
+                            config.tcpConfig().writeDemandEstimatorSupplier(), executionStrategy, listenAddress,
+                            keepAliveManager);
                     channel.attr(CHANNEL_CLOSEABLE_KEY).set(connection);
                     // We need the NettyToStChannelInboundHandler to be last in the pipeline. We accomplish that by
                     // calling the ChannelInitializer before we do addLast for the NettyToStChannelInboundHandler.
@@ -150,7 +156,8 @@ final class H2ServerParentConnectionContext extends H2ParentConnectionContext im
                                 final CloseHandler closeHandler = forNonPipelined(false, streamChannel.config());
                                 streamChannel.pipeline().addLast(new H2ToStH1ServerDuplexHandler(
                                         connection.executionContext().bufferAllocator(),
-                                        h2ServerConfig.headersFactory(), closeHandler, streamObserver));
+                                        h2ServerConfig.headersFactory(), closeHandler, streamObserver,
+                                        h2ServerConfig.pooledPayloadBody()));
 
                                 // ServiceTalk <-> Netty netty utilities
                                 DefaultNettyConnection<Object, Object> streamConnection =
@@ -162,6 +169,7 @@ final class H2ServerParentConnectionContext extends H2ParentConnectionContext im
                                                 // level we can use DefaultNettyConnection.initChannel instead of this
                                                 // custom method.
                                                 connection.flushStrategyHolder.currentStrategy(),
+                                                connection.writeDemandEstimatorSupplier,
                                                 connection.idleTimeoutMs,
                                                 connection.executionContext().executionStrategy(),
                                                 HTTP_2_0,
@@ -174,7 +182,8 @@ final class H2ServerParentConnectionContext extends H2ParentConnectionContext im
                                 // ServiceTalk HTTP service handler
                                 new NettyHttpServerConnection(streamConnection, service, executionStrategy, HTTP_2_0,
                                         h2ServerConfig.headersFactory(), drainRequestPayloadBody,
-                                        config.allowDropTrailersReadFromTransport()).process(false);
+                                        config.allowDropTrailersReadFromTransport(),
+                                        h2ServerConfig.pooledPayloadBody()).process(false);
                             }
                     }).init(channel);
                 } catch (Throwable cause) {
@@ -58,8 +58,8 @@ final class H2ToStH1ClientDuplexHandler extends AbstractH2DuplexHandler {
     private HttpRequestMethod method;
 
     H2ToStH1ClientDuplexHandler(boolean sslEnabled, BufferAllocator allocator, HttpHeadersFactory headersFactory,
-                                CloseHandler closeHandler, StreamObserver observer) {
-        super(allocator, headersFactory, closeHandler, observer);
+                                CloseHandler closeHandler, StreamObserver observer, boolean pooledPayloadBody) {
+        super(allocator, headersFactory, closeHandler, observer, pooledPayloadBody);
         this.scheme = sslEnabled ? HttpScheme.HTTPS : HttpScheme.HTTP;
     }
 
@@ -52,8 +52,8 @@ final class H2ToStH1ServerDuplexHandler extends AbstractH2DuplexHandler {
     private boolean readHeaders;
 
     H2ToStH1ServerDuplexHandler(BufferAllocator allocator, HttpHeadersFactory headersFactory,
-                                CloseHandler closeHandler, StreamObserver observer) {
-        super(allocator, headersFactory, closeHandler, observer);
+                                CloseHandler closeHandler, StreamObserver observer, boolean pooledPayloadBody) {
+        super(allocator, headersFactory, closeHandler, observer, pooledPayloadBody);
     }
 
     @Override
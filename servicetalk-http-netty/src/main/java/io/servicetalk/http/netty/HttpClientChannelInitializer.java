@@ -40,17 +40,21 @@ final class HttpClientChannelInitializer implements ChannelInitializer {
      */
     HttpClientChannelInitializer(final ByteBufAllocator alloc, final H1ProtocolConfig config,
                                  final CloseHandler closeHandler) {
-        // H1 slices passed memory chunks into headers and payload body without copying and will emit them to the
-        // user-code. Therefore, ByteBufs must be copied to unpooled memory before HttpObjectDecoder.
-        this.delegate = new CopyByteBufHandlerChannelInitializer(alloc).andThen(channel -> {
+        final ChannelInitializer codecInitializer = channel -> {
             final Queue<HttpRequestMethod> methodQueue = new ArrayDeque<>(min(8, config.maxPipelinedRequests()));
             final ChannelPipeline pipeline = channel.pipeline();
             pipeline.addLast(new HttpResponseDecoder(methodQueue, alloc, config.headersFactory(),
                     config.maxStartLineLength(), config.maxHeaderFieldLength(),
-                    config.specExceptions().allowPrematureClosureBeforePayloadBody(), closeHandler));
-            pipeline.addLast(new HttpRequestEncoder(methodQueue,
-                    config.headersEncodedSizeEstimate(), config.trailersEncodedSizeEstimate(), closeHandler));
-        });
+                    config.specExceptions().allowPrematureClosureBeforePayloadBody(), config.pooledPayloadBody(),
+                    closeHandler));
+            pipeline.addLast(new HttpRequestEncoder(methodQueue, config.headersEncodedSizeEstimate(),
+                    config.trailersEncodedSizeEstimate(), config.pooledPayloadBody(), closeHandler));
+        };
+        // H1 slices passed memory chunks into headers and payload body without copying and will emit them to the
+        // user-code. Therefore, ByteBufs must be copied to unpooled memory before HttpObjectDecoder, unless the user
+        // opted-in to release the pooled payload body explicitly.
+        this.delegate = config.pooledPayloadBody() ? codecInitializer :
+                new CopyByteBufHandlerChannelInitializer(alloc).andThen(codecInitializer);
     }
 
     @Override
@@ -63,16 +63,58 @@ import static io.netty.handler.codec.http.HttpConstants.HT;
 import static io.netty.handler.codec.http.HttpConstants.LF;
 import static io.netty.handler.codec.http.HttpConstants.SP;
 import static io.netty.util.ByteProcessor.FIND_LF;
+import static io.servicetalk.buffer.api.CharSequences.contentEqualsIgnoreCase;
 import static io.servicetalk.buffer.api.CharSequences.emptyAsciiString;
 import static io.servicetalk.buffer.api.CharSequences.newAsciiString;
 import static io.servicetalk.buffer.netty.BufferUtils.newBufferFrom;
 import static io.servicetalk.http.api.HeaderUtils.isTransferEncodingChunked;
+import static io.servicetalk.http.api.HttpHeaderNames.ACCEPT;
+import static io.servicetalk.http.api.HttpHeaderNames.ACCEPT_ENCODING;
+import static io.servicetalk.http.api.HttpHeaderNames.ACCEPT_LANGUAGE;
+import static io.servicetalk.http.api.HttpHeaderNames.AUTHORIZATION;
+import static io.servicetalk.http.api.HttpHeaderNames.CACHE_CONTROL;
+import static io.servicetalk.http.api.HttpHeaderNames.CONNECTION;
+import static io.servicetalk.http.api.HttpHeaderNames.CONTENT_ENCODING;
 import static io.servicetalk.http.api.HttpHeaderNames.CONTENT_LENGTH;
+import static io.servicetalk.http.api.HttpHeaderNames.CONTENT_TYPE;
+import static io.servicetalk.http.api.HttpHeaderNames.COOKIE;
+import static io.servicetalk.http.api.HttpHeaderNames.DATE;
+import static io.servicetalk.http.api.HttpHeaderNames.ETAG;
+import static io.servicetalk.http.api.HttpHeaderNames.EXPECT;
+import static io.servicetalk.http.api.HttpHeaderNames.HOST;
+import static io.servicetalk.http.api.HttpHeaderNames.IF_MODIFIED_SINCE;
+import static io.servicetalk.http.api.HttpHeaderNames.IF_NONE_MATCH;
+import static io.servicetalk.http.api.HttpHeaderNames.LAST_MODIFIED;
+import static io.servicetalk.http.api.HttpHeaderNames.LOCATION;
+import static io.servicetalk.http.api.HttpHeaderNames.ORIGIN;
+import static io.servicetalk.http.api.HttpHeaderNames.PROXY_AUTHORIZATION;
+import static io.servicetalk.http.api.HttpHeaderNames.REFERER;
 import static io.servicetalk.http.api.HttpHeaderNames.SEC_WEBSOCKET_KEY1;
 import static io.servicetalk.http.api.HttpHeaderNames.SEC_WEBSOCKET_KEY2;
 import static io.servicetalk.http.api.HttpHeaderNames.SEC_WEBSOCKET_LOCATION;
 import static io.servicetalk.http.api.HttpHeaderNames.SEC_WEBSOCKET_ORIGIN;
+import static io.servicetalk.http.api.HttpHeaderNames.SERVER;
+import static io.servicetalk.http.api.HttpHeaderNames.SET_COOKIE;
+import static io.servicetalk.http.api.HttpHeaderNames.TE;
+import static io.servicetalk.http.api.HttpHeaderNames.TRAILER;
+import static io.servicetalk.http.api.HttpHeaderNames.TRANSFER_ENCODING;
 import static io.servicetalk.http.api.HttpHeaderNames.UPGRADE;
+import static io.servicetalk.http.api.HttpHeaderNames.USER_AGENT;
+import static io.servicetalk.http.api.HttpHeaderNames.VARY;
+import static io.servicetalk.http.api.HttpHeaderNames.X_FORWARDED_FOR;
+import static io.servicetalk.http.api.HttpHeaderNames.X_FORWARDED_PROTO;
+import static io.servicetalk.http.api.HttpHeaderValues.APPLICATION_JSON;
+import static io.servicetalk.http.api.HttpHeaderValues.CHUNKED;
+import static io.servicetalk.http.api.HttpHeaderValues.CLOSE;
+import static io.servicetalk.http.api.HttpHeaderValues.CONTINUE;
+import static io.servicetalk.http.api.HttpHeaderValues.DEFLATE;
+import static io.servicetalk.http.api.HttpHeaderValues.GZIP;
+import static io.servicetalk.http.api.HttpHeaderValues.IDENTITY;
+import static io.servicetalk.http.api.HttpHeaderValues.KEEP_ALIVE;
+import static io.servicetalk.http.api.HttpHeaderValues.NO_CACHE;
+import static io.servicetalk.http.api.HttpHeaderValues.TEXT_PLAIN;
+import static io.servicetalk.http.api.HttpHeaderValues.TRAILERS;
+import static io.servicetalk.http.api.HttpHeaderValues.ZERO;
 import static io.servicetalk.http.api.HttpProtocolVersion.HTTP_1_0;
 import static io.servicetalk.http.api.HttpProtocolVersion.HTTP_1_1;
 import static io.servicetalk.http.api.HttpRequestMethod.GET;
@@ -125,13 +167,25 @@ abstract class HttpObjectDecoder<T extends HttpMetaData> extends ByteToMessageDe
     private static final int CHUNK_DELIMETER_SIZE = 2; // CRLF
     private static final int MAX_ALLOWED_CHARS_TO_SKIP = CHUNK_DELIMETER_SIZE * 2; // Max allowed prefacing CRLF to skip
     private static final int MAX_ALLOWED_CHARS_TO_SKIP_PLUS_ONE = MAX_ALLOWED_CHARS_TO_SKIP + 1;
+    private static final int NAME_CACHE_SIZE = 128;
+    private static final int VALUE_CACHE_SIZE = 256;
+    private static final CharSequence[] WELL_KNOWN_NAMES = {ACCEPT, ACCEPT_ENCODING, ACCEPT_LANGUAGE, AUTHORIZATION,
+            CACHE_CONTROL, CONNECTION, CONTENT_ENCODING, CONTENT_LENGTH, CONTENT_TYPE, COOKIE, DATE, ETAG, EXPECT, HOST,
+            IF_MODIFIED_SINCE, IF_NONE_MATCH, LAST_MODIFIED, LOCATION, ORIGIN, REFERER, SERVER, SET_COOKIE, TE,
+            TRAILER, TRANSFER_ENCODING, UPGRADE, USER_AGENT, VARY, X_FORWARDED_FOR, X_FORWARDED_PROTO};
+    private static final CharSequence[] WELL_KNOWN_VALUES = {APPLICATION_JSON, CHUNKED, CLOSE, CONTINUE, DEFLATE, GZIP,
+            IDENTITY, KEEP_ALIVE, NO_CACHE, TEXT_PLAIN, TRAILERS, ZERO};
 
     private final int maxStartLineLength;
     private final int maxHeaderFieldLength;
 
+    private final ByteBufAllocator alloc;
     private final HttpHeadersFactory headersFactory;
+    private final AsciiHeaderCache nameCache = new AsciiHeaderCache(NAME_CACHE_SIZE, WELL_KNOWN_NAMES);
+    private final AsciiHeaderCache valueCache = new AsciiHeaderCache(VALUE_CACHE_SIZE, WELL_KNOWN_VALUES);
     private final CloseHandler closeHandler;
     private final boolean allowPrematureClosureBeforePayloadBody;
+    private final boolean pooledPayloadBody;
     @Nullable
     private T message;
     @Nullable
@@ -168,8 +222,10 @@ abstract class HttpObjectDecoder<T extends HttpMetaData> extends ByteToMessageDe
      */
     protected HttpObjectDecoder(final ByteBufAllocator alloc, final HttpHeadersFactory headersFactory,
                                 final int maxStartLineLength, final int maxHeaderFieldLength,
-                                final boolean allowPrematureClosureBeforePayloadBody, final CloseHandler closeHandler) {
+                                final boolean allowPrematureClosureBeforePayloadBody,
+                                final boolean pooledPayloadBody, final CloseHandler closeHandler) {
         super(alloc);
+        this.alloc = alloc;
         this.closeHandler = requireNonNull(closeHandler);
         if (maxStartLineLength <= 0) {
             throw new IllegalArgumentException("maxStartLineLength: " + maxStartLineLength + " (expected >0)");
@@ -181,6 +237,7 @@ abstract class HttpObjectDecoder<T extends HttpMetaData> extends ByteToMessageDe
         this.maxStartLineLength = maxStartLineLength;
         this.maxHeaderFieldLength = maxHeaderFieldLength;
         this.allowPrematureClosureBeforePayloadBody = allowPrematureClosureBeforePayloadBody;
+        this.pooledPayloadBody = pooledPayloadBody;
     }
 
     final HttpHeadersFactory headersFactory() {
@@ -446,6 +503,12 @@ abstract class HttpObjectDecoder<T extends HttpMetaData> extends ByteToMessageDe
         }
     }
 
+    @Override
+    protected final ByteBufAllocator cumulationAllocator(final ByteBuf cumulation) {
+        // Content is sliced from the cumulation, so keep it in the pooled memory it was read into.
+        return pooledPayloadBody ? cumulation.alloc() : super.cumulationAllocator(cumulation);
+    }
+
     @Override
     protected final ByteBuf swapAndCopyCumulation(final ByteBuf cumulation, final ByteBuf in) {
         final int readerIndex = cumulation.readerIndex();
@@ -622,8 +685,7 @@ abstract class HttpObjectDecoder<T extends HttpMetaData> extends ByteToMessageDe
         if (nameEnd == nameStart) {
             throw newDecoderExceptionAtLine("Empty header name in line ", parsingLine);
         }
-        // We assume the allocator will not leak memory, and so we retain + slice to avoid copying data.
-        final CharSequence name = newAsciiString(newBufferFrom(buffer.retainedSlice(nameStart, nameEnd - nameStart)));
+        final CharSequence name = header(nameCache, buffer, nameStart, nameEnd - nameStart);
         final CharSequence value;
         try {
             final int valueStart;
@@ -633,8 +695,9 @@ abstract class HttpObjectDecoder<T extends HttpMetaData> extends ByteToMessageDe
             } else {
                 final int valueEnd =
                         buffer.forEachByteDesc(valueStart, nonControlIndex - valueStart + 1, FIND_FIELD_VALUE);
-                // We assume the allocator will not leak memory, and so we retain + slice to avoid copying data.
-                value = newAsciiString(newBufferFrom(buffer.retainedSlice(valueStart, valueEnd - valueStart + 1)));
+                final int valueLength = valueEnd - valueStart + 1;
+                value = isSensitive(name) ? newHeader(buffer, valueStart, valueLength) :
+                        header(valueCache, buffer, valueStart, valueLength);
             }
         } catch (IllegalCharacterException cause) {
             throw invalidHeaderValue(name, parsingLine, cause);
@@ -648,6 +711,35 @@ abstract class HttpObjectDecoder<T extends HttpMetaData> extends ByteToMessageDe
         consumeCRLF(buffer, lfIndex);
     }
 
+    private CharSequence header(final AsciiHeaderCache cache, final ByteBuf buffer, final int index,
+                                final int length) {
+        final CharSequence cached = cache.get(buffer, index, length);
+        return cached != null ? cached : newHeader(buffer, index, length);
+    }
+
+    private CharSequence newHeader(final ByteBuf buffer, final int index, final int length) {
+        return newAsciiString(newBufferFrom(headerSlice(buffer, index, length)));
+    }
+
+    /**
+     * Values of these headers carry credentials. Like the never indexed fields of HPACK they are not cached, so they
+     * are not kept by the connection beyond the message they belong to.
+     */
+    private static boolean isSensitive(final CharSequence name) {
+        return contentEqualsIgnoreCase(name, AUTHORIZATION) || contentEqualsIgnoreCase(name, PROXY_AUTHORIZATION) ||
+                contentEqualsIgnoreCase(name, COOKIE) || contentEqualsIgnoreCase(name, SET_COOKIE);
+    }
+
+    private ByteBuf headerSlice(final ByteBuf buffer, final int index, final int length) {
+        if (pooledPayloadBody) {
+            // The buffer is backed by pooled memory. Headers are not released by the user, so they are copied to
+            // unpooled memory instead of pinning the pooled chunk for the lifetime of the headers.
+            return alloc.buffer(length).writeBytes(buffer, index, length);
+        }
+        // We assume the allocator will not leak memory, and so we retain + slice to avoid copying data.
+        return buffer.retainedSlice(index, length);
+    }
+
     private static DecoderException newDecoderExceptionAtLine(final String message, final int parsingLine) {
         return new DecoderException(message + (parsingLine - 1));
     }
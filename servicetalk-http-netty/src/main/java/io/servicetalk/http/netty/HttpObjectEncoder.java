@@ -57,6 +57,8 @@ import static io.netty.handler.codec.http.HttpConstants.SP;
 import static io.netty.util.internal.StringUtil.simpleClassName;
 import static io.servicetalk.buffer.api.CharSequences.unwrapBuffer;
 import static io.servicetalk.buffer.netty.BufferUtils.newBufferFrom;
+import static io.servicetalk.buffer.netty.BufferUtils.release;
+import static io.servicetalk.buffer.netty.BufferUtils.toReleasableByteBufNoThrow;
 import static io.servicetalk.buffer.netty.BufferUtils.toByteBufNoThrow;
 import static io.servicetalk.http.api.HeaderUtils.isTransferEncodingChunked;
 import static io.servicetalk.http.api.HttpHeaderNames.CONTENT_LENGTH;
@@ -98,6 +100,7 @@ abstract class HttpObjectEncoder<T extends HttpMetaData> extends ChannelOutbound
      */
     private float trailersEncodedSizeAccumulator;
     private final CloseHandler closeHandler;
+    private final boolean pooledPayloadBody;
 
     /**
      * Create a new instance.
@@ -105,12 +108,15 @@ abstract class HttpObjectEncoder<T extends HttpMetaData> extends ChannelOutbound
      * initial line and the headers for a guess for future buffer allocations.
      * @param trailersEncodedSizeAccumulator  Used to calculate an exponential moving average of the encoded size of
      * the trailers for a guess for future buffer allocations.
+     * @param pooledPayloadBody {@code true} if the written payload body is reference counted and owned by the
+     * transport after the write
      * @param closeHandler observes protocol state events
      */
     HttpObjectEncoder(int headersEncodedSizeAccumulator, int trailersEncodedSizeAccumulator,
-                      final CloseHandler closeHandler) {
+                      final boolean pooledPayloadBody, final CloseHandler closeHandler) {
         this.headersEncodedSizeAccumulator = max(16, headersEncodedSizeAccumulator);
         this.trailersEncodedSizeAccumulator = max(16, trailersEncodedSizeAccumulator);
+        this.pooledPayloadBody = pooledPayloadBody;
         this.closeHandler = closeHandler;
     }
 
@@ -154,6 +160,7 @@ abstract class HttpObjectEncoder<T extends HttpMetaData> extends ChannelOutbound
                 // See https://github.com/netty/netty/issues/2983 for more information.
                 // We can directly write EMPTY_BUFFER here because there is no need to worry about the buffer being
                 // already released.
+                releasePooled(stBuffer);
                 ctx.write(EMPTY_BUFFER, promise);
             } else {
                 switch (state) {
@@ -162,7 +169,7 @@ abstract class HttpObjectEncoder<T extends HttpMetaData> extends ChannelOutbound
                     case ST_CONTENT_NON_CHUNK:
                         final long contentLength = stBuffer.readableBytes();
                         if (contentLength > 0) {
-                            ctx.write(encodeAndRetain(stBuffer), promise);
+                            ctx.write(encodeAndRetain(stBuffer, pooledPayloadBody), promise);
                             break;
                         }
 
@@ -173,11 +180,13 @@ abstract class HttpObjectEncoder<T extends HttpMetaData> extends ChannelOutbound
                         // issues these will be propagated as the caller of the encodeAndRetain(...) method will
                         // release the original buffer. Writing an empty buffer will not actually write anything on
                         // the wire, so if there is a user error with msg it will not be visible externally
+                        releasePooled(stBuffer);
                         ctx.write(EMPTY_BUFFER, promise);
                         break;
                     case ST_CONTENT_CHUNK:
                         PromiseCombiner promiseCombiner = new PromiseCombiner();
-                        encodeChunkedContent(ctx, stBuffer, stBuffer.readableBytes(), promiseCombiner);
+                        encodeChunkedContent(ctx, stBuffer, stBuffer.readableBytes(), pooledPayloadBody,
+                                promiseCombiner);
                         promiseCombiner.finish(promise);
                         break;
                     default:
@@ -254,20 +263,20 @@ abstract class HttpObjectEncoder<T extends HttpMetaData> extends ChannelOutbound
     }
 
     private static void encodeChunkedContent(ChannelHandlerContext ctx, Buffer msg, long contentLength,
-                                             PromiseCombiner promiseCombiner) {
+                                             boolean pooledPayloadBody, PromiseCombiner promiseCombiner) {
         if (contentLength > 0) {
             String lengthHex = toHexString(contentLength);
             ByteBuf buf = ctx.alloc().directBuffer(lengthHex.length() + 2);
             buf.writeCharSequence(lengthHex, US_ASCII);
             writeShortBE(buf, CRLF_SHORT);
             promiseCombiner.add(ctx.write(buf));
-            promiseCombiner.add(ctx.write(encodeAndRetain(msg)));
+            promiseCombiner.add(ctx.write(encodeAndRetain(msg, pooledPayloadBody)));
             promiseCombiner.add(ctx.write(CRLF_BUF.duplicate()));
         } else {
             assert contentLength == 0;
             // Need to produce some output otherwise an
             // IllegalStateException will be thrown
-            promiseCombiner.add(ctx.write(encodeAndRetain(msg)));
+            promiseCombiner.add(ctx.write(encodeAndRetain(msg, pooledPayloadBody)));
         }
     }
 
@@ -335,11 +344,24 @@ abstract class HttpObjectEncoder<T extends HttpMetaData> extends ChannelOutbound
         }
     }
 
-    static ByteBuf encodeAndRetain(Buffer msg) {
-        // We still want to retain the objects we encode because otherwise folks may hold on to references of objects
-        // with a 0 reference count and get an IllegalReferenceCountException.
-        // TODO(scott): add support for file region
-        return toByteBuf(msg).retain();
+    private void releasePooled(Buffer buffer) {
+        if (pooledPayloadBody) {
+            // The buffer is not written, but the transport still owns it.
+            release(buffer);
+        }
+    }
+
+    static ByteBuf encodeAndRetain(Buffer msg, boolean pooledPayloadBody) {
+        if (!pooledPayloadBody) {
+            // We still want to retain the objects we encode because otherwise folks may hold on to references of
+            // objects with a 0 reference count and get an IllegalReferenceCountException.
+            // TODO(scott): add support for file region
+            return toByteBuf(msg).retain();
+        }
+        // The payload body is reference counted and the transport takes ownership of what is written, so the written
+        // memory is released after the write completes.
+        final ByteBuf byteBuf = toReleasableByteBufNoThrow(msg);
+        return byteBuf != null ? byteBuf : wrappedBuffer(msg.toNioBuffer());
     }
 
     private static ByteBuf toByteBuf(Buffer buffer) {
@@ -66,14 +66,15 @@ final class HttpResponseDecoder extends HttpObjectDecoder<HttpResponseMetaData>
     HttpResponseDecoder(final Queue<HttpRequestMethod> methodQueue, final ByteBufAllocator alloc,
                         final HttpHeadersFactory headersFactory, int maxStartLineLength, int maxHeaderFieldLength) {
         this(methodQueue, alloc, headersFactory, maxStartLineLength, maxHeaderFieldLength,
-                false, UNSUPPORTED_PROTOCOL_CLOSE_HANDLER);
+                false, false, UNSUPPORTED_PROTOCOL_CLOSE_HANDLER);
     }
 
     HttpResponseDecoder(final Queue<HttpRequestMethod> methodQueue, final ByteBufAllocator alloc,
                         final HttpHeadersFactory headersFactory, final int maxStartLineLength, int maxHeaderFieldLength,
-                        final boolean allowPrematureClosureBeforePayloadBody, final CloseHandler closeHandler) {
+                        final boolean allowPrematureClosureBeforePayloadBody, final boolean pooledPayloadBody,
+                        final CloseHandler closeHandler) {
         super(alloc, headersFactory, maxStartLineLength, maxHeaderFieldLength, allowPrematureClosureBeforePayloadBody,
-                closeHandler);
+                pooledPayloadBody, closeHandler);
         this.methodQueue = requireNonNull(methodQueue);
     }
 
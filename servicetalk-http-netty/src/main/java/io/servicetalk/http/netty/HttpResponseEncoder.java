@@ -62,11 +62,14 @@ final class HttpResponseEncoder extends HttpObjectEncoder<HttpResponseMetaData>
      * initial line and the headers for a guess for future buffer allocations.
      * @param trailersEncodedSizeAccumulator  Used to calculate an exponential moving average of the encoded size of
      * the trailers for a guess for future buffer allocations.
+     * @param pooledPayloadBody {@code true} if the written payload body is reference counted and owned by the
+     * transport after the write
      * @param closeHandler the {@link CloseHandler}
      */
     HttpResponseEncoder(Queue<HttpRequestMethod> methodQueue, int headersEncodedSizeAccumulator,
-                        int trailersEncodedSizeAccumulator, final CloseHandler closeHandler) {
-        super(headersEncodedSizeAccumulator, trailersEncodedSizeAccumulator, closeHandler);
+                        int trailersEncodedSizeAccumulator, final boolean pooledPayloadBody,
+                        final CloseHandler closeHandler) {
+        super(headersEncodedSizeAccumulator, trailersEncodedSizeAccumulator, pooledPayloadBody, closeHandler);
         this.methodQueue = requireNonNull(methodQueue);
     }
 
@@ -81,7 +84,7 @@ final class HttpResponseEncoder extends HttpObjectEncoder<HttpResponseMetaData>
     HttpResponseEncoder(Queue<HttpRequestMethod> methodQueue,
                         int headersEncodedSizeAccumulator, int trailersEncodedSizeAccumulator) {
         this(methodQueue, headersEncodedSizeAccumulator, trailersEncodedSizeAccumulator,
-                UNSUPPORTED_PROTOCOL_CLOSE_HANDLER);
+                false, UNSUPPORTED_PROTOCOL_CLOSE_HANDLER);
     }
 
     @Override
@@ -17,11 +17,14 @@ package io.servicetalk.http.netty;
 
 import io.servicetalk.http.netty.H2ProtocolConfig.KeepAlivePolicy;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.EventLoop;
 import io.netty.handler.codec.http2.DefaultHttp2GoAwayFrame;
 import io.netty.handler.codec.http2.DefaultHttp2PingFrame;
+import io.netty.handler.codec.http2.DefaultHttp2WindowUpdateFrame;
 import io.netty.handler.codec.http2.Http2PingFrame;
 import io.netty.handler.timeout.IdleStateEvent;
 import io.netty.handler.timeout.IdleStateHandler;
@@ -35,10 +38,13 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import javax.annotation.Nullable;
 
+import static io.netty.handler.codec.http2.Http2CodecUtil.DEFAULT_WINDOW_SIZE;
 import static io.netty.handler.codec.http2.Http2Error.NO_ERROR;
 import static io.servicetalk.http.netty.H2KeepAlivePolicies.DEFAULT_ACK_TIMEOUT;
+import static java.lang.Math.max;
 import static java.lang.Math.min;
 import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
 
 /**
  * An implementation of {@link KeepAlivePolicy} per {@link Channel}.
@@ -49,6 +55,8 @@ final class KeepAliveManager {
             AtomicIntegerFieldUpdater.newUpdater(KeepAliveManager.class, "activeChildChannels");
     private static final long GRACEFUL_CLOSE_PING_CONTENT = ThreadLocalRandom.current().nextLong();
     private static final long KEEP_ALIVE_PING_CONTENT = ThreadLocalRandom.current().nextLong();
+    private static final long BDP_PING_CONTENT = ThreadLocalRandom.current().nextLong();
+    private static final int MAX_AUTO_TUNED_CONNECTION_WINDOW_SIZE = 16 * 1024 * 1024;
     private static final Object CLOSED = new Object();
     private static final Object GRACEFUL_CLOSE_START = new Object();
     private static final Object GRACEFUL_CLOSE_SECOND_GO_AWAY_SENT = new Object();
@@ -61,6 +69,7 @@ final class KeepAliveManager {
     private final long pingAckTimeoutNanos;
     private final boolean disallowKeepAliveWithoutActiveStreams;
     private final Scheduler scheduler;
+    private final boolean connectionWindowAutoTuning;
 
     // below state should only be accessed from eventloop
     /**
@@ -91,7 +100,21 @@ final class KeepAliveManager {
     @Nullable
     private final GenericFutureListener<Future<? super Void>> pingWriteCompletionListener;
 
+    /**
+     * State of the connection level flow-control window auto-tuning, see {@link #bytesReceived(int)}.
+     */
+    private int connectionWindowSize;
+    private boolean bdpPingPending;
+    private long bdpPingSentNanos;
+    private long bdpSampleBytes;
+    private long maxBandwidth;
+
     KeepAliveManager(final Channel channel, @Nullable final KeepAlivePolicy keepAlivePolicy) {
+        this(channel, keepAlivePolicy, DEFAULT_WINDOW_SIZE, false);
+    }
+
+    KeepAliveManager(final Channel channel, @Nullable final KeepAlivePolicy keepAlivePolicy,
+                     final int connectionWindowSize, final boolean connectionWindowAutoTuning) {
         this(channel, keepAlivePolicy, (task, delay, unit) ->
                 channel.eventLoop().schedule(task, delay, unit),
                 (ch, idlenessThresholdSeconds, onIdle) -> ch.pipeline().addLast(
@@ -100,13 +123,32 @@ final class KeepAliveManager {
                             protected void channelIdle(final ChannelHandlerContext ctx, final IdleStateEvent evt) {
                                 onIdle.run();
                             }
-                        }));
+                        }), connectionWindowSize, connectionWindowAutoTuning);
     }
 
     KeepAliveManager(final Channel channel, @Nullable final KeepAlivePolicy keepAlivePolicy,
                      final Scheduler scheduler, final IdlenessDetector idlenessDetector) {
+        this(channel, keepAlivePolicy, scheduler, idlenessDetector, DEFAULT_WINDOW_SIZE, false);
+    }
+
+    KeepAliveManager(final Channel channel, @Nullable final KeepAlivePolicy keepAlivePolicy,
+                     final Scheduler scheduler, final IdlenessDetector idlenessDetector,
+                     final int connectionWindowSize, final boolean connectionWindowAutoTuning) {
         this.channel = channel;
         this.scheduler = scheduler;
+        this.connectionWindowSize = connectionWindowSize;
+        this.connectionWindowAutoTuning = connectionWindowAutoTuning;
+        if (connectionWindowAutoTuning) {
+            channel.pipeline().addLast(new ChannelInboundHandlerAdapter() {
+                @Override
+                public void channelRead(final ChannelHandlerContext ctx, final Object msg) {
+                    if (msg instanceof ByteBuf) {
+                        bytesReceived(((ByteBuf) msg).readableBytes());
+                    }
+                    ctx.fireChannelRead(msg);
+                }
+            });
+        }
         if (keepAlivePolicy != null) {
             disallowKeepAliveWithoutActiveStreams = !keepAlivePolicy.withoutActiveStreams();
             pingAckTimeoutNanos = keepAlivePolicy.ackTimeout().toNanos();
@@ -151,6 +193,8 @@ final class KeepAliveManager {
             } else if (pingAckContent == KEEP_ALIVE_PING_CONTENT) {
                 cancelIfStateIsAFuture(keepAliveState);
                 keepAliveState = null;
+            } else if (pingAckContent == BDP_PING_CONTENT) {
+                bdpPingAckReceived();
             }
         } else {
             // Send an ack for the received ping
@@ -158,6 +202,31 @@ final class KeepAliveManager {
         }
     }
 
+    /**
+     * Estimates the bandwidth-delay product (BDP) of the connection to auto-tune the connection level flow-control
+     * window. A PING is sent when data is received and all bytes received until its ACK arrives are a sample of the
+     * BDP. If the sample is close to the window the peer is likely limited by flow-control rather than by the link,
+     * so the window is grown to twice the sample.
+     *
+     * @param bytes number of bytes read from the transport.
+     */
+    void bytesReceived(final int bytes) {
+        assert channel.eventLoop().inEventLoop();
+
+        if (!connectionWindowAutoTuning || gracefulCloseState == CLOSED ||
+                connectionWindowSize >= MAX_AUTO_TUNED_CONNECTION_WINDOW_SIZE) {
+            return;
+        }
+        if (bdpPingPending) {
+            bdpSampleBytes += bytes;
+            return;
+        }
+        bdpPingPending = true;
+        bdpSampleBytes = bytes;
+        bdpPingSentNanos = System.nanoTime();
+        channel.writeAndFlush(new DefaultHttp2PingFrame(BDP_PING_CONTENT, false));
+    }
+
     void trackActiveStream(final Channel streamChannel) {
         activeChildChannelsUpdater.incrementAndGet(this);
         streamChannel.closeFuture().addListener(f -> {
@@ -287,6 +356,29 @@ final class KeepAliveManager {
         });
     }
 
+    private void bdpPingAckReceived() {
+        if (!bdpPingPending) {
+            return;
+        }
+        bdpPingPending = false;
+        final long rttNanos = max(1, System.nanoTime() - bdpPingSentNanos);
+        final long sample = bdpSampleBytes;
+        final long bandwidth = sample * SECONDS.toNanos(1) / rttNanos;
+        // Only grow if the bandwidth improved, otherwise a burst of data queued behind the PING may inflate the
+        // window without any throughput benefit.
+        if (sample * 3 < connectionWindowSize * 2L || bandwidth <= maxBandwidth) {
+            return;
+        }
+        maxBandwidth = bandwidth;
+        final int newWindowSize = (int) min(sample * 2, MAX_AUTO_TUNED_CONNECTION_WINDOW_SIZE);
+        if (newWindowSize > connectionWindowSize) {
+            LOGGER.debug("channel={}, rtt={}ns, bdp={}, increasing connection window from {} to {}.",
+                    channel, rttNanos, sample, connectionWindowSize, newWindowSize);
+            channel.writeAndFlush(new DefaultHttp2WindowUpdateFrame(newWindowSize - connectionWindowSize));
+            connectionWindowSize = newWindowSize;
+        }
+    }
+
     private void close0() {
         assert channel.eventLoop().inEventLoop();
 
@@ -36,10 +36,14 @@ import io.servicetalk.http.api.StreamingHttpRequest;
 import io.servicetalk.http.api.StreamingHttpResponse;
 import io.servicetalk.http.api.StreamingHttpResponseFactory;
 
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+import static io.servicetalk.client.api.internal.RequestConcurrencyController.Result.Accepted;
 import static io.servicetalk.http.api.HttpApiConversions.toReservedBlockingConnection;
 import static io.servicetalk.http.api.HttpApiConversions.toReservedBlockingStreamingConnection;
 import static io.servicetalk.http.api.HttpApiConversions.toReservedConnection;
 import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.atomic.AtomicIntegerFieldUpdater.newUpdater;
 
 /**
  * Makes the wrapped {@link StreamingHttpConnection} aware of the {@link LoadBalancer}.
@@ -51,6 +55,10 @@ final class LoadBalancedStreamingHttpConnection implements FilterableStreamingHt
                    // Reserved connection given to the user will use the correct strategy and influencer chain since
                    // we wrap before returning to the user.
                    HttpExecutionStrategyInfluencer {
+    private static final AtomicIntegerFieldUpdater<LoadBalancedStreamingHttpConnection> pendingRequestsUpdater =
+            newUpdater(LoadBalancedStreamingHttpConnection.class, "pendingRequests");
+
+    private volatile int pendingRequests;
     private final ReservableRequestConcurrencyController limiter;
     private final FilterableStreamingHttpLoadBalancedConnection filteredConnection;
     private final HttpExecutionStrategy streamingStrategy;
@@ -73,11 +81,16 @@ final class LoadBalancedStreamingHttpConnection implements FilterableStreamingHt
 
     @Override
     public Result tryRequest() {
-        return limiter.tryRequest();
+        final Result result = limiter.tryRequest();
+        if (result == Accepted) {
+            pendingRequestsUpdater.incrementAndGet(this);
+        }
+        return result;
     }
 
     @Override
     public void requestFinished() {
+        pendingRequestsUpdater.decrementAndGet(this);
         limiter.requestFinished();
     }
 
@@ -159,6 +172,10 @@ final class LoadBalancedStreamingHttpConnection implements FilterableStreamingHt
 
     @Override
     public int score() {
-        return filteredConnection.score();
+        // Lower the score by the number of outstanding requests, so load balancers which take the score into account
+        // (e.g. P2CLoadBalancer) can prefer less loaded connections.
+        final int score = filteredConnection.score();
+        final int pending = pendingRequests;
+        return score > pending ? score - pending : 0;
     }
 }
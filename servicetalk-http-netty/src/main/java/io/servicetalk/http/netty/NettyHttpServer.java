@@ -100,6 +100,7 @@ import static io.servicetalk.http.netty.HeaderUtils.setResponseContentLength;
 import static io.servicetalk.http.netty.HttpDebugUtils.showPipeline;
 import static io.servicetalk.transport.netty.internal.CloseHandler.CloseEvent.CHANNEL_CLOSED_INBOUND;
 import static io.servicetalk.transport.netty.internal.CloseHandler.forPipelinedRequestResponse;
+import static io.servicetalk.transport.netty.internal.FlushStrategies.isAdaptiveFlush;
 import static io.servicetalk.transport.netty.internal.SplittingFlushStrategy.FlushBoundaryProvider.FlushBoundary.End;
 import static io.servicetalk.transport.netty.internal.SplittingFlushStrategy.FlushBoundaryProvider.FlushBoundary.InProgress;
 import static io.servicetalk.transport.netty.internal.SplittingFlushStrategy.FlushBoundaryProvider.FlushBoundary.Start;
@@ -157,27 +158,33 @@ final class NettyHttpServer {
         assert h1Config != null;
         return showPipeline(DefaultNettyConnection.initChannel(channel,
                 httpExecutionContext.bufferAllocator(), httpExecutionContext.executor(), LAST_CHUNK_PREDICATE,
-                closeHandler, config.tcpConfig().flushStrategy(), config.tcpConfig().idleTimeoutMs(),
+                closeHandler, config.tcpConfig().flushStrategy(), config.tcpConfig().writeDemandEstimatorSupplier(),
+                config.tcpConfig().idleTimeoutMs(),
                 initializer.andThen(getChannelInitializer(getByteBufAllocator(httpExecutionContext.bufferAllocator()),
                         h1Config, closeHandler)), httpExecutionContext.executionStrategy(), HTTP_1_1, observer, false)
                 .map(conn -> new NettyHttpServerConnection(conn, service, httpExecutionContext.executionStrategy(),
                         HTTP_1_1, h1Config.headersFactory(), drainRequestPayloadBody,
-                        config.allowDropTrailersReadFromTransport())), HTTP_1_1, channel);
+                        config.allowDropTrailersReadFromTransport(), h1Config.pooledPayloadBody())), HTTP_1_1,
+                channel);
     }
 
     private static ChannelInitializer getChannelInitializer(final ByteBufAllocator alloc, final H1ProtocolConfig config,
                                                             final CloseHandler closeHandler) {
-        // H1 slices passed memory chunks into headers and payload body without copying and will emit them to the
-        // user-code. Therefore, ByteBufs must be copied to unpooled memory before HttpObjectDecoder.
-        return new CopyByteBufHandlerChannelInitializer(alloc).andThen(channel -> {
+        final ChannelInitializer codecInitializer = channel -> {
             Queue<HttpRequestMethod> methodQueue = new ArrayDeque<>(2);
             final ChannelPipeline pipeline = channel.pipeline();
             pipeline.addLast(new HttpRequestDecoder(methodQueue, alloc, config.headersFactory(),
                     config.maxStartLineLength(), config.maxHeaderFieldLength(),
-                    config.specExceptions().allowPrematureClosureBeforePayloadBody(), closeHandler));
+                    config.specExceptions().allowPrematureClosureBeforePayloadBody(), config.pooledPayloadBody(),
+                    closeHandler));
             pipeline.addLast(new HttpResponseEncoder(methodQueue, config.headersEncodedSizeEstimate(),
-                    config.trailersEncodedSizeEstimate(), closeHandler));
-        });
+                    config.trailersEncodedSizeEstimate(), config.pooledPayloadBody(), closeHandler));
+        };
+        // H1 slices passed memory chunks into headers and payload body without copying and will emit them to the
+        // user-code. Therefore, ByteBufs must be copied to unpooled memory before HttpObjectDecoder, unless the user
+        // opted-in to release the pooled payload body explicitly.
+        return config.pooledPayloadBody() ? codecInitializer :
+                new CopyByteBufHandlerChannelInitializer(alloc).andThen(codecInitializer);
     }
 
     static final class NettyHttpServerContext implements ServerContext {
@@ -231,6 +238,7 @@ final class NettyHttpServer {
         private final SplittingFlushStrategy splittingFlushStrategy;
         private final boolean drainRequestPayloadBody;
         private final boolean requireTrailerHeader;
+        private final boolean pooledPayloadBody;
 
         NettyHttpServerConnection(final NettyConnection<Object, Object> connection,
                                   final StreamingHttpService service,
@@ -238,7 +246,8 @@ final class NettyHttpServer {
                                   final HttpProtocolVersion version,
                                   final HttpHeadersFactory headersFactory,
                                   final boolean drainRequestPayloadBody,
-                                  final boolean requireTrailerHeader) {
+                                  final boolean requireTrailerHeader,
+                                  final boolean pooledPayloadBody) {
             super(headersFactory,
                     new DefaultHttpResponseFactory(headersFactory, connection.executionContext().bufferAllocator(),
                             version),
@@ -266,6 +275,7 @@ final class NettyHttpServer {
             connection.updateFlushStrategy((current, isCurrentOriginal) -> splittingFlushStrategy);
             this.drainRequestPayloadBody = drainRequestPayloadBody;
             this.requireTrailerHeader = requireTrailerHeader;
+            this.pooledPayloadBody = pooledPayloadBody;
         }
 
         void process(final boolean handleMultipleRequests) {
@@ -332,12 +342,19 @@ final class NettyHttpServer {
                                 }
                             };
                         }));
+                if (pooledPayloadBody) {
+                    // Only PooledPayloadBodies passes the pooled payload body to the user, everything else observes
+                    // copies.
+                    request.transformMessageBody(payload ->
+                            new CopyingPayloadBodyPublisher(payload, executionContext().bufferAllocator()));
+                }
 
                 final HttpRequestMethod requestMethod = request.method();
                 final HttpKeepAlive keepAlive = HttpKeepAlive.responseKeepAlive(request);
                 Publisher<Object> responsePublisher = strategy
                         .invokeService(executionContext().executor(), request,
-                                req -> service.handle(NettyHttpServerConnection.this, req, streamingResponseFactory())
+                                req -> service.handle(NettyHttpServerConnection.this, allowPooledPayloadBody(req),
+                                        streamingResponseFactory())
                                         .recoverWith(cause ->
                                                 succeeded(newErrorResponse(cause, executionContext.executor(),
                                                         req.version(), keepAlive)))
@@ -347,7 +364,8 @@ final class NettyHttpServer {
                                             final FlushStrategy flushStrategy = determineFlushStrategyForApi(response);
                                             if (flushStrategy != null) {
                                                 splittingFlushStrategy.updateFlushStrategy(
-                                                        (prev, isOriginal) -> isOriginal ? flushStrategy : prev, 1);
+                                                        (prev, isOriginal) -> isOriginal && !isAdaptiveFlush(prev) ?
+                                                                flushStrategy : prev, 1);
                                             }
                                             return handleResponse(requestMethod, response);
                                         }),
@@ -369,6 +387,15 @@ final class NettyHttpServer {
                     responseObjectPublisher);
         }
 
+        private static StreamingHttpRequest allowPooledPayloadBody(final StreamingHttpRequest request) {
+            final Publisher<Object> messageBody = request.messageBody();
+            if (messageBody instanceof CopyingPayloadBodyPublisher) {
+                // The request payload body is not offloaded, so PooledPayloadBodies can pass pooled buffers.
+                ((CopyingPayloadBodyPublisher) messageBody).allowPooled();
+            }
+            return request;
+        }
+
         @Nonnull
         private static Publisher<Object> handleResponse(final HttpRequestMethod requestMethod,
                                                         final StreamingHttpResponse response) {
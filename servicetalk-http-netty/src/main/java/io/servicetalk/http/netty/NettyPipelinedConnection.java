@@ -1,5 +1,5 @@
 /*
- * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ * Copyright © 2020-2021 Apple Inc. and the ServiceTalk project authors
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -27,7 +27,6 @@ import io.servicetalk.transport.netty.internal.FlushStrategy;
 import io.servicetalk.transport.netty.internal.NettyConnection;
 import io.servicetalk.transport.netty.internal.NettyConnectionContext;
 import io.servicetalk.transport.netty.internal.WriteDemandEstimator;
-import io.servicetalk.transport.netty.internal.WriteDemandEstimators;
 
 import io.netty.channel.Channel;
 
@@ -88,7 +87,16 @@ final class NettyPipelinedConnection<Req, Resp> implements NettyConnectionContex
      * @return Response {@link Publisher} for this request.
      */
     Publisher<Resp> write(final Publisher<Req> requestPublisher) {
-        return write(requestPublisher, connection::defaultFlushStrategy, WriteDemandEstimators::newDefaultEstimator);
+        return write(requestPublisher, connection::defaultFlushStrategy, connection::newWriteDemandEstimator);
+    }
+
+    /**
+     * Creates a new {@link WriteDemandEstimator} as configured for the underlying {@link NettyConnection}.
+     *
+     * @return A new {@link WriteDemandEstimator}.
+     */
+    WriteDemandEstimator newWriteDemandEstimator() {
+        return connection.newWriteDemandEstimator();
     }
 
     /**
@@ -1,5 +1,5 @@
 /*
- * Copyright © 2018 Apple Inc. and the ServiceTalk project authors
+ * Copyright © 2018, 2021 Apple Inc. and the ServiceTalk project authors
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -25,6 +25,8 @@ import io.servicetalk.transport.netty.internal.NettyConnection;
 
 import javax.annotation.Nullable;
 
+import static io.servicetalk.transport.netty.internal.FlushStrategies.isAdaptiveFlush;
+
 final class NonPipelinedStreamingHttpConnection
         extends AbstractStreamingHttpConnection<NettyConnection<Object, Object>> {
 
@@ -32,8 +34,10 @@ final class NonPipelinedStreamingHttpConnection
                                         final HttpExecutionContext executionContext,
                                         final StreamingHttpRequestResponseFactory reqRespFactory,
                                         final HttpHeadersFactory headersFactory,
-                                        final boolean allowDropTrailersReadFromTransport) {
-        super(connection, 1, executionContext, reqRespFactory, headersFactory, allowDropTrailersReadFromTransport);
+                                        final boolean allowDropTrailersReadFromTransport,
+                                        final boolean pooledPayloadBody) {
+        super(connection, 1, executionContext, reqRespFactory, headersFactory, allowDropTrailersReadFromTransport,
+                pooledPayloadBody);
     }
 
     @Override
@@ -44,7 +48,7 @@ final class NonPipelinedStreamingHttpConnection
         } else {
             return Publisher.defer(() -> {
                 final Cancellable resetFlushStrategy = connection.updateFlushStrategy(
-                        (prev, isOriginal) -> isOriginal ? flushStrategy : prev);
+                        (prev, isOriginal) -> isOriginal && !isAdaptiveFlush(prev) ? flushStrategy : prev);
                 return connection.write(requestStream).mergeDelayError(connection.read())
                         .afterFinally(resetFlushStrategy::cancel);
             });
@@ -1,5 +1,5 @@
 /*
- * Copyright © 2018 Apple Inc. and the ServiceTalk project authors
+ * Copyright © 2018-2021 Apple Inc. and the ServiceTalk project authors
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -21,10 +21,11 @@ import io.servicetalk.http.api.HttpExecutionContext;
 import io.servicetalk.http.api.StreamingHttpRequestResponseFactory;
 import io.servicetalk.transport.netty.internal.FlushStrategy;
 import io.servicetalk.transport.netty.internal.NettyConnection;
-import io.servicetalk.transport.netty.internal.WriteDemandEstimators;
 
 import javax.annotation.Nullable;
 
+import static io.servicetalk.transport.netty.internal.FlushStrategies.isAdaptiveFlush;
+
 final class PipelinedStreamingHttpConnection
         extends AbstractStreamingHttpConnection<NettyPipelinedConnection<Object, Object>> {
     PipelinedStreamingHttpConnection(final NettyConnection<Object, Object> connection,
@@ -34,7 +35,7 @@ final class PipelinedStreamingHttpConnection
                                      final boolean allowDropTrailersReadFromTransport) {
         super(new NettyPipelinedConnection<>(connection),
                 config.maxPipelinedRequests(), executionContext, reqRespFactory, config.headersFactory(),
-                allowDropTrailersReadFromTransport);
+                allowDropTrailersReadFromTransport, config.pooledPayloadBody());
     }
 
     @Override
@@ -46,9 +47,9 @@ final class PipelinedStreamingHttpConnection
             // TODO(scott): if we can remove the flush state on the connection we can simplify the control flow here.
             return Publisher.defer(() -> {
                 final Cancellable resetFlushStrategy = connection.updateFlushStrategy(
-                        (prev, isOriginal) -> isOriginal ? flushStrategy : prev);
+                        (prev, isOriginal) -> isOriginal && !isAdaptiveFlush(prev) ? flushStrategy : prev);
                 return connection.write(requestStream, connection::defaultFlushStrategy,
-                        WriteDemandEstimators::newDefaultEstimator).afterFinally(resetFlushStrategy::cancel);
+                        connection::newWriteDemandEstimator).afterFinally(resetFlushStrategy::cancel);
             });
         }
     }
@@ -0,0 +1,90 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.http.netty;
+
+import io.servicetalk.buffer.api.Buffer;
+import io.servicetalk.buffer.netty.BufferUtils;
+import io.servicetalk.concurrent.api.Publisher;
+import io.servicetalk.concurrent.api.internal.SubscribablePublisher;
+import io.servicetalk.http.api.HttpExecutionStrategy;
+import io.servicetalk.http.api.StreamingHttpRequest;
+import io.servicetalk.http.api.StreamingHttpResponse;
+
+import static io.servicetalk.http.netty.CopyingPayloadBodyPublisher.subscribePooled;
+
+/**
+ * Access to the pooled payload body of messages read by a transport which is configured via
+ * {@link H1ProtocolConfigBuilder#pooledPayloadBody(boolean)} or
+ * {@link H2ProtocolConfigBuilder#pooledPayloadBody(boolean)}.
+ * <p>
+ * This is the only API which passes pooled, reference counted {@link Buffer}s to the user. All other APIs (e.g.
+ * {@link StreamingHttpRequest#payloadBody()}, aggregation, filters and serializers) observe copies in unpooled memory,
+ * and the transport releases the pooled {@link Buffer}s after copying them. The pooled {@link Buffer}s are only
+ * passed if the {@link HttpExecutionStrategy} does not offload the receive data path (see
+ * {@link HttpExecutionStrategy#isDataReceiveOffloaded()}) and all operators applied to the payload body subscribe
+ * synchronously. Otherwise, the returned {@link Publisher} emits copies like
+ * {@link StreamingHttpRequest#payloadBody()}.
+ * <p>
+ * The user of the returned {@link Publisher} is responsible for the following:
+ * <ul>
+ *     <li>Each {@link Buffer} must be released exactly once, either by writing it to a transport which is also
+ *     configured to use the pooled payload body (which takes ownership of everything it writes), or by calling
+ *     {@link BufferUtils#release(Buffer)}.</li>
+ *     <li>The returned {@link Publisher} must be subscribed to, otherwise the {@link Buffer}s which are already read
+ *     are not released until the connection is closed.</li>
+ *     <li>The payload body read from the transport can only be subscribed to once, so filters which subscribe to a
+ *     request payload body more than once (e.g. retries or hedging) fail instead of releasing a {@link Buffer}
+ *     twice.</li>
+ * </ul>
+ * Trailers are not passed via the returned {@link Publisher}.
+ */
+public final class PooledPayloadBodies {
+
+    private PooledPayloadBodies() {
+        // no instances
+    }
+
+    /**
+     * Returns the payload body of the passed {@link StreamingHttpRequest} in pooled {@link Buffer}s, if available.
+     *
+     * @param request the {@link StreamingHttpRequest} read from the transport
+     * @return the payload body in pooled {@link Buffer}s which must be released by the caller, or copies like
+     * {@link StreamingHttpRequest#payloadBody()} if the pooled payload body is not available
+     */
+    public static Publisher<Buffer> pooledPayloadBody(final StreamingHttpRequest request) {
+        return pooledPayloadBody(request.payloadBody());
+    }
+
+    /**
+     * Returns the payload body of the passed {@link StreamingHttpResponse} in pooled {@link Buffer}s, if available.
+     *
+     * @param response the {@link StreamingHttpResponse} read from the transport
+     * @return the payload body in pooled {@link Buffer}s which must be released by the caller, or copies like
+     * {@link StreamingHttpResponse#payloadBody()} if the pooled payload body is not available
+     */
+    public static Publisher<Buffer> pooledPayloadBody(final StreamingHttpResponse response) {
+        return pooledPayloadBody(response.payloadBody());
+    }
+
+    private static Publisher<Buffer> pooledPayloadBody(final Publisher<Buffer> payloadBody) {
+        return new SubscribablePublisher<Buffer>() {
+            @Override
+            protected void handleSubscribe(final Subscriber<? super Buffer> subscriber) {
+                subscribePooled(payloadBody, subscriber);
+            }
+        };
+    }
+}
@@ -57,7 +57,8 @@ final class StreamingConnectionFactory {
         assert config.h1Config() != null;
         return showPipeline(DefaultNettyConnection.initChannel(channel, executionContext.bufferAllocator(),
                 executionContext.executor(), LAST_CHUNK_PREDICATE, closeHandler, config.tcpConfig().flushStrategy(),
-                config.tcpConfig().idleTimeoutMs(), initializer.andThen(new HttpClientChannelInitializer(
+                config.tcpConfig().writeDemandEstimatorSupplier(), config.tcpConfig().idleTimeoutMs(),
+                initializer.andThen(new HttpClientChannelInitializer(
                         getByteBufAllocator(executionContext.bufferAllocator()), config.h1Config(), closeHandler)),
                 executionContext.executionStrategy(), HTTP_1_1, connectionObserver, true), HTTP_1_1, channel);
     }
@@ -75,7 +75,7 @@ public class AbstractH2DuplexHandlerTest {
             @Override
             ChannelDuplexHandler handler(ChannelConfig config) {
                 return new H2ToStH1ClientDuplexHandler(false, DEFAULT_ALLOCATOR,
-                        HEADERS_FACTORY, forNonPipelined(true, config), NoopStreamObserver.INSTANCE);
+                        HEADERS_FACTORY, forNonPipelined(true, config), NoopStreamObserver.INSTANCE, false);
             }
 
             @Override
@@ -93,7 +93,7 @@ public class AbstractH2DuplexHandlerTest {
             @Override
             ChannelDuplexHandler handler(ChannelConfig config) {
                 return new H2ToStH1ServerDuplexHandler(DEFAULT_ALLOCATOR, HEADERS_FACTORY,
-                        forNonPipelined(false, config), NoopStreamObserver.INSTANCE);
+                        forNonPipelined(false, config), NoopStreamObserver.INSTANCE, false);
             }
 
             @Override
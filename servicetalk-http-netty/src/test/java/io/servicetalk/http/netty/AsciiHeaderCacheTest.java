@@ -0,0 +1,103 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.http.netty;
+
+import io.netty.buffer.ByteBuf;
+import org.junit.Test;
+
+import static io.netty.buffer.ByteBufUtil.writeAscii;
+import static io.netty.buffer.UnpooledByteBufAllocator.DEFAULT;
+import static io.servicetalk.http.api.HttpHeaderNames.CONTENT_TYPE;
+import static io.servicetalk.http.netty.AsciiHeaderCache.MAX_CACHED_LENGTH;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasToString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThrows;
+
+public class AsciiHeaderCacheTest {
+
+    private final AsciiHeaderCache cache = new AsciiHeaderCache(16, CONTENT_TYPE);
+
+    @Test
+    public void wellKnownEntryReturned() {
+        assertThat(get("xcontent-type", 1), is(sameInstance(CONTENT_TYPE)));
+    }
+
+    @Test
+    public void entryAddedWhenSeenTwice() {
+        assertThat(get("value", 0), is(nullValue()));
+        final CharSequence second = get("value", 0);
+        assertThat(second, hasToString("value"));
+        assertThat(get("value", 0), is(sameInstance(second)));
+    }
+
+    @Test
+    public void alternatingEntriesNotCached() {
+        final AsciiHeaderCache cache = new AsciiHeaderCache(1);
+        for (int i = 0; i < 3; ++i) {
+            assertThat(get(cache, "first"), is(nullValue()));
+            assertThat(get(cache, "second"), is(nullValue()));
+        }
+    }
+
+    @Test
+    public void occupiedSlotReplacedWhenSeenTwice() {
+        final AsciiHeaderCache cache = new AsciiHeaderCache(1);
+        assertThat(get(cache, "first"), is(nullValue()));
+        final CharSequence first = get(cache, "first");
+        assertThat(first, hasToString("first"));
+        assertThat(get(cache, "second"), is(nullValue()));
+        assertThat(get(cache, "first"), is(sameInstance(first)));
+        final CharSequence second = get(cache, "second");
+        assertThat(second, hasToString("second"));
+        assertThat(get(cache, "second"), is(sameInstance(second)));
+        assertThat(get(cache, "first"), is(nullValue()));
+    }
+
+    @Test
+    public void longEntriesNotCached() {
+        final StringBuilder sb = new StringBuilder(MAX_CACHED_LENGTH + 1);
+        for (int i = 0; i <= MAX_CACHED_LENGTH; ++i) {
+            sb.append('a');
+        }
+        assertThat(get(sb.toString(), 0), is(nullValue()));
+        assertThat(get(sb.toString(), 0), is(nullValue()));
+    }
+
+    @Test
+    public void invalidSize() {
+        assertThrows(IllegalArgumentException.class, () -> new AsciiHeaderCache(3));
+    }
+
+    private CharSequence get(final String content, final int offset) {
+        return get(cache, content, offset);
+    }
+
+    private static CharSequence get(final AsciiHeaderCache cache, final String content) {
+        return get(cache, content, 0);
+    }
+
+    private static CharSequence get(final AsciiHeaderCache cache, final String content, final int offset) {
+        final ByteBuf buffer = writeAscii(DEFAULT, content);
+        try {
+            return cache.get(buffer, offset, content.length() - offset);
+        } finally {
+            buffer.release();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.http.netty;
+
+import io.servicetalk.concurrent.api.CompositeCloseable;
+import io.servicetalk.concurrent.internal.ServiceTalkTestTimeout;
+import io.servicetalk.http.api.FilterableStreamingHttpLoadBalancedConnection;
+import io.servicetalk.http.api.ReservedStreamingHttpConnection;
+import io.servicetalk.http.api.StreamingHttpClient;
+import io.servicetalk.loadbalancer.RoundRobinLoadBalancer.RoundRobinLoadBalancerFactory;
+import io.servicetalk.transport.api.ServerContext;
+import io.servicetalk.transport.netty.internal.EventLoopAwareNettyIoExecutor;
+import io.servicetalk.transport.netty.internal.IoThreadFactory;
+import io.servicetalk.transport.netty.internal.NettyConnectionContext;
+
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import java.net.InetSocketAddress;
+
+import static io.servicetalk.concurrent.api.AsyncCloseables.newCompositeCloseable;
+import static io.servicetalk.http.api.HttpExecutionStrategies.noOffloadsStrategy;
+import static io.servicetalk.http.netty.HttpClients.forSingleAddress;
+import static io.servicetalk.http.netty.HttpServers.forAddress;
+import static io.servicetalk.transport.api.ServiceTalkSocketOptions.CONNECTION_AFFINITY;
+import static io.servicetalk.transport.netty.internal.AddressUtils.localAddress;
+import static io.servicetalk.transport.netty.internal.AddressUtils.serverHostAndPort;
+import static io.servicetalk.transport.netty.internal.NettyIoExecutors.createIoExecutor;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class EventLoopAffinityTest {
+    @Rule
+    public final Timeout timeout = new ServiceTalkTestTimeout();
+
+    private final CompositeCloseable closeables = newCompositeCloseable();
+    private final EventLoopAwareNettyIoExecutor ioExecutor = closeables.append(
+            createIoExecutor(2, new IoThreadFactory("client-io")));
+    private final ServerContext serverContext;
+    private final StreamingHttpClient client;
+
+    public EventLoopAffinityTest() throws Exception {
+        serverContext = closeables.append(forAddress(localAddress(0))
+                .listenBlockingAndAwait((ctx, request, responseFactory) -> responseFactory.ok()));
+        client = closeables.append(forSingleAddress(serverHostAndPort(serverContext))
+                .ioExecutor(ioExecutor)
+                .executionStrategy(noOffloadsStrategy())
+                .socketOption(CONNECTION_AFFINITY, true)
+                .loadBalancerFactory(DefaultHttpLoadBalancerFactory.Builder.from(
+                        new RoundRobinLoadBalancerFactory.Builder<InetSocketAddress,
+                                FilterableStreamingHttpLoadBalancedConnection>()
+                                .connectionAffinity(DefaultHttpLoadBalancerFactory.eventLoopAffinity())
+                                .build()).build())
+                .buildStreaming());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        closeables.close();
+    }
+
+    @Test
+    public void connectionBoundToCallingEventLoop() throws Exception {
+        final EventLoopGroup group = ioExecutor.eventLoopGroup();
+        final EventLoop first = group.next();
+        final EventLoop second = group.next();
+        assertThat(second, is(not(sameInstance(first))));
+
+        final ReservedStreamingHttpConnection firstConnection = reserveOn(first);
+        final ReservedStreamingHttpConnection secondConnection = reserveOn(second);
+        assertThat(eventLoop(firstConnection), is(sameInstance(first)));
+        assertThat(eventLoop(secondConnection), is(sameInstance(second)));
+        firstConnection.releaseAsync().toFuture().get();
+        secondConnection.releaseAsync().toFuture().get();
+
+        final ReservedStreamingHttpConnection reused = reserveOn(first);
+        assertThat("Connection of the calling event loop not reused.", channel(reused),
+                is(sameInstance(channel(firstConnection))));
+        reused.releaseAsync().toFuture().get();
+    }
+
+    @Test
+    public void connectionsSpreadAcrossEventLoopsWithoutAffinity() throws Exception {
+        final StreamingHttpClient client = closeables.append(forSingleAddress(serverHostAndPort(serverContext))
+                .ioExecutor(ioExecutor)
+                .executionStrategy(noOffloadsStrategy())
+                .buildStreaming());
+        final EventLoop eventLoop = ioExecutor.eventLoopGroup().next();
+        final ReservedStreamingHttpConnection firstConnection = reserveOn(client, eventLoop);
+        final ReservedStreamingHttpConnection secondConnection = reserveOn(client, eventLoop);
+        assertThat("Connections not spread across event loops.", eventLoop(secondConnection),
+                is(not(sameInstance(eventLoop(firstConnection)))));
+        firstConnection.releaseAsync().toFuture().get();
+        secondConnection.releaseAsync().toFuture().get();
+    }
+
+    private ReservedStreamingHttpConnection reserveOn(final EventLoop eventLoop) throws Exception {
+        return reserveOn(client, eventLoop);
+    }
+
+    private static ReservedStreamingHttpConnection reserveOn(final StreamingHttpClient client,
+                                                             final EventLoop eventLoop) throws Exception {
+        // Subscribe on the event loop, so that the connection is selected on it.
+        return eventLoop.submit(() -> client.reserveConnection(client.get("/")).toFuture()).get().get();
+    }
+
+    private static EventLoop eventLoop(final ReservedStreamingHttpConnection connection) {
+        return channel(connection).eventLoop();
+    }
+
+    private static Channel channel(final ReservedStreamingHttpConnection connection) {
+        return ((NettyConnectionContext) connection.connectionContext()).nettyChannel();
+    }
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright © 2019 Apple Inc. and the ServiceTalk project authors
+ * Copyright © 2019, 2021 Apple Inc. and the ServiceTalk project authors
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -21,6 +21,7 @@ import io.servicetalk.concurrent.SingleSource;
 import io.servicetalk.concurrent.api.Processors;
 import io.servicetalk.concurrent.api.Publisher;
 import io.servicetalk.concurrent.api.Single;
+import io.servicetalk.http.api.StreamingHttpClient;
 import io.servicetalk.http.api.StreamingHttpConnection;
 import io.servicetalk.http.api.StreamingHttpRequest;
 import io.servicetalk.http.api.StreamingHttpResponse;
@@ -42,6 +43,7 @@ import static io.servicetalk.http.api.HttpHeaderValues.CHUNKED;
 import static io.servicetalk.http.api.HttpRequestMethod.POST;
 import static io.servicetalk.http.netty.AbstractNettyHttpServerTest.ExecutorSupplier.CACHED;
 import static io.servicetalk.http.netty.AbstractNettyHttpServerTest.ExecutorSupplier.CACHED_SERVER;
+import static io.servicetalk.transport.api.ServiceTalkSocketOptions.ADAPTIVE_FLUSH_MAX_PENDING_WRITES;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertNull;
@@ -110,6 +112,24 @@ public class FlushStrategyForClientApiTest extends AbstractNettyHttpServerTest {
         requestLatch.await(); // Wait for the server to receive the response, meaning the client wrote and flushed.
     }
 
+    @Test
+    public void aggregatedApiShouldKeepAdaptiveFlush() throws Exception {
+        try (StreamingHttpClient client = newClientBuilder()
+                .socketOption(ADAPTIVE_FLUSH_MAX_PENDING_WRITES, 16).buildStreaming()) {
+            final StreamingHttpConnection connection = client.reserveConnection(client.get("/")).toFuture().get();
+
+            // The payload never completes, adaptive flushing still flushes the metadata.
+            final Single<StreamingHttpResponse> responseSingle = connection.request(
+                    connection.asConnection().newRequest(POST, "/")
+                            .addHeader(TRANSFER_ENCODING, CHUNKED)
+                            .toStreamingRequest().payloadBody(Publisher.never()));
+
+            responseSingle.toFuture(); // Subscribe, to initiate the request, but we don't care about the response.
+
+            requestLatch.await(); // Wait for the server to receive the response, meaning the client wrote and flushed.
+        }
+    }
+
     @Test
     public void streamingApiShouldFlushOnEach() throws Exception {
         final StreamingHttpConnection connection = streamingHttpConnection();
@@ -0,0 +1,80 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.http.netty;
+
+import io.servicetalk.concurrent.internal.ServiceTalkTestTimeout;
+import io.servicetalk.http.api.BlockingHttpClient;
+import io.servicetalk.http.api.HttpResponse;
+import io.servicetalk.transport.api.ServerContext;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import static io.servicetalk.buffer.api.ReadOnlyBufferAllocators.DEFAULT_RO_ALLOCATOR;
+import static io.servicetalk.http.netty.HttpProtocolConfigs.h2;
+import static io.servicetalk.transport.netty.internal.AddressUtils.localAddress;
+import static io.servicetalk.transport.netty.internal.AddressUtils.serverHostAndPort;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class H2SettingsTest {
+
+    @Rule
+    public final Timeout timeout = new ServiceTalkTestTimeout();
+
+    @Test
+    public void nonDefaultSettings() throws Exception {
+        final H2ProtocolConfig config = h2()
+                .initialWindowSize(1024 * 1024)
+                .connectionWindowSize(4 * 1024 * 1024)
+                .connectionWindowAutoTuning(true)
+                .maxFrameSize(64 * 1024)
+                .maxConcurrentStreams(10)
+                .headerTableSize(8192)
+                .build();
+        try (ServerContext serverContext = HttpServers.forAddress(localAddress(0))
+                .protocols(config)
+                .listenBlockingAndAwait((ctx, request, responseFactory) ->
+                        responseFactory.ok().payloadBody(request.payloadBody()));
+             BlockingHttpClient client = HttpClients.forSingleAddress(serverHostAndPort(serverContext))
+                     .protocols(config)
+                     .buildBlocking()) {
+            final byte[] expected = new byte[2 * 1024 * 1024];
+            ThreadLocalRandom.current().nextBytes(expected);
+            final HttpResponse response = client.request(client.post("/")
+                    .payloadBody(DEFAULT_RO_ALLOCATOR.wrap(expected)));
+            assertThat(response.payloadBody(), is(DEFAULT_RO_ALLOCATOR.wrap(expected)));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void connectionWindowSmallerThanDefault() {
+        h2().connectionWindowSize(1024);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void maxFrameSizeTooSmall() {
+        h2().maxFrameSize(1024);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeInitialWindowSize() {
+        h2().initialWindowSize(-1);
+    }
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright © 2018, 2020 Apple Inc. and the ServiceTalk project authors
+ * Copyright © 2018, 2020-2021 Apple Inc. and the ServiceTalk project authors
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -28,20 +28,27 @@ import org.junit.Test;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
+import static io.servicetalk.buffer.api.CharSequences.contentEquals;
 import static io.servicetalk.buffer.netty.BufferAllocators.DEFAULT_ALLOCATOR;
 import static io.servicetalk.buffer.netty.BufferUtils.getByteBufAllocator;
+import static io.servicetalk.http.api.HttpHeaderNames.AUTHORIZATION;
+import static io.servicetalk.http.api.HttpHeaderNames.COOKIE;
 import static io.servicetalk.http.api.HttpHeaderNames.HOST;
+import static io.servicetalk.http.api.HttpHeaderNames.PROXY_AUTHORIZATION;
 import static io.servicetalk.http.api.HttpProtocolVersion.HTTP_1_1;
 import static io.servicetalk.http.api.HttpRequestMethod.GET;
 import static io.servicetalk.http.api.HttpRequestMethod.POST;
 import static io.servicetalk.http.api.HttpRequestMethod.Properties.NONE;
 import static java.lang.Integer.toHexString;
+import static java.util.Arrays.asList;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.hamcrest.Matchers.startsWith;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThrows;
@@ -277,6 +284,62 @@ public class HttpRequestDecoderTest extends HttpObjectDecoderTest {
         assertThat(channel.inboundMessages(), is(not(empty())));
     }
 
+    @Test
+    public void repeatedHeadersAreCached() {
+        final String request = "GET / HTTP/1.1" + "\r\n" +
+                "host: servicetalk.io" + "\r\n" +
+                "X-Custom: value" + "\r\n" + "\r\n";
+        final HttpRequestMetaData first = decode(request);
+        final HttpRequestMetaData second = decode(request);
+        final HttpRequestMetaData third = decode(request);
+
+        assertThat(headerName(first, "host"), is(sameInstance(HOST)));
+        // Names and values are only cached once they are seen twice.
+        assertThat(headerName(second, "X-Custom"), is(not(sameInstance(headerName(first, "X-Custom")))));
+        assertThat(headerName(third, "X-Custom"), is(sameInstance(headerName(second, "X-Custom"))));
+        assertThat(second.headers().get("x-custom"), is(not(sameInstance(first.headers().get("x-custom")))));
+        assertThat(third.headers().get("x-custom"), is(sameInstance(second.headers().get("x-custom"))));
+        assertThat(third.headers().get(HOST), is(sameInstance(second.headers().get(HOST))));
+        assertFalse(channel.finishAndReleaseAll());
+    }
+
+    @Test
+    public void sensitiveHeaderValuesAreNotCached() {
+        final String request = "GET / HTTP/1.1" + "\r\n" +
+                "host: servicetalk.io" + "\r\n" +
+                "Authorization: Basic c2VydmljZTp0YWxr" + "\r\n" +
+                "proxy-authorization: Basic c2VydmljZTp0YWxr" + "\r\n" +
+                "Cookie: session=1234" + "\r\n" + "\r\n";
+        final HttpRequestMetaData first = decode(request);
+        final HttpRequestMetaData second = decode(request);
+        final HttpRequestMetaData third = decode(request);
+
+        for (CharSequence name : asList(AUTHORIZATION, PROXY_AUTHORIZATION, COOKIE)) {
+            final CharSequence value = third.headers().get(name);
+            assertThat(contentEquals(value, first.headers().get(name)), is(true));
+            assertThat(value, is(not(sameInstance(first.headers().get(name)))));
+            assertThat(value, is(not(sameInstance(second.headers().get(name)))));
+        }
+        assertThat(third.headers().get(HOST), is(sameInstance(second.headers().get(HOST))));
+        assertFalse(channel.finishAndReleaseAll());
+    }
+
+    private HttpRequestMetaData decode(final String request) {
+        writeMsg(request);
+        final HttpRequestMetaData metaData = channel.readInbound();
+        assertEmptyTrailers(channel);
+        return metaData;
+    }
+
+    private static CharSequence headerName(final HttpRequestMetaData request, final String name) {
+        for (Map.Entry<CharSequence, CharSequence> header : request.headers()) {
+            if (contentEquals(header.getKey(), name)) {
+                return header.getKey();
+            }
+        }
+        throw new AssertionError("No header: " + name);
+    }
+
     private HttpRequestMetaData assertRequestLine(HttpRequestMethod expectedMethod, String expectedRequestTarget,
                                                   HttpProtocolVersion expectedVersion) {
         HttpRequestMetaData request = channel.readInbound();
@@ -24,6 +24,7 @@ import io.netty.handler.codec.http2.DefaultHttp2PingFrame;
 import io.netty.handler.codec.http2.Http2Error;
 import io.netty.handler.codec.http2.Http2GoAwayFrame;
 import io.netty.handler.codec.http2.Http2PingFrame;
+import io.netty.handler.codec.http2.Http2WindowUpdateFrame;
 import io.netty.util.concurrent.Promise;
 import org.hamcrest.Matcher;
 import org.junit.Rule;
@@ -34,6 +35,8 @@ import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadLocalRandom;
 
+import static io.netty.buffer.Unpooled.wrappedBuffer;
+import static io.netty.handler.codec.http2.Http2CodecUtil.DEFAULT_WINDOW_SIZE;
 import static io.servicetalk.http.netty.H2KeepAlivePolicies.DEFAULT_ACK_TIMEOUT;
 import static io.servicetalk.http.netty.H2KeepAlivePolicies.DEFAULT_IDLE_DURATION;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
@@ -227,6 +230,40 @@ public class KeepAliveManagerTest {
         verifyNoOtherActionPostClose(manager);
     }
 
+    @Test
+    public void connectionWindowAutoTuningDisabled() {
+        KeepAliveManager manager = newManager(false, false);
+        manager.bytesReceived(DEFAULT_WINDOW_SIZE);
+        verifyNoWrite();
+    }
+
+    @Test
+    public void connectionWindowGrowsWhenSampleCloseToWindow() {
+        KeepAliveManager manager = newManager(false, true);
+        channel.writeInbound(wrappedBuffer(new byte[1024]));
+        Http2PingFrame bdpPing = verifyWrite(instanceOf(Http2PingFrame.class));
+        channel.writeInbound(wrappedBuffer(new byte[DEFAULT_WINDOW_SIZE - 1024]));
+        verifyNoWrite();
+
+        manager.pingReceived(new DefaultHttp2PingFrame(bdpPing.content(), true));
+        Http2WindowUpdateFrame windowUpdate = verifyWrite(instanceOf(Http2WindowUpdateFrame.class));
+        assertThat("Unexpected window increment.", windowUpdate.windowSizeIncrement(), is(DEFAULT_WINDOW_SIZE));
+        verifyNoScheduledTasks();
+    }
+
+    @Test
+    public void connectionWindowDoesNotGrowWhenSampleSmall() {
+        KeepAliveManager manager = newManager(false, true);
+        manager.bytesReceived(1024);
+        Http2PingFrame bdpPing = verifyWrite(instanceOf(Http2PingFrame.class));
+
+        manager.pingReceived(new DefaultHttp2PingFrame(bdpPing.content(), true));
+        verifyNoWrite();
+
+        manager.bytesReceived(1024);
+        verifyWrite(instanceOf(Http2PingFrame.class));
+    }
+
     private void verifyNoOtherActionPostClose(final KeepAliveManager manager) {
         manager.channelIdle();
         verifyNoWrite();
@@ -303,6 +340,11 @@ public class KeepAliveManagerTest {
     }
 
     private KeepAliveManager newManager(final boolean allowPingWithoutActiveStreams) {
+        return newManager(allowPingWithoutActiveStreams, false);
+    }
+
+    private KeepAliveManager newManager(final boolean allowPingWithoutActiveStreams,
+                                        final boolean connectionWindowAutoTuning) {
         KeepAlivePolicy policy = mock(KeepAlivePolicy.class);
         when(policy.idleDuration()).thenReturn(DEFAULT_IDLE_DURATION);
         when(policy.ackTimeout()).thenReturn(DEFAULT_ACK_TIMEOUT);
@@ -315,7 +357,7 @@ public class KeepAliveManagerTest {
                     scheduledTasks.add(scheduledTask);
                     return scheduledTask.promise;
                 },
-                (__, ___, ____) -> { });
+                (__, ___, ____) -> { }, DEFAULT_WINDOW_SIZE, connectionWindowAutoTuning);
     }
 
     private static final class ScheduledTask {
@@ -0,0 +1,241 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.http.netty;
+
+import io.servicetalk.buffer.api.Buffer;
+import io.servicetalk.concurrent.api.Publisher;
+import io.servicetalk.concurrent.internal.ServiceTalkTestTimeout;
+import io.servicetalk.http.api.HttpProtocolConfig;
+import io.servicetalk.http.api.HttpResponse;
+import io.servicetalk.http.api.StreamingHttpClient;
+import io.servicetalk.http.api.StreamingHttpResponse;
+import io.servicetalk.transport.api.ConnectionInfo;
+import io.servicetalk.transport.api.ConnectionObserver;
+import io.servicetalk.transport.api.ConnectionObserver.DataObserver;
+import io.servicetalk.transport.api.ConnectionObserver.MultiplexedObserver;
+import io.servicetalk.transport.api.ConnectionObserver.StreamObserver;
+import io.servicetalk.transport.api.ConnectionObserver.WriteObserver;
+import io.servicetalk.transport.api.ServerContext;
+import io.servicetalk.transport.api.TransportObserver;
+
+import io.netty.buffer.ByteBuf;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static io.servicetalk.buffer.api.ReadOnlyBufferAllocators.DEFAULT_RO_ALLOCATOR;
+import static io.servicetalk.buffer.netty.BufferUtils.release;
+import static io.servicetalk.buffer.netty.BufferUtils.toByteBuf;
+import static io.servicetalk.concurrent.api.Publisher.from;
+import static io.servicetalk.concurrent.api.Single.succeeded;
+import static io.servicetalk.http.api.HttpExecutionStrategies.defaultStrategy;
+import static io.servicetalk.http.api.HttpExecutionStrategies.noOffloadsStrategy;
+import static io.servicetalk.http.netty.HttpProtocolConfigs.h1;
+import static io.servicetalk.http.netty.HttpProtocolConfigs.h2;
+import static io.servicetalk.http.netty.PooledPayloadBodies.pooledPayloadBody;
+import static io.servicetalk.transport.netty.internal.AddressUtils.localAddress;
+import static io.servicetalk.transport.netty.internal.AddressUtils.serverHostAndPort;
+import static java.util.Arrays.asList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertArrayEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@RunWith(Parameterized.class)
+public class PooledPayloadBodyTest {
+
+    private static final String FORWARD_POOLED = "/pooled";
+    private static final String FORWARD_COPIED = "/copied";
+
+    @Rule
+    public final Timeout timeout = new ServiceTalkTestTimeout();
+
+    private final List<ByteBuf> serverReceived = new CopyOnWriteArrayList<>();
+    private final Semaphore serverItemsWritten = new Semaphore(0);
+    private final ServerContext serverContext;
+    private final StreamingHttpClient client;
+
+    public PooledPayloadBodyTest(final boolean h2) throws Exception {
+        final HttpProtocolConfig config = h2 ? h2().pooledPayloadBody(true).build() :
+                h1().pooledPayloadBody(true).build();
+        serverContext = HttpServers.forAddress(localAddress(0))
+                .protocols(config)
+                // The pooled payload body is only available if the received payload body is not offloaded.
+                .executionStrategy(noOffloadsStrategy())
+                .transportObserver(serverTransportObserver())
+                .listenStreamingAndAwait((ctx, request, responseFactory) -> {
+                    // Forward the request payload body, the transport releases what it writes.
+                    final Publisher<Buffer> payloadBody = FORWARD_POOLED.equals(request.requestTarget()) ?
+                            pooledPayloadBody(request) : request.payloadBody();
+                    return succeeded(responseFactory.ok().payloadBody(payloadBody.map(buffer -> {
+                        serverReceived.add(toByteBuf(buffer));
+                        return buffer;
+                    })));
+                });
+        client = HttpClients.forSingleAddress(serverHostAndPort(serverContext))
+                .protocols(config)
+                .executionStrategy(noOffloadsStrategy())
+                .buildStreaming();
+    }
+
+    @Parameterized.Parameters(name = "h2={0}")
+    public static Collection<Boolean> data() {
+        return asList(false, true);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        try {
+            client.closeAsync().toFuture().get();
+        } finally {
+            serverContext.closeAsync().toFuture().get();
+        }
+    }
+
+    @Test
+    public void pooledPayloadBodyIsForwardedAndReleased() throws Exception {
+        final byte[] expected = randomBytes();
+        final StreamingHttpResponse response = client.request(client.post(FORWARD_POOLED)
+                .payloadBody(from(DEFAULT_RO_ALLOCATOR.wrap(expected)))).toFuture().get();
+        final List<ByteBuf> clientReceived = new CopyOnWriteArrayList<>();
+        final ByteArrayOutputStream actual = new ByteArrayOutputStream(expected.length);
+        pooledPayloadBody(response).whenOnNext(buffer -> {
+            final ByteBuf byteBuf = toByteBuf(buffer);
+            clientReceived.add(byteBuf);
+            actual.write(copy(buffer), 0, buffer.readableBytes());
+            release(buffer);
+        }).ignoreElements().toFuture().get();
+
+        assertArrayEquals(expected, actual.toByteArray());
+        assertThat(clientReceived, is(not(empty())));
+        assertThat("Unexpected unpooled buffer", clientReceived.stream().allMatch(PooledPayloadBodyTest::isPooled),
+                is(true));
+        assertThat("Buffer not released", clientReceived.stream().allMatch(buffer -> buffer.refCnt() == 0), is(true));
+
+        assertThat(serverReceived, is(not(empty())));
+        assertThat("Unexpected unpooled buffer", serverReceived.stream().allMatch(PooledPayloadBodyTest::isPooled),
+                is(true));
+        awaitServerResponseWritten();
+        assertThat("Buffer not released", serverReceived.stream().allMatch(buffer -> buffer.refCnt() == 0), is(true));
+    }
+
+    @Test
+    public void payloadBodyIsCopiedByDefault() throws Exception {
+        final byte[] expected = randomBytes();
+        final StreamingHttpResponse response = client.request(client.post(FORWARD_COPIED)
+                .payloadBody(from(DEFAULT_RO_ALLOCATOR.wrap(expected)))).toFuture().get();
+        final List<ByteBuf> clientReceived = new CopyOnWriteArrayList<>();
+        final ByteArrayOutputStream actual = new ByteArrayOutputStream(expected.length);
+        response.payloadBody().whenOnNext(buffer -> {
+            clientReceived.add(toByteBuf(buffer));
+            actual.write(copy(buffer), 0, buffer.readableBytes());
+        }).ignoreElements().toFuture().get();
+
+        assertArrayEquals(expected, actual.toByteArray());
+        assertThat(clientReceived, is(not(empty())));
+        assertThat("Unexpected pooled buffer", clientReceived.stream().noneMatch(PooledPayloadBodyTest::isPooled),
+                is(true));
+        assertThat(serverReceived, is(not(empty())));
+        assertThat("Unexpected pooled buffer", serverReceived.stream().noneMatch(PooledPayloadBodyTest::isPooled),
+                is(true));
+    }
+
+    @Test
+    public void aggregatedPayloadBodyIsCopied() throws Exception {
+        final byte[] expected = randomBytes();
+        final HttpResponse response = client.asClient().request(client.asClient().post(FORWARD_POOLED)
+                .payloadBody(DEFAULT_RO_ALLOCATOR.wrap(expected))).toFuture().get();
+        assertArrayEquals(expected, copy(response.payloadBody()));
+        assertThat("Unexpected pooled buffer", isPooled(toByteBuf(response.payloadBody())), is(false));
+    }
+
+    @Test
+    public void offloadedPayloadBodyIsCopied() throws Exception {
+        final byte[] expected = randomBytes();
+        final StreamingHttpResponse response = client.request(defaultStrategy(), client.post(FORWARD_POOLED)
+                .payloadBody(from(DEFAULT_RO_ALLOCATOR.wrap(expected)))).toFuture().get();
+        final List<ByteBuf> clientReceived = new CopyOnWriteArrayList<>();
+        final ByteArrayOutputStream actual = new ByteArrayOutputStream(expected.length);
+        pooledPayloadBody(response).whenOnNext(buffer -> {
+            clientReceived.add(toByteBuf(buffer));
+            actual.write(copy(buffer), 0, buffer.readableBytes());
+        }).ignoreElements().toFuture().get();
+
+        assertArrayEquals(expected, actual.toByteArray());
+        assertThat(clientReceived, is(not(empty())));
+        assertThat("Unexpected pooled buffer", clientReceived.stream().noneMatch(PooledPayloadBodyTest::isPooled),
+                is(true));
+    }
+
+    private void awaitServerResponseWritten() throws InterruptedException {
+        // The transport releases a written buffer before the write is reported as completed, so once the response
+        // meta-data, all forwarded buffers and the trailers are written, all forwarded buffers are released.
+        serverItemsWritten.acquire(serverReceived.size() + 2);
+    }
+
+    private TransportObserver serverTransportObserver() {
+        final WriteObserver writeObserver = mock(WriteObserver.class);
+        doAnswer(invocation -> {
+            serverItemsWritten.release();
+            return null;
+        }).when(writeObserver).itemWritten();
+        final DataObserver dataObserver = mock(DataObserver.class);
+        when(dataObserver.onNewWrite()).thenReturn(writeObserver);
+        when(dataObserver.onNewRead()).thenReturn(mock(ConnectionObserver.ReadObserver.class));
+        final StreamObserver streamObserver = mock(StreamObserver.class);
+        when(streamObserver.streamEstablished()).thenReturn(dataObserver);
+        final MultiplexedObserver multiplexedObserver = mock(MultiplexedObserver.class);
+        when(multiplexedObserver.onNewStream()).thenReturn(streamObserver);
+        final ConnectionObserver connectionObserver = mock(ConnectionObserver.class);
+        when(connectionObserver.connectionEstablished(any(ConnectionInfo.class))).thenReturn(dataObserver);
+        when(connectionObserver.multiplexedConnectionEstablished(any(ConnectionInfo.class)))
+                .thenReturn(multiplexedObserver);
+        final TransportObserver transportObserver = mock(TransportObserver.class);
+        when(transportObserver.onNewConnection()).thenReturn(connectionObserver);
+        return transportObserver;
+    }
+
+    private static boolean isPooled(final ByteBuf buffer) {
+        return buffer.alloc().isDirectBufferPooled();
+    }
+
+    private static byte[] randomBytes() {
+        final byte[] bytes = new byte[64 * 1024];
+        ThreadLocalRandom.current().nextBytes(bytes);
+        return bytes;
+    }
+
+    private static byte[] copy(final Buffer buffer) {
+        final byte[] bytes = new byte[buffer.readableBytes()];
+        buffer.getBytes(buffer.readerIndex(), bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.http.utils;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+/**
+ * A {@link ConcurrencyLimit} which increases the limit additively while requests succeed and decreases it
+ * multiplicatively when requests are dropped.
+ */
+final class AimdConcurrencyLimit implements ConcurrencyLimit {
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private double estimatedLimit;
+
+    AimdConcurrencyLimit(final int initialLimit, final int minLimit, final int maxLimit, final double backoffRatio) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        estimatedLimit = initialLimit;
+    }
+
+    @Override
+    public synchronized int limit() {
+        return (int) estimatedLimit;
+    }
+
+    @Override
+    public synchronized int onSample(final long rttNanos, final int inFlight, final boolean dropped) {
+        final double newLimit;
+        if (dropped) {
+            newLimit = estimatedLimit * backoffRatio;
+        } else if (inFlight * 2 >= estimatedLimit) {
+            newLimit = estimatedLimit + 1;
+        } else {
+            // The limit is not the bottleneck, there is no evidence the limit can grow.
+            return (int) estimatedLimit;
+        }
+        estimatedLimit = max(minLimit, min(maxLimit, newLimit));
+        return (int) estimatedLimit;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "AimdConcurrencyLimit{limit=" + estimatedLimit + ", backoffRatio=" + backoffRatio + '}';
+    }
+}
@@ -0,0 +1,349 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.http.utils;
+
+import io.servicetalk.buffer.api.Buffer;
+import io.servicetalk.concurrent.Cancellable;
+import io.servicetalk.concurrent.SingleSource.Subscriber;
+import io.servicetalk.concurrent.api.Single;
+import io.servicetalk.concurrent.api.internal.SubscribableSingle;
+import io.servicetalk.concurrent.internal.DelayedCancellable;
+import io.servicetalk.http.api.FilterableStreamingHttpClient;
+import io.servicetalk.http.api.HttpExecutionStrategy;
+import io.servicetalk.http.api.HttpExecutionStrategyInfluencer;
+import io.servicetalk.http.api.HttpHeaders;
+import io.servicetalk.http.api.HttpRequestMetaData;
+import io.servicetalk.http.api.HttpResponse;
+import io.servicetalk.http.api.StatelessTrailersTransformer;
+import io.servicetalk.http.api.StreamingHttpClientFilter;
+import io.servicetalk.http.api.StreamingHttpClientFilterFactory;
+import io.servicetalk.http.api.StreamingHttpRequest;
+import io.servicetalk.http.api.StreamingHttpRequester;
+import io.servicetalk.http.api.StreamingHttpResponse;
+import io.servicetalk.http.api.StreamingHttpResponseFactory;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Predicate;
+import javax.annotation.Nullable;
+
+import static io.servicetalk.buffer.api.CharSequences.contentEquals;
+import static io.servicetalk.concurrent.api.Publisher.from;
+import static io.servicetalk.concurrent.api.SourceAdapters.toSource;
+import static io.servicetalk.concurrent.internal.SubscriberUtils.safeOnError;
+import static io.servicetalk.concurrent.internal.SubscriberUtils.safeOnSuccess;
+import static io.servicetalk.http.api.HttpHeaderNames.ACCEPT;
+import static io.servicetalk.http.api.HttpHeaderNames.ACCEPT_ENCODING;
+import static io.servicetalk.http.api.HttpHeaderNames.AUTHORIZATION;
+import static io.servicetalk.http.api.HttpHeaderNames.CONTENT_LENGTH;
+import static io.servicetalk.http.api.HttpHeaderNames.COOKIE;
+import static io.servicetalk.http.api.HttpHeaderNames.HOST;
+import static io.servicetalk.http.api.HttpHeaderNames.TRANSFER_ENCODING;
+import static io.servicetalk.http.api.HttpHeaderValues.ZERO;
+import static io.servicetalk.http.api.HttpRequestMethod.GET;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A filter which coalesces identical requests which are in flight at the same time into a single request, e.g. to
+ * avoid a stampede of requests for the same resource after a cache miss.
+ * <p>
+ * Requests are identical if they have the same method, request-target and values of the
+ * {@link Builder#keyHeaders(CharSequence...) key headers}. The first request is sent, requests which arrive before its
+ * response is received wait for the same response. The response payload body is aggregated and each waiting request
+ * receives its own copy of it. Requests which declare a payload body with a {@code content-length} other than
+ * {@code 0} or a {@code transfer-encoding} are never coalesced. The payload body of a waiting request is drained and
+ * discarded. Cancelling a waiting request only cancels the sent request if no other request waits for it.
+ * Responses are not cached, a request which arrives after the response has been received is sent again.
+ * <p>
+ * <b>Note:</b> Only requests matching {@link Builder#coalesceFor(Predicate)} are coalesced, by default {@code GET}
+ * requests. The key headers must include all headers which influence the response, by default {@code host},
+ * {@code accept}, {@code accept-encoding}, {@code authorization} and {@code cookie}, otherwise a request may receive
+ * the response of a different request. Waiting requests receive the response on the thread which received the response
+ * of the sent request.
+ */
+public final class CoalescingHttpRequesterFilter implements StreamingHttpClientFilterFactory,
+                                                            HttpExecutionStrategyInfluencer {
+    private final Predicate<HttpRequestMetaData> coalesceFor;
+    private final CharSequence[] keyHeaders;
+
+    private CoalescingHttpRequesterFilter(final Predicate<HttpRequestMetaData> coalesceFor,
+                                          final CharSequence[] keyHeaders) {
+        this.coalesceFor = coalesceFor;
+        this.keyHeaders = keyHeaders;
+    }
+
+    @Override
+    public StreamingHttpClientFilter create(final FilterableStreamingHttpClient client) {
+        final ConcurrentMap<String, InFlightRequest> inFlightRequests = new ConcurrentHashMap<>();
+        return new StreamingHttpClientFilter(client) {
+            @Override
+            protected Single<StreamingHttpResponse> request(final StreamingHttpRequester delegate,
+                                                            final HttpExecutionStrategy strategy,
+                                                            final StreamingHttpRequest request) {
+                if (!coalesceFor.test(request) || hasPayloadBody(request)) {
+                    return delegate.request(strategy, request);
+                }
+                return new CoalescedRequestSingle(inFlightRequests, keyHeaders, delegate, strategy, request);
+            }
+        };
+    }
+
+    @Override
+    public HttpExecutionStrategy influenceStrategy(final HttpExecutionStrategy strategy) {
+        // No influence since we do not block.
+        return strategy;
+    }
+
+    private static boolean hasPayloadBody(final HttpRequestMetaData request) {
+        final HttpHeaders headers = request.headers();
+        final CharSequence contentLength = headers.get(CONTENT_LENGTH);
+        return (contentLength != null && !contentEquals(contentLength, ZERO)) || headers.contains(TRANSFER_ENCODING);
+    }
+
+    static String requestKey(final HttpRequestMetaData request, final CharSequence[] keyHeaders) {
+        final StringBuilder sb = new StringBuilder(64).append(request.method().name()).append(' ')
+                .append(request.requestTarget());
+        for (CharSequence name : keyHeaders) {
+            sb.append('\n').append(name).append(':');
+            final Iterator<? extends CharSequence> values = request.headers().valuesIterator(name);
+            while (values.hasNext()) {
+                // Header values can not contain new lines, so the key is unambiguous.
+                sb.append(values.next()).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
+    private static final class CoalescedRequestSingle extends SubscribableSingle<StreamingHttpResponse> {
+        private final ConcurrentMap<String, InFlightRequest> inFlightRequests;
+        private final CharSequence[] keyHeaders;
+        private final StreamingHttpRequester requester;
+        private final HttpExecutionStrategy strategy;
+        private final StreamingHttpRequest request;
+
+        CoalescedRequestSingle(final ConcurrentMap<String, InFlightRequest> inFlightRequests,
+                               final CharSequence[] keyHeaders, final StreamingHttpRequester requester,
+                               final HttpExecutionStrategy strategy, final StreamingHttpRequest request) {
+            this.inFlightRequests = inFlightRequests;
+            this.keyHeaders = keyHeaders;
+            this.requester = requester;
+            this.strategy = strategy;
+            this.request = request;
+        }
+
+        @Override
+        protected void handleSubscribe(final Subscriber<? super StreamingHttpResponse> subscriber) {
+            final Waiter waiter = new Waiter(subscriber, requester.httpResponseFactory());
+            subscriber.onSubscribe(waiter);
+            final String key = requestKey(request, keyHeaders);
+            for (;;) {
+                final InFlightRequest inFlight = inFlightRequests.get(key);
+                if (inFlight == null) {
+                    final InFlightRequest newInFlight = new InFlightRequest(inFlightRequests, key);
+                    if (inFlightRequests.putIfAbsent(key, newInFlight) == null) {
+                        newInFlight.add(waiter);
+                        toSource(requester.request(strategy, request).flatMap(StreamingHttpResponse::toResponse))
+                                .subscribe(newInFlight);
+                        return;
+                    }
+                } else if (inFlight.add(waiter)) {
+                    // This request is not sent, release its payload body, if any.
+                    request.messageBody().ignoreElements().subscribe();
+                    return;
+                } else {
+                    // The response has just been received, but the request is not yet removed.
+                    inFlightRequests.remove(key, inFlight);
+                }
+            }
+        }
+    }
+
+    private static final class InFlightRequest implements Subscriber<HttpResponse> {
+        private final ConcurrentMap<String, InFlightRequest> inFlightRequests;
+        private final String key;
+        private final DelayedCancellable cancellable = new DelayedCancellable();
+        // Guarded by this, not modified after done.
+        private final List<Waiter> waiters = new ArrayList<>(2);
+        private boolean done;
+
+        InFlightRequest(final ConcurrentMap<String, InFlightRequest> inFlightRequests, final String key) {
+            this.inFlightRequests = inFlightRequests;
+            this.key = key;
+        }
+
+        /**
+         * Adds a request waiting for the response.
+         *
+         * @return {@code false} if the response has already been received.
+         */
+        boolean add(final Waiter waiter) {
+            synchronized (this) {
+                if (done) {
+                    return false;
+                }
+                waiters.add(waiter);
+                waiter.inFlight = this;
+            }
+            if (waiter.cancelled) {
+                // Cancelled before it was visible to the Waiter.
+                remove(waiter);
+            }
+            return true;
+        }
+
+        void remove(final Waiter waiter) {
+            synchronized (this) {
+                if (done || !waiters.remove(waiter) || !waiters.isEmpty()) {
+                    return;
+                }
+                done = true;
+            }
+            inFlightRequests.remove(key, this);
+            cancellable.cancel();
+        }
+
+        @Override
+        public void onSubscribe(final Cancellable cancellable) {
+            this.cancellable.delayedCancellable(cancellable);
+        }
+
+        @Override
+        public void onSuccess(@Nullable final HttpResponse result) {
+            assert result != null;
+            for (Waiter waiter : terminate()) {
+                waiter.onSuccess(result);
+            }
+        }
+
+        @Override
+        public void onError(final Throwable t) {
+            for (Waiter waiter : terminate()) {
+                safeOnError(waiter.target, t);
+            }
+        }
+
+        private List<Waiter> terminate() {
+            inFlightRequests.remove(key, this);
+            synchronized (this) {
+                done = true;
+            }
+            return waiters;
+        }
+    }
+
+    private static final class Waiter implements Cancellable {
+        final Subscriber<? super StreamingHttpResponse> target;
+        private final StreamingHttpResponseFactory responseFactory;
+        @Nullable
+        volatile InFlightRequest inFlight;
+        volatile boolean cancelled;
+
+        Waiter(final Subscriber<? super StreamingHttpResponse> target,
+               final StreamingHttpResponseFactory responseFactory) {
+            this.target = target;
+            this.responseFactory = responseFactory;
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            final InFlightRequest inFlight = this.inFlight;
+            if (inFlight != null) {
+                inFlight.remove(this);
+            }
+        }
+
+        void onSuccess(final HttpResponse response) {
+            final StreamingHttpResponse copy;
+            try {
+                copy = copy(response);
+            } catch (Throwable t) {
+                safeOnError(target, t);
+                return;
+            }
+            safeOnSuccess(target, copy);
+        }
+
+        /**
+         * Each waiting request gets its own copy of the response, because the meta-data is mutable and a
+         * {@link Buffer} of the payload body may be modified or released by its consumer.
+         */
+        private StreamingHttpResponse copy(final HttpResponse response) {
+            final StreamingHttpResponse copy = responseFactory.newResponse(response.status())
+                    .version(response.version())
+                    .payloadBody(from(response.payloadBody().copy()));
+            copy.headers().add(response.headers());
+            final HttpHeaders trailers = response.trailers();
+            return trailers.isEmpty() ? copy : copy.transform(new StatelessTrailersTransformer<Buffer>() {
+                @Override
+                protected HttpHeaders payloadComplete(final HttpHeaders copyTrailers) {
+                    return copyTrailers.add(trailers);
+                }
+            });
+        }
+    }
+
+    /**
+     * A builder for {@link CoalescingHttpRequesterFilter}.
+     */
+    public static final class Builder {
+        private Predicate<HttpRequestMetaData> coalesceFor = request -> GET.equals(request.method());
+        private CharSequence[] keyHeaders = {HOST, ACCEPT, ACCEPT_ENCODING, AUTHORIZATION, COOKIE};
+
+        /**
+         * Sets the {@link Predicate} which selects the requests which may be coalesced.
+         * <p>
+         * Defaults to {@code GET} requests.
+         *
+         * @param coalesceFor the {@link Predicate} which selects the requests which may be coalesced.
+         * @return {@code this}
+         */
+        public Builder coalesceFor(final Predicate<HttpRequestMetaData> coalesceFor) {
+            this.coalesceFor = requireNonNull(coalesceFor);
+            return this;
+        }
+
+        /**
+         * Sets the names of the headers whose values, in addition to the method and the request-target, must be
+         * equal for requests to be coalesced.
+         * <p>
+         * Defaults to {@code host}, {@code accept}, {@code accept-encoding}, {@code authorization} and
+         * {@code cookie}.
+         *
+         * @param keyHeaders the names of the headers whose values must be equal for requests to be coalesced.
+         * @return {@code this}
+         */
+        public Builder keyHeaders(final CharSequence... keyHeaders) {
+            for (CharSequence keyHeader : keyHeaders) {
+                requireNonNull(keyHeader);
+            }
+            this.keyHeaders = keyHeaders.clone();
+            return this;
+        }
+
+        /**
+         * Builds a new {@link CoalescingHttpRequesterFilter}.
+         *
+         * @return a new {@link CoalescingHttpRequesterFilter}.
+         */
+        public CoalescingHttpRequesterFilter build() {
+            return new CoalescingHttpRequesterFilter(coalesceFor, keyHeaders);
+        }
+    }
+}
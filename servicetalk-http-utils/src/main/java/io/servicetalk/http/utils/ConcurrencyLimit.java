@@ -0,0 +1,46 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.http.utils;
+
+/**
+ * An algorithm which determines the number of requests allowed to be in flight at the same time, based on samples of
+ * the observed latency.
+ * <p>
+ * Implementations are stateful and must be thread safe, samples may be reported concurrently. Samples are reported
+ * while holding the monitor of the {@link ConcurrencyLimit} instance, so the returned limits are published in the
+ * order the samples are processed. Implementations which synchronize on {@code this} therefore do not acquire an
+ * additional lock, but every finished request acquires the monitor.
+ *
+ * @see ConcurrencyLimits
+ */
+public interface ConcurrencyLimit {
+    /**
+     * Get the current limit.
+     *
+     * @return the current limit of concurrent requests.
+     */
+    int limit();
+
+    /**
+     * Report a sample for a request which finished.
+     *
+     * @param rttNanos the latency of the request in nanoseconds.
+     * @param inFlight the number of requests in flight when the request finished, including this request.
+     * @param dropped {@code true} if the request failed in a way that indicates overload (e.g. a timeout).
+     * @return the new limit of concurrent requests.
+     */
+    int onSample(long rttNanos, int inFlight, boolean dropped);
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.http.utils;
+
+import io.servicetalk.client.api.ConnectionFactory;
+import io.servicetalk.client.api.ConnectionFactoryFilter;
+import io.servicetalk.client.api.DelegatingConnectionFactory;
+import io.servicetalk.concurrent.api.Single;
+import io.servicetalk.concurrent.api.TerminalSignalConsumer;
+import io.servicetalk.http.api.FilterableStreamingHttpConnection;
+import io.servicetalk.http.api.HttpExecutionStrategy;
+import io.servicetalk.http.api.HttpExecutionStrategyInfluencer;
+import io.servicetalk.http.api.StreamingHttpConnectionFilter;
+import io.servicetalk.http.api.StreamingHttpRequest;
+import io.servicetalk.http.api.StreamingHttpResponse;
+import io.servicetalk.transport.api.RetryableException;
+import io.servicetalk.transport.api.TransportObserver;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
+
+import static io.servicetalk.concurrent.api.Single.defer;
+import static io.servicetalk.concurrent.api.Single.failed;
+import static io.servicetalk.http.api.HttpResponseStatus.SERVICE_UNAVAILABLE;
+import static io.servicetalk.http.api.HttpResponseStatus.TOO_MANY_REQUESTS;
+import static java.lang.System.nanoTime;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A connection factory filter which limits the number of concurrent requests to each resolved address, using a
+ * {@link ConcurrencyLimit} which adapts the limit to the observed latency and failures.
+ * <p>
+ * The limit is shared by all connections to the same address. Requests over the limit fail immediately with a
+ * {@link ConcurrencyLimitExceededException}, which is a {@link RetryableException} so that a
+ * {@link RetryingHttpRequesterFilter} can retry the request, likely on a different host, instead of queueing it
+ * behind a slow host.
+ * <p>
+ * Latency is measured until the response payload body terminates. Errors and responses with
+ * {@code 503 Service Unavailable} or {@code 429 Too Many Requests} status are reported as dropped samples, cancelled
+ * requests only release their capacity.
+ *
+ * @param <ResolvedAddress> The type of a resolved address that can be used for connecting.
+ */
+public final class ConcurrencyLimitConnectionFactoryFilter<ResolvedAddress>
+        implements ConnectionFactoryFilter<ResolvedAddress, FilterableStreamingHttpConnection>,
+                   HttpExecutionStrategyInfluencer {
+
+    private final Supplier<ConcurrencyLimit> limitFactory;
+    private final ConcurrencyLimitObserver observer;
+
+    private ConcurrencyLimitConnectionFactoryFilter(final Supplier<ConcurrencyLimit> limitFactory,
+                                                    final ConcurrencyLimitObserver observer) {
+        this.limitFactory = limitFactory;
+        this.observer = observer;
+    }
+
+    @Override
+    public ConnectionFactory<ResolvedAddress, FilterableStreamingHttpConnection> create(
+            final ConnectionFactory<ResolvedAddress, FilterableStreamingHttpConnection> original) {
+        return new LimitingFilter<>(original, limitFactory, observer);
+    }
+
+    @Override
+    public HttpExecutionStrategy influenceStrategy(final HttpExecutionStrategy strategy) {
+        // No influence since we do not block.
+        return strategy;
+    }
+
+    private static final class LimitingFilter<ResolvedAddress>
+            extends DelegatingConnectionFactory<ResolvedAddress, FilterableStreamingHttpConnection> {
+        private final Map<ResolvedAddress, AddressLimiter> limiters = new ConcurrentHashMap<>();
+        private final Supplier<ConcurrencyLimit> limitFactory;
+        private final ConcurrencyLimitObserver observer;
+
+        LimitingFilter(final ConnectionFactory<ResolvedAddress, FilterableStreamingHttpConnection> delegate,
+                       final Supplier<ConcurrencyLimit> limitFactory, final ConcurrencyLimitObserver observer) {
+            super(delegate);
+            this.limitFactory = limitFactory;
+            this.observer = observer;
+        }
+
+        @Override
+        public Single<FilterableStreamingHttpConnection> newConnection(final ResolvedAddress resolvedAddress,
+                                                                       @Nullable final TransportObserver observer) {
+            return delegate().newConnection(resolvedAddress, observer).map(connection -> {
+                final ConcurrencyLimiter limiter = retain(resolvedAddress);
+                connection.onClose().whenFinally(() -> release(resolvedAddress)).subscribe();
+                return new LimitingConnection(connection, limiter, resolvedAddress);
+            });
+        }
+
+        private ConcurrencyLimiter retain(final ResolvedAddress address) {
+            return limiters.compute(address, (__, existing) -> existing == null ?
+                    new AddressLimiter(new ConcurrencyLimiter(limitFactory.get(), observer)) :
+                    existing.retain()).limiter;
+        }
+
+        private void release(final ResolvedAddress address) {
+            // The limit state is discarded once there are no more connections to the address, e.g. after it has
+            // been removed by service discovery.
+            limiters.computeIfPresent(address, (__, existing) -> existing.release() ? null : existing);
+        }
+    }
+
+    /**
+     * A {@link ConcurrencyLimiter} with the number of connections which share it. The count is only modified while
+     * holding the lock of the map entry.
+     */
+    private static final class AddressLimiter {
+        final ConcurrencyLimiter limiter;
+        private int connections = 1;
+
+        AddressLimiter(final ConcurrencyLimiter limiter) {
+            this.limiter = limiter;
+        }
+
+        AddressLimiter retain() {
+            ++connections;
+            return this;
+        }
+
+        boolean release() {
+            return --connections == 0;
+        }
+    }
+
+    private static final class LimitingConnection extends StreamingHttpConnectionFilter {
+        private final ConcurrencyLimiter limiter;
+        private final Object address;
+
+        LimitingConnection(final FilterableStreamingHttpConnection delegate, final ConcurrencyLimiter limiter,
+                           final Object address) {
+            super(delegate);
+            this.limiter = limiter;
+            this.address = address;
+        }
+
+        @Override
+        public Single<StreamingHttpResponse> request(final HttpExecutionStrategy strategy,
+                                                     final StreamingHttpRequest request) {
+            return defer(() -> {
+                if (!limiter.tryAcquire()) {
+                    return failed(new ConcurrencyLimitExceededException("Concurrency limit " + limiter.limit() +
+                            " reached for " + address));
+                }
+                final long startTime = nanoTime();
+                final Single<StreamingHttpResponse> response;
+                try {
+                    response = delegate().request(strategy, request);
+                } catch (Throwable cause) {
+                    limiter.onDropped(nanoTime() - startTime);
+                    return failed(cause);
+                }
+                final RequestTerminalSignalConsumer signalConsumer = new RequestTerminalSignalConsumer(startTime);
+                return response.map(signalConsumer::onResponse)
+                        .liftSync(new BeforeFinallyHttpOperator(signalConsumer))
+                        .subscribeShareContext();
+            });
+        }
+
+        private final class RequestTerminalSignalConsumer implements TerminalSignalConsumer {
+            private final long startTime;
+            private boolean overloaded;
+
+            RequestTerminalSignalConsumer(final long startTime) {
+                this.startTime = startTime;
+            }
+
+            StreamingHttpResponse onResponse(final StreamingHttpResponse response) {
+                final int code = response.status().code();
+                overloaded = code == SERVICE_UNAVAILABLE.code() || code == TOO_MANY_REQUESTS.code();
+                return response;
+            }
+
+            @Override
+            public void onComplete() {
+                if (overloaded) {
+                    limiter.onDropped(nanoTime() - startTime);
+                } else {
+                    limiter.onSuccess(nanoTime() - startTime);
+                }
+            }
+
+            @Override
+            public void onError(final Throwable throwable) {
+                limiter.onDropped(nanoTime() - startTime);
+            }
+
+            @Override
+            public void cancel() {
+                limiter.onIgnored();
+            }
+        }
+    }
+
+    /**
+     * A builder for {@link ConcurrencyLimitConnectionFactoryFilter}.
+     */
+    public static final class Builder {
+        private Supplier<ConcurrencyLimit> limitFactory = ConcurrencyLimits::gradient;
+        private ConcurrencyLimitObserver observer = NoopConcurrencyLimitObserver.INSTANCE;
+
+        /**
+         * Sets the factory of the {@link ConcurrencyLimit}, invoked for each resolved address.
+         * <p>
+         * Defaults to {@link ConcurrencyLimits#gradient()}.
+         *
+         * @param limitFactory the factory of the {@link ConcurrencyLimit}.
+         * @return {@code this}
+         * @see ConcurrencyLimits
+         */
+        public Builder limit(final Supplier<ConcurrencyLimit> limitFactory) {
+            this.limitFactory = requireNonNull(limitFactory);
+            return this;
+        }
+
+        /**
+         * Sets the {@link ConcurrencyLimitObserver} notified about the limits, the requests in flight and rejections
+         * of all addresses.
+         *
+         * @param observer the {@link ConcurrencyLimitObserver}.
+         * @return {@code this}
+         */
+        public Builder observer(final ConcurrencyLimitObserver observer) {
+            this.observer = requireNonNull(observer);
+            return this;
+        }
+
+        /**
+         * Builds a new {@link ConcurrencyLimitConnectionFactoryFilter}.
+         *
+         * @param <ResolvedAddress> The type of a resolved address that can be used for connecting.
+         * @return a new {@link ConcurrencyLimitConnectionFactoryFilter}.
+         */
+        public <ResolvedAddress> ConcurrencyLimitConnectionFactoryFilter<ResolvedAddress> build() {
+            return new ConcurrencyLimitConnectionFactoryFilter<>(limitFactory, observer);
+        }
+    }
+}
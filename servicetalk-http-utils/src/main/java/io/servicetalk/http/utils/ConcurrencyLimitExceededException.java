@@ -0,0 +1,34 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.http.utils;
+
+import io.servicetalk.transport.api.RetryableException;
+
+/**
+ * Thrown when a request is rejected because the concurrency limit for the target address has been reached.
+ */
+public final class ConcurrencyLimitExceededException extends RuntimeException implements RetryableException {
+    private static final long serialVersionUID = 3574268149732719442L;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param message the detail message.
+     */
+    public ConcurrencyLimitExceededException(final String message) {
+        super(message);
+    }
+}
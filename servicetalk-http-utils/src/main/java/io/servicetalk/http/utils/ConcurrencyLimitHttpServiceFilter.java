@@ -0,0 +1,166 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.http.utils;
+
+import io.servicetalk.concurrent.api.Single;
+import io.servicetalk.concurrent.api.TerminalSignalConsumer;
+import io.servicetalk.http.api.HttpExecutionStrategy;
+import io.servicetalk.http.api.HttpExecutionStrategyInfluencer;
+import io.servicetalk.http.api.HttpServiceContext;
+import io.servicetalk.http.api.StreamingHttpRequest;
+import io.servicetalk.http.api.StreamingHttpResponse;
+import io.servicetalk.http.api.StreamingHttpResponseFactory;
+import io.servicetalk.http.api.StreamingHttpService;
+import io.servicetalk.http.api.StreamingHttpServiceFilter;
+import io.servicetalk.http.api.StreamingHttpServiceFilterFactory;
+
+import java.util.function.Supplier;
+
+import static io.servicetalk.buffer.api.CharSequences.newAsciiString;
+import static io.servicetalk.concurrent.api.Single.defer;
+import static io.servicetalk.concurrent.api.Single.failed;
+import static io.servicetalk.concurrent.api.Single.succeeded;
+import static io.servicetalk.http.api.HttpHeaderNames.CONTENT_TYPE;
+import static io.servicetalk.http.utils.GrpcHttpUtils.GRPC_RESOURCE_EXHAUSTED;
+import static io.servicetalk.http.utils.GrpcHttpUtils.grpcStatusResponse;
+import static io.servicetalk.http.utils.GrpcHttpUtils.isGrpc;
+import static java.lang.System.nanoTime;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A filter which limits the number of concurrent requests processed by a service, using a {@link ConcurrencyLimit}
+ * which adapts the limit to the observed latency.
+ * <p>
+ * Requests over the limit are rejected without invoking the service: with {@code 503 Service Unavailable} for HTTP
+ * requests and with a {@code RESOURCE_EXHAUSTED} status for gRPC requests, so the filter can also be used with
+ * {@code GrpcServerBuilder#appendHttpServiceFilter}.
+ * <p>
+ * Latency is measured until the response payload body terminates. Errors are reported as dropped samples, cancelled
+ * requests only release their capacity. This filter should be appended first to reject requests before any other
+ * processing is done.
+ */
+public final class ConcurrencyLimitHttpServiceFilter implements StreamingHttpServiceFilterFactory,
+                                                                HttpExecutionStrategyInfluencer {
+    private static final CharSequence GRPC_REJECTED_MESSAGE = newAsciiString("Concurrency limit reached");
+
+    private final Supplier<ConcurrencyLimit> limitFactory;
+    private final ConcurrencyLimitObserver observer;
+
+    private ConcurrencyLimitHttpServiceFilter(final Supplier<ConcurrencyLimit> limitFactory,
+                                              final ConcurrencyLimitObserver observer) {
+        this.limitFactory = limitFactory;
+        this.observer = observer;
+    }
+
+    @Override
+    public StreamingHttpServiceFilter create(final StreamingHttpService service) {
+        final ConcurrencyLimiter limiter = new ConcurrencyLimiter(limitFactory.get(), observer);
+        return new StreamingHttpServiceFilter(service) {
+            @Override
+            public Single<StreamingHttpResponse> handle(final HttpServiceContext ctx,
+                                                        final StreamingHttpRequest request,
+                                                        final StreamingHttpResponseFactory responseFactory) {
+                return defer(() -> {
+                    if (!limiter.tryAcquire()) {
+                        return succeeded(rejected(request, responseFactory));
+                    }
+                    final long startTime = nanoTime();
+                    final Single<StreamingHttpResponse> response;
+                    try {
+                        response = delegate().handle(ctx, request, responseFactory);
+                    } catch (Throwable cause) {
+                        limiter.onDropped(nanoTime() - startTime);
+                        return failed(cause);
+                    }
+                    return response.liftSync(new BeforeFinallyHttpOperator(new TerminalSignalConsumer() {
+                        @Override
+                        public void onComplete() {
+                            limiter.onSuccess(nanoTime() - startTime);
+                        }
+
+                        @Override
+                        public void onError(final Throwable throwable) {
+                            limiter.onDropped(nanoTime() - startTime);
+                        }
+
+                        @Override
+                        public void cancel() {
+                            limiter.onIgnored();
+                        }
+                    })).subscribeShareContext();
+                });
+            }
+        };
+    }
+
+    @Override
+    public HttpExecutionStrategy influenceStrategy(final HttpExecutionStrategy strategy) {
+        // No influence since we do not block.
+        return strategy;
+    }
+
+    private static StreamingHttpResponse rejected(final StreamingHttpRequest request,
+                                                  final StreamingHttpResponseFactory responseFactory) {
+        final CharSequence contentType = request.headers().get(CONTENT_TYPE);
+        if (isGrpc(contentType)) {
+            assert contentType != null;
+            return grpcStatusResponse(responseFactory, contentType, GRPC_RESOURCE_EXHAUSTED, GRPC_REJECTED_MESSAGE);
+        }
+        return responseFactory.serviceUnavailable();
+    }
+
+    /**
+     * A builder for {@link ConcurrencyLimitHttpServiceFilter}.
+     */
+    public static final class Builder {
+        private Supplier<ConcurrencyLimit> limitFactory = ConcurrencyLimits::gradient;
+        private ConcurrencyLimitObserver observer = NoopConcurrencyLimitObserver.INSTANCE;
+
+        /**
+         * Sets the factory of the {@link ConcurrencyLimit}, invoked for each service the filter is applied to.
+         * <p>
+         * Defaults to {@link ConcurrencyLimits#gradient()}.
+         *
+         * @param limitFactory the factory of the {@link ConcurrencyLimit}.
+         * @return {@code this}
+         * @see ConcurrencyLimits
+         */
+        public Builder limit(final Supplier<ConcurrencyLimit> limitFactory) {
+            this.limitFactory = requireNonNull(limitFactory);
+            return this;
+        }
+
+        /**
+         * Sets the {@link ConcurrencyLimitObserver} notified about the limit, the requests in flight and rejections.
+         *
+         * @param observer the {@link ConcurrencyLimitObserver}.
+         * @return {@code this}
+         */
+        public Builder observer(final ConcurrencyLimitObserver observer) {
+            this.observer = requireNonNull(observer);
+            return this;
+        }
+
+        /**
+         * Builds a new {@link ConcurrencyLimitHttpServiceFilter}.
+         *
+         * @return a new {@link ConcurrencyLimitHttpServiceFilter}.
+         */
+        public ConcurrencyLimitHttpServiceFilter build() {
+            return new ConcurrencyLimitHttpServiceFilter(limitFactory, observer);
+        }
+    }
+}
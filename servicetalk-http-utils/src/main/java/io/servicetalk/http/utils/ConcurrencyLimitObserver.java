@@ -0,0 +1,53 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.http.utils;
+
+/**
+ * An observer of the state of a {@link ConcurrencyLimit}.
+ * <p>
+ * Callbacks are invoked on the thread which processes the request and therefore must not block.
+ */
+public interface ConcurrencyLimitObserver {
+    /**
+     * Callback when the limit of concurrent requests changed.
+     *
+     * @param oldLimit the previous limit.
+     * @param newLimit the new limit.
+     */
+    void onLimitChanged(int oldLimit, int newLimit);
+
+    /**
+     * Callback when a request is accepted.
+     *
+     * @param inFlight the number of requests in flight, including the accepted request.
+     */
+    void onRequestAccepted(int inFlight);
+
+    /**
+     * Callback when a request is rejected because the limit has been reached.
+     *
+     * @param inFlight the number of requests in flight.
+     * @param limit the current limit.
+     */
+    void onRequestRejected(int inFlight, int limit);
+
+    /**
+     * Callback when a previously accepted request finished.
+     *
+     * @param inFlight the number of requests in flight, excluding the finished request.
+     */
+    void onRequestFinished(int inFlight);
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.http.utils;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Tracks the requests in flight against a {@link ConcurrencyLimit}.
+ */
+final class ConcurrencyLimiter {
+    private static final AtomicIntegerFieldUpdater<ConcurrencyLimiter> inFlightUpdater =
+            AtomicIntegerFieldUpdater.newUpdater(ConcurrencyLimiter.class, "inFlight");
+
+    private final ConcurrencyLimit concurrencyLimit;
+    private final ConcurrencyLimitObserver observer;
+    private volatile int inFlight;
+    /**
+     * Only written while holding the monitor of {@link #concurrencyLimit}, so the published limit is always the result
+     * of the latest sample.
+     */
+    private volatile int limit;
+
+    ConcurrencyLimiter(final ConcurrencyLimit concurrencyLimit, final ConcurrencyLimitObserver observer) {
+        this.concurrencyLimit = requireNonNull(concurrencyLimit);
+        this.observer = requireNonNull(observer);
+        limit = concurrencyLimit.limit();
+    }
+
+    /**
+     * Try to reserve capacity for a new request.
+     *
+     * @return {@code true} if the request is accepted and one of the {@code on*} methods must be called when it
+     * finishes, {@code false} if the limit has been reached.
+     */
+    boolean tryAcquire() {
+        for (;;) {
+            final int currentInFlight = inFlight;
+            final int currentLimit = limit;
+            if (currentInFlight >= currentLimit) {
+                observer.onRequestRejected(currentInFlight, currentLimit);
+                return false;
+            }
+            if (inFlightUpdater.compareAndSet(this, currentInFlight, currentInFlight + 1)) {
+                observer.onRequestAccepted(currentInFlight + 1);
+                return true;
+            }
+        }
+    }
+
+    void onSuccess(final long rttNanos) {
+        release(rttNanos, false);
+    }
+
+    void onDropped(final long rttNanos) {
+        release(rttNanos, true);
+    }
+
+    /**
+     * Release the capacity of a request without sampling its latency, e.g. when it was cancelled.
+     */
+    void onIgnored() {
+        observer.onRequestFinished(inFlightUpdater.decrementAndGet(this));
+    }
+
+    int inFlight() {
+        return inFlight;
+    }
+
+    int limit() {
+        return limit;
+    }
+
+    private void release(final long rttNanos, final boolean dropped) {
+        final int oldLimit;
+        final int newLimit;
+        // The built-in algorithms synchronize on themselves, so this is the same lock they acquire for every sample.
+        // Publishing the limit outside of the lock would allow a result of an older sample to overwrite a newer one.
+        synchronized (concurrencyLimit) {
+            newLimit = concurrencyLimit.onSample(rttNanos, inFlight, dropped);
+            oldLimit = limit;
+            limit = newLimit;
+        }
+        if (oldLimit != newLimit) {
+            observer.onLimitChanged(oldLimit, newLimit);
+        }
+        observer.onRequestFinished(inFlightUpdater.decrementAndGet(this));
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.http.utils;
+
+/**
+ * Factory methods for {@link ConcurrencyLimit}s.
+ * <p>
+ * Every finished request reports a sample while holding the monitor of the {@link ConcurrencyLimit}, which the returned
+ * algorithms also use to protect their state. The lock is held for a few arithmetic operations only, but all requests
+ * limited by the same {@link ConcurrencyLimit} contend on it.
+ */
+public final class ConcurrencyLimits {
+    private static final int DEFAULT_INITIAL_LIMIT = 20;
+    private static final int DEFAULT_MIN_LIMIT = 1;
+    private static final int DEFAULT_MAX_LIMIT = 1000;
+    private static final double DEFAULT_BACKOFF_RATIO = 0.9;
+
+    private ConcurrencyLimits() {
+        // no instances
+    }
+
+    /**
+     * Creates a {@link ConcurrencyLimit} which never changes.
+     *
+     * @param limit the limit of concurrent requests.
+     * @return a {@link ConcurrencyLimit} which never changes.
+     */
+    public static ConcurrencyLimit fixed(final int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit: " + limit + " (expected >0)");
+        }
+        return new ConcurrencyLimit() {
+            @Override
+            public int limit() {
+                return limit;
+            }
+
+            @Override
+            public int onSample(final long rttNanos, final int inFlight, final boolean dropped) {
+                return limit;
+            }
+
+            @Override
+            public String toString() {
+                return "FixedConcurrencyLimit{limit=" + limit + '}';
+            }
+        };
+    }
+
+    /**
+     * Creates a {@link ConcurrencyLimit} which adjusts the limit based on the gradient between a long term average
+     * latency and the latest sample, with default bounds.
+     *
+     * @return a gradient based {@link ConcurrencyLimit}.
+     * @see #gradient(int, int, int)
+     */
+    public static ConcurrencyLimit gradient() {
+        return gradient(DEFAULT_INITIAL_LIMIT, DEFAULT_MIN_LIMIT, DEFAULT_MAX_LIMIT);
+    }
+
+    /**
+     * Creates a {@link ConcurrencyLimit} which adjusts the limit based on the gradient between a long term average
+     * latency and the latest sample.
+     * <p>
+     * While latency is stable the limit grows by a small queue allowance, when latency increases relative to the
+     * long term average the limit shrinks proportionally.
+     *
+     * @param initialLimit the initial limit.
+     * @param minLimit the minimum limit.
+     * @param maxLimit the maximum limit.
+     * @return a gradient based {@link ConcurrencyLimit}.
+     */
+    public static ConcurrencyLimit gradient(final int initialLimit, final int minLimit, final int maxLimit) {
+        validate(initialLimit, minLimit, maxLimit);
+        return new GradientConcurrencyLimit(initialLimit, minLimit, maxLimit);
+    }
+
+    /**
+     * Creates a {@link ConcurrencyLimit} based on TCP Vegas congestion control, with default bounds.
+     *
+     * @return a Vegas based {@link ConcurrencyLimit}.
+     * @see #vegas(int, int, int)
+     */
+    public static ConcurrencyLimit vegas() {
+        return vegas(DEFAULT_INITIAL_LIMIT, DEFAULT_MIN_LIMIT, DEFAULT_MAX_LIMIT);
+    }
+
+    /**
+     * Creates a {@link ConcurrencyLimit} based on TCP Vegas congestion control.
+     * <p>
+     * The minimum observed latency is used as the latency without load, the difference to the latest sample estimates
+     * how many requests are queued. The limit grows while the estimated queue is small and shrinks when it is large.
+     *
+     * @param initialLimit the initial limit.
+     * @param minLimit the minimum limit.
+     * @param maxLimit the maximum limit.
+     * @return a Vegas based {@link ConcurrencyLimit}.
+     */
+    public static ConcurrencyLimit vegas(final int initialLimit, final int minLimit, final int maxLimit) {
+        validate(initialLimit, minLimit, maxLimit);
+        return new VegasConcurrencyLimit(initialLimit, minLimit, maxLimit);
+    }
+
+    /**
+     * Creates a {@link ConcurrencyLimit} which increases the limit additively while requests succeed and decreases it
+     * multiplicatively when requests are dropped, with default bounds.
+     *
+     * @return an AIMD based {@link ConcurrencyLimit}.
+     * @see #aimd(int, int, int, double)
+     */
+    public static ConcurrencyLimit aimd() {
+        return aimd(DEFAULT_INITIAL_LIMIT, DEFAULT_MIN_LIMIT, DEFAULT_MAX_LIMIT, DEFAULT_BACKOFF_RATIO);
+    }
+
+    /**
+     * Creates a {@link ConcurrencyLimit} which increases the limit additively while requests succeed and decreases it
+     * multiplicatively when requests are dropped.
+     * <p>
+     * The limit only reacts to dropped requests, not to latency, which makes it a good fit when the other side
+     * signals overload explicitly, e.g. with {@code 503 Service Unavailable} responses.
+     *
+     * @param initialLimit the initial limit.
+     * @param minLimit the minimum limit.
+     * @param maxLimit the maximum limit.
+     * @param backoffRatio the ratio the limit is multiplied by when a request is dropped.
+     * @return an AIMD based {@link ConcurrencyLimit}.
+     */
+    public static ConcurrencyLimit aimd(final int initialLimit, final int minLimit, final int maxLimit,
+                                        final double backoffRatio) {
+        validate(initialLimit, minLimit, maxLimit);
+        if (!(backoffRatio > 0 && backoffRatio < 1)) {
+            throw new IllegalArgumentException("backoffRatio: " + backoffRatio + " (expected (0, 1))");
+        }
+        return new AimdConcurrencyLimit(initialLimit, minLimit, maxLimit, backoffRatio);
+    }
+
+    private static void validate(final int initialLimit, final int minLimit, final int maxLimit) {
+        if (minLimit <= 0) {
+            throw new IllegalArgumentException("minLimit: " + minLimit + " (expected >0)");
+        }
+        if (maxLimit < minLimit) {
+            throw new IllegalArgumentException("maxLimit: " + maxLimit + " (expected >=" + minLimit + ")");
+        }
+        if (initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("initialLimit: " + initialLimit + " (expected [" + minLimit + ", " +
+                    maxLimit + "])");
+        }
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.http.utils;
+
+import io.servicetalk.concurrent.api.Executor;
+import io.servicetalk.concurrent.api.Single;
+import io.servicetalk.http.api.FilterableStreamingHttpClient;
+import io.servicetalk.http.api.FilterableStreamingHttpConnection;
+import io.servicetalk.http.api.HttpExecutionStrategy;
+import io.servicetalk.http.api.HttpExecutionStrategyInfluencer;
+import io.servicetalk.http.api.StreamingHttpClientFilter;
+import io.servicetalk.http.api.StreamingHttpClientFilterFactory;
+import io.servicetalk.http.api.StreamingHttpConnectionFilter;
+import io.servicetalk.http.api.StreamingHttpConnectionFilterFactory;
+import io.servicetalk.http.api.StreamingHttpRequest;
+import io.servicetalk.http.api.StreamingHttpRequester;
+import io.servicetalk.http.api.StreamingHttpResponse;
+
+import java.util.concurrent.TimeoutException;
+import javax.annotation.Nullable;
+
+import static io.servicetalk.concurrent.api.Single.defer;
+import static io.servicetalk.concurrent.api.Single.failed;
+import static io.servicetalk.http.api.HttpHeaderNames.CONTENT_TYPE;
+import static io.servicetalk.http.utils.Deadlines.NO_DEADLINE;
+import static io.servicetalk.http.utils.Deadlines.encodeGrpcTimeout;
+import static io.servicetalk.http.utils.Deadlines.encodeMillisTimeout;
+import static io.servicetalk.http.utils.Deadlines.remainingNanos;
+import static io.servicetalk.http.utils.GrpcHttpUtils.GRPC_TIMEOUT;
+import static io.servicetalk.http.utils.GrpcHttpUtils.isGrpc;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * A filter which propagates the remaining budget of the {@link Deadlines deadline} of the current request to
+ * outgoing requests, and applies it as their timeout.
+ * <p>
+ * The budget is sent in the {@code grpc-timeout} header for gRPC requests, so the filter can also be used with
+ * {@code GrpcClientBuilder#appendHttpClientFilter}, and in the {@link Builder#timeoutHeader(CharSequence) configured
+ * header} in milliseconds for other requests. Requests are failed with a {@link TimeoutException} without being sent
+ * if the deadline has already passed. Requests made without a deadline are not modified.
+ */
+public final class DeadlineHttpRequesterFilter implements StreamingHttpClientFilterFactory,
+                                                          StreamingHttpConnectionFilterFactory,
+                                                          HttpExecutionStrategyInfluencer {
+    @Nullable
+    private final CharSequence timeoutHeader;
+    @Nullable
+    private final Executor timeoutExecutor;
+
+    private DeadlineHttpRequesterFilter(@Nullable final CharSequence timeoutHeader,
+                                        @Nullable final Executor timeoutExecutor) {
+        this.timeoutHeader = timeoutHeader;
+        this.timeoutExecutor = timeoutExecutor;
+    }
+
+    private Single<StreamingHttpResponse> request(final StreamingHttpRequester delegate,
+                                                  final HttpExecutionStrategy strategy,
+                                                  final StreamingHttpRequest request) {
+        return defer(() -> {
+            final long remainingNanos = remainingNanos();
+            if (remainingNanos == NO_DEADLINE) {
+                return delegate.request(strategy, request).subscribeShareContext();
+            }
+            if (remainingNanos <= 0) {
+                return failed(new TimeoutException("Deadline exceeded " + (-remainingNanos) +
+                        "ns before the request was sent"));
+            }
+            if (isGrpc(request.headers().get(CONTENT_TYPE))) {
+                request.setHeader(GRPC_TIMEOUT, encodeGrpcTimeout(remainingNanos));
+            } else if (timeoutHeader != null) {
+                request.setHeader(timeoutHeader, encodeMillisTimeout(remainingNanos));
+            }
+            final Single<StreamingHttpResponse> response = delegate.request(strategy, request);
+            return (timeoutExecutor == null ? response.idleTimeout(remainingNanos, NANOSECONDS) :
+                    response.idleTimeout(remainingNanos, NANOSECONDS, timeoutExecutor)).subscribeShareContext();
+        });
+    }
+
+    @Override
+    public StreamingHttpClientFilter create(final FilterableStreamingHttpClient client) {
+        return new StreamingHttpClientFilter(client) {
+            @Override
+            protected Single<StreamingHttpResponse> request(final StreamingHttpRequester delegate,
+                                                            final HttpExecutionStrategy strategy,
+                                                            final StreamingHttpRequest request) {
+                return DeadlineHttpRequesterFilter.this.request(delegate, strategy, request);
+            }
+        };
+    }
+
+    @Override
+    public StreamingHttpConnectionFilter create(final FilterableStreamingHttpConnection connection) {
+        return new StreamingHttpConnectionFilter(connection) {
+            @Override
+            public Single<StreamingHttpResponse> request(final HttpExecutionStrategy strategy,
+                                                         final StreamingHttpRequest request) {
+                return DeadlineHttpRequesterFilter.this.request(delegate(), strategy, request);
+            }
+        };
+    }
+
+    @Override
+    public HttpExecutionStrategy influenceStrategy(final HttpExecutionStrategy strategy) {
+        // No influence since we do not block.
+        return strategy;
+    }
+
+    /**
+     * A builder for {@link DeadlineHttpRequesterFilter}.
+     */
+    public static final class Builder {
+        @Nullable
+        private CharSequence timeoutHeader;
+        @Nullable
+        private Executor timeoutExecutor;
+
+        /**
+         * Sets the name of the header which carries the remaining budget in milliseconds for requests which are not
+         * gRPC requests.
+         * <p>
+         * By default the budget is only propagated in the {@code grpc-timeout} header of gRPC requests.
+         *
+         * @param timeoutHeader the name of the header which carries the remaining budget in milliseconds.
+         * @return {@code this}
+         * @see DeadlineHttpServiceFilter.Builder#timeoutHeader(CharSequence)
+         */
+        public Builder timeoutHeader(final CharSequence timeoutHeader) {
+            this.timeoutHeader = requireNonNull(timeoutHeader);
+            return this;
+        }
+
+        /**
+         * Sets the {@link Executor} to use for managing the timer notifications.
+         *
+         * @param timeoutExecutor the {@link Executor} to use for managing the timer notifications.
+         * @return {@code this}
+         */
+        public Builder timeoutExecutor(final Executor timeoutExecutor) {
+            this.timeoutExecutor = requireNonNull(timeoutExecutor);
+            return this;
+        }
+
+        /**
+         * Builds a new {@link DeadlineHttpRequesterFilter}.
+         *
+         * @return a new {@link DeadlineHttpRequesterFilter}.
+         */
+        public DeadlineHttpRequesterFilter build() {
+            return new DeadlineHttpRequesterFilter(timeoutHeader, timeoutExecutor);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.http.utils;
+
+import io.servicetalk.concurrent.api.Executor;
+import io.servicetalk.concurrent.api.Single;
+import io.servicetalk.http.api.HttpExecutionStrategy;
+import io.servicetalk.http.api.HttpExecutionStrategyInfluencer;
+import io.servicetalk.http.api.HttpHeaders;
+import io.servicetalk.http.api.HttpServiceContext;
+import io.servicetalk.http.api.StreamingHttpRequest;
+import io.servicetalk.http.api.StreamingHttpResponse;
+import io.servicetalk.http.api.StreamingHttpResponseFactory;
+import io.servicetalk.http.api.StreamingHttpService;
+import io.servicetalk.http.api.StreamingHttpServiceFilter;
+import io.servicetalk.http.api.StreamingHttpServiceFilterFactory;
+
+import java.util.concurrent.TimeoutException;
+import javax.annotation.Nullable;
+
+import static io.servicetalk.buffer.api.CharSequences.newAsciiString;
+import static io.servicetalk.concurrent.api.Single.defer;
+import static io.servicetalk.concurrent.api.Single.failed;
+import static io.servicetalk.concurrent.api.Single.succeeded;
+import static io.servicetalk.http.api.HttpHeaderNames.CONTENT_TYPE;
+import static io.servicetalk.http.utils.Deadlines.deadlineNanos;
+import static io.servicetalk.http.utils.Deadlines.parseGrpcTimeoutNanos;
+import static io.servicetalk.http.utils.Deadlines.parseMillisTimeoutNanos;
+import static io.servicetalk.http.utils.Deadlines.remainingNanos;
+import static io.servicetalk.http.utils.GrpcHttpUtils.GRPC_DEADLINE_EXCEEDED;
+import static io.servicetalk.http.utils.GrpcHttpUtils.GRPC_TIMEOUT;
+import static io.servicetalk.http.utils.GrpcHttpUtils.grpcStatusResponse;
+import static io.servicetalk.http.utils.GrpcHttpUtils.isGrpc;
+import static java.lang.System.nanoTime;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * A filter which sets the {@link Deadlines deadline} of a request from the timeout sent by the client, and cancels
+ * the service when the deadline passes.
+ * <p>
+ * The timeout is read from the {@code grpc-timeout} header for gRPC requests, so the filter can also be used with
+ * {@code GrpcServerBuilder#appendHttpServiceFilter}, and from the {@link Builder#timeoutHeader(CharSequence)
+ * configured header} in milliseconds for other requests. Requests whose deadline has passed are rejected without
+ * invoking the service: with {@code 504 Gateway Timeout} for HTTP requests and with a {@code DEADLINE_EXCEEDED} status
+ * for gRPC requests. The deadline bounds the time until the response meta-data is received from the service, the
+ * response payload body is not affected.
+ */
+public final class DeadlineHttpServiceFilter implements StreamingHttpServiceFilterFactory,
+                                                        HttpExecutionStrategyInfluencer {
+    private static final CharSequence GRPC_DEADLINE_EXCEEDED_MESSAGE = newAsciiString("Deadline exceeded");
+
+    @Nullable
+    private final CharSequence timeoutHeader;
+    @Nullable
+    private final Executor timeoutExecutor;
+
+    private DeadlineHttpServiceFilter(@Nullable final CharSequence timeoutHeader,
+                                      @Nullable final Executor timeoutExecutor) {
+        this.timeoutHeader = timeoutHeader;
+        this.timeoutExecutor = timeoutExecutor;
+    }
+
+    @Override
+    public StreamingHttpServiceFilter create(final StreamingHttpService service) {
+        return new StreamingHttpServiceFilter(service) {
+            @Override
+            public Single<StreamingHttpResponse> handle(final HttpServiceContext ctx,
+                                                        final StreamingHttpRequest request,
+                                                        final StreamingHttpResponseFactory responseFactory) {
+                final long timeoutNanos = timeoutNanos(request.headers());
+                if (timeoutNanos < 0) {
+                    return delegate().handle(ctx, request, responseFactory);
+                }
+                return defer(() -> {
+                    deadlineNanos(timeoutNanos);
+                    final long remainingNanos = remainingNanos();
+                    if (remainingNanos <= 0) {
+                        return succeeded(deadlineExceeded(request, responseFactory));
+                    }
+                    final long deadline = nanoTime() + remainingNanos;
+                    final Single<StreamingHttpResponse> response = delegate().handle(ctx, request, responseFactory);
+                    return (timeoutExecutor == null ? response.idleTimeout(remainingNanos, NANOSECONDS) :
+                            response.idleTimeout(remainingNanos, NANOSECONDS, timeoutExecutor))
+                            .recoverWith(cause -> cause instanceof TimeoutException && nanoTime() - deadline >= 0 ?
+                                    succeeded(deadlineExceeded(request, responseFactory)) : failed(cause))
+                            .subscribeShareContext();
+                });
+            }
+        };
+    }
+
+    @Override
+    public HttpExecutionStrategy influenceStrategy(final HttpExecutionStrategy strategy) {
+        // No influence since we do not block.
+        return strategy;
+    }
+
+    private long timeoutNanos(final HttpHeaders headers) {
+        if (isGrpc(headers.get(CONTENT_TYPE))) {
+            final CharSequence timeout = headers.get(GRPC_TIMEOUT);
+            return timeout == null ? -1 : parseGrpcTimeoutNanos(timeout);
+        }
+        if (timeoutHeader == null) {
+            return -1;
+        }
+        final CharSequence timeout = headers.get(timeoutHeader);
+        return timeout == null ? -1 : parseMillisTimeoutNanos(timeout);
+    }
+
+    private static StreamingHttpResponse deadlineExceeded(final StreamingHttpRequest request,
+                                                          final StreamingHttpResponseFactory responseFactory) {
+        final CharSequence contentType = request.headers().get(CONTENT_TYPE);
+        if (isGrpc(contentType)) {
+            assert contentType != null;
+            return grpcStatusResponse(responseFactory, contentType, GRPC_DEADLINE_EXCEEDED,
+                    GRPC_DEADLINE_EXCEEDED_MESSAGE);
+        }
+        return responseFactory.gatewayTimeout();
+    }
+
+    /**
+     * A builder for {@link DeadlineHttpServiceFilter}.
+     */
+    public static final class Builder {
+        @Nullable
+        private CharSequence timeoutHeader;
+        @Nullable
+        private Executor timeoutExecutor;
+
+        /**
+         * Sets the name of the header which carries the timeout in milliseconds for requests which are not gRPC
+         * requests.
+         * <p>
+         * By default only the {@code grpc-timeout} header of gRPC requests is used.
+         *
+         * @param timeoutHeader the name of the header which carries the timeout in milliseconds.
+         * @return {@code this}
+         * @see DeadlineHttpRequesterFilter.Builder#timeoutHeader(CharSequence)
+         */
+        public Builder timeoutHeader(final CharSequence timeoutHeader) {
+            this.timeoutHeader = requireNonNull(timeoutHeader);
+            return this;
+        }
+
+        /**
+         * Sets the {@link Executor} to use for managing the timer notifications.
+         *
+         * @param timeoutExecutor the {@link Executor} to use for managing the timer notifications.
+         * @return {@code this}
+         */
+        public Builder timeoutExecutor(final Executor timeoutExecutor) {
+            this.timeoutExecutor = requireNonNull(timeoutExecutor);
+            return this;
+        }
+
+        /**
+         * Builds a new {@link DeadlineHttpServiceFilter}.
+         *
+         * @return a new {@link DeadlineHttpServiceFilter}.
+         */
+        public DeadlineHttpServiceFilter build() {
+            return new DeadlineHttpServiceFilter(timeoutHeader, timeoutExecutor);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.http.utils;
+
+import io.servicetalk.concurrent.api.AsyncContext;
+import io.servicetalk.concurrent.api.AsyncContextMap.Key;
+
+import java.time.Duration;
+import javax.annotation.Nullable;
+
+import static io.servicetalk.concurrent.api.AsyncContextMap.Key.newKey;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.lang.System.nanoTime;
+
+/**
+ * Access to the deadline of the current request, which is carried in {@link AsyncContext}.
+ * <p>
+ * The deadline is set by {@link DeadlineHttpServiceFilter} from the timeout sent by the client and
+ * {@link DeadlineHttpRequesterFilter} propagates the remaining budget to outgoing requests made while processing the
+ * request. {@link TimeoutHttpRequesterFilter} caps its timeout to the remaining budget.
+ */
+public final class Deadlines {
+    /**
+     * The value is a {@link System#nanoTime()} timestamp.
+     */
+    private static final Key<Long> DEADLINE_KEY = newKey("deadline");
+    /**
+     * Bound the timeouts so the deadline timestamp does not overflow, about 146 years.
+     */
+    private static final long MAX_TIMEOUT_NANOS = Long.MAX_VALUE >> 1;
+    private static final int MAX_GRPC_TIMEOUT_DIGITS = 8;
+    private static final long MAX_GRPC_TIMEOUT_VALUE = 99_999_999;
+    private static final char[] GRPC_TIMEOUT_UNITS = {'n', 'u', 'm', 'S', 'M', 'H'};
+    private static final long[] GRPC_TIMEOUT_UNIT_NANOS = {1, 1_000, 1_000_000, 1_000_000_000, 60_000_000_000L,
+            3_600_000_000_000L};
+    private static final int MAX_MILLIS_DIGITS = 12;
+
+    /**
+     * Returned by {@link #remainingNanos()} if there is no deadline.
+     */
+    static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    private Deadlines() {
+        // no instances
+    }
+
+    /**
+     * Sets the deadline of the current request to {@code timeout} from now, unless the current deadline is earlier.
+     *
+     * @param timeout the time available to process the current request.
+     */
+    public static void deadline(final Duration timeout) {
+        deadlineNanos(timeoutNanos(timeout));
+    }
+
+    /**
+     * Returns the time remaining until the deadline of the current request.
+     *
+     * @return the time remaining until the deadline of the current request, negative or zero if the deadline has
+     * passed, or {@code null} if there is no deadline.
+     */
+    @Nullable
+    public static Duration remaining() {
+        final long remainingNanos = remainingNanos();
+        return remainingNanos == NO_DEADLINE ? null : Duration.ofNanos(remainingNanos);
+    }
+
+    /**
+     * Removes the deadline of the current request, e.g. before starting work which should outlive the request.
+     */
+    public static void clearDeadline() {
+        AsyncContext.remove(DEADLINE_KEY);
+    }
+
+    /**
+     * Returns the nanoseconds remaining until the deadline of the current request.
+     *
+     * @return the nanoseconds remaining until the deadline, or {@link #NO_DEADLINE}.
+     */
+    static long remainingNanos() {
+        final Long deadline = AsyncContext.get(DEADLINE_KEY);
+        return deadline == null ? NO_DEADLINE : deadline - nanoTime();
+    }
+
+    static void deadlineNanos(final long timeoutNanos) {
+        final long deadline = nanoTime() + min(timeoutNanos, MAX_TIMEOUT_NANOS);
+        final Long current = AsyncContext.get(DEADLINE_KEY);
+        if (current == null || deadline - current < 0) {
+            AsyncContext.put(DEADLINE_KEY, deadline);
+        }
+    }
+
+    static long timeoutNanos(final Duration timeout) {
+        if (timeout.isNegative()) {
+            return 0;
+        }
+        return timeout.getSeconds() >= MAX_TIMEOUT_NANOS / 1_000_000_000 ? MAX_TIMEOUT_NANOS : timeout.toNanos();
+    }
+
+    /**
+     * Parses a <a href="https://github.com/grpc/grpc/blob/master/doc/PROTOCOL-HTTP2.md#requests">grpc-timeout</a>
+     * header value.
+     *
+     * @param value the header value.
+     * @return the timeout in nanoseconds, or {@code -1} if the value is invalid.
+     */
+    static long parseGrpcTimeoutNanos(final CharSequence value) {
+        final int digits = value.length() - 1;
+        if (digits < 1 || digits > MAX_GRPC_TIMEOUT_DIGITS) {
+            return -1;
+        }
+        final long timeout = parseDigits(value, digits);
+        if (timeout < 0) {
+            return -1;
+        }
+        final char unit = value.charAt(digits);
+        for (int i = 0; i < GRPC_TIMEOUT_UNITS.length; ++i) {
+            if (GRPC_TIMEOUT_UNITS[i] == unit) {
+                final long unitNanos = GRPC_TIMEOUT_UNIT_NANOS[i];
+                return timeout > MAX_TIMEOUT_NANOS / unitNanos ? MAX_TIMEOUT_NANOS : timeout * unitNanos;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Encodes a timeout as a grpc-timeout header value, using the most precise unit which fits into 8 digits. The
+     * timeout is rounded down, so the receiver never assumes more time than available.
+     *
+     * @param timeoutNanos the timeout in nanoseconds.
+     * @return the grpc-timeout header value.
+     */
+    static String encodeGrpcTimeout(final long timeoutNanos) {
+        final long timeout = max(0, timeoutNanos);
+        for (int i = 0; i < GRPC_TIMEOUT_UNITS.length; ++i) {
+            final long value = timeout / GRPC_TIMEOUT_UNIT_NANOS[i];
+            if (value <= MAX_GRPC_TIMEOUT_VALUE) {
+                return String.valueOf(value) + GRPC_TIMEOUT_UNITS[i];
+            }
+        }
+        return MAX_GRPC_TIMEOUT_VALUE + "H";
+    }
+
+    /**
+     * Parses a timeout in milliseconds.
+     *
+     * @param value the header value.
+     * @return the timeout in nanoseconds, or {@code -1} if the value is invalid.
+     */
+    static long parseMillisTimeoutNanos(final CharSequence value) {
+        final int digits = value.length();
+        if (digits < 1 || digits > MAX_MILLIS_DIGITS) {
+            return -1;
+        }
+        final long timeout = parseDigits(value, digits);
+        return timeout < 0 ? -1 : timeout * 1_000_000;
+    }
+
+    static String encodeMillisTimeout(final long timeoutNanos) {
+        return String.valueOf(max(0, timeoutNanos) / 1_000_000);
+    }
+
+    private static long parseDigits(final CharSequence value, final int digits) {
+        long result = 0;
+        for (int i = 0; i < digits; ++i) {
+            final char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+}
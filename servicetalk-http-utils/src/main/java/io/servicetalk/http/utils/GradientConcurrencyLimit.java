@@ -0,0 +1,80 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.http.utils;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.lang.Math.sqrt;
+
+/**
+ * A {@link ConcurrencyLimit} which compares each latency sample against an exponential moving average of the latency.
+ */
+final class GradientConcurrencyLimit implements ConcurrencyLimit {
+    private static final int WARMUP_SAMPLES = 10;
+    private static final int LONG_WINDOW = 600;
+    private static final double SMOOTHING = 0.2;
+    private static final double RTT_TOLERANCE = 1.5;
+    private static final double MIN_GRADIENT = 0.5;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private double estimatedLimit;
+    private double longRttNanos;
+    private int samples;
+
+    GradientConcurrencyLimit(final int initialLimit, final int minLimit, final int maxLimit) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        estimatedLimit = initialLimit;
+    }
+
+    @Override
+    public synchronized int limit() {
+        return (int) estimatedLimit;
+    }
+
+    @Override
+    public synchronized int onSample(final long rttNanos, final int inFlight, final boolean dropped) {
+        final double shortRtt = max(1, rttNanos);
+        if (samples < WARMUP_SAMPLES) {
+            // Simple average until there are enough samples for the moving average to be meaningful.
+            longRttNanos = (longRttNanos * samples + shortRtt) / ++samples;
+        } else {
+            longRttNanos += (shortRtt - longRttNanos) * 2 / (LONG_WINDOW + 1);
+        }
+        if (longRttNanos / shortRtt > 2) {
+            // The long term average drifts up under sustained load, pull it back faster once the load subsides.
+            longRttNanos *= 0.95;
+        }
+        if (!dropped && inFlight < estimatedLimit / 2) {
+            // The limit is not the bottleneck, there is no evidence the limit can grow.
+            return (int) estimatedLimit;
+        }
+
+        final double gradient = dropped ? MIN_GRADIENT :
+                max(MIN_GRADIENT, min(1.0, RTT_TOLERANCE * longRttNanos / shortRtt));
+        final double queueSize = dropped ? 0 : sqrt(estimatedLimit);
+        final double newLimit = estimatedLimit * (1 - SMOOTHING) +
+                (estimatedLimit * gradient + queueSize) * SMOOTHING;
+        estimatedLimit = max(minLimit, min(maxLimit, newLimit));
+        return (int) estimatedLimit;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "GradientConcurrencyLimit{limit=" + estimatedLimit + ", longRttNanos=" + longRttNanos + '}';
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.http.utils;
+
+import io.servicetalk.http.api.StreamingHttpResponse;
+import io.servicetalk.http.api.StreamingHttpResponseFactory;
+
+import javax.annotation.Nullable;
+
+import static io.servicetalk.buffer.api.CharSequences.newAsciiString;
+import static io.servicetalk.buffer.api.CharSequences.regionMatches;
+import static io.servicetalk.http.api.HttpHeaderNames.CONTENT_TYPE;
+
+/**
+ * Helpers for filters which handle gRPC requests at the HTTP level, without depending on the gRPC modules.
+ */
+final class GrpcHttpUtils {
+    private static final CharSequence GRPC_CONTENT_TYPE_PREFIX = newAsciiString("application/grpc");
+    private static final CharSequence GRPC_STATUS = newAsciiString("grpc-status");
+    private static final CharSequence GRPC_MESSAGE = newAsciiString("grpc-message");
+    static final CharSequence GRPC_TIMEOUT = newAsciiString("grpc-timeout");
+    // https://github.com/grpc/grpc/blob/master/doc/statuscodes.md
+    static final CharSequence GRPC_DEADLINE_EXCEEDED = newAsciiString("4");
+    static final CharSequence GRPC_RESOURCE_EXHAUSTED = newAsciiString("8");
+
+    private GrpcHttpUtils() {
+        // no instances
+    }
+
+    static boolean isGrpc(@Nullable final CharSequence contentType) {
+        return contentType != null && contentType.length() >= GRPC_CONTENT_TYPE_PREFIX.length() &&
+                regionMatches(contentType, true, 0, GRPC_CONTENT_TYPE_PREFIX, 0, GRPC_CONTENT_TYPE_PREFIX.length());
+    }
+
+    /**
+     * Creates a trailers-only response, which gRPC clients expect when a request fails before any message is sent.
+     */
+    static StreamingHttpResponse grpcStatusResponse(final StreamingHttpResponseFactory responseFactory,
+                                                    final CharSequence contentType, final CharSequence status,
+                                                    final CharSequence message) {
+        return responseFactory.ok()
+                .setHeader(CONTENT_TYPE, contentType)
+                .setHeader(GRPC_STATUS, status)
+                .setHeader(GRPC_MESSAGE, message);
+    }
+}
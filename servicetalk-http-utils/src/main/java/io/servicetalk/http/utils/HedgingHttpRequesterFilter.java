@@ -0,0 +1,482 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.http.utils;
+
+import io.servicetalk.buffer.api.Buffer;
+import io.servicetalk.concurrent.Cancellable;
+import io.servicetalk.concurrent.SingleSource.Subscriber;
+import io.servicetalk.concurrent.api.Executor;
+import io.servicetalk.concurrent.api.Publisher;
+import io.servicetalk.concurrent.api.Single;
+import io.servicetalk.concurrent.api.internal.SubscribableSingle;
+import io.servicetalk.concurrent.internal.DelayedCancellable;
+import io.servicetalk.encoding.api.ContentCodec;
+import io.servicetalk.http.api.FilterableStreamingHttpClient;
+import io.servicetalk.http.api.HttpExecutionStrategy;
+import io.servicetalk.http.api.HttpExecutionStrategyInfluencer;
+import io.servicetalk.http.api.HttpRequestMetaData;
+import io.servicetalk.http.api.StreamingHttpClientFilter;
+import io.servicetalk.http.api.StreamingHttpClientFilterFactory;
+import io.servicetalk.http.api.StreamingHttpRequest;
+import io.servicetalk.http.api.StreamingHttpRequester;
+import io.servicetalk.http.api.StreamingHttpResponse;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.function.Predicate;
+import javax.annotation.Nullable;
+
+import static io.servicetalk.concurrent.api.AsyncContext.wrapRunnable;
+import static io.servicetalk.concurrent.api.SourceAdapters.toSource;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * A filter which sends a second attempt of a request if no response has been received after a delay, and uses the
+ * response which arrives first. The other attempt is cancelled.
+ * <p>
+ * Hedging reduces tail latency caused by a slow host or connection, while retries only help after a failure. The
+ * hedged attempt goes through the load balancer again, which typically selects a different host. The delay is either
+ * fixed or follows a percentile of the latency observed by the client, the number of hedged attempts is capped by a
+ * budget relative to the number of requests which is shared by all clients the filter is applied to. The filter can
+ * also be used with {@code GrpcClientBuilder#appendHttpClientFilter}, but gRPC calls are always {@code POST} requests,
+ * so they are not hedged by default. Use {@link Builder#hedgeFor(Predicate)} to select the idempotent RPCs, e.g. by
+ * their {@code content-type} ({@code application/grpc}) and path.
+ * <p>
+ * <b>Note:</b> Only requests matching {@link Builder#hedgeFor(Predicate)} are hedged, by default requests with
+ * <a href="https://tools.ietf.org/html/rfc7231#section-4.2.2">idempotent</a> methods. These requests are expected to
+ * have a {@link StreamingHttpRequest#payloadBody() payload body} that is replayable, i.e. multiple subscribes to the
+ * payload {@link Publisher} emit the same data, as for aggregated requests. Cancelling an HTTP/1.x attempt closes its
+ * connection.
+ */
+public final class HedgingHttpRequesterFilter implements StreamingHttpClientFilterFactory,
+                                                         HttpExecutionStrategyInfluencer {
+    /**
+     * The budget is tracked in fractions of a hedged attempt to support ratios below one.
+     */
+    private static final int BUDGET_SCALE = 1000;
+    private static final int PERCENTILE_MIN_SAMPLES = 100;
+    private static final int PERCENTILE_DECAY_INTERVAL = 1000;
+    private static final AtomicIntegerFieldUpdater<HedgingHttpRequesterFilter> budgetUpdater =
+            AtomicIntegerFieldUpdater.newUpdater(HedgingHttpRequesterFilter.class, "budget");
+
+    private final Predicate<HttpRequestMetaData> hedgeFor;
+    private final long fixedDelayNanos;
+    private final double percentile;
+    private final long maxDelayNanos;
+    private final int budgetDeposit;
+    private final int maxBudget;
+    private volatile int budget;
+
+    private HedgingHttpRequesterFilter(final Predicate<HttpRequestMetaData> hedgeFor, final long fixedDelayNanos,
+                                       final double percentile, final long maxDelayNanos, final double budgetRatio,
+                                       final int maxBurst) {
+        this.hedgeFor = hedgeFor;
+        this.fixedDelayNanos = fixedDelayNanos;
+        this.percentile = percentile;
+        this.maxDelayNanos = maxDelayNanos;
+        budgetDeposit = (int) (budgetRatio * BUDGET_SCALE);
+        maxBudget = maxBurst * BUDGET_SCALE;
+        budget = maxBudget;
+    }
+
+    @Override
+    public StreamingHttpClientFilter create(final FilterableStreamingHttpClient client) {
+        final Executor executor = client.executionContext().executor();
+        @Nullable
+        final LatencyPercentileTracker tracker = fixedDelayNanos < 0 ?
+                new LatencyPercentileTracker(percentile, PERCENTILE_MIN_SAMPLES, PERCENTILE_DECAY_INTERVAL) : null;
+        return new StreamingHttpClientFilter(client) {
+            @Override
+            protected Single<StreamingHttpResponse> request(final StreamingHttpRequester delegate,
+                                                            final HttpExecutionStrategy strategy,
+                                                            final StreamingHttpRequest request) {
+                if (!hedgeFor.test(request)) {
+                    return delegate.request(strategy, request);
+                }
+                return new HedgedRequestSingle(HedgingHttpRequesterFilter.this, executor, tracker, delegate,
+                        strategy, request);
+            }
+        };
+    }
+
+    @Override
+    public HttpExecutionStrategy influenceStrategy(final HttpExecutionStrategy strategy) {
+        // No influence since we do not block.
+        return strategy;
+    }
+
+    private long hedgeDelayNanos(@Nullable final LatencyPercentileTracker tracker) {
+        if (tracker == null) {
+            return fixedDelayNanos;
+        }
+        final long percentileNanos = tracker.percentileNanos();
+        return percentileNanos < 0 ? maxDelayNanos : min(percentileNanos, maxDelayNanos);
+    }
+
+    private void depositBudget() {
+        for (;;) {
+            final int current = budget;
+            if (current >= maxBudget ||
+                    budgetUpdater.compareAndSet(this, current, min(maxBudget, current + budgetDeposit))) {
+                return;
+            }
+        }
+    }
+
+    private boolean tryWithdrawBudget() {
+        for (;;) {
+            final int current = budget;
+            if (current < BUDGET_SCALE) {
+                return false;
+            }
+            if (budgetUpdater.compareAndSet(this, current, current - BUDGET_SCALE)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Each attempt gets its own copy of the request, because the transport may modify the request meta-data and
+     * consumes the {@link Buffer}s of the payload body while writing.
+     */
+    private static StreamingHttpRequest newAttempt(final StreamingHttpRequester requester,
+                                                   final StreamingHttpRequest request) {
+        final StreamingHttpRequest attempt = requester.newRequest(request.method(), request.requestTarget())
+                .version(request.version())
+                .transformMessageBody(__ -> request.messageBody().map(item ->
+                        item instanceof Buffer ? ((Buffer) item).duplicate() : item));
+        attempt.headers().add(request.headers());
+        final ContentCodec encoding = request.encoding();
+        if (encoding != null) {
+            attempt.encoding(encoding);
+        }
+        return attempt;
+    }
+
+    private static final class HedgedRequestSingle extends SubscribableSingle<StreamingHttpResponse> {
+        private final HedgingHttpRequesterFilter filter;
+        private final Executor executor;
+        @Nullable
+        private final LatencyPercentileTracker tracker;
+        private final StreamingHttpRequester requester;
+        private final HttpExecutionStrategy strategy;
+        private final StreamingHttpRequest request;
+
+        HedgedRequestSingle(final HedgingHttpRequesterFilter filter, final Executor executor,
+                            @Nullable final LatencyPercentileTracker tracker, final StreamingHttpRequester requester,
+                            final HttpExecutionStrategy strategy, final StreamingHttpRequest request) {
+            this.filter = filter;
+            this.executor = executor;
+            this.tracker = tracker;
+            this.requester = requester;
+            this.strategy = strategy;
+            this.request = request;
+        }
+
+        @Override
+        protected void handleSubscribe(final Subscriber<? super StreamingHttpResponse> subscriber) {
+            filter.depositBudget();
+            final HedgeState state = new HedgeState(this, subscriber);
+            subscriber.onSubscribe(state);
+            state.start(filter.hedgeDelayNanos(tracker));
+        }
+    }
+
+    private static final class HedgeState implements Cancellable {
+        private final HedgedRequestSingle single;
+        private final Subscriber<? super StreamingHttpResponse> target;
+        private final DelayedCancellable timerCancellable = new DelayedCancellable();
+        private final Attempt primaryAttempt;
+        private final Attempt hedgedAttempt;
+        // All fields below are guarded by this.
+        private long delayNanos;
+        private int pendingAttempts;
+        private boolean hedgeStarted;
+        private boolean terminated;
+
+        HedgeState(final HedgedRequestSingle single, final Subscriber<? super StreamingHttpResponse> target) {
+            this.single = single;
+            this.target = target;
+            primaryAttempt = new Attempt(single.tracker);
+            hedgedAttempt = new Attempt(single.tracker);
+        }
+
+        void start(final long delayNanos) {
+            synchronized (this) {
+                if (terminated) {
+                    return;
+                }
+                this.delayNanos = delayNanos;
+                ++pendingAttempts;
+            }
+            subscribeAttempt(primaryAttempt);
+            try {
+                timerCancellable.delayedCancellable(single.executor.schedule(wrapRunnable(this::hedge), delayNanos,
+                        NANOSECONDS));
+            } catch (Throwable cause) {
+                // Hedging is an optimization, the primary attempt continues if the timer can not be scheduled.
+                timerCancellable.cancel();
+            }
+        }
+
+        private void hedge() {
+            synchronized (this) {
+                if (terminated || !single.filter.tryWithdrawBudget()) {
+                    return;
+                }
+                hedgeStarted = true;
+                ++pendingAttempts;
+            }
+            subscribeAttempt(hedgedAttempt);
+        }
+
+        private void subscribeAttempt(final Attempt attempt) {
+            final Single<StreamingHttpResponse> response;
+            try {
+                response = single.requester.request(single.strategy, newAttempt(single.requester, single.request));
+            } catch (Throwable cause) {
+                attempt.cancellable.delayedCancellable(IGNORE_CANCEL);
+                onAttemptError(attempt, cause);
+                return;
+            }
+            attempt.started();
+            toSource(response).subscribe(new Subscriber<StreamingHttpResponse>() {
+                @Override
+                public void onSubscribe(final Cancellable attemptCancellable) {
+                    attempt.cancellable.delayedCancellable(attemptCancellable);
+                }
+
+                @Override
+                public void onSuccess(@Nullable final StreamingHttpResponse result) {
+                    attempt.recordLatency(0);
+                    onAttemptSuccess(attempt, result);
+                }
+
+                @Override
+                public void onError(final Throwable t) {
+                    onAttemptError(attempt, t);
+                }
+            });
+        }
+
+        private void onAttemptSuccess(final Attempt winner, @Nullable final StreamingHttpResponse result) {
+            final boolean lost;
+            synchronized (this) {
+                --pendingAttempts;
+                lost = terminated;
+                terminated = true;
+            }
+            if (lost) {
+                // The other attempt won, the response must be consumed to release the connection.
+                if (result != null) {
+                    result.messageBody().ignoreElements().subscribe();
+                }
+                return;
+            }
+            timerCancellable.cancel();
+            if (winner == primaryAttempt) {
+                cancelHedgedAttempt();
+            } else {
+                cancelPrimaryAttempt();
+            }
+            target.onSuccess(result);
+        }
+
+        private void onAttemptError(final Attempt attempt, final Throwable cause) {
+            // Failures are not representative for the latency of successful responses.
+            attempt.skipLatency();
+            synchronized (this) {
+                --pendingAttempts;
+                if (terminated || (hedgeStarted && pendingAttempts > 0)) {
+                    // Either the other attempt won already, or it may still succeed.
+                    return;
+                }
+                terminated = true;
+            }
+            // If the hedged attempt was not started yet the failure is not caused by a slow response, this filter
+            // doesn't retry failures.
+            timerCancellable.cancel();
+            target.onError(cause);
+        }
+
+        private void cancelPrimaryAttempt() {
+            final long minLatencyNanos;
+            synchronized (this) {
+                // The timer only fires if the primary attempt was pending for the whole delay.
+                minLatencyNanos = hedgeStarted ? delayNanos : 0;
+            }
+            primaryAttempt.cancel(minLatencyNanos);
+        }
+
+        private void cancelHedgedAttempt() {
+            hedgedAttempt.cancel(0);
+        }
+
+        @Override
+        public void cancel() {
+            synchronized (this) {
+                terminated = true;
+            }
+            timerCancellable.cancel();
+            cancelPrimaryAttempt();
+            cancelHedgedAttempt();
+        }
+    }
+
+    /**
+     * An attempt of a hedged request, which records its latency at most once.
+     * <p>
+     * A cancelled attempt records the time it was pending as a lower bound of its latency. Otherwise only the attempts
+     * which win are recorded, which are biased towards fast responses if the slow attempts are cancelled, and the
+     * tracked percentile would decrease until most requests are hedged.
+     */
+    private static final class Attempt {
+        private static final AtomicIntegerFieldUpdater<Attempt> recordedUpdater =
+                AtomicIntegerFieldUpdater.newUpdater(Attempt.class, "recorded");
+
+        final DelayedCancellable cancellable = new DelayedCancellable();
+        @Nullable
+        private final LatencyPercentileTracker tracker;
+        private volatile boolean started;
+        private volatile long startTime;
+        private volatile int recorded;
+
+        Attempt(@Nullable final LatencyPercentileTracker tracker) {
+            this.tracker = tracker;
+        }
+
+        void started() {
+            startTime = System.nanoTime();
+            started = true;
+        }
+
+        void recordLatency(final long minLatencyNanos) {
+            if (tracker != null && started && recordedUpdater.compareAndSet(this, 0, 1)) {
+                tracker.record(max(minLatencyNanos, System.nanoTime() - startTime));
+            }
+        }
+
+        void skipLatency() {
+            recorded = 1;
+        }
+
+        void cancel(final long minLatencyNanos) {
+            recordLatency(minLatencyNanos);
+            cancellable.cancel();
+        }
+    }
+
+    /**
+     * A builder for {@link HedgingHttpRequesterFilter}.
+     */
+    public static final class Builder {
+        private Predicate<HttpRequestMetaData> hedgeFor = meta -> meta.method().properties().isIdempotent();
+        private long fixedDelayNanos = -1;
+        private double percentile = 95;
+        private long maxDelayNanos = Duration.ofSeconds(1).toNanos();
+        private double budgetRatio = 0.1;
+        private int maxBurst = 10;
+
+        /**
+         * Sets the {@link Predicate} which selects the requests that are hedged.
+         * <p>
+         * Defaults to requests with <a href="https://tools.ietf.org/html/rfc7231#section-4.2.2">idempotent</a>
+         * methods. Selected requests are expected to have a replayable payload body. gRPC calls are {@code POST}
+         * requests, so they need a custom {@link Predicate} which selects the idempotent RPCs.
+         *
+         * @param hedgeFor the {@link Predicate} which selects the requests that are hedged.
+         * @return {@code this}
+         */
+        public Builder hedgeFor(final Predicate<HttpRequestMetaData> hedgeFor) {
+            this.hedgeFor = requireNonNull(hedgeFor);
+            return this;
+        }
+
+        /**
+         * Sends the hedged attempt after a fixed delay.
+         *
+         * @param delay the delay after which the hedged attempt is sent.
+         * @return {@code this}
+         */
+        public Builder fixedDelay(final Duration delay) {
+            fixedDelayNanos = ensurePositive(delay, "delay");
+            return this;
+        }
+
+        /**
+         * Sends the hedged attempt once a request takes longer than the given percentile of the latencies observed
+         * by the client, but not later than {@code maxDelay}. The {@code maxDelay} is also used until enough latencies
+         * have been observed.
+         * <p>
+         * This is the default with the 95th percentile and a {@code maxDelay} of 1 second.
+         *
+         * @param percentile the percentile of observed latencies, in the range (0, 100).
+         * @param maxDelay the maximum delay after which the hedged attempt is sent.
+         * @return {@code this}
+         */
+        public Builder percentileDelay(final double percentile, final Duration maxDelay) {
+            if (!(percentile > 0 && percentile < 100)) {
+                throw new IllegalArgumentException("percentile: " + percentile + " (expected (0, 100))");
+            }
+            maxDelayNanos = ensurePositive(maxDelay, "maxDelay");
+            this.percentile = percentile;
+            fixedDelayNanos = -1;
+            return this;
+        }
+
+        /**
+         * Sets the budget for hedged attempts, shared by all clients this filter is applied to.
+         * <p>
+         * Each request adds {@code ratio} to the budget, each hedged attempt consumes {@code 1}. Defaults to a ratio of
+         * {@code 0.1} and a maximum burst of {@code 10}, which limits the extra load to 10% of the requests.
+         *
+         * @param ratio the maximum ratio of hedged attempts to requests, in the range (0, 1].
+         * @param maxBurst the maximum number of hedged attempts the budget can accumulate.
+         * @return {@code this}
+         */
+        public Builder budget(final double ratio, final int maxBurst) {
+            if (!(ratio > 0 && ratio <= 1)) {
+                throw new IllegalArgumentException("ratio: " + ratio + " (expected (0, 1])");
+            }
+            if (maxBurst <= 0) {
+                throw new IllegalArgumentException("maxBurst: " + maxBurst + " (expected >0)");
+            }
+            this.budgetRatio = ratio;
+            this.maxBurst = maxBurst;
+            return this;
+        }
+
+        /**
+         * Builds a new {@link HedgingHttpRequesterFilter}.
+         *
+         * @return a new {@link HedgingHttpRequesterFilter}.
+         */
+        public HedgingHttpRequesterFilter build() {
+            return new HedgingHttpRequesterFilter(hedgeFor, fixedDelayNanos, percentile, maxDelayNanos, budgetRatio,
+                    maxBurst);
+        }
+
+        private static long ensurePositive(final Duration duration, final String name) {
+            if (duration.isNegative() || duration.isZero()) {
+                throw new IllegalArgumentException(name + ": " + duration + " (expected >0)");
+            }
+            return duration.toNanos();
+        }
+    }
+}
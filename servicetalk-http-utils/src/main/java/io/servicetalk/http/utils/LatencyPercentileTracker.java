@@ -0,0 +1,127 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.http.utils;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static java.lang.Long.numberOfLeadingZeros;
+import static java.lang.Math.max;
+
+/**
+ * Tracks a percentile of recently observed latencies.
+ * <p>
+ * Samples are counted in a histogram with exponentially growing buckets, each power of two split into
+ * four linear sub-buckets, so the reported percentile overestimates the actual value by at most 25%.
+ * Every {@code decayInterval} samples all counts are halved to let the percentile follow changes in latency.
+ */
+final class LatencyPercentileTracker {
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = SUB_BUCKETS + (Long.SIZE - 1 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+    /**
+     * The percentile is recomputed on every {@code RECALCULATE_INTERVAL} sample, it does not need to reflect every
+     * single sample and a recomputation has to visit all buckets.
+     */
+    private static final int RECALCULATE_INTERVAL = 16;
+    private static final AtomicIntegerFieldUpdater<LatencyPercentileTracker> samplesUpdater =
+            AtomicIntegerFieldUpdater.newUpdater(LatencyPercentileTracker.class, "samples");
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final double percentile;
+    private final int minSamples;
+    private final int decayInterval;
+    private volatile int samples;
+    private volatile long percentileNanos = -1;
+
+    /**
+     * Create a new instance.
+     *
+     * @param percentile the percentile to track, in the range (0, 100).
+     * @param minSamples the number of samples required before a percentile is reported.
+     * @param decayInterval the number of samples after which all counts are halved.
+     */
+    LatencyPercentileTracker(final double percentile, final int minSamples, final int decayInterval) {
+        this.percentile = percentile;
+        this.minSamples = minSamples;
+        this.decayInterval = decayInterval;
+    }
+
+    /**
+     * Record a latency sample.
+     *
+     * @param latencyNanos the observed latency in nanoseconds.
+     */
+    void record(final long latencyNanos) {
+        counts.incrementAndGet(bucketIndex(max(0, latencyNanos)));
+        final int sampleCount = samplesUpdater.incrementAndGet(this);
+        if (sampleCount % decayInterval == 0) {
+            // Concurrent increments may race with the decay, the histogram is an approximation anyway.
+            for (int i = 0; i < BUCKETS; ++i) {
+                counts.getAndUpdate(i, count -> count >>> 1);
+            }
+        }
+        if (sampleCount >= minSamples && (sampleCount % RECALCULATE_INTERVAL == 0 || percentileNanos < 0)) {
+            percentileNanos = calculatePercentile();
+        }
+    }
+
+    /**
+     * Get the tracked percentile of the recorded latencies.
+     *
+     * @return the tracked percentile of the recorded latencies in nanoseconds, or {@code -1} if not enough samples
+     * have been recorded yet.
+     */
+    long percentileNanos() {
+        return percentileNanos;
+    }
+
+    private long calculatePercentile() {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; ++i) {
+            total += counts.get(i);
+        }
+        final double threshold = total * percentile / 100;
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; ++i) {
+            seen += counts.get(i);
+            if (seen > 0 && seen >= threshold) {
+                return bucketUpperBound(i);
+            }
+        }
+        return percentileNanos;
+    }
+
+    static int bucketIndex(final long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        final int exponent = Long.SIZE - 1 - numberOfLeadingZeros(value);
+        final int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return SUB_BUCKETS + (exponent - SUB_BUCKET_BITS) * SUB_BUCKETS + subBucket;
+    }
+
+    static long bucketUpperBound(final int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        final int shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+        final long subBucket = (index - SUB_BUCKETS) % SUB_BUCKETS;
+        final long upperBound = ((SUB_BUCKETS + subBucket + 1) << shift) - 1;
+        // The last bucket would overflow.
+        return upperBound < 0 ? Long.MAX_VALUE : upperBound;
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.http.utils;
+
+final class NoopConcurrencyLimitObserver implements ConcurrencyLimitObserver {
+    static final ConcurrencyLimitObserver INSTANCE = new NoopConcurrencyLimitObserver();
+
+    private NoopConcurrencyLimitObserver() {
+        // singleton
+    }
+
+    @Override
+    public void onLimitChanged(final int oldLimit, final int newLimit) {
+    }
+
+    @Override
+    public void onRequestAccepted(final int inFlight) {
+    }
+
+    @Override
+    public void onRequestRejected(final int inFlight, final int limit) {
+    }
+
+    @Override
+    public void onRequestFinished(final int inFlight) {
+    }
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright © 2019 Apple Inc. and the ServiceTalk project authors
+ * Copyright © 2019-2021 Apple Inc. and the ServiceTalk project authors
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -32,15 +32,22 @@ import io.servicetalk.http.api.StreamingHttpResponse;
 import java.time.Duration;
 import javax.annotation.Nullable;
 
+import static io.servicetalk.concurrent.api.Single.defer;
+import static io.servicetalk.http.utils.Deadlines.remainingNanos;
+import static io.servicetalk.http.utils.Deadlines.timeoutNanos;
+import static java.lang.Math.min;
 import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 
 /**
  * A filter to enable timeouts for HTTP requests.
+ * <p>
+ * If the current request has a {@link Deadlines deadline}, the timeout is capped to the remaining budget.
  */
 public final class TimeoutHttpRequesterFilter implements StreamingHttpClientFilterFactory,
                                                          StreamingHttpConnectionFilterFactory,
                                                          HttpExecutionStrategyInfluencer {
-    private final Duration duration;
+    private final long durationNanos;
     @Nullable
     private final Executor timeoutExecutor;
 
@@ -50,7 +57,7 @@ public final class TimeoutHttpRequesterFilter implements StreamingHttpClientFilt
      * @param duration the timeout {@link Duration}
      */
     public TimeoutHttpRequesterFilter(final Duration duration) {
-        this.duration = duration;
+        this.durationNanos = timeoutNanos(duration);
         this.timeoutExecutor = null;
     }
 
@@ -61,15 +68,19 @@ public final class TimeoutHttpRequesterFilter implements StreamingHttpClientFilt
      * @param timeoutExecutor the {@link Executor} to use for managing the timer notifications
      */
     public TimeoutHttpRequesterFilter(final Duration duration, final Executor timeoutExecutor) {
-        this.duration = duration;
+        this.durationNanos = timeoutNanos(duration);
         this.timeoutExecutor = requireNonNull(timeoutExecutor);
     }
 
     private Single<StreamingHttpResponse> request(final StreamingHttpRequester delegate,
                                                   final HttpExecutionStrategy strategy,
                                                   final StreamingHttpRequest request) {
-        return timeoutExecutor != null ? delegate.request(strategy, request).idleTimeout(duration, timeoutExecutor) :
-                delegate.request(strategy, request).idleTimeout(duration);
+        return defer(() -> {
+            final long timeoutNanos = min(durationNanos, remainingNanos());
+            final Single<StreamingHttpResponse> response = delegate.request(strategy, request);
+            return (timeoutExecutor != null ? response.idleTimeout(timeoutNanos, NANOSECONDS, timeoutExecutor) :
+                    response.idleTimeout(timeoutNanos, NANOSECONDS)).subscribeShareContext();
+        });
     }
 
     @Override
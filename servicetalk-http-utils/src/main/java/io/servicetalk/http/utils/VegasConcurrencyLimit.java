@@ -0,0 +1,85 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.http.utils;
+
+import static java.lang.Math.ceil;
+import static java.lang.Math.log10;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+/**
+ * A {@link ConcurrencyLimit} based on <a href="https://en.wikipedia.org/wiki/TCP_Vegas">TCP Vegas</a>.
+ */
+final class VegasConcurrencyLimit implements ConcurrencyLimit {
+    /**
+     * The latency without load is re-probed periodically, otherwise a permanent change of the baseline latency would
+     * be interpreted as queueing forever.
+     */
+    private static final int PROBE_INTERVAL_SAMPLES = 1000;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private double estimatedLimit;
+    private long rttNoLoadNanos;
+    private int samplesSinceProbe;
+
+    VegasConcurrencyLimit(final int initialLimit, final int minLimit, final int maxLimit) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        estimatedLimit = initialLimit;
+    }
+
+    @Override
+    public synchronized int limit() {
+        return (int) estimatedLimit;
+    }
+
+    @Override
+    public synchronized int onSample(long rttNanos, final int inFlight, final boolean dropped) {
+        rttNanos = max(1, rttNanos);
+        if (++samplesSinceProbe >= PROBE_INTERVAL_SAMPLES || rttNoLoadNanos == 0 || rttNanos < rttNoLoadNanos) {
+            samplesSinceProbe = 0;
+            rttNoLoadNanos = rttNanos;
+        }
+
+        final double log = max(1, log10(estimatedLimit));
+        final double newLimit;
+        if (dropped) {
+            newLimit = estimatedLimit - log;
+        } else if (inFlight * 2 < estimatedLimit) {
+            // The limit is not the bottleneck, there is no evidence the limit can grow.
+            return (int) estimatedLimit;
+        } else {
+            final double queueSize = ceil(estimatedLimit * (1 - (double) rttNoLoadNanos / rttNanos));
+            if (queueSize <= log) {
+                newLimit = estimatedLimit + 6 * log;
+            } else if (queueSize < 3 * log) {
+                newLimit = estimatedLimit + log;
+            } else if (queueSize > 6 * log) {
+                newLimit = estimatedLimit - log;
+            } else {
+                return (int) estimatedLimit;
+            }
+        }
+        estimatedLimit = max(minLimit, min(maxLimit, newLimit));
+        return (int) estimatedLimit;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "VegasConcurrencyLimit{limit=" + estimatedLimit + ", rttNoLoadNanos=" + rttNoLoadNanos + '}';
+    }
+}
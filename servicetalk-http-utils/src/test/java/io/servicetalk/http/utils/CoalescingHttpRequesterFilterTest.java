@@ -0,0 +1,212 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.http.utils;
+
+import io.servicetalk.buffer.api.Buffer;
+import io.servicetalk.concurrent.api.TestCancellable;
+import io.servicetalk.concurrent.api.TestPublisher;
+import io.servicetalk.concurrent.api.TestSingle;
+import io.servicetalk.concurrent.internal.ServiceTalkTestTimeout;
+import io.servicetalk.http.api.DefaultHttpHeadersFactory;
+import io.servicetalk.http.api.DefaultStreamingHttpRequestResponseFactory;
+import io.servicetalk.http.api.FilterableStreamingHttpClient;
+import io.servicetalk.http.api.HttpResponse;
+import io.servicetalk.http.api.StreamingHttpClientFilter;
+import io.servicetalk.http.api.StreamingHttpRequest;
+import io.servicetalk.http.api.StreamingHttpRequestResponseFactory;
+import io.servicetalk.http.api.StreamingHttpResponse;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import static io.servicetalk.buffer.netty.BufferAllocators.DEFAULT_ALLOCATOR;
+import static io.servicetalk.concurrent.api.Publisher.from;
+import static io.servicetalk.concurrent.internal.DeliberateException.DELIBERATE_EXCEPTION;
+import static io.servicetalk.http.api.HttpExecutionStrategies.noOffloadsStrategy;
+import static io.servicetalk.http.api.HttpHeaderNames.AUTHORIZATION;
+import static io.servicetalk.http.api.HttpHeaderNames.CONTENT_LENGTH;
+import static io.servicetalk.http.api.HttpHeaderNames.HOST;
+import static io.servicetalk.http.api.HttpHeaderNames.TRANSFER_ENCODING;
+import static io.servicetalk.http.api.HttpHeaderValues.CHUNKED;
+import static io.servicetalk.http.api.HttpProtocolVersion.HTTP_1_1;
+import static io.servicetalk.http.api.HttpResponseStatus.OK;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.util.Arrays.asList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CoalescingHttpRequesterFilterTest {
+    @Rule
+    public final Timeout timeout = new ServiceTalkTestTimeout();
+
+    private final StreamingHttpRequestResponseFactory reqRespFactory = new DefaultStreamingHttpRequestResponseFactory(
+            DEFAULT_ALLOCATOR, DefaultHttpHeadersFactory.INSTANCE, HTTP_1_1);
+    private final FilterableStreamingHttpClient client = mock(FilterableStreamingHttpClient.class);
+    private final List<StreamingHttpRequest> requests = new ArrayList<>();
+    private final List<TestSingle<StreamingHttpResponse>> responses = new ArrayList<>();
+    private final List<TestCancellable> cancellables = new ArrayList<>();
+    private StreamingHttpClientFilter filter;
+
+    @Before
+    public void setUp() {
+        when(client.httpResponseFactory()).thenReturn(reqRespFactory);
+        when(client.request(any(), any())).thenAnswer(invocation -> {
+            requests.add(invocation.getArgument(1));
+            final TestSingle<StreamingHttpResponse> response = new TestSingle.Builder<StreamingHttpResponse>()
+                    .disableAutoOnSubscribe().build(subscriber -> {
+                        final TestCancellable cancellable = new TestCancellable();
+                        cancellables.add(cancellable);
+                        subscriber.onSubscribe(cancellable);
+                        return subscriber;
+                    });
+            responses.add(response);
+            return response;
+        });
+        filter = new CoalescingHttpRequesterFilter.Builder().build().create(client);
+    }
+
+    @Test
+    public void identicalRequestsAreCoalesced() throws Exception {
+        Future<StreamingHttpResponse> first = request(reqRespFactory.get("/path"));
+        Future<StreamingHttpResponse> second = request(reqRespFactory.get("/path"));
+        assertThat(requests, hasSize(1));
+
+        responses.get(0).onSuccess(reqRespFactory.ok().setHeader("x-header", "value")
+                .payloadBody(from(DEFAULT_ALLOCATOR.fromAscii("hello"))));
+        StreamingHttpResponse firstResponse = first.get();
+        StreamingHttpResponse secondResponse = second.get();
+        assertThat(firstResponse, is(not(sameInstance(secondResponse))));
+        for (StreamingHttpResponse response : asList(firstResponse, secondResponse)) {
+            HttpResponse aggregated = response.toResponse().toFuture().get();
+            assertThat(aggregated.status(), is(OK));
+            assertThat(aggregated.headers().get("x-header").toString(), is("value"));
+            assertThat(aggregated.payloadBody().toString(US_ASCII), is("hello"));
+        }
+    }
+
+    @Test
+    public void eachRequestReceivesCopyOfPayloadBody() throws Exception {
+        Future<StreamingHttpResponse> first = request(reqRespFactory.get("/path"));
+        Future<StreamingHttpResponse> second = request(reqRespFactory.get("/path"));
+        responses.get(0).onSuccess(reqRespFactory.ok().payloadBody(from(DEFAULT_ALLOCATOR.fromAscii("hello"))));
+
+        Buffer firstPayload = first.get().toResponse().toFuture().get().payloadBody();
+        firstPayload.setByte(firstPayload.readerIndex(), 'j');
+        assertThat(firstPayload.toString(US_ASCII), is("jello"));
+        assertThat(second.get().toResponse().toFuture().get().payloadBody().toString(US_ASCII), is("hello"));
+    }
+
+    @Test
+    public void requestsWithPayloadBodyAreNotCoalesced() {
+        request(reqRespFactory.get("/path").setHeader(CONTENT_LENGTH, "5")
+                .payloadBody(from(DEFAULT_ALLOCATOR.fromAscii("hello"))));
+        request(reqRespFactory.get("/path").setHeader(CONTENT_LENGTH, "5")
+                .payloadBody(from(DEFAULT_ALLOCATOR.fromAscii("hello"))));
+        request(reqRespFactory.get("/path").setHeader(TRANSFER_ENCODING, CHUNKED));
+        request(reqRespFactory.get("/path").setHeader(TRANSFER_ENCODING, CHUNKED));
+        assertThat(requests, hasSize(4));
+
+        request(reqRespFactory.get("/path").setHeader(CONTENT_LENGTH, "0"));
+        request(reqRespFactory.get("/path").setHeader(CONTENT_LENGTH, "0"));
+        assertThat(requests, hasSize(5));
+    }
+
+    @Test
+    public void waitingRequestPayloadBodyIsDrained() {
+        TestPublisher<Buffer> payloadBody = new TestPublisher<>();
+        request(reqRespFactory.get("/path"));
+        request(reqRespFactory.get("/path").payloadBody(payloadBody));
+        assertThat(requests, hasSize(1));
+        assertThat("Payload body of the waiting request not subscribed.", payloadBody.isSubscribed(), is(true));
+    }
+
+    @Test
+    public void requestAfterResponseIsSent() throws Exception {
+        Future<StreamingHttpResponse> first = request(reqRespFactory.get("/path"));
+        responses.get(0).onSuccess(reqRespFactory.ok());
+        first.get();
+
+        request(reqRespFactory.get("/path"));
+        assertThat(requests, hasSize(2));
+    }
+
+    @Test
+    public void differentRequestsAreNotCoalesced() {
+        request(reqRespFactory.get("/path"));
+        request(reqRespFactory.get("/other"));
+        request(reqRespFactory.get("/path").setHeader(AUTHORIZATION, "other"));
+        request(reqRespFactory.get("/path").setHeader(HOST, "other"));
+        request(reqRespFactory.post("/path"));
+        request(reqRespFactory.post("/path"));
+        assertThat(requests, hasSize(6));
+    }
+
+    @Test
+    public void errorIsDeliveredToAllRequests() throws Exception {
+        Future<StreamingHttpResponse> first = request(reqRespFactory.get("/path"));
+        Future<StreamingHttpResponse> second = request(reqRespFactory.get("/path"));
+        responses.get(0).onError(DELIBERATE_EXCEPTION);
+        for (Future<StreamingHttpResponse> future : asList(first, second)) {
+            try {
+                future.get();
+                fail();
+            } catch (ExecutionException e) {
+                assertThat(e.getCause(), is(sameInstance(DELIBERATE_EXCEPTION)));
+            }
+        }
+    }
+
+    @Test
+    public void cancelOnlyWhenAllRequestsCancelled() throws Exception {
+        Future<StreamingHttpResponse> first = request(reqRespFactory.get("/path"));
+        Future<StreamingHttpResponse> second = request(reqRespFactory.get("/path"));
+        first.cancel(true);
+        assertThat("Cancelled while a request is waiting.", cancellables.get(0).isCancelled(), is(false));
+
+        second.cancel(true);
+        assertThat(cancellables.get(0).isCancelled(), is(true));
+
+        request(reqRespFactory.get("/path"));
+        assertThat("Cancelled request not removed.", requests, hasSize(2));
+    }
+
+    @Test
+    public void remainingRequestReceivesResponseAfterCancel() throws Exception {
+        Future<StreamingHttpResponse> first = request(reqRespFactory.get("/path"));
+        Future<StreamingHttpResponse> second = request(reqRespFactory.get("/path"));
+        first.cancel(true);
+        responses.get(0).onSuccess(reqRespFactory.ok());
+        assertThat(second.get().status(), is(OK));
+    }
+
+    private Future<StreamingHttpResponse> request(final StreamingHttpRequest request) {
+        return filter.request(noOffloadsStrategy(), request).toFuture();
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.http.utils;
+
+import io.servicetalk.client.api.ConnectionFactory;
+import io.servicetalk.concurrent.CompletableSource.Processor;
+import io.servicetalk.concurrent.api.Completable;
+import io.servicetalk.concurrent.api.TestSingle;
+import io.servicetalk.concurrent.internal.ServiceTalkTestTimeout;
+import io.servicetalk.http.api.DefaultHttpHeadersFactory;
+import io.servicetalk.http.api.DefaultStreamingHttpRequestResponseFactory;
+import io.servicetalk.http.api.FilterableStreamingHttpConnection;
+import io.servicetalk.http.api.StreamingHttpRequestResponseFactory;
+import io.servicetalk.http.api.StreamingHttpResponse;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import static io.servicetalk.buffer.netty.BufferAllocators.DEFAULT_ALLOCATOR;
+import static io.servicetalk.concurrent.api.Processors.newCompletableProcessor;
+import static io.servicetalk.concurrent.api.Single.succeeded;
+import static io.servicetalk.concurrent.api.SourceAdapters.fromSource;
+import static io.servicetalk.http.api.HttpExecutionStrategies.noOffloadsStrategy;
+import static io.servicetalk.http.api.HttpProtocolVersion.HTTP_1_1;
+import static io.servicetalk.http.api.HttpResponseStatus.SERVICE_UNAVAILABLE;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ConcurrencyLimitConnectionFactoryFilterTest {
+    @Rule
+    public final Timeout timeout = new ServiceTalkTestTimeout();
+
+    private final StreamingHttpRequestResponseFactory reqRespFactory = new DefaultStreamingHttpRequestResponseFactory(
+            DEFAULT_ALLOCATOR, DefaultHttpHeadersFactory.INSTANCE, HTTP_1_1);
+    @SuppressWarnings("unchecked")
+    private final ConnectionFactory<String, FilterableStreamingHttpConnection> original =
+            mock(ConnectionFactory.class);
+    private final List<TestSingle<StreamingHttpResponse>> responses = new ArrayList<>();
+    private final List<Processor> closes = new ArrayList<>();
+    private final List<String> events = new ArrayList<>();
+    private ConnectionFactory<String, FilterableStreamingHttpConnection> factory;
+
+    @Before
+    public void setUp() {
+        when(original.newConnection(any(), any())).thenAnswer(invocation -> succeeded(newConnection()));
+        factory = new ConcurrencyLimitConnectionFactoryFilter.Builder()
+                .limit(() -> ConcurrencyLimits.aimd(1, 1, 10, 0.5))
+                .observer(new ConcurrencyLimitObserver() {
+                    @Override
+                    public void onLimitChanged(final int oldLimit, final int newLimit) {
+                        events.add("limit " + oldLimit + "->" + newLimit);
+                    }
+
+                    @Override
+                    public void onRequestAccepted(final int inFlight) {
+                        events.add("accepted " + inFlight);
+                    }
+
+                    @Override
+                    public void onRequestRejected(final int inFlight, final int limit) {
+                        events.add("rejected " + inFlight + "/" + limit);
+                    }
+
+                    @Override
+                    public void onRequestFinished(final int inFlight) {
+                        events.add("finished " + inFlight);
+                    }
+                })
+                .<String>build().create(original);
+    }
+
+    @Test
+    public void limitIsSharedByConnectionsToSameAddress() throws Exception {
+        FilterableStreamingHttpConnection first = factory.newConnection("a", null).toFuture().get();
+        FilterableStreamingHttpConnection second = factory.newConnection("a", null).toFuture().get();
+        request(first);
+        assertRejected(request(second));
+        assertThat(responses.size(), is(1));
+    }
+
+    @Test
+    public void limitIsPerAddress() throws Exception {
+        FilterableStreamingHttpConnection first = factory.newConnection("a", null).toFuture().get();
+        FilterableStreamingHttpConnection second = factory.newConnection("b", null).toFuture().get();
+        request(first);
+        request(second);
+        assertThat(responses.size(), is(2));
+    }
+
+    @Test
+    public void limitGrowsOnSuccessAndShrinksOnOverload() throws Exception {
+        FilterableStreamingHttpConnection connection = factory.newConnection("a", null).toFuture().get();
+        complete(request(connection), 0, reqRespFactory.ok());
+        Future<StreamingHttpResponse> second = request(connection);
+        request(connection);
+        complete(second, 1, reqRespFactory.newResponse(SERVICE_UNAVAILABLE));
+        assertThat(events, contains("accepted 1", "limit 1->2", "finished 0", "accepted 1", "accepted 2",
+                "limit 2->1", "finished 1"));
+    }
+
+    @Test
+    public void limitResetAfterAllConnectionsClosed() throws Exception {
+        FilterableStreamingHttpConnection first = factory.newConnection("a", null).toFuture().get();
+        request(first);
+        closes.get(0).onComplete();
+
+        FilterableStreamingHttpConnection second = factory.newConnection("a", null).toFuture().get();
+        request(second);
+        assertThat("New connection shares the limit of a closed one.", responses.size(), is(2));
+    }
+
+    private FilterableStreamingHttpConnection newConnection() {
+        FilterableStreamingHttpConnection connection = mock(FilterableStreamingHttpConnection.class);
+        Processor onClose = newCompletableProcessor();
+        closes.add(onClose);
+        Completable onCloseCompletable = fromSource(onClose);
+        when(connection.onClose()).thenReturn(onCloseCompletable);
+        when(connection.request(any(), any())).thenAnswer(invocation -> {
+            TestSingle<StreamingHttpResponse> response = new TestSingle<>();
+            responses.add(response);
+            return response;
+        });
+        return connection;
+    }
+
+    private Future<StreamingHttpResponse> request(final FilterableStreamingHttpConnection connection) {
+        return connection.request(noOffloadsStrategy(), reqRespFactory.get("/")).toFuture();
+    }
+
+    private void complete(final Future<StreamingHttpResponse> future, final int index,
+                          final StreamingHttpResponse response) throws Exception {
+        responses.get(index).onSuccess(response);
+        // Latency is measured until the payload body terminates.
+        future.get().payloadBody().ignoreElements().toFuture().get();
+    }
+
+    private static void assertRejected(final Future<StreamingHttpResponse> future) throws Exception {
+        try {
+            future.get();
+            fail("Request over the limit not rejected.");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(ConcurrencyLimitExceededException.class));
+        }
+    }
+}
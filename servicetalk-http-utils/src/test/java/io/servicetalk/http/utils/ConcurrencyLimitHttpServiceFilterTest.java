@@ -0,0 +1,170 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.http.utils;
+
+import io.servicetalk.concurrent.api.Single;
+import io.servicetalk.concurrent.api.TestSingle;
+import io.servicetalk.concurrent.internal.ServiceTalkTestTimeout;
+import io.servicetalk.http.api.DefaultHttpHeadersFactory;
+import io.servicetalk.http.api.DefaultStreamingHttpRequestResponseFactory;
+import io.servicetalk.http.api.HttpExecutionContext;
+import io.servicetalk.http.api.HttpServiceContext;
+import io.servicetalk.http.api.StreamingHttpRequestResponseFactory;
+import io.servicetalk.http.api.StreamingHttpResponse;
+import io.servicetalk.http.api.StreamingHttpService;
+import io.servicetalk.http.api.StreamingHttpServiceFilter;
+import io.servicetalk.http.api.TestHttpServiceContext;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+
+import static io.servicetalk.buffer.netty.BufferAllocators.DEFAULT_ALLOCATOR;
+import static io.servicetalk.concurrent.internal.DeliberateException.DELIBERATE_EXCEPTION;
+import static io.servicetalk.http.api.HttpHeaderNames.CONTENT_TYPE;
+import static io.servicetalk.http.api.HttpProtocolVersion.HTTP_1_1;
+import static io.servicetalk.http.api.HttpResponseStatus.OK;
+import static io.servicetalk.http.api.HttpResponseStatus.SERVICE_UNAVAILABLE;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+public class ConcurrencyLimitHttpServiceFilterTest {
+    @Rule
+    public final Timeout timeout = new ServiceTalkTestTimeout();
+
+    private final StreamingHttpRequestResponseFactory reqRespFactory = new DefaultStreamingHttpRequestResponseFactory(
+            DEFAULT_ALLOCATOR, DefaultHttpHeadersFactory.INSTANCE, HTTP_1_1);
+    private final HttpServiceContext ctx = new TestHttpServiceContext(DefaultHttpHeadersFactory.INSTANCE,
+            reqRespFactory, mock(HttpExecutionContext.class));
+    private final List<TestSingle<StreamingHttpResponse>> responses = new ArrayList<>();
+    private final List<String> events = new ArrayList<>();
+    private final StreamingHttpService service = (ctx, request, responseFactory) -> {
+        TestSingle<StreamingHttpResponse> response = new TestSingle<>();
+        responses.add(response);
+        return response;
+    };
+
+    @Test
+    public void rejectsOverLimit() throws Exception {
+        StreamingHttpServiceFilter filter = newFilter().create(service);
+        handle(filter).toFuture();
+        assertThat(responses.size(), is(1));
+
+        StreamingHttpResponse rejected = handle(filter).toFuture().get();
+        assertThat(rejected.status(), is(SERVICE_UNAVAILABLE));
+        assertThat("Service invoked for a rejected request.", responses.size(), is(1));
+        assertThat(events, contains("accepted 1", "rejected 1/1"));
+    }
+
+    @Test
+    public void rejectsGrpcWithResourceExhausted() throws Exception {
+        StreamingHttpServiceFilter filter = newFilter().create(service);
+        handle(filter).toFuture();
+
+        StreamingHttpResponse rejected = filter.handle(ctx, reqRespFactory.post("/")
+                .setHeader(CONTENT_TYPE, "application/grpc+proto"), reqRespFactory).toFuture().get();
+        assertThat(rejected.status(), is(OK));
+        assertThat(rejected.headers().get("grpc-status").toString(), is("8"));
+        assertThat(rejected.headers().get(CONTENT_TYPE).toString(), is("application/grpc+proto"));
+    }
+
+    @Test
+    public void releasesOnCompletion() throws Exception {
+        StreamingHttpServiceFilter filter = newFilter().create(service);
+        Future<StreamingHttpResponse> first = handle(filter).toFuture();
+        responses.get(0).onSuccess(reqRespFactory.ok());
+        // Latency is measured until the payload body terminates.
+        first.get().payloadBody().toFuture().get();
+
+        handle(filter).toFuture();
+        assertThat("Service not invoked after the first request completed.", responses.size(), is(2));
+        assertThat(events, contains("accepted 1", "finished 0", "accepted 1"));
+    }
+
+    @Test
+    public void releasesOnError() throws Exception {
+        StreamingHttpServiceFilter filter = newFilter().create(service);
+        handle(filter).toFuture();
+        responses.get(0).onError(DELIBERATE_EXCEPTION);
+
+        handle(filter).toFuture();
+        assertThat(responses.size(), is(2));
+    }
+
+    @Test
+    public void releasesOnSynchronousThrow() throws Exception {
+        StreamingHttpServiceFilter filter = newFilter().create((ctx, request, responseFactory) -> {
+            throw DELIBERATE_EXCEPTION;
+        });
+        for (int i = 0; i < 2; ++i) {
+            try {
+                handle(filter).toFuture().get();
+                fail();
+            } catch (Exception e) {
+                assertThat(e.getCause(), instanceOf(DELIBERATE_EXCEPTION.getClass()));
+            }
+        }
+        assertThat(events, contains("accepted 1", "finished 0", "accepted 1", "finished 0"));
+    }
+
+    @Test
+    public void releasesOnCancel() throws Exception {
+        StreamingHttpServiceFilter filter = newFilter().create(service);
+        handle(filter).toFuture().cancel(true);
+
+        handle(filter).toFuture();
+        assertThat(responses.size(), is(2));
+    }
+
+    private ConcurrencyLimitHttpServiceFilter newFilter() {
+        return new ConcurrencyLimitHttpServiceFilter.Builder()
+                .limit(() -> ConcurrencyLimits.fixed(1))
+                .observer(new ConcurrencyLimitObserver() {
+                    @Override
+                    public void onLimitChanged(final int oldLimit, final int newLimit) {
+                        events.add("limit " + oldLimit + "->" + newLimit);
+                    }
+
+                    @Override
+                    public void onRequestAccepted(final int inFlight) {
+                        events.add("accepted " + inFlight);
+                    }
+
+                    @Override
+                    public void onRequestRejected(final int inFlight, final int limit) {
+                        events.add("rejected " + inFlight + "/" + limit);
+                    }
+
+                    @Override
+                    public void onRequestFinished(final int inFlight) {
+                        events.add("finished " + inFlight);
+                    }
+                })
+                .build();
+    }
+
+    private Single<StreamingHttpResponse> handle(final StreamingHttpServiceFilter filter) {
+        return filter.handle(ctx, reqRespFactory.get("/"), reqRespFactory);
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.http.utils;
+
+import org.junit.Test;
+
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class ConcurrencyLimiterTest {
+    private static final int THREADS = 4;
+    private static final int SAMPLES_PER_THREAD = 10_000;
+
+    @Test
+    public void publishesLimitOfLatestSample() throws Exception {
+        // Every sample returns a new limit, so any stale limit published after a newer one is detected.
+        final CountingConcurrencyLimit concurrencyLimit = new CountingConcurrencyLimit();
+        final ConcurrencyLimiter limiter = new ConcurrencyLimiter(concurrencyLimit,
+                NoopConcurrencyLimitObserver.INSTANCE);
+        final CyclicBarrier barrier = new CyclicBarrier(THREADS);
+        final ExecutorService executor = newFixedThreadPool(THREADS);
+        try {
+            final Future<?>[] futures = new Future<?>[THREADS];
+            for (int i = 0; i < THREADS; ++i) {
+                futures[i] = executor.submit(() -> {
+                    barrier.await();
+                    for (int j = 0; j < SAMPLES_PER_THREAD; ++j) {
+                        assertThat(limiter.tryAcquire(), is(true));
+                        limiter.onSuccess(1);
+                    }
+                    return null;
+                });
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        }
+        assertThat(concurrencyLimit.limit(), is(THREADS * SAMPLES_PER_THREAD + THREADS));
+        assertThat(limiter.limit(), is(concurrencyLimit.limit()));
+        assertThat(limiter.inFlight(), is(0));
+    }
+
+    private static final class CountingConcurrencyLimit implements ConcurrencyLimit {
+        private int limit = THREADS;
+
+        @Override
+        public synchronized int limit() {
+            return limit;
+        }
+
+        @Override
+        public synchronized int onSample(final long rttNanos, final int inFlight, final boolean dropped) {
+            return ++limit;
+        }
+    }
+}
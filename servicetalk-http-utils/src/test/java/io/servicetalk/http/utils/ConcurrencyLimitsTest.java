@@ -0,0 +1,166 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.http.utils;
+
+import org.junit.Test;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+
+public class ConcurrencyLimitsTest {
+    private static final long RTT = MILLISECONDS.toNanos(10);
+
+    @Test
+    public void fixedNeverChanges() {
+        ConcurrencyLimit limit = ConcurrencyLimits.fixed(5);
+        assertThat(limit.onSample(RTT, 5, false), is(5));
+        assertThat(limit.onSample(RTT * 10, 5, true), is(5));
+        assertThat(limit.limit(), is(5));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void fixedInvalidLimit() {
+        ConcurrencyLimits.fixed(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidMinLimit() {
+        ConcurrencyLimits.gradient(1, 0, 10);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void maxLimitLessThanMinLimit() {
+        ConcurrencyLimits.vegas(5, 5, 4);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void initialLimitOutOfBounds() {
+        ConcurrencyLimits.gradient(11, 1, 10);
+    }
+
+    @Test
+    public void gradientGrowsWhileLatencyIsStable() {
+        assertGrowsWhileLatencyIsStable(ConcurrencyLimits.gradient(10, 1, 100));
+    }
+
+    @Test
+    public void gradientShrinksWhenLatencyIncreases() {
+        assertShrinksWhenLatencyIncreases(ConcurrencyLimits.gradient(50, 1, 100));
+    }
+
+    @Test
+    public void gradientShrinksOnDrop() {
+        assertShrinksOnDrop(ConcurrencyLimits.gradient(50, 1, 100));
+    }
+
+    @Test
+    public void gradientIgnoresSamplesWhenUnderutilized() {
+        assertIgnoresSamplesWhenUnderutilized(ConcurrencyLimits.gradient(50, 1, 100));
+    }
+
+    @Test
+    public void vegasGrowsWhileLatencyIsStable() {
+        assertGrowsWhileLatencyIsStable(ConcurrencyLimits.vegas(10, 1, 100));
+    }
+
+    @Test
+    public void vegasShrinksWhenLatencyIncreases() {
+        assertShrinksWhenLatencyIncreases(ConcurrencyLimits.vegas(50, 1, 100));
+    }
+
+    @Test
+    public void vegasShrinksOnDrop() {
+        assertShrinksOnDrop(ConcurrencyLimits.vegas(50, 1, 100));
+    }
+
+    @Test
+    public void vegasIgnoresSamplesWhenUnderutilized() {
+        assertIgnoresSamplesWhenUnderutilized(ConcurrencyLimits.vegas(50, 1, 100));
+    }
+
+    @Test
+    public void aimdGrowsAdditively() {
+        ConcurrencyLimit limit = ConcurrencyLimits.aimd(10, 1, 100, 0.5);
+        assertThat(limit.onSample(RTT, 10, false), is(11));
+        assertThat(limit.onSample(RTT * 10, 11, false), is(12));
+    }
+
+    @Test
+    public void aimdShrinksMultiplicativelyOnDrop() {
+        ConcurrencyLimit limit = ConcurrencyLimits.aimd(10, 1, 100, 0.5);
+        assertThat(limit.onSample(RTT, 10, true), is(5));
+    }
+
+    @Test
+    public void aimdIgnoresSamplesWhenUnderutilized() {
+        assertIgnoresSamplesWhenUnderutilized(ConcurrencyLimits.aimd());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void aimdInvalidBackoffRatio() {
+        ConcurrencyLimits.aimd(10, 1, 100, 1);
+    }
+
+    @Test
+    public void limitStaysWithinBounds() {
+        ConcurrencyLimit gradient = ConcurrencyLimits.gradient(10, 5, 20);
+        ConcurrencyLimit vegas = ConcurrencyLimits.vegas(10, 5, 20);
+        for (int i = 0; i < 100; ++i) {
+            assertThat(gradient.onSample(RTT, gradient.limit(), false), is(lessThan(21)));
+            assertThat(vegas.onSample(RTT, vegas.limit(), false), is(lessThan(21)));
+        }
+        for (int i = 0; i < 100; ++i) {
+            assertThat(gradient.onSample(RTT, gradient.limit(), true), is(greaterThan(4)));
+            assertThat(vegas.onSample(RTT, vegas.limit(), true), is(greaterThan(4)));
+        }
+    }
+
+    private static void assertGrowsWhileLatencyIsStable(final ConcurrencyLimit limit) {
+        final int initial = limit.limit();
+        for (int i = 0; i < 20; ++i) {
+            limit.onSample(RTT, limit.limit(), false);
+        }
+        assertThat(limit.limit(), is(greaterThan(initial)));
+    }
+
+    private static void assertShrinksWhenLatencyIncreases(final ConcurrencyLimit limit) {
+        for (int i = 0; i < 20; ++i) {
+            limit.onSample(RTT, limit.limit(), false);
+        }
+        final int stable = limit.limit();
+        for (int i = 0; i < 10; ++i) {
+            limit.onSample(RTT * 10, limit.limit(), false);
+        }
+        assertThat(limit.limit(), is(lessThan(stable)));
+    }
+
+    private static void assertShrinksOnDrop(final ConcurrencyLimit limit) {
+        final int initial = limit.limit();
+        limit.onSample(RTT, initial, true);
+        assertThat(limit.limit(), is(lessThan(initial)));
+    }
+
+    private static void assertIgnoresSamplesWhenUnderutilized(final ConcurrencyLimit limit) {
+        final int initial = limit.limit();
+        for (int i = 0; i < 20; ++i) {
+            limit.onSample(RTT, 1, false);
+        }
+        assertThat(limit.limit(), is(initial));
+    }
+}
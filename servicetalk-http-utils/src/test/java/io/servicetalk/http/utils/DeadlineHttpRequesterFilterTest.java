@@ -0,0 +1,143 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.http.utils;
+
+import io.servicetalk.concurrent.api.AsyncContext;
+import io.servicetalk.concurrent.api.TestSingle;
+import io.servicetalk.concurrent.internal.ServiceTalkTestTimeout;
+import io.servicetalk.http.api.DefaultHttpHeadersFactory;
+import io.servicetalk.http.api.DefaultStreamingHttpRequestResponseFactory;
+import io.servicetalk.http.api.FilterableStreamingHttpClient;
+import io.servicetalk.http.api.StreamingHttpClientFilter;
+import io.servicetalk.http.api.StreamingHttpRequest;
+import io.servicetalk.http.api.StreamingHttpRequestResponseFactory;
+import io.servicetalk.http.api.StreamingHttpResponse;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import static io.servicetalk.buffer.netty.BufferAllocators.DEFAULT_ALLOCATOR;
+import static io.servicetalk.http.api.HttpExecutionStrategies.noOffloadsStrategy;
+import static io.servicetalk.http.api.HttpHeaderNames.CONTENT_TYPE;
+import static io.servicetalk.http.api.HttpProtocolVersion.HTTP_1_1;
+import static io.servicetalk.http.utils.Deadlines.parseGrpcTimeoutNanos;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class DeadlineHttpRequesterFilterTest {
+    private static final String TIMEOUT_HEADER = "x-timeout-ms";
+
+    @Rule
+    public final Timeout timeout = new ServiceTalkTestTimeout();
+
+    private final StreamingHttpRequestResponseFactory reqRespFactory = new DefaultStreamingHttpRequestResponseFactory(
+            DEFAULT_ALLOCATOR, DefaultHttpHeadersFactory.INSTANCE, HTTP_1_1);
+    private final FilterableStreamingHttpClient client = mock(FilterableStreamingHttpClient.class);
+    private final List<StreamingHttpRequest> requests = new ArrayList<>();
+    private final StreamingHttpClientFilter filter = new DeadlineHttpRequesterFilter.Builder()
+            .timeoutHeader(TIMEOUT_HEADER).build().create(client);
+
+    @Before
+    public void setUp() {
+        when(client.request(any(), any())).thenAnswer(invocation -> {
+            requests.add(invocation.getArgument(1));
+            return new TestSingle<StreamingHttpResponse>();
+        });
+    }
+
+    @After
+    public void tearDown() {
+        AsyncContext.clear();
+    }
+
+    @Test
+    public void noDeadline() {
+        filter.request(noOffloadsStrategy(), reqRespFactory.get("/")).toFuture();
+        assertThat(requests, hasSize(1));
+        assertThat(requests.get(0).headers().get(TIMEOUT_HEADER), is(nullValue()));
+    }
+
+    @Test
+    public void propagatesHttpTimeout() {
+        Deadlines.deadline(Duration.ofSeconds(10));
+        filter.request(noOffloadsStrategy(), reqRespFactory.get("/")).toFuture();
+        assertThat(requests, hasSize(1));
+        long timeoutMillis = Long.parseLong(requests.get(0).headers().get(TIMEOUT_HEADER).toString());
+        assertThat(timeoutMillis, is(allOf(greaterThan(0L), lessThanOrEqualTo(SECONDS.toMillis(10)))));
+    }
+
+    @Test
+    public void propagatesGrpcTimeout() {
+        Deadlines.deadline(Duration.ofSeconds(10));
+        filter.request(noOffloadsStrategy(), reqRespFactory.post("/")
+                .setHeader(CONTENT_TYPE, "application/grpc")).toFuture();
+        assertThat(requests, hasSize(1));
+        StreamingHttpRequest request = requests.get(0);
+        assertThat(request.headers().get(TIMEOUT_HEADER), is(nullValue()));
+        assertThat(parseGrpcTimeoutNanos(request.headers().get("grpc-timeout")),
+                is(allOf(greaterThan(0L), lessThanOrEqualTo(SECONDS.toNanos(10)))));
+    }
+
+    @Test
+    public void exceededDeadlineFailsWithoutSending() throws Exception {
+        Deadlines.deadline(Duration.ZERO);
+        assertTimeout(filter);
+        assertThat("Request sent after the deadline.", requests, hasSize(0));
+    }
+
+    @Test
+    public void timesOutAtDeadline() throws Exception {
+        Deadlines.deadline(Duration.ofMillis(50));
+        assertTimeout(filter);
+        assertThat(requests, hasSize(1));
+    }
+
+    @Test
+    public void timeoutFilterIsCappedByDeadline() throws Exception {
+        Deadlines.deadline(Duration.ofMillis(50));
+        assertTimeout(new TimeoutHttpRequesterFilter(Duration.ofDays(1)).create(client));
+        assertThat(requests, hasSize(1));
+    }
+
+    private void assertTimeout(final StreamingHttpClientFilter filter) throws Exception {
+        try {
+            filter.request(noOffloadsStrategy(), reqRespFactory.get("/")).toFuture().get();
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(TimeoutException.class));
+        }
+    }
+}
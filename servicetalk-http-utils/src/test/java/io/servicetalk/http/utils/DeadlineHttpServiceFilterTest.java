@@ -0,0 +1,143 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.http.utils;
+
+import io.servicetalk.concurrent.api.TestCancellable;
+import io.servicetalk.concurrent.api.TestSingle;
+import io.servicetalk.concurrent.internal.ServiceTalkTestTimeout;
+import io.servicetalk.http.api.DefaultHttpHeadersFactory;
+import io.servicetalk.http.api.DefaultStreamingHttpRequestResponseFactory;
+import io.servicetalk.http.api.HttpExecutionContext;
+import io.servicetalk.http.api.HttpServiceContext;
+import io.servicetalk.http.api.StreamingHttpRequest;
+import io.servicetalk.http.api.StreamingHttpRequestResponseFactory;
+import io.servicetalk.http.api.StreamingHttpResponse;
+import io.servicetalk.http.api.StreamingHttpServiceFilter;
+import io.servicetalk.http.api.TestHttpServiceContext;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.servicetalk.buffer.netty.BufferAllocators.DEFAULT_ALLOCATOR;
+import static io.servicetalk.concurrent.api.Single.succeeded;
+import static io.servicetalk.http.api.HttpHeaderNames.CONTENT_TYPE;
+import static io.servicetalk.http.api.HttpProtocolVersion.HTTP_1_1;
+import static io.servicetalk.http.api.HttpResponseStatus.GATEWAY_TIMEOUT;
+import static io.servicetalk.http.api.HttpResponseStatus.OK;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Mockito.mock;
+
+public class DeadlineHttpServiceFilterTest {
+    private static final String TIMEOUT_HEADER = "x-timeout-ms";
+
+    @Rule
+    public final Timeout timeout = new ServiceTalkTestTimeout();
+
+    private final StreamingHttpRequestResponseFactory reqRespFactory = new DefaultStreamingHttpRequestResponseFactory(
+            DEFAULT_ALLOCATOR, DefaultHttpHeadersFactory.INSTANCE, HTTP_1_1);
+    private final HttpServiceContext ctx = new TestHttpServiceContext(DefaultHttpHeadersFactory.INSTANCE,
+            reqRespFactory, mock(HttpExecutionContext.class));
+    private final List<Duration> remaining = new ArrayList<>();
+    private final StreamingHttpServiceFilter filter = new DeadlineHttpServiceFilter.Builder()
+            .timeoutHeader(TIMEOUT_HEADER).build().create((ctx, request, responseFactory) -> {
+                remaining.add(Deadlines.remaining());
+                return succeeded(responseFactory.ok());
+            });
+
+    @Test
+    public void noTimeout() throws Exception {
+        assertThat(handle(reqRespFactory.get("/")).status(), is(OK));
+        assertThat(remaining, contains(nullValue()));
+    }
+
+    @Test
+    public void httpTimeoutSetsDeadline() throws Exception {
+        assertThat(handle(reqRespFactory.get("/").setHeader(TIMEOUT_HEADER, "10000")).status(), is(OK));
+        assertDeadline(Duration.ofSeconds(10));
+    }
+
+    @Test
+    public void grpcTimeoutSetsDeadline() throws Exception {
+        assertThat(handle(grpcRequest().setHeader("grpc-timeout", "10S")).status(), is(OK));
+        assertDeadline(Duration.ofSeconds(10));
+    }
+
+    @Test
+    public void grpcIgnoresHttpTimeout() throws Exception {
+        handle(grpcRequest().setHeader(TIMEOUT_HEADER, "10000"));
+        assertThat(remaining, contains(nullValue()));
+    }
+
+    @Test
+    public void invalidTimeoutIsIgnored() throws Exception {
+        handle(reqRespFactory.get("/").setHeader(TIMEOUT_HEADER, "10s"));
+        assertThat(remaining, contains(nullValue()));
+    }
+
+    @Test
+    public void exceededDeadlineRejects() throws Exception {
+        assertThat(handle(reqRespFactory.get("/").setHeader(TIMEOUT_HEADER, "0")).status(), is(GATEWAY_TIMEOUT));
+        assertThat("Service invoked for an exceeded deadline.", remaining, hasSize(0));
+    }
+
+    @Test
+    public void exceededGrpcDeadlineRejects() throws Exception {
+        StreamingHttpResponse response = handle(grpcRequest().setHeader("grpc-timeout", "0m"));
+        assertThat(response.status(), is(OK));
+        assertThat(response.headers().get("grpc-status").toString(), is("4"));
+        assertThat(remaining, hasSize(0));
+    }
+
+    @Test
+    public void serviceIsCancelledAtDeadline() throws Exception {
+        TestCancellable cancellable = new TestCancellable();
+        StreamingHttpServiceFilter filter = new DeadlineHttpServiceFilter.Builder().build()
+                .create((ctx, request, responseFactory) -> new TestSingle.Builder<StreamingHttpResponse>()
+                        .disableAutoOnSubscribe().build(subscriber -> {
+                            subscriber.onSubscribe(cancellable);
+                            return subscriber;
+                        }));
+        StreamingHttpResponse response = filter.handle(ctx, grpcRequest().setHeader("grpc-timeout", "50m"),
+                reqRespFactory).toFuture().get();
+        assertThat(response.headers().get("grpc-status").toString(), is("4"));
+        assertThat(cancellable.isCancelled(), is(true));
+    }
+
+    private StreamingHttpRequest grpcRequest() {
+        return reqRespFactory.post("/").setHeader(CONTENT_TYPE, "application/grpc");
+    }
+
+    private StreamingHttpResponse handle(final StreamingHttpRequest request) throws Exception {
+        return filter.handle(ctx, request, reqRespFactory).toFuture().get();
+    }
+
+    private void assertDeadline(final Duration timeout) {
+        assertThat(remaining, hasSize(1));
+        assertThat(remaining.get(0), is(allOf(greaterThan(Duration.ZERO), lessThanOrEqualTo(timeout))));
+    }
+}
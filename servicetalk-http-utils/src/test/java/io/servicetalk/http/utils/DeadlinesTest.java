@@ -0,0 +1,93 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.http.utils;
+
+import io.servicetalk.concurrent.api.AsyncContext;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.time.Duration;
+
+import static io.servicetalk.http.utils.Deadlines.encodeGrpcTimeout;
+import static io.servicetalk.http.utils.Deadlines.encodeMillisTimeout;
+import static io.servicetalk.http.utils.Deadlines.parseGrpcTimeoutNanos;
+import static io.servicetalk.http.utils.Deadlines.parseMillisTimeoutNanos;
+import static java.util.concurrent.TimeUnit.HOURS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.nullValue;
+
+public class DeadlinesTest {
+    @After
+    public void tearDown() {
+        AsyncContext.clear();
+    }
+
+    @Test
+    public void parseGrpcTimeout() {
+        assertThat(parseGrpcTimeoutNanos("100m"), is(MILLISECONDS.toNanos(100)));
+        assertThat(parseGrpcTimeoutNanos("5S"), is(SECONDS.toNanos(5)));
+        assertThat(parseGrpcTimeoutNanos("2H"), is(HOURS.toNanos(2)));
+        assertThat(parseGrpcTimeoutNanos("12345678n"), is(12345678L));
+        assertThat("Overflow not capped.", parseGrpcTimeoutNanos("99999999H"), greaterThan(HOURS.toNanos(1)));
+    }
+
+    @Test
+    public void parseInvalidGrpcTimeout() {
+        assertThat(parseGrpcTimeoutNanos(""), is(-1L));
+        assertThat(parseGrpcTimeoutNanos("m"), is(-1L));
+        assertThat(parseGrpcTimeoutNanos("123456789m"), is(-1L));
+        assertThat(parseGrpcTimeoutNanos("10x"), is(-1L));
+        assertThat(parseGrpcTimeoutNanos("-1m"), is(-1L));
+    }
+
+    @Test
+    public void encodeGrpcTimeoutUsesMostPreciseUnit() {
+        assertThat(encodeGrpcTimeout(MILLISECONDS.toNanos(50)), is("50000000n"));
+        assertThat(encodeGrpcTimeout(SECONDS.toNanos(1)), is("1000000u"));
+        assertThat(encodeGrpcTimeout(HOURS.toNanos(30)), is("108000S"));
+        assertThat(encodeGrpcTimeout(-1), is("0n"));
+        assertThat(parseGrpcTimeoutNanos(encodeGrpcTimeout(Long.MAX_VALUE)), greaterThan(HOURS.toNanos(1)));
+    }
+
+    @Test
+    public void millisTimeout() {
+        assertThat(parseMillisTimeoutNanos("250"), is(MILLISECONDS.toNanos(250)));
+        assertThat(parseMillisTimeoutNanos(""), is(-1L));
+        assertThat(parseMillisTimeoutNanos("1.5"), is(-1L));
+        assertThat(encodeMillisTimeout(MILLISECONDS.toNanos(250) + 999), is("250"));
+    }
+
+    @Test
+    public void deadlineIsOnlyShortened() {
+        assertThat(Deadlines.remaining(), is(nullValue()));
+        Deadlines.deadline(Duration.ofSeconds(10));
+        Deadlines.deadline(Duration.ofHours(1));
+        assertThat(Deadlines.remaining(), is(allOf(greaterThan(Duration.ZERO),
+                lessThanOrEqualTo(Duration.ofSeconds(10)))));
+        Deadlines.deadline(Duration.ofSeconds(1));
+        assertThat(Deadlines.remaining(), is(lessThanOrEqualTo(Duration.ofSeconds(1))));
+
+        Deadlines.clearDeadline();
+        assertThat(Deadlines.remaining(), is(nullValue()));
+    }
+}
@@ -0,0 +1,290 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.http.utils;
+
+import io.servicetalk.concurrent.api.TestCancellable;
+import io.servicetalk.concurrent.api.TestExecutor;
+import io.servicetalk.concurrent.api.TestSingle;
+import io.servicetalk.concurrent.internal.ServiceTalkTestTimeout;
+import io.servicetalk.http.api.DefaultHttpHeadersFactory;
+import io.servicetalk.http.api.DefaultStreamingHttpRequestResponseFactory;
+import io.servicetalk.http.api.FilterableStreamingHttpClient;
+import io.servicetalk.http.api.HttpExecutionContext;
+import io.servicetalk.http.api.StreamingHttpClientFilter;
+import io.servicetalk.http.api.StreamingHttpRequest;
+import io.servicetalk.http.api.StreamingHttpRequestResponseFactory;
+import io.servicetalk.http.api.StreamingHttpResponse;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import static io.servicetalk.buffer.netty.BufferAllocators.DEFAULT_ALLOCATOR;
+import static io.servicetalk.concurrent.api.Publisher.from;
+import static io.servicetalk.http.api.HttpExecutionStrategies.noOffloadsStrategy;
+import static io.servicetalk.http.api.HttpHeaderNames.CONTENT_TYPE;
+import static io.servicetalk.http.api.HttpProtocolVersion.HTTP_1_1;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class HedgingHttpRequesterFilterTest {
+    @Rule
+    public final Timeout timeout = new ServiceTalkTestTimeout();
+
+    private final StreamingHttpRequestResponseFactory reqRespFactory = new DefaultStreamingHttpRequestResponseFactory(
+            DEFAULT_ALLOCATOR, DefaultHttpHeadersFactory.INSTANCE, HTTP_1_1);
+    private final TestExecutor executor = new TestExecutor();
+    private final FilterableStreamingHttpClient client = mock(FilterableStreamingHttpClient.class);
+    private final List<StreamingHttpRequest> requests = new ArrayList<>();
+    private final List<TestSingle<StreamingHttpResponse>> responses = new ArrayList<>();
+    private final List<TestCancellable> cancellables = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        final HttpExecutionContext executionContext = mock(HttpExecutionContext.class);
+        when(executionContext.executor()).thenReturn(executor);
+        when(client.executionContext()).thenReturn(executionContext);
+        when(client.newRequest(any(), any())).thenAnswer(invocation ->
+                reqRespFactory.newRequest(invocation.getArgument(0), invocation.getArgument(1)));
+        when(client.request(any(), any())).thenAnswer(invocation -> {
+            requests.add(invocation.getArgument(1));
+            final TestSingle<StreamingHttpResponse> response = new TestSingle.Builder<StreamingHttpResponse>()
+                    .disableAutoOnSubscribe().build(subscriber -> {
+                        final TestCancellable cancellable = new TestCancellable();
+                        cancellables.add(cancellable);
+                        subscriber.onSubscribe(cancellable);
+                        return subscriber;
+                    });
+            responses.add(response);
+            return response;
+        });
+    }
+
+    @Test
+    public void nonIdempotentRequestIsNotHedged() {
+        final StreamingHttpClientFilter filter = newFilter(new HedgingHttpRequesterFilter.Builder()
+                .fixedDelay(Duration.ofMillis(100)));
+        final StreamingHttpRequest request = reqRespFactory.post("/");
+        filter.request(noOffloadsStrategy(), request).toFuture();
+
+        assertThat(requests, hasSize(1));
+        assertThat(requests.get(0), is(sameInstance(request)));
+        assertThat(executor.scheduledTasksPending(), is(0));
+    }
+
+    @Test
+    public void customPredicateHedgesGrpcCalls() {
+        // gRPC calls are POST requests, selecting the idempotent RPCs requires a custom predicate.
+        final StreamingHttpClientFilter filter = newFilter(new HedgingHttpRequesterFilter.Builder()
+                .hedgeFor(request -> "/test.Greeter/Get".equals(request.path()) &&
+                        request.headers().contains(CONTENT_TYPE, "application/grpc"))
+                .fixedDelay(Duration.ofMillis(100)));
+        filter.request(noOffloadsStrategy(), reqRespFactory.post("/test.Greeter/Get")
+                .setHeader(CONTENT_TYPE, "application/grpc")).toFuture();
+        executor.advanceTimeBy(100, MILLISECONDS);
+        assertThat(requests, hasSize(2));
+    }
+
+    @Test
+    public void fastResponseIsNotHedged() throws Exception {
+        final StreamingHttpClientFilter filter = newFilter(new HedgingHttpRequesterFilter.Builder()
+                .fixedDelay(Duration.ofMillis(100)));
+        final Future<StreamingHttpResponse> future = filter.request(noOffloadsStrategy(), reqRespFactory.get("/"))
+                .toFuture();
+        final StreamingHttpResponse response = reqRespFactory.ok();
+        responses.get(0).onSuccess(response);
+
+        assertThat(future.get(), is(sameInstance(response)));
+        assertThat(executor.scheduledTasksPending(), is(0));
+        executor.advanceTimeBy(100, MILLISECONDS);
+        assertThat(requests, hasSize(1));
+    }
+
+    @Test
+    public void hedgedResponseWinsAndPrimaryIsCancelled() throws Exception {
+        final StreamingHttpClientFilter filter = newFilter(new HedgingHttpRequesterFilter.Builder()
+                .fixedDelay(Duration.ofMillis(100)));
+        final Future<StreamingHttpResponse> future = filter.request(noOffloadsStrategy(), reqRespFactory.get("/"))
+                .toFuture();
+        executor.advanceTimeBy(99, MILLISECONDS);
+        assertThat(requests, hasSize(1));
+        executor.advanceTimeBy(1, MILLISECONDS);
+        assertThat(requests, hasSize(2));
+
+        final StreamingHttpResponse response = reqRespFactory.ok();
+        responses.get(1).onSuccess(response);
+        assertThat(future.get(), is(sameInstance(response)));
+        assertThat(cancellables.get(0).isCancelled(), is(true));
+        assertThat(cancellables.get(1).isCancelled(), is(false));
+    }
+
+    @Test
+    public void failedPrimaryWaitsForHedgedAttempt() throws Exception {
+        final StreamingHttpClientFilter filter = newFilter(new HedgingHttpRequesterFilter.Builder()
+                .fixedDelay(Duration.ofMillis(100)));
+        final Future<StreamingHttpResponse> future = filter.request(noOffloadsStrategy(), reqRespFactory.get("/"))
+                .toFuture();
+        executor.advanceTimeBy(100, MILLISECONDS);
+        responses.get(0).onError(new IOException("primary failed"));
+        assertThat(future.isDone(), is(false));
+
+        final StreamingHttpResponse response = reqRespFactory.ok();
+        responses.get(1).onSuccess(response);
+        assertThat(future.get(), is(sameInstance(response)));
+    }
+
+    @Test
+    public void failureBeforeHedgeIsPropagated() throws Exception {
+        final StreamingHttpClientFilter filter = newFilter(new HedgingHttpRequesterFilter.Builder()
+                .fixedDelay(Duration.ofMillis(100)));
+        final Future<StreamingHttpResponse> future = filter.request(noOffloadsStrategy(), reqRespFactory.get("/"))
+                .toFuture();
+        responses.get(0).onError(new IOException("primary failed"));
+        try {
+            future.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(IOException.class));
+        }
+        assertThat(executor.scheduledTasksPending(), is(0));
+    }
+
+    @Test
+    public void cancelCancelsAllAttempts() {
+        final StreamingHttpClientFilter filter = newFilter(new HedgingHttpRequesterFilter.Builder()
+                .fixedDelay(Duration.ofMillis(100)));
+        final Future<StreamingHttpResponse> future = filter.request(noOffloadsStrategy(), reqRespFactory.get("/"))
+                .toFuture();
+        executor.advanceTimeBy(100, MILLISECONDS);
+        future.cancel(true);
+
+        assertThat(cancellables.get(0).isCancelled(), is(true));
+        assertThat(cancellables.get(1).isCancelled(), is(true));
+    }
+
+    @Test
+    public void budgetLimitsHedgedAttempts() {
+        final StreamingHttpClientFilter filter = newFilter(new HedgingHttpRequesterFilter.Builder()
+                .fixedDelay(Duration.ofMillis(100))
+                .budget(0.5, 1));
+        for (int i = 0; i < 3; ++i) {
+            filter.request(noOffloadsStrategy(), reqRespFactory.get("/")).toFuture();
+        }
+        executor.advanceTimeBy(100, MILLISECONDS);
+        // The budget starts full with one hedged attempt, which is used by the first request.
+        assertThat(requests, hasSize(4));
+
+        // Two more requests at a ratio of 0.5 earn another hedged attempt.
+        filter.request(noOffloadsStrategy(), reqRespFactory.get("/")).toFuture();
+        filter.request(noOffloadsStrategy(), reqRespFactory.get("/")).toFuture();
+        executor.advanceTimeBy(100, MILLISECONDS);
+        assertThat(requests, hasSize(7));
+    }
+
+    @Test
+    public void eachAttemptSendsThePayloadBody() throws Exception {
+        final StreamingHttpClientFilter filter = newFilter(new HedgingHttpRequesterFilter.Builder()
+                .fixedDelay(Duration.ofMillis(100)));
+        final StreamingHttpRequest request = reqRespFactory.put("/")
+                .payloadBody(from(DEFAULT_ALLOCATOR.fromAscii("hello")));
+        request.headers().set("foo", "bar");
+        filter.request(noOffloadsStrategy(), request).toFuture();
+        executor.advanceTimeBy(100, MILLISECONDS);
+
+        assertThat(requests, hasSize(2));
+        for (StreamingHttpRequest attempt : requests) {
+            assertThat(attempt, is(not(sameInstance(request))));
+            assertThat(attempt.headers().get("foo").toString(), is("bar"));
+            assertThat(attempt.payloadBody().collect(StringBuilder::new, (sb, buffer) ->
+                    sb.append(buffer.toString(US_ASCII))).toFuture().get().toString(), is("hello"));
+        }
+    }
+
+    @Test
+    public void cancelledPrimaryLatencyIsRecorded() throws Exception {
+        final StreamingHttpClientFilter filter = newFilter(new HedgingHttpRequesterFilter.Builder()
+                .percentileDelay(90, Duration.ofMillis(100))
+                .budget(1, 1));
+        // Every hedged attempt wins, the cancelled primary attempts were pending for at least the delay.
+        for (int i = 0; i < 100; ++i) {
+            final Future<StreamingHttpResponse> future = filter.request(noOffloadsStrategy(),
+                    reqRespFactory.get("/")).toFuture();
+            executor.advanceTimeBy(100, MILLISECONDS);
+            assertThat(requests, hasSize(2 * i + 2));
+            final StreamingHttpResponse response = reqRespFactory.ok();
+            responses.get(2 * i + 1).onSuccess(response);
+            assertThat(future.get(), is(sameInstance(response)));
+            assertThat(cancellables.get(2 * i).isCancelled(), is(true));
+        }
+
+        // If only the fast hedged attempts were recorded, the delay would drop to their latency.
+        filter.request(noOffloadsStrategy(), reqRespFactory.get("/")).toFuture();
+        executor.advanceTimeBy(99, MILLISECONDS);
+        assertThat(requests, hasSize(201));
+        executor.advanceTimeBy(1, MILLISECONDS);
+        assertThat(requests, hasSize(202));
+    }
+
+    @Test
+    public void percentileTracking() {
+        final LatencyPercentileTracker tracker = new LatencyPercentileTracker(90, 10, 10_000);
+        for (int i = 1; i < 10; ++i) {
+            tracker.record(MILLISECONDS.toNanos(i));
+        }
+        assertThat(tracker.percentileNanos(), is(-1L));
+        for (int i = 10; i <= 1000; ++i) {
+            tracker.record(MILLISECONDS.toNanos(i));
+        }
+        assertThat(tracker.percentileNanos(), is(allOf(greaterThanOrEqualTo(MILLISECONDS.toNanos(900)),
+                lessThanOrEqualTo(MILLISECONDS.toNanos(1125)))));
+    }
+
+    @Test
+    public void bucketBoundaries() {
+        for (long value : new long[] {0, 1, 3, 4, 5, 7, 8, 1000, 123_456_789, Long.MAX_VALUE}) {
+            final int index = LatencyPercentileTracker.bucketIndex(value);
+            assertThat(LatencyPercentileTracker.bucketUpperBound(index), is(greaterThanOrEqualTo(value)));
+            if (index > 0) {
+                assertThat(LatencyPercentileTracker.bucketUpperBound(index - 1), is(lessThanOrEqualTo(value - 1)));
+            }
+        }
+    }
+
+    private StreamingHttpClientFilter newFilter(final HedgingHttpRequesterFilter.Builder builder) {
+        return builder.build().create(client);
+    }
+}
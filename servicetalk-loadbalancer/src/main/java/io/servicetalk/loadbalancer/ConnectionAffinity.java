@@ -0,0 +1,44 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.loadbalancer;
+
+import io.servicetalk.client.api.LoadBalancedConnection;
+
+/**
+ * Determines which connections have an affinity to the thread selecting a connection, for example connections bound
+ * to the IO thread which issues a request.
+ *
+ * @param <C> The type of connection.
+ * @see RoundRobinLoadBalancer.RoundRobinLoadBalancerFactory.Builder#connectionAffinity(ConnectionAffinity)
+ */
+public interface ConnectionAffinity<C extends LoadBalancedConnection> {
+
+    /**
+     * Returns {@code true} if the current thread can have an affinity to connections. When this method returns
+     * {@code false} connections are selected without considering {@link #hasAffinity(LoadBalancedConnection)}.
+     *
+     * @return {@code true} if the current thread can have an affinity to connections.
+     */
+    boolean isAffineThread();
+
+    /**
+     * Returns {@code true} if the passed {@code connection} has an affinity to the current thread.
+     *
+     * @param connection the connection to check.
+     * @return {@code true} if the passed {@code connection} has an affinity to the current thread.
+     */
+    boolean hasAffinity(C connection);
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.loadbalancer;
+
+import io.servicetalk.concurrent.api.Executor;
+
+import java.time.Duration;
+import javax.annotation.Nullable;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Configuration of the health checking of {@link Host}s.
+ */
+final class HealthCheckConfig {
+    static final Duration DEFAULT_INTERVAL = Duration.ofSeconds(1);
+    static final Duration DEFAULT_MAX_INTERVAL = Duration.ofSeconds(30);
+
+    final Executor executor;
+    final int failedThreshold;
+    final long intervalNanos;
+    final long maxIntervalNanos;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param executor {@link Executor} used to schedule health checks.
+     * @param failedThreshold number of consecutive connection failures after which a host is considered unhealthy.
+     * @param interval interval between the first failed connection attempt and the first health check, doubled after
+     * each failed health check.
+     * @param maxInterval upper bound for the interval between health checks.
+     */
+    HealthCheckConfig(final Executor executor, final int failedThreshold, final Duration interval,
+                      final Duration maxInterval) {
+        if (failedThreshold <= 0) {
+            throw new IllegalArgumentException("failedThreshold: " + failedThreshold + " (expected >0)");
+        }
+        if (interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("interval: " + interval + " (expected >0)");
+        }
+        if (maxInterval.compareTo(interval) < 0) {
+            throw new IllegalArgumentException("maxInterval: " + maxInterval + " (expected >=" + interval + ")");
+        }
+        this.executor = requireNonNull(executor);
+        this.failedThreshold = failedThreshold;
+        this.intervalNanos = interval.toNanos();
+        this.maxIntervalNanos = maxInterval.toNanos();
+    }
+
+    /**
+     * Creates a new instance from the values configured on a load balancer builder.
+     *
+     * @param executor {@link Executor} used to schedule health checks, or {@code null} to use a shared
+     * {@link Executor}.
+     * @param failedThreshold number of consecutive connection failures after which a host is considered unhealthy,
+     * or a non-positive value to disable health checking.
+     * @param interval interval between the first failed connection attempt and the first health check.
+     * @param maxInterval upper bound for the interval between health checks.
+     * @return a new instance, or {@code null} if health checking is disabled.
+     */
+    @Nullable
+    static HealthCheckConfig newConfig(@Nullable final Executor executor, final int failedThreshold,
+                                       final Duration interval, final Duration maxInterval) {
+        return failedThreshold <= 0 ? null : new HealthCheckConfig(executor == null ? SharedExecutor.getInstance() :
+                executor, failedThreshold, interval, maxInterval);
+    }
+
+    @Override
+    public String toString() {
+        return "HealthCheckConfig{" +
+                "executor=" + executor +
+                ", failedThreshold=" + failedThreshold +
+                ", intervalNanos=" + intervalNanos +
+                ", maxIntervalNanos=" + maxIntervalNanos +
+                '}';
+    }
+}
@@ -0,0 +1,412 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.loadbalancer;
+
+import io.servicetalk.client.api.ConnectTimeoutException;
+import io.servicetalk.client.api.ConnectionFactory;
+import io.servicetalk.client.api.LoadBalancedConnection;
+import io.servicetalk.client.api.RetryableConnectException;
+import io.servicetalk.concurrent.Cancellable;
+import io.servicetalk.concurrent.SingleSource;
+import io.servicetalk.concurrent.api.AsyncCloseable;
+import io.servicetalk.concurrent.api.Completable;
+import io.servicetalk.concurrent.internal.SequentialCancellable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import javax.annotation.Nullable;
+
+import static io.servicetalk.concurrent.api.Completable.mergeAllDelayError;
+import static io.servicetalk.concurrent.api.Single.defer;
+import static io.servicetalk.concurrent.api.Single.succeeded;
+import static io.servicetalk.concurrent.api.SourceAdapters.toSource;
+import static java.lang.Integer.MAX_VALUE;
+import static java.util.Collections.emptyList;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * A resolved address known to a {@link io.servicetalk.client.api.LoadBalancer} and the connections that are currently
+ * open to it.
+ * <p>
+ * If health checking is enabled, a host which fails to establish a configured number of consecutive connections is
+ * considered unhealthy. Unhealthy hosts are periodically probed in the background by trying to establish a new
+ * connection, with an exponentially growing interval between probes, until a probe succeeds.
+ *
+ * @param <Addr> The resolved address type.
+ * @param <C> The type of connection.
+ */
+final class Host<Addr, C extends LoadBalancedConnection> implements AsyncCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(Host.class);
+    private static final List<?> CLOSED_LIST = new ArrayList<>(0);
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<Host, List> connectionsUpdater =
+            AtomicReferenceFieldUpdater.newUpdater(Host.class, List.class, "connections");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<Host, HealthCheck> healthCheckUpdater =
+            AtomicReferenceFieldUpdater.newUpdater(Host.class, HealthCheck.class, "healthCheck");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<Host> connectFailuresUpdater =
+            AtomicIntegerFieldUpdater.newUpdater(Host.class, "connectFailures");
+
+    /**
+     * With a relatively small number of connections we can minimize connection creation under moderate concurrency by
+     * exhausting the full search space without sacrificing too much latency caused by the cost of a CAS operation per
+     * selection attempt.
+     */
+    private static final int MIN_SEARCH_SPACE = 64;
+
+    /**
+     * For larger search spaces, due to the cost of a CAS operation per selection attempt we see diminishing returns for
+     * trying to locate an available connection when most connections are in use. This increases tail latencies, thus
+     * after some number of failed attempts it appears to be more beneficial to open a new connection instead.
+     * <p>
+     * The current heuristics were chosen based on a set of benchmarks under various circumstances, low connection
+     * counts, larger connection counts, low connection churn, high connection churn.
+     */
+    private static final float SEARCH_FACTOR = 0.75f;
+
+    /**
+     * Weight given to the most recent sample when updating {@link #connectLatencyEwma}.
+     */
+    private static final double EWMA_WEIGHT = 0.2;
+
+    final Addr address;
+    private final ConnectionFactory<Addr, ? extends C> connectionFactory;
+    @Nullable
+    private final HealthCheckConfig healthCheckConfig;
+    private volatile List<C> connections = emptyList();
+    private volatile long connectLatencyEwma;
+    private volatile int connectFailures;
+    @Nullable
+    private volatile HealthCheck<Addr, C> healthCheck;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param address the resolved address of this host.
+     * @param connectionFactory the {@link ConnectionFactory} used to probe this host when it is unhealthy.
+     * @param healthCheckConfig the health checking configuration, or {@code null} to disable health checking.
+     */
+    Host(Addr address, ConnectionFactory<Addr, ? extends C> connectionFactory,
+         @Nullable HealthCheckConfig healthCheckConfig) {
+        this.address = requireNonNull(address);
+        this.connectionFactory = requireNonNull(connectionFactory);
+        this.healthCheckConfig = healthCheckConfig;
+    }
+
+    void markInactive() {
+        @SuppressWarnings("unchecked")
+        final List<C> toRemove = connectionsUpdater.getAndSet(this, CLOSED_LIST);
+        cancelHealthCheck();
+        LOGGER.debug("Closing {} connection(s) gracefully to inactive address: {}", toRemove.size(), address);
+        for (C conn : toRemove) {
+            conn.closeAsyncGracefully().subscribe();
+        }
+    }
+
+    boolean isInactive() {
+        return connections == CLOSED_LIST;
+    }
+
+    /**
+     * Returns {@code false} if this host failed to establish too many consecutive connections and has not been revived
+     * by a health check yet.
+     *
+     * @return {@code true} if new connections to this host are expected to succeed.
+     */
+    boolean isHealthy() {
+        return healthCheck == null;
+    }
+
+    /**
+     * Record that a new connection to this host was established.
+     */
+    void markConnectSucceeded() {
+        if (connectFailures != 0) {
+            connectFailuresUpdater.set(this, 0);
+        }
+    }
+
+    /**
+     * Record that a new connection to this host could not be established. If the number of consecutive failures
+     * reaches the configured threshold, this host is marked unhealthy and health checking is started.
+     * <p>
+     * Only failures of the transport to connect to this host are counted. Other failures, for example a
+     * {@link io.servicetalk.client.api.ConnectionFactoryFilter} locally rejecting a connection because a connection
+     * limit is reached, are not caused by this host and are ignored.
+     *
+     * @param cause the cause of the failure.
+     */
+    void markConnectFailed(final Throwable cause) {
+        final HealthCheckConfig config = healthCheckConfig;
+        if (config == null || !isConnectFailure(cause)) {
+            return;
+        }
+        final int failures = connectFailuresUpdater.incrementAndGet(this);
+        if (failures >= config.failedThreshold && healthCheck == null && !isInactive()) {
+            final HealthCheck<Addr, C> healthCheck = new HealthCheck<>(this, config);
+            if (healthCheckUpdater.compareAndSet(this, null, healthCheck)) {
+                LOGGER.info("Host {} failed to establish {} consecutive connections, marking it unhealthy.",
+                        address, failures, cause);
+                healthCheck.schedule();
+            }
+        }
+    }
+
+    private static boolean isConnectFailure(final Throwable cause) {
+        return cause instanceof RetryableConnectException || cause instanceof ConnectTimeoutException;
+    }
+
+    private void cancelHealthCheck() {
+        final HealthCheck<Addr, C> healthCheck = this.healthCheck;
+        if (healthCheck != null) {
+            healthCheck.cancel();
+        }
+    }
+
+    /**
+     * Try to find an existing connection which is accepted by the passed {@code selector}.
+     *
+     * @param selector the selector to test candidate connections against.
+     * @return a connection accepted by {@code selector}, or {@code null} if none was found.
+     */
+    @Nullable
+    C pickConnection(final Predicate<C> selector) {
+        final List<C> connections = this.connections;
+        final int size = connections.size();
+        if (size == 0) {
+            return null;
+        }
+        final ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        // With small enough search space, attempt all connections.
+        // Back off after exploring most of the search space, it gives diminishing returns.
+        final int attempts = size < MIN_SEARCH_SPACE ? size : (int) (size * SEARCH_FACTOR);
+        for (int i = 0; i < attempts; i++) {
+            final C connection = connections.get(rnd.nextInt(size));
+            if (selector.test(connection)) {
+                return connection;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Try to find an existing connection which has an affinity to the current thread and is accepted by the passed
+     * {@code selector}.
+     *
+     * @param selector the selector to test candidate connections against.
+     * @param affinity the {@link ConnectionAffinity} to test candidate connections against.
+     * @return a connection accepted by {@code selector} and {@code affinity}, or {@code null} if none was found.
+     */
+    @Nullable
+    C pickAffineConnection(final Predicate<C> selector, final ConnectionAffinity<? super C> affinity) {
+        final List<C> connections = this.connections;
+        // Only a fraction of the connections has an affinity to the current thread, random sampling would likely miss
+        // them. The number of connections per host is usually small, so all of them are visited.
+        for (int i = 0; i < connections.size(); ++i) {
+            final C connection = connections.get(i);
+            if (affinity.hasAffinity(connection) && selector.test(connection)) {
+                return connection;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the current load of this host. The load of a connection is measured as the distance of its
+     * {@link LoadBalancedConnection#score() score} from {@link Integer#MAX_VALUE} which is the score of an idle
+     * connection. The load of a host is the sum of the loads of all its connections.
+     *
+     * @return the current load of this host.
+     */
+    long load() {
+        final List<C> connections = this.connections;
+        long load = 0;
+        for (int i = 0; i < connections.size(); ++i) {
+            load += (long) MAX_VALUE - connections.get(i).score();
+        }
+        return load;
+    }
+
+    /**
+     * Returns the exponentially weighted moving average of the time it took to establish connections to this host.
+     *
+     * @return the exponentially weighted moving average of the connect latency in nanoseconds, or {@code 0} if no
+     * connections have been established yet.
+     */
+    long connectLatencyEwma() {
+        return connectLatencyEwma;
+    }
+
+    /**
+     * Record the time it took to establish a new connection to this host.
+     *
+     * @param latencyNanos the time in nanoseconds it took to establish a new connection.
+     */
+    void onConnectLatency(final long latencyNanos) {
+        // Updates are racy by design, losing a sample under concurrent connects is acceptable.
+        final long current = connectLatencyEwma;
+        connectLatencyEwma = current == 0 ? latencyNanos :
+                (long) (current + EWMA_WEIGHT * (latencyNanos - current));
+    }
+
+    boolean addConnection(C connection) {
+        for (;;) {
+            List<C> existing = this.connections;
+            if (existing == CLOSED_LIST) {
+                return false;
+            }
+            ArrayList<C> connectionAdded = new ArrayList<>(existing);
+            connectionAdded.add(connection);
+            if (connectionsUpdater.compareAndSet(this, existing, connectionAdded)) {
+                break;
+            }
+        }
+
+        // Instrument the new connection so we prune it on close
+        connection.onClose().beforeFinally(() -> {
+            for (;;) {
+                final List<C> existing = connections;
+                if (existing == CLOSED_LIST) {
+                    break;
+                }
+                ArrayList<C> connectionRemoved = new ArrayList<>(existing);
+                if (!connectionRemoved.remove(connection) ||
+                        connectionsUpdater.compareAndSet(this, existing, connectionRemoved)) {
+                    break;
+                }
+            }
+        }).subscribe();
+        return true;
+    }
+
+    // Used for testing only
+    Entry<Addr, List<C>> asEntry() {
+        return new SimpleImmutableEntry<>(address, new ArrayList<>(connections));
+    }
+
+    @Override
+    public Completable closeAsync() {
+        return doClose(AsyncCloseable::closeAsync);
+    }
+
+    @Override
+    public Completable closeAsyncGracefully() {
+        return doClose(AsyncCloseable::closeAsyncGracefully);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Completable doClose(final Function<? super C, Completable> closeFunction) {
+        return defer(() -> {
+                    final List<C> connections = (List<C>) connectionsUpdater.getAndSet(this, CLOSED_LIST);
+                    cancelHealthCheck();
+                    return succeeded(connections);
+                })
+                .flatMapCompletable(list -> mergeAllDelayError(list.stream().map(closeFunction)::iterator));
+    }
+
+    @Override
+    public String toString() {
+        return "Host{" +
+                "address=" + address +
+                ", removed=" + (connections == CLOSED_LIST) +
+                ", healthy=" + isHealthy() +
+                '}';
+    }
+
+    /**
+     * Probes an unhealthy {@link Host} until a new connection can be established.
+     */
+    private static final class HealthCheck<Addr, C extends LoadBalancedConnection>
+            implements SingleSource.Subscriber<C>, Cancellable {
+        private final Host<Addr, C> host;
+        private final HealthCheckConfig config;
+        private final SequentialCancellable cancellable = new SequentialCancellable();
+        /**
+         * Only accessed sequentially: from {@link #schedule()} and the terminal signals of the probe it schedules.
+         */
+        private int attempts;
+
+        HealthCheck(final Host<Addr, C> host, final HealthCheckConfig config) {
+            this.host = host;
+            this.config = config;
+        }
+
+        void schedule() {
+            if (host.isInactive() || cancellable.isCancelled()) {
+                return;
+            }
+            toSource(config.executor.timer(nextDelayNanos(), NANOSECONDS)
+                    .concat(defer(() -> host.connectionFactory.newConnection(host.address, null))))
+                    .subscribe(this);
+        }
+
+        private long nextDelayNanos() {
+            final int shift = attempts++;
+            final long delay = shift < Long.SIZE - 1 && config.intervalNanos <= config.maxIntervalNanos >>> shift ?
+                    config.intervalNanos << shift : config.maxIntervalNanos;
+            // Randomize the delay to spread probes from many clients that observed the same failure.
+            return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+        }
+
+        @Override
+        public void onSubscribe(final Cancellable cancellable) {
+            this.cancellable.nextCancellable(cancellable);
+        }
+
+        @Override
+        public void onSuccess(@Nullable final C connection) {
+            assert connection != null;
+            if (!host.addConnection(connection)) {
+                connection.closeAsync().subscribe();
+                return;
+            }
+            connectFailuresUpdater.set(host, 0);
+            if (healthCheckUpdater.compareAndSet(host, this, null)) {
+                LOGGER.info("Health check for host {} succeeded after {} attempt(s), marking it healthy.",
+                        host.address, attempts);
+            }
+        }
+
+        @Override
+        public void onError(final Throwable t) {
+            if (t instanceof RejectedExecutionException) {
+                LOGGER.warn("Health check for host {} could not be scheduled, giving up.", host.address, t);
+                return;
+            }
+            LOGGER.debug("Health check for host {} failed after {} attempt(s).", host.address, attempts, t);
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancellable.cancel();
+        }
+    }
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.loadbalancer;
+
+import io.servicetalk.client.api.ConnectionFactory;
+import io.servicetalk.client.api.ConnectionRejectedException;
+import io.servicetalk.client.api.LoadBalancedConnection;
+import io.servicetalk.client.api.ServiceDiscovererEvent;
+import io.servicetalk.concurrent.PublisherSource.Processor;
+import io.servicetalk.concurrent.PublisherSource.Subscriber;
+import io.servicetalk.concurrent.PublisherSource.Subscription;
+import io.servicetalk.concurrent.api.Completable;
+import io.servicetalk.concurrent.api.CompositeCloseable;
+import io.servicetalk.concurrent.api.ListenableAsyncCloseable;
+import io.servicetalk.concurrent.api.Publisher;
+import io.servicetalk.concurrent.api.Single;
+import io.servicetalk.concurrent.internal.SequentialCancellable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.Predicate;
+import javax.annotation.Nullable;
+
+import static io.servicetalk.client.api.LoadBalancerReadyEvent.LOAD_BALANCER_NOT_READY_EVENT;
+import static io.servicetalk.client.api.LoadBalancerReadyEvent.LOAD_BALANCER_READY_EVENT;
+import static io.servicetalk.concurrent.api.AsyncCloseables.newCompositeCloseable;
+import static io.servicetalk.concurrent.api.AsyncCloseables.toAsyncCloseable;
+import static io.servicetalk.concurrent.api.Processors.newPublisherProcessorDropHeadOnOverflow;
+import static io.servicetalk.concurrent.api.Single.failed;
+import static io.servicetalk.concurrent.api.Single.succeeded;
+import static io.servicetalk.concurrent.api.SourceAdapters.fromSource;
+import static io.servicetalk.concurrent.api.SourceAdapters.toSource;
+import static java.lang.System.nanoTime;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.atomic.AtomicReferenceFieldUpdater.newUpdater;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * The {@link Host}s known to a {@link io.servicetalk.client.api.LoadBalancer}, maintained from the events of a
+ * {@link io.servicetalk.client.api.ServiceDiscoverer}. Load balancers only implement the host selection strategy and
+ * delegate the host management, connection creation and closure to this class.
+ *
+ * @param <ResolvedAddress> The resolved address type.
+ * @param <C> The type of connection.
+ */
+final class HostList<ResolvedAddress, C extends LoadBalancedConnection> implements ListenableAsyncCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HostList.class);
+    private static final List<?> CLOSED_LIST = new ArrayList<>(0);
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<HostList, List> activeHostsUpdater =
+            newUpdater(HostList.class, List.class, "activeHosts");
+
+    private volatile List<Host<ResolvedAddress, C>> activeHosts = emptyList();
+
+    private final Publisher<Object> eventStream;
+    private final SequentialCancellable discoveryCancellable = new SequentialCancellable();
+    private final ConnectionFactory<ResolvedAddress, ? extends C> connectionFactory;
+    @Nullable
+    private final HealthCheckConfig healthCheckConfig;
+    private final ListenableAsyncCloseable asyncCloseable;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param loadBalancer the load balancer owning this instance, used for logging.
+     * @param eventPublisher provides a stream of addresses to connect to.
+     * @param connectionFactory a function which creates new connections.
+     * @param healthCheckConfig configuration of the health checking, or {@code null} to disable health checking.
+     */
+    HostList(final Object loadBalancer,
+             final Publisher<? extends ServiceDiscovererEvent<ResolvedAddress>> eventPublisher,
+             final ConnectionFactory<ResolvedAddress, ? extends C> connectionFactory,
+             @Nullable final HealthCheckConfig healthCheckConfig) {
+        Processor<Object, Object> eventStreamProcessor = newPublisherProcessorDropHeadOnOverflow(32);
+        this.eventStream = fromSource(eventStreamProcessor);
+        this.connectionFactory = requireNonNull(connectionFactory);
+        this.healthCheckConfig = healthCheckConfig;
+
+        toSource(eventPublisher).subscribe(new Subscriber<ServiceDiscovererEvent<ResolvedAddress>>() {
+
+            @Override
+            public void onSubscribe(final Subscription s) {
+                // We request max value here to make sure we do not access Subscription concurrently
+                // (requestN here and cancel from discoveryCancellable). If we request-1 in onNext we would have to wrap
+                // the Subscription in a ConcurrentSubscription which is costly.
+                // Since, we synchronously process onNexts we do not really care about flow control.
+                s.request(Long.MAX_VALUE);
+                discoveryCancellable.nextCancellable(s);
+            }
+
+            @Override
+            public void onNext(final ServiceDiscovererEvent<ResolvedAddress> event) {
+                LOGGER.debug("Load balancer {}, received new ServiceDiscoverer event {}.", loadBalancer, event);
+                @SuppressWarnings("unchecked")
+                final List<Host<ResolvedAddress, C>> activeAddresses =
+                    activeHostsUpdater.updateAndGet(HostList.this, oldHosts -> {
+                        if (oldHosts == CLOSED_LIST) {
+                            return CLOSED_LIST;
+                        }
+                        final ResolvedAddress addr = requireNonNull(event.address());
+                        @SuppressWarnings("unchecked")
+                        final List<Host<ResolvedAddress, C>> oldHostsTyped = (List<Host<ResolvedAddress, C>>) oldHosts;
+                        if (event.isAvailable()) {
+                            if (oldHostsTyped.isEmpty()) {
+                                return singletonList(new Host<>(addr, connectionFactory, healthCheckConfig));
+                            }
+                            final List<Host<ResolvedAddress, C>> newHosts = new ArrayList<>(oldHostsTyped.size() + 1);
+                            newHosts.addAll(oldHostsTyped);
+                            newHosts.add(new Host<>(addr, connectionFactory, healthCheckConfig));
+                            return newHosts;
+                        } else if (oldHostsTyped.isEmpty()) {
+                            return emptyList();
+                        } else {
+                            final List<Host<ResolvedAddress, C>> newHosts = new ArrayList<>(oldHostsTyped.size() - 1);
+                            for (int i = 0; i < oldHostsTyped.size(); ++i) {
+                                final Host<ResolvedAddress, C> host = oldHostsTyped.get(i);
+                                if (host.address.equals(addr)) {
+                                    host.markInactive();
+                                    for (int x = i + 1; x < oldHostsTyped.size(); ++x) {
+                                        newHosts.add(oldHostsTyped.get(x));
+                                    }
+                                    return newHosts.isEmpty() ? emptyList() : newHosts;
+                                } else {
+                                    newHosts.add(host);
+                                }
+                            }
+                            return newHosts;
+                        }
+                    });
+
+                LOGGER.debug("Load balancer {} now using {} addresses: {}", loadBalancer, activeAddresses.size(),
+                        activeAddresses);
+
+                if (event.isAvailable()) {
+                    if (activeAddresses.size() == 1) {
+                        eventStreamProcessor.onNext(LOAD_BALANCER_READY_EVENT);
+                    }
+                } else if (activeAddresses.isEmpty()) {
+                    eventStreamProcessor.onNext(LOAD_BALANCER_NOT_READY_EVENT);
+                }
+            }
+
+            @Override
+            public void onError(final Throwable t) {
+                List<Host<ResolvedAddress, C>> hosts = activeHosts;
+                eventStreamProcessor.onError(t);
+                LOGGER.error(
+                        "Load balancer {}. Service discoverer {} emitted an error. Last seen addresses (size {}) {}",
+                        loadBalancer, eventPublisher, hosts.size(), hosts, t);
+            }
+
+            @Override
+            public void onComplete() {
+                List<Host<ResolvedAddress, C>> hosts = activeHosts;
+                eventStreamProcessor.onComplete();
+                LOGGER.error("Load balancer {}. Service discoverer {} completed. Last seen addresses (size {}) {}",
+                        loadBalancer, eventPublisher, hosts.size(), hosts);
+            }
+        });
+        asyncCloseable = toAsyncCloseable(graceful -> {
+            @SuppressWarnings("unchecked")
+            List<Host<ResolvedAddress, C>> currentList = activeHostsUpdater.getAndSet(this, CLOSED_LIST);
+            discoveryCancellable.cancel();
+            eventStreamProcessor.onComplete();
+            CompositeCloseable cc = newCompositeCloseable().appendAll(currentList).appendAll(connectionFactory);
+            return graceful ? cc.closeAsyncGracefully() : cc.closeAsync();
+        });
+    }
+
+    /**
+     * Returns the currently active {@link Host}s.
+     *
+     * @return the currently active {@link Host}s, empty if there are none or if this instance is closed.
+     */
+    List<Host<ResolvedAddress, C>> activeHosts() {
+        return activeHosts;
+    }
+
+    /**
+     * Returns the stream of {@link io.servicetalk.client.api.LoadBalancerReadyEvent}s.
+     *
+     * @return the stream of {@link io.servicetalk.client.api.LoadBalancerReadyEvent}s.
+     */
+    Publisher<Object> eventStream() {
+        return eventStream;
+    }
+
+    /**
+     * Creates a failed {@link Single} for a selection which found an empty list of active hosts.
+     *
+     * @param activeHosts the empty list of active hosts returned by {@link #activeHosts()}.
+     * @param clazz the load balancer class, used for the stack trace of the failure.
+     * @param <T> The type of the {@link Single}.
+     * @return a failed {@link Single}.
+     */
+    <T> Single<T> noActiveHosts(final List<Host<ResolvedAddress, C>> activeHosts, final Class<?> clazz) {
+        assert activeHosts.isEmpty();
+        return activeHosts == CLOSED_LIST ? failedLBClosed() :
+                // This is the case when SD has emitted some items but none of the hosts are active.
+                failed(StacklessNoAvailableHostException.newInstance(
+                        "No hosts are available to connect.", clazz, "selectConnection0(...)"));
+    }
+
+    /**
+     * Creates a new connection to the passed {@link Host} and adds it to the connections of the {@link Host}.
+     *
+     * @param host the {@link Host} to connect to.
+     * @param selector the selector the new connection has to be accepted by.
+     * @return a {@link Single} which completes with the new connection.
+     */
+    Single<C> newConnection(final Host<ResolvedAddress, C> host, final Predicate<C> selector) {
+        // No connection was selected: create a new one.
+        // This LB implementation does not automatically provide TransportObserver. Therefore, we pass "null" here.
+        // Users can apply a ConnectionFactoryFilter if they need to override this "null" value with TransportObserver.
+        final long connectStartTime = nanoTime();
+        return connectionFactory.newConnection(host.address, null)
+                .beforeOnError(host::markConnectFailed)
+                .flatMap(newCnx -> {
+                    host.markConnectSucceeded();
+                    host.onConnectLatency(nanoTime() - connectStartTime);
+                    // Invoke the selector before adding the connection to the pool, otherwise, connection can be used
+                    // concurrently and hence a new connection can be rejected by the selector.
+                    if (!selector.test(newCnx)) {
+                        // Failure in selection could be temporary, hence add it to the queue and be consistent with the
+                        // fact that select failure does not close a connection.
+                        return newCnx.closeAsync().concat(failed(new ConnectionRejectedException(
+                                "Newly created connection " + newCnx + " rejected by the selection filter.")));
+                    }
+                    if (host.addConnection(newCnx)) {
+                        return succeeded(newCnx);
+                    }
+                    return newCnx.closeAsync().concat(this.activeHosts == CLOSED_LIST ? failedLBClosed() :
+                            failed(new ConnectionRejectedException("Failed to add newly created connection for host: " +
+                                    host.address + ", host inactive? " + host.isInactive())));
+                });
+    }
+
+    @Override
+    public Completable onClose() {
+        return asyncCloseable.onClose();
+    }
+
+    @Override
+    public Completable closeAsync() {
+        return asyncCloseable.closeAsync();
+    }
+
+    @Override
+    public Completable closeAsyncGracefully() {
+        return asyncCloseable.closeAsyncGracefully();
+    }
+
+    // Visible for testing
+    List<Entry<ResolvedAddress, List<C>>> activeAddresses() {
+        return activeHosts.stream().map(Host::asEntry).collect(toList());
+    }
+
+    private static <T> Single<T> failedLBClosed() {
+        return failed(new IllegalStateException("LoadBalancer has closed"));
+    }
+}
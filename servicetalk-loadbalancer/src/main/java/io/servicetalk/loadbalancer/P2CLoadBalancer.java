@@ -0,0 +1,318 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.loadbalancer;
+
+import io.servicetalk.client.api.ConnectionFactory;
+import io.servicetalk.client.api.LoadBalancedConnection;
+import io.servicetalk.client.api.LoadBalancer;
+import io.servicetalk.client.api.LoadBalancerFactory;
+import io.servicetalk.client.api.ServiceDiscovererEvent;
+import io.servicetalk.concurrent.api.Completable;
+import io.servicetalk.concurrent.api.Executor;
+import io.servicetalk.concurrent.api.Publisher;
+import io.servicetalk.concurrent.api.Single;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+import javax.annotation.Nullable;
+
+import static io.servicetalk.concurrent.api.Single.defer;
+import static io.servicetalk.concurrent.api.Single.failed;
+import static io.servicetalk.concurrent.api.Single.succeeded;
+import static io.servicetalk.loadbalancer.HealthCheckConfig.DEFAULT_INTERVAL;
+import static io.servicetalk.loadbalancer.HealthCheckConfig.DEFAULT_MAX_INTERVAL;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A {@link LoadBalancer} that uses the power of two choices strategy for selecting addresses. It has the following
+ * behaviour:
+ * <ul>
+ * <li>For every selection two distinct addresses are picked at random and the least loaded one is preferred.</li>
+ * <li>The load of an address is the sum of the loads of its open connections. The load of a connection is measured as
+ * the distance of its {@link LoadBalancedConnection#score() score} from {@link Integer#MAX_VALUE}, hence connections
+ * are expected to report {@link Integer#MAX_VALUE} when idle and to lower their score by one for every outstanding
+ * request. HTTP client connections follow this contract.</li>
+ * <li>When both addresses have the same load, the address with the lower exponentially weighted moving average of
+ * connect latency is preferred.</li>
+ * <li>Connections are created lazily, without any concurrency control on their creation.
+ * This can lead to over-provisioning connections when dealing with a requests surge.</li>
+ * <li>Existing connections are reused unless a selector passed to {@link #selectConnection(Predicate)} suggests
+ * otherwise.
+ * This can lead to situations where connections will be used to their maximum capacity (for example in the context of
+ * pipelining) before new connections are created.</li>
+ * <li>Closed connections are automatically pruned.</li>
+ * <li>If health checking is enabled, addresses which fail to establish a number of consecutive connections are
+ * considered unhealthy and are not picked while healthy addresses are available. Unhealthy addresses are probed in the
+ * background with an exponential back-off until a connection can be established again.</li>
+ * </ul>
+ *
+ * @param <ResolvedAddress> The resolved address type.
+ * @param <C> The type of connection.
+ */
+public final class P2CLoadBalancer<ResolvedAddress, C extends LoadBalancedConnection> implements LoadBalancer<C> {
+
+    private final HostList<ResolvedAddress, C> hosts;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param eventPublisher    provides a stream of addresses to connect to.
+     * @param connectionFactory a function which creates new connections.
+     */
+    public P2CLoadBalancer(final Publisher<? extends ServiceDiscovererEvent<ResolvedAddress>> eventPublisher,
+                           final ConnectionFactory<ResolvedAddress, ? extends C> connectionFactory) {
+        this(eventPublisher, connectionFactory, null);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param eventPublisher    provides a stream of addresses to connect to.
+     * @param connectionFactory a function which creates new connections.
+     * @param healthCheckConfig configuration of the health checking, or {@code null} to disable health checking.
+     */
+    P2CLoadBalancer(final Publisher<? extends ServiceDiscovererEvent<ResolvedAddress>> eventPublisher,
+                    final ConnectionFactory<ResolvedAddress, ? extends C> connectionFactory,
+                    @Nullable final HealthCheckConfig healthCheckConfig) {
+        this.hosts = new HostList<>(this, eventPublisher, connectionFactory, healthCheckConfig);
+    }
+
+    /**
+     * Create a {@link LoadBalancerFactory} that creates instances of {@link P2CLoadBalancer}.
+     * @param <ResolvedAddress> The resolved address type.
+     * @param <C> The type of connection.
+     * @return a {@link LoadBalancerFactory} that creates instances of {@link P2CLoadBalancer}.
+     */
+    public static <ResolvedAddress, C extends LoadBalancedConnection>
+    P2CLoadBalancerFactory<ResolvedAddress, C> newP2CFactory() {
+        return new P2CLoadBalancerFactory.Builder<ResolvedAddress, C>().build();
+    }
+
+    @Override
+    public Single<C> selectConnection(Predicate<C> selector) {
+        return defer(() -> selectConnection0(selector).subscribeShareContext());
+    }
+
+    @Override
+    public Publisher<Object> eventStream() {
+        return hosts.eventStream();
+    }
+
+    private Single<C> selectConnection0(Predicate<C> selector) {
+        final List<Host<ResolvedAddress, C>> activeHosts = hosts.activeHosts();
+        if (activeHosts.isEmpty()) {
+            return hosts.noActiveHosts(activeHosts, P2CLoadBalancer.class);
+        }
+
+        final Host<ResolvedAddress, C> host;
+        final int size = activeHosts.size();
+        if (size == 1) {
+            host = activeHosts.get(0);
+        } else {
+            final ThreadLocalRandom rnd = ThreadLocalRandom.current();
+            final int firstIndex = rnd.nextInt(size);
+            int secondIndex = rnd.nextInt(size - 1);
+            if (secondIndex >= firstIndex) {
+                ++secondIndex;
+            }
+            final Host<ResolvedAddress, C> first = activeHosts.get(firstIndex);
+            final Host<ResolvedAddress, C> second = activeHosts.get(secondIndex);
+            host = prefer(first, second) ? first : second;
+        }
+
+        // Try first to see if an existing connection can be used
+        final C connection = host.pickConnection(selector);
+        if (connection != null) {
+            return succeeded(connection);
+        }
+        if (!host.isHealthy()) {
+            // Both picked hosts are unhealthy, fall back to any healthy host.
+            final Host<ResolvedAddress, C> healthyHost = findHealthyHost(activeHosts);
+            if (healthyHost == null) {
+                return failed(StacklessNoAvailableHostException.newInstance(
+                        "Failed to pick a healthy host, all " + size + " hosts are unhealthy.",
+                        P2CLoadBalancer.class, "selectConnection0(...)"));
+            }
+            return selectOrCreateConnection(healthyHost, selector);
+        }
+        return hosts.newConnection(host, selector);
+    }
+
+    private Single<C> selectOrCreateConnection(final Host<ResolvedAddress, C> host, final Predicate<C> selector) {
+        final C connection = host.pickConnection(selector);
+        return connection != null ? succeeded(connection) : hosts.newConnection(host, selector);
+    }
+
+    /**
+     * Returns {@code true} if {@code first} should be preferred over {@code second}.
+     */
+    private static boolean prefer(final Host<?, ?> first, final Host<?, ?> second) {
+        final boolean firstHealthy = first.isHealthy();
+        if (firstHealthy != second.isHealthy()) {
+            return firstHealthy;
+        }
+        final long firstLoad = first.load();
+        final long secondLoad = second.load();
+        if (firstLoad != secondLoad) {
+            return firstLoad < secondLoad;
+        }
+        return first.connectLatencyEwma() <= second.connectLatencyEwma();
+    }
+
+    @Nullable
+    private static <ResolvedAddress, C extends LoadBalancedConnection> Host<ResolvedAddress, C> findHealthyHost(
+            final List<Host<ResolvedAddress, C>> hosts) {
+        final int size = hosts.size();
+        final int offset = ThreadLocalRandom.current().nextInt(size);
+        for (int i = 0; i < size; ++i) {
+            final Host<ResolvedAddress, C> host = hosts.get((offset + i) % size);
+            if (host.isHealthy()) {
+                return host;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Completable onClose() {
+        return hosts.onClose();
+    }
+
+    @Override
+    public Completable closeAsync() {
+        return hosts.closeAsync();
+    }
+
+    @Override
+    public Completable closeAsyncGracefully() {
+        return hosts.closeAsyncGracefully();
+    }
+
+    /**
+     * {@link LoadBalancerFactory} for {@link P2CLoadBalancer}.
+     *
+     * @param <ResolvedAddress> The resolved address type.
+     * @param <C> The type of connection.
+     */
+    public static final class P2CLoadBalancerFactory<ResolvedAddress, C extends LoadBalancedConnection>
+            implements LoadBalancerFactory<ResolvedAddress, C> {
+
+        @Nullable
+        private final HealthCheckConfig healthCheckConfig;
+
+        /**
+         * Creates a new instance with the default configuration.
+         */
+        public P2CLoadBalancerFactory() {
+            this(null);
+        }
+
+        private P2CLoadBalancerFactory(@Nullable final HealthCheckConfig healthCheckConfig) {
+            this.healthCheckConfig = healthCheckConfig;
+        }
+
+        @Override
+        public <T extends C> LoadBalancer<T> newLoadBalancer(
+                final Publisher<? extends ServiceDiscovererEvent<ResolvedAddress>> eventPublisher,
+                final ConnectionFactory<ResolvedAddress, T> connectionFactory) {
+            return new P2CLoadBalancer<>(eventPublisher, connectionFactory, healthCheckConfig);
+        }
+
+        /**
+         * Builder for {@link P2CLoadBalancerFactory}.
+         *
+         * @param <ResolvedAddress> The resolved address type.
+         * @param <C> The type of connection.
+         */
+        public static final class Builder<ResolvedAddress, C extends LoadBalancedConnection> {
+            @Nullable
+            private Executor backgroundExecutor;
+            private int healthCheckFailedConnectionsThreshold;
+            private Duration healthCheckInterval = DEFAULT_INTERVAL;
+            private Duration healthCheckMaxInterval = DEFAULT_MAX_INTERVAL;
+
+            /**
+             * Sets the {@link Executor} used to run background tasks such as health checks.
+             *
+             * @param backgroundExecutor {@link Executor} used to run background tasks.
+             * @return {@code this}.
+             */
+            public Builder<ResolvedAddress, C> backgroundExecutor(final Executor backgroundExecutor) {
+                this.backgroundExecutor = requireNonNull(backgroundExecutor);
+                return this;
+            }
+
+            /**
+             * Sets the number of consecutive connection failures after which a host is considered unhealthy.
+             * Unhealthy hosts are not picked while healthy hosts are available, until a background health check
+             * succeeds.
+             * <p>
+             * Health checking is disabled by default. Only failures of the transport to connect to a host are
+             * counted, connections rejected by a {@link io.servicetalk.client.api.ConnectionFactoryFilter}, for
+             * example because of a connection limit, are not.
+             *
+             * @param threshold number of consecutive connection failures after which a host is considered unhealthy,
+             * or a non-positive value to disable health checking.
+             * @return {@code this}.
+             */
+            public Builder<ResolvedAddress, C> healthCheckFailedConnectionsThreshold(final int threshold) {
+                this.healthCheckFailedConnectionsThreshold = threshold;
+                return this;
+            }
+
+            /**
+             * Sets the interval between a host becoming unhealthy and the first health check. The interval doubles
+             * after each failed health check.
+             *
+             * @param interval interval before the first health check.
+             * @return {@code this}.
+             */
+            public Builder<ResolvedAddress, C> healthCheckInterval(final Duration interval) {
+                this.healthCheckInterval = requireNonNull(interval);
+                return this;
+            }
+
+            /**
+             * Sets the upper bound for the interval between health checks.
+             *
+             * @param maxInterval upper bound for the interval between health checks.
+             * @return {@code this}.
+             */
+            public Builder<ResolvedAddress, C> healthCheckMaxInterval(final Duration maxInterval) {
+                this.healthCheckMaxInterval = requireNonNull(maxInterval);
+                return this;
+            }
+
+            /**
+             * Builds the {@link P2CLoadBalancerFactory} configured by this builder.
+             *
+             * @return a new instance of {@link P2CLoadBalancerFactory} with configuration from this builder.
+             */
+            public P2CLoadBalancerFactory<ResolvedAddress, C> build() {
+                return new P2CLoadBalancerFactory<>(HealthCheckConfig.newConfig(backgroundExecutor,
+                        healthCheckFailedConnectionsThreshold, healthCheckInterval, healthCheckMaxInterval));
+            }
+        }
+    }
+
+    // Visible for testing
+    List<Entry<ResolvedAddress, List<C>>> activeAddresses() {
+        return hosts.activeAddresses();
+    }
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright © 2018-2020 Apple Inc. and the ServiceTalk project authors
+ * Copyright © 2018-2021 Apple Inc. and the ServiceTalk project authors
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,54 +16,29 @@
 package io.servicetalk.loadbalancer;
 
 import io.servicetalk.client.api.ConnectionFactory;
-import io.servicetalk.client.api.ConnectionRejectedException;
 import io.servicetalk.client.api.LoadBalancedConnection;
 import io.servicetalk.client.api.LoadBalancer;
 import io.servicetalk.client.api.LoadBalancerFactory;
-import io.servicetalk.client.api.NoAvailableHostException;
 import io.servicetalk.client.api.ServiceDiscovererEvent;
-import io.servicetalk.concurrent.PublisherSource.Processor;
-import io.servicetalk.concurrent.PublisherSource.Subscriber;
-import io.servicetalk.concurrent.PublisherSource.Subscription;
-import io.servicetalk.concurrent.api.AsyncCloseable;
 import io.servicetalk.concurrent.api.Completable;
-import io.servicetalk.concurrent.api.CompositeCloseable;
-import io.servicetalk.concurrent.api.ListenableAsyncCloseable;
+import io.servicetalk.concurrent.api.Executor;
 import io.servicetalk.concurrent.api.Publisher;
 import io.servicetalk.concurrent.api.Single;
-import io.servicetalk.concurrent.internal.SequentialCancellable;
-import io.servicetalk.concurrent.internal.ThrowableUtils;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-import java.util.AbstractMap.SimpleImmutableEntry;
-import java.util.ArrayList;
+import java.time.Duration;
 import java.util.List;
 import java.util.Map.Entry;
-import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
-import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
-import java.util.function.Function;
 import java.util.function.Predicate;
+import javax.annotation.Nullable;
 
-import static io.servicetalk.client.api.LoadBalancerReadyEvent.LOAD_BALANCER_NOT_READY_EVENT;
-import static io.servicetalk.client.api.LoadBalancerReadyEvent.LOAD_BALANCER_READY_EVENT;
-import static io.servicetalk.concurrent.api.AsyncCloseables.newCompositeCloseable;
-import static io.servicetalk.concurrent.api.AsyncCloseables.toAsyncCloseable;
-import static io.servicetalk.concurrent.api.Completable.mergeAllDelayError;
-import static io.servicetalk.concurrent.api.Processors.newPublisherProcessorDropHeadOnOverflow;
 import static io.servicetalk.concurrent.api.Single.defer;
 import static io.servicetalk.concurrent.api.Single.failed;
 import static io.servicetalk.concurrent.api.Single.succeeded;
-import static io.servicetalk.concurrent.api.SourceAdapters.fromSource;
-import static io.servicetalk.concurrent.api.SourceAdapters.toSource;
-import static java.util.Collections.emptyList;
-import static java.util.Collections.singletonList;
+import static io.servicetalk.loadbalancer.HealthCheckConfig.DEFAULT_INTERVAL;
+import static io.servicetalk.loadbalancer.HealthCheckConfig.DEFAULT_MAX_INTERVAL;
 import static java.util.Objects.requireNonNull;
 import static java.util.concurrent.atomic.AtomicIntegerFieldUpdater.newUpdater;
-import static java.util.concurrent.atomic.AtomicReferenceFieldUpdater.newUpdater;
-import static java.util.stream.Collectors.toList;
 
 /**
  * A {@link LoadBalancer} that uses a round robin strategy for selecting addresses. It has the following behaviour:
@@ -76,6 +51,9 @@ import static java.util.stream.Collectors.toList;
  * This can lead to situations where connections will be used to their maximum capacity (for example in the context of
  * pipelining) before new connections are created.</li>
  * <li>Closed connections are automatically pruned.</li>
+ * <li>If health checking is enabled, addresses which fail to establish a number of consecutive connections are
+ * considered unhealthy. New connections are not opened to unhealthy addresses, which are instead probed in the
+ * background with an exponential back-off until a connection can be established again.</li>
  * </ul>
  *
  * @param <ResolvedAddress> The resolved address type.
@@ -84,41 +62,16 @@ import static java.util.stream.Collectors.toList;
 public final class RoundRobinLoadBalancer<ResolvedAddress, C extends LoadBalancedConnection>
         implements LoadBalancer<C> {
 
-    private static final Logger LOGGER = LoggerFactory.getLogger(RoundRobinLoadBalancer.class);
-    private static final List<?> CLOSED_LIST = new ArrayList<>(0);
-
-    @SuppressWarnings("rawtypes")
-    private static final AtomicReferenceFieldUpdater<RoundRobinLoadBalancer, List> activeHostsUpdater =
-            newUpdater(RoundRobinLoadBalancer.class, List.class, "activeHosts");
     @SuppressWarnings("rawtypes")
     private static final AtomicIntegerFieldUpdater<RoundRobinLoadBalancer> indexUpdater =
             newUpdater(RoundRobinLoadBalancer.class, "index");
 
-    /**
-     * With a relatively small number of connections we can minimize connection creation under moderate concurrency by
-     * exhausting the full search space without sacrificing too much latency caused by the cost of a CAS operation per
-     * selection attempt.
-     */
-    private static final int MIN_SEARCH_SPACE = 64;
-
-    /**
-     * For larger search spaces, due to the cost of a CAS operation per selection attempt we see diminishing returns for
-     * trying to locate an available connection when most connections are in use. This increases tail latencies, thus
-     * after some number of failed attempts it appears to be more beneficial to open a new connection instead.
-     * <p>
-     * The current heuristics were chosen based on a set of benchmarks under various circumstances, low connection
-     * counts, larger connection counts, low connection churn, high connection churn.
-     */
-    private static final float SEARCH_FACTOR = 0.75f;
-
     @SuppressWarnings("unused")
     private volatile int index;
-    private volatile List<Host<ResolvedAddress, C>> activeHosts = emptyList();
 
-    private final Publisher<Object> eventStream;
-    private final SequentialCancellable discoveryCancellable = new SequentialCancellable();
-    private final ConnectionFactory<ResolvedAddress, ? extends C> connectionFactory;
-    private final ListenableAsyncCloseable asyncCloseable;
+    private final HostList<ResolvedAddress, C> hosts;
+    @Nullable
+    private final ConnectionAffinity<? super C> connectionAffinity;
 
     /**
      * Creates a new instance.
@@ -128,100 +81,24 @@ public final class RoundRobinLoadBalancer<ResolvedAddress, C extends LoadBalance
      */
     public RoundRobinLoadBalancer(final Publisher<? extends ServiceDiscovererEvent<ResolvedAddress>> eventPublisher,
                                   final ConnectionFactory<ResolvedAddress, ? extends C> connectionFactory) {
-        Processor<Object, Object> eventStreamProcessor = newPublisherProcessorDropHeadOnOverflow(32);
-        this.eventStream = fromSource(eventStreamProcessor);
-        this.connectionFactory = requireNonNull(connectionFactory);
-
-        toSource(eventPublisher).subscribe(new Subscriber<ServiceDiscovererEvent<ResolvedAddress>>() {
-
-            @Override
-            public void onSubscribe(final Subscription s) {
-                // We request max value here to make sure we do not access Subscription concurrently
-                // (requestN here and cancel from discoveryCancellable). If we request-1 in onNext we would have to wrap
-                // the Subscription in a ConcurrentSubscription which is costly.
-                // Since, we synchronously process onNexts we do not really care about flow control.
-                s.request(Long.MAX_VALUE);
-                discoveryCancellable.nextCancellable(s);
-            }
-
-            @Override
-            public void onNext(final ServiceDiscovererEvent<ResolvedAddress> event) {
-                LOGGER.debug("Load balancer {}, received new ServiceDiscoverer event {}.", RoundRobinLoadBalancer.this,
-                        event);
-                @SuppressWarnings("unchecked")
-                final List<Host<ResolvedAddress, C>> activeAddresses =
-                    activeHostsUpdater.updateAndGet(RoundRobinLoadBalancer.this, oldHosts -> {
-                        if (oldHosts == CLOSED_LIST) {
-                            return CLOSED_LIST;
-                        }
-                        final ResolvedAddress addr = requireNonNull(event.address());
-                        @SuppressWarnings("unchecked")
-                        final List<Host<ResolvedAddress, C>> oldHostsTyped = (List<Host<ResolvedAddress, C>>) oldHosts;
-                        if (event.isAvailable()) {
-                            if (oldHostsTyped.isEmpty()) {
-                                return singletonList(new Host<>(addr));
-                            }
-                            final List<Host<ResolvedAddress, C>> newHosts = new ArrayList<>(oldHostsTyped.size() + 1);
-                            newHosts.addAll(oldHostsTyped);
-                            newHosts.add(new Host<>(addr));
-                            return newHosts;
-                        } else if (oldHostsTyped.isEmpty()) {
-                            return emptyList();
-                        } else {
-                            final List<Host<ResolvedAddress, C>> newHosts = new ArrayList<>(oldHostsTyped.size() - 1);
-                            for (int i = 0; i < oldHostsTyped.size(); ++i) {
-                                final Host<ResolvedAddress, C> host = oldHostsTyped.get(i);
-                                if (host.address.equals(addr)) {
-                                    host.markInactive();
-                                    for (int x = i + 1; x < oldHostsTyped.size(); ++x) {
-                                        newHosts.add(oldHostsTyped.get(x));
-                                    }
-                                    return newHosts.isEmpty() ? emptyList() : newHosts;
-                                } else {
-                                    newHosts.add(host);
-                                }
-                            }
-                            return newHosts;
-                        }
-                    });
-
-                LOGGER.debug("Load balancer {} now using {} addresses: {}", RoundRobinLoadBalancer.this,
-                        activeAddresses.size(), activeAddresses);
-
-                if (event.isAvailable()) {
-                    if (activeAddresses.size() == 1) {
-                        eventStreamProcessor.onNext(LOAD_BALANCER_READY_EVENT);
-                    }
-                } else if (activeAddresses.isEmpty()) {
-                    eventStreamProcessor.onNext(LOAD_BALANCER_NOT_READY_EVENT);
-                }
-            }
-
-            @Override
-            public void onError(final Throwable t) {
-                List<Host<ResolvedAddress, C>> hosts = activeHosts;
-                eventStreamProcessor.onError(t);
-                LOGGER.error(
-                        "Load balancer {}. Service discoverer {} emitted an error. Last seen addresses (size {}) {}",
-                        RoundRobinLoadBalancer.this, eventPublisher, hosts.size(), hosts, t);
-            }
+        this(eventPublisher, connectionFactory, null, null);
+    }
 
-            @Override
-            public void onComplete() {
-                List<Host<ResolvedAddress, C>> hosts = activeHosts;
-                eventStreamProcessor.onComplete();
-                LOGGER.error("Load balancer {}. Service discoverer {} completed. Last seen addresses (size {}) {}",
-                        RoundRobinLoadBalancer.this, eventPublisher, hosts.size(), hosts);
-            }
-        });
-        asyncCloseable = toAsyncCloseable(graceful -> {
-            @SuppressWarnings("unchecked")
-            List<Host<ResolvedAddress, C>> currentList = activeHostsUpdater.getAndSet(this, CLOSED_LIST);
-            discoveryCancellable.cancel();
-            eventStreamProcessor.onComplete();
-            CompositeCloseable cc = newCompositeCloseable().appendAll(currentList).appendAll(connectionFactory);
-            return graceful ? cc.closeAsyncGracefully() : cc.closeAsync();
-        });
+    /**
+     * Creates a new instance.
+     *
+     * @param eventPublisher    provides a stream of addresses to connect to.
+     * @param connectionFactory a function which creates new connections.
+     * @param healthCheckConfig configuration of the health checking, or {@code null} to disable health checking.
+     * @param connectionAffinity the {@link ConnectionAffinity} of connections, or {@code null} to select connections
+     * regardless of the current thread.
+     */
+    RoundRobinLoadBalancer(final Publisher<? extends ServiceDiscovererEvent<ResolvedAddress>> eventPublisher,
+                           final ConnectionFactory<ResolvedAddress, ? extends C> connectionFactory,
+                           @Nullable final HealthCheckConfig healthCheckConfig,
+                           @Nullable final ConnectionAffinity<? super C> connectionAffinity) {
+        this.hosts = new HostList<>(this, eventPublisher, connectionFactory, healthCheckConfig);
+        this.connectionAffinity = connectionAffinity;
     }
 
     /**
@@ -232,7 +109,7 @@ public final class RoundRobinLoadBalancer<ResolvedAddress, C extends LoadBalance
      */
     public static <ResolvedAddress, C extends LoadBalancedConnection>
     RoundRobinLoadBalancerFactory<ResolvedAddress, C> newRoundRobinFactory() {
-        return new RoundRobinLoadBalancerFactory<>();
+        return new RoundRobinLoadBalancerFactory.Builder<ResolvedAddress, C>().build();
     }
 
     @Override
@@ -242,71 +119,70 @@ public final class RoundRobinLoadBalancer<ResolvedAddress, C extends LoadBalance
 
     @Override
     public Publisher<Object> eventStream() {
-        return eventStream;
+        return hosts.eventStream();
     }
 
     private Single<C> selectConnection0(Predicate<C> selector) {
-        final List<Host<ResolvedAddress, C>> activeHosts = this.activeHosts;
+        final List<Host<ResolvedAddress, C>> activeHosts = hosts.activeHosts();
         if (activeHosts.isEmpty()) {
-            return activeHosts == CLOSED_LIST ? failedLBClosed() :
-                // This is the case when SD has emitted some items but none of the hosts are active.
-                failed(StacklessNoAvailableHostException.newInstance(
-                    "No hosts are available to connect.", RoundRobinLoadBalancer.class, "selectConnection0(...)"));
+            return hosts.noActiveHosts(activeHosts, RoundRobinLoadBalancer.class);
         }
 
-        final int cursor = (indexUpdater.getAndIncrement(this) & Integer.MAX_VALUE) % activeHosts.size();
-        final Host<ResolvedAddress, C> host = activeHosts.get(cursor);
-        assert host != null : "Host can't be null.";
-        final ThreadLocalRandom rnd = ThreadLocalRandom.current();
-
-        // Try first to see if an existing connection can be used
-        final List<C> connections = host.connections;
-        final int size = connections.size();
-        // With small enough search space, attempt all connections.
-        // Back off after exploring most of the search space, it gives diminishing returns.
-        final int attempts = size < MIN_SEARCH_SPACE ? size : (int) (size * SEARCH_FACTOR);
-        for (int i = 0; i < attempts; i++) {
-            final C connection = connections.get(rnd.nextInt(size));
-            if (selector.test(connection)) {
+        final int size = activeHosts.size();
+        final int cursor = (indexUpdater.getAndIncrement(this) & Integer.MAX_VALUE) % size;
+        final ConnectionAffinity<? super C> affinity =
+                connectionAffinity != null && connectionAffinity.isAffineThread() ? connectionAffinity : null;
+        Host<ResolvedAddress, C> pickedHost = null;
+        for (int i = 0; i < size; ++i) {
+            final Host<ResolvedAddress, C> host = activeHosts.get((cursor + i) % size);
+            assert host != null : "Host can't be null.";
+
+            if (affinity != null) {
+                final C connection = host.pickAffineConnection(selector, affinity);
+                if (connection != null) {
+                    return succeeded(connection);
+                }
+                // Prefer a new connection, which the connection factory is expected to bind to the current thread,
+                // over an existing connection without affinity.
+                if (host.isHealthy()) {
+                    pickedHost = host;
+                    break;
+                }
+            }
+
+            // Try first to see if an existing connection can be used
+            final C connection = host.pickConnection(selector);
+            if (connection != null) {
                 return succeeded(connection);
             }
+            // Don't open new connections to unhealthy hosts, try the next one instead.
+            if (host.isHealthy()) {
+                pickedHost = host;
+                break;
+            }
+        }
+        if (pickedHost == null) {
+            return failed(StacklessNoAvailableHostException.newInstance(
+                    "Failed to pick a healthy host, all " + size + " hosts are unhealthy.",
+                    RoundRobinLoadBalancer.class, "selectConnection0(...)"));
         }
-
         // No connection was selected: create a new one.
-        // This LB implementation does not automatically provide TransportObserver. Therefore, we pass "null" here.
-        // Users can apply a ConnectionFactoryFilter if they need to override this "null" value with TransportObserver.
-        return connectionFactory.newConnection(host.address, null)
-                .flatMap(newCnx -> {
-                    // Invoke the selector before adding the connection to the pool, otherwise, connection can be used
-                    // concurrently and hence a new connection can be rejected by the selector.
-                    if (!selector.test(newCnx)) {
-                        // Failure in selection could be temporary, hence add it to the queue and be consistent with the
-                        // fact that select failure does not close a connection.
-                        return newCnx.closeAsync().concat(failed(new ConnectionRejectedException(
-                                "Newly created connection " + newCnx + " rejected by the selection filter.")));
-                    }
-                    if (host.addConnection(newCnx)) {
-                        return succeeded(newCnx);
-                    }
-                    return newCnx.closeAsync().concat(this.activeHosts == CLOSED_LIST ? failedLBClosed() :
-                            failed(new ConnectionRejectedException("Failed to add newly created connection for host: " +
-                                    host.address + ", host inactive? " + host.isInactive())));
-                });
+        return hosts.newConnection(pickedHost, selector);
     }
 
     @Override
     public Completable onClose() {
-        return asyncCloseable.onClose();
+        return hosts.onClose();
     }
 
     @Override
     public Completable closeAsync() {
-        return asyncCloseable.closeAsync();
+        return hosts.closeAsync();
     }
 
     @Override
     public Completable closeAsyncGracefully() {
-        return asyncCloseable.closeAsyncGracefully();
+        return hosts.closeAsyncGracefully();
     }
 
     /**
@@ -318,120 +194,130 @@ public final class RoundRobinLoadBalancer<ResolvedAddress, C extends LoadBalance
     public static final class RoundRobinLoadBalancerFactory<ResolvedAddress, C extends LoadBalancedConnection>
             implements LoadBalancerFactory<ResolvedAddress, C> {
 
-        @Override
-        public <T extends C> LoadBalancer<T> newLoadBalancer(
-                final Publisher<? extends ServiceDiscovererEvent<ResolvedAddress>> eventPublisher,
-                final ConnectionFactory<ResolvedAddress, T> connectionFactory) {
-            return new RoundRobinLoadBalancer<>(eventPublisher, connectionFactory);
-        }
-    }
-
-    // Visible for testing
-    List<Entry<ResolvedAddress, List<C>>> activeAddresses() {
-        return activeHosts.stream().map(Host::asEntry).collect(toList());
-    }
-
-    private static class Host<Addr, C extends ListenableAsyncCloseable> implements AsyncCloseable {
-        @SuppressWarnings("rawtypes")
-        private static final AtomicReferenceFieldUpdater<Host, List> connectionsUpdater =
-                AtomicReferenceFieldUpdater.newUpdater(Host.class, List.class, "connections");
-
-        final Addr address;
-        private volatile List<C> connections = emptyList();
+        @Nullable
+        private final HealthCheckConfig healthCheckConfig;
+        @Nullable
+        private final ConnectionAffinity<C> connectionAffinity;
 
-        Host(Addr address) {
-            this.address = requireNonNull(address);
+        /**
+         * Creates a new instance with the default configuration.
+         */
+        public RoundRobinLoadBalancerFactory() {
+            this(null, null);
         }
 
-        void markInactive() {
-            @SuppressWarnings("unchecked")
-            final List<C> toRemove = connectionsUpdater.getAndSet(this, CLOSED_LIST);
-            LOGGER.debug("Closing {} connection(s) gracefully to inactive address: {}", toRemove.size(), address);
-            for (C conn : toRemove) {
-                conn.closeAsyncGracefully().subscribe();
-            }
-        }
-
-        boolean isInactive() {
-            return connections == CLOSED_LIST;
-        }
-
-        boolean addConnection(C connection) {
-            for (;;) {
-                List<C> existing = this.connections;
-                if (existing == CLOSED_LIST) {
-                    return false;
-                }
-                ArrayList<C> connectionAdded = new ArrayList<>(existing);
-                connectionAdded.add(connection);
-                if (connectionsUpdater.compareAndSet(this, existing, connectionAdded)) {
-                    break;
-                }
-            }
-
-            // Instrument the new connection so we prune it on close
-            connection.onClose().beforeFinally(() -> {
-                for (;;) {
-                    final List<C> existing = connections;
-                    if (existing == CLOSED_LIST) {
-                        break;
-                    }
-                    ArrayList<C> connectionRemoved = new ArrayList<>(existing);
-                    if (!connectionRemoved.remove(connection) ||
-                            connectionsUpdater.compareAndSet(this, existing, connectionRemoved)) {
-                        break;
-                    }
-                }
-            }).subscribe();
-            return true;
-        }
-
-        // Used for testing only
-        Entry<Addr, List<C>> asEntry() {
-            return new SimpleImmutableEntry<>(address, new ArrayList<>(connections));
+        private RoundRobinLoadBalancerFactory(@Nullable final HealthCheckConfig healthCheckConfig,
+                                              @Nullable final ConnectionAffinity<C> connectionAffinity) {
+            this.healthCheckConfig = healthCheckConfig;
+            this.connectionAffinity = connectionAffinity;
         }
 
         @Override
-        public Completable closeAsync() {
-            return doClose(AsyncCloseable::closeAsync);
+        public <T extends C> LoadBalancer<T> newLoadBalancer(
+                final Publisher<? extends ServiceDiscovererEvent<ResolvedAddress>> eventPublisher,
+                final ConnectionFactory<ResolvedAddress, T> connectionFactory) {
+            return new RoundRobinLoadBalancer<>(eventPublisher, connectionFactory, healthCheckConfig,
+                    connectionAffinity);
         }
 
-        @Override
-        public Completable closeAsyncGracefully() {
-            return doClose(AsyncCloseable::closeAsyncGracefully);
-        }
+        /**
+         * Builder for {@link RoundRobinLoadBalancerFactory}.
+         *
+         * @param <ResolvedAddress> The resolved address type.
+         * @param <C> The type of connection.
+         */
+        public static final class Builder<ResolvedAddress, C extends LoadBalancedConnection> {
+            @Nullable
+            private Executor backgroundExecutor;
+            private int healthCheckFailedConnectionsThreshold;
+            private Duration healthCheckInterval = DEFAULT_INTERVAL;
+            private Duration healthCheckMaxInterval = DEFAULT_MAX_INTERVAL;
+            @Nullable
+            private ConnectionAffinity<C> connectionAffinity;
+
+            /**
+             * Sets the {@link Executor} used to run background tasks such as health checks.
+             *
+             * @param backgroundExecutor {@link Executor} used to run background tasks.
+             * @return {@code this}.
+             */
+            public Builder<ResolvedAddress, C> backgroundExecutor(final Executor backgroundExecutor) {
+                this.backgroundExecutor = requireNonNull(backgroundExecutor);
+                return this;
+            }
 
-        @SuppressWarnings("unchecked")
-        private Completable doClose(final Function<? super C, Completable> closeFunction) {
-            return defer(() -> succeeded((List<C>) connectionsUpdater.getAndSet(this, CLOSED_LIST)))
-                    .flatMapCompletable(list -> mergeAllDelayError(list.stream().map(closeFunction)::iterator));
-        }
+            /**
+             * Sets the number of consecutive connection failures after which a host is considered unhealthy. New
+             * connections are not opened to unhealthy hosts until a background health check succeeds.
+             * <p>
+             * Health checking is disabled by default. Only failures of the transport to connect to a host are
+             * counted, connections rejected by a {@link io.servicetalk.client.api.ConnectionFactoryFilter}, for
+             * example because of a connection limit, are not.
+             *
+             * @param threshold number of consecutive connection failures after which a host is considered unhealthy,
+             * or a non-positive value to disable health checking.
+             * @return {@code this}.
+             */
+            public Builder<ResolvedAddress, C> healthCheckFailedConnectionsThreshold(final int threshold) {
+                this.healthCheckFailedConnectionsThreshold = threshold;
+                return this;
+            }
 
-        @Override
-        public String toString() {
-            return "Host{" +
-                    "address=" + address +
-                    ", removed=" + (connections == CLOSED_LIST) +
-                    '}';
-        }
-    }
+            /**
+             * Sets the interval between a host becoming unhealthy and the first health check. The interval doubles
+             * after each failed health check.
+             *
+             * @param interval interval before the first health check.
+             * @return {@code this}.
+             */
+            public Builder<ResolvedAddress, C> healthCheckInterval(final Duration interval) {
+                this.healthCheckInterval = requireNonNull(interval);
+                return this;
+            }
 
-    private static final class StacklessNoAvailableHostException extends NoAvailableHostException {
-        private StacklessNoAvailableHostException(final String message) {
-            super(message);
-        }
+            /**
+             * Sets the upper bound for the interval between health checks.
+             *
+             * @param maxInterval upper bound for the interval between health checks.
+             * @return {@code this}.
+             */
+            public Builder<ResolvedAddress, C> healthCheckMaxInterval(final Duration maxInterval) {
+                this.healthCheckMaxInterval = requireNonNull(maxInterval);
+                return this;
+            }
 
-        @Override
-        public Throwable fillInStackTrace() {
-            return this;
-        }
+            /**
+             * Sets the {@link ConnectionAffinity} used to prefer connections which have an affinity to the thread
+             * selecting a connection, for example connections bound to the IO thread issuing a request.
+             * <p>
+             * When the selecting thread is {@link ConnectionAffinity#isAffineThread() affine}, an existing connection
+             * with an affinity to it is selected if possible. Otherwise a new connection is created, instead of using
+             * an existing connection without affinity. The {@link ConnectionFactory} is expected to bind new
+             * connections to the current thread in this case.
+             *
+             * @param connectionAffinity the {@link ConnectionAffinity} of connections.
+             * @return {@code this}.
+             */
+            public Builder<ResolvedAddress, C> connectionAffinity(final ConnectionAffinity<C> connectionAffinity) {
+                this.connectionAffinity = requireNonNull(connectionAffinity);
+                return this;
+            }
 
-        public static StacklessNoAvailableHostException newInstance(String message, Class<?> clazz, String method) {
-            return ThrowableUtils.unknownStackTrace(new StacklessNoAvailableHostException(message), clazz, method);
+            /**
+             * Builds the {@link RoundRobinLoadBalancerFactory} configured by this builder.
+             *
+             * @return a new instance of {@link RoundRobinLoadBalancerFactory} with configuration from this builder.
+             */
+            public RoundRobinLoadBalancerFactory<ResolvedAddress, C> build() {
+                return new RoundRobinLoadBalancerFactory<>(HealthCheckConfig.newConfig(backgroundExecutor,
+                        healthCheckFailedConnectionsThreshold, healthCheckInterval, healthCheckMaxInterval),
+                        connectionAffinity);
+            }
         }
     }
 
-    private static <T> Single<T> failedLBClosed() {
-        return failed(new IllegalStateException("LoadBalancer has closed"));
+    // Visible for testing
+    List<Entry<ResolvedAddress, List<C>>> activeAddresses() {
+        return hosts.activeAddresses();
     }
 }
@@ -0,0 +1,38 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.loadbalancer;
+
+import io.servicetalk.concurrent.api.DefaultThreadFactory;
+import io.servicetalk.concurrent.api.Executor;
+
+import static io.servicetalk.concurrent.api.Executors.newCachedThreadExecutor;
+
+/**
+ * Shared {@link Executor} used to schedule background tasks of load balancers when no {@link Executor} is
+ * explicitly configured.
+ */
+final class SharedExecutor {
+    private static final Executor INSTANCE = newCachedThreadExecutor(
+            new DefaultThreadFactory("servicetalk-load-balancer"));
+
+    private SharedExecutor() {
+        // no instances
+    }
+
+    static Executor getInstance() {
+        return INSTANCE;
+    }
+}
@@ -0,0 +1,309 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.loadbalancer;
+
+import io.servicetalk.client.api.ConnectionFactory;
+import io.servicetalk.client.api.DefaultServiceDiscovererEvent;
+import io.servicetalk.client.api.LoadBalancedConnection;
+import io.servicetalk.client.api.NoAvailableHostException;
+import io.servicetalk.client.api.RetryableConnectException;
+import io.servicetalk.client.api.ServiceDiscovererEvent;
+import io.servicetalk.concurrent.api.Completable;
+import io.servicetalk.concurrent.api.ListenableAsyncCloseable;
+import io.servicetalk.concurrent.api.Single;
+import io.servicetalk.concurrent.api.TestExecutor;
+import io.servicetalk.concurrent.api.TestPublisher;
+import io.servicetalk.concurrent.api.TestSubscription;
+import io.servicetalk.concurrent.internal.DeliberateException;
+import io.servicetalk.concurrent.internal.ServiceTalkTestTimeout;
+import io.servicetalk.loadbalancer.P2CLoadBalancer.P2CLoadBalancerFactory;
+import io.servicetalk.transport.api.TransportObserver;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import static io.servicetalk.concurrent.api.AsyncCloseables.emptyAsyncCloseable;
+import static io.servicetalk.concurrent.api.BlockingTestUtils.awaitIndefinitely;
+import static io.servicetalk.concurrent.api.Single.failed;
+import static io.servicetalk.concurrent.api.Single.succeeded;
+import static io.servicetalk.concurrent.internal.DeliberateException.DELIBERATE_EXCEPTION;
+import static java.lang.Integer.MAX_VALUE;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.both;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasProperty;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class P2CLoadBalancerTest {
+    @Rule
+    public final Timeout timeout = new ServiceTalkTestTimeout();
+
+    private final List<TestLoadBalancedConnection> connectionsCreated = new CopyOnWriteArrayList<>();
+    private final TestPublisher<ServiceDiscovererEvent<String>> serviceDiscoveryPublisher = new TestPublisher<>();
+    private final TestExecutor testExecutor = new TestExecutor();
+    private P2CLoadBalancer<String, TestLoadBalancedConnection> lb;
+    private DelegatingConnectionFactory connectionFactory;
+
+    private static <T> Predicate<T> any() {
+        return __ -> true;
+    }
+
+    @Before
+    public void initialize() {
+        connectionsCreated.clear();
+        connectionFactory = new DelegatingConnectionFactory(address -> succeeded(newConnection(address)));
+        lb = newTestLoadBalancer(connectionFactory);
+    }
+
+    @After
+    public void closeLoadBalancer() throws Exception {
+        awaitIndefinitely(lb.closeAsync());
+        awaitIndefinitely(lb.onClose());
+
+        TestSubscription subscription = new TestSubscription();
+        serviceDiscoveryPublisher.onSubscribe(subscription);
+        assertTrue(subscription.isCancelled());
+    }
+
+    @Test
+    public void noServiceDiscoveryEvent() throws Exception {
+        try {
+            awaitIndefinitely(lb.selectConnection(any()));
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), is(instanceOf(NoAvailableHostException.class)));
+        }
+        assertThat(connectionsCreated, is(empty()));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void handleDiscoveryEvents() {
+        sendServiceDiscoveryEvents(upEvent("address-1"));
+        sendServiceDiscoveryEvents(upEvent("address-2"));
+        assertThat(lb.activeAddresses(), contains(hasProperty("key", is("address-1")),
+                hasProperty("key", is("address-2"))));
+
+        sendServiceDiscoveryEvents(downEvent("address-1"));
+        assertThat(lb.activeAddresses(), contains(hasProperty("key", is("address-2"))));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void prefersLeastLoadedHost() throws Exception {
+        sendServiceDiscoveryEvents(upEvent("address-1"));
+        final TestLoadBalancedConnection loaded = awaitIndefinitely(lb.selectConnection(any()));
+        assert loaded != null;
+        loaded.pendingRequests().set(10);
+
+        sendServiceDiscoveryEvents(upEvent("address-2"));
+        for (int i = 0; i < 5; ++i) {
+            final TestLoadBalancedConnection cnx = awaitIndefinitely(lb.selectConnection(any()));
+            assert cnx != null;
+            assertThat(cnx.address(), is("address-2"));
+        }
+        assertThat(lb.activeAddresses(), contains(
+                both(hasProperty("key", is("address-1"))).and(hasProperty("value", hasSize(1))),
+                both(hasProperty("key", is("address-2"))).and(hasProperty("value", hasSize(1)))));
+        assertThat(connectionsCreated, hasSize(2));
+    }
+
+    @Test
+    public void loadChangesSelection() throws Exception {
+        sendServiceDiscoveryEvents(upEvent("address-1"));
+        sendServiceDiscoveryEvents(upEvent("address-2"));
+        final TestLoadBalancedConnection first = awaitIndefinitely(lb.selectConnection(any()));
+        assert first != null;
+        first.pendingRequests().incrementAndGet();
+        final TestLoadBalancedConnection second = awaitIndefinitely(lb.selectConnection(any()));
+        assert second != null;
+        assertThat(second.address().equals(first.address()), is(false));
+
+        second.pendingRequests().set(2);
+        final TestLoadBalancedConnection third = awaitIndefinitely(lb.selectConnection(any()));
+        assertThat(third, is(first));
+    }
+
+    @Test
+    public void connectionFactoryErrorPropagation() throws Exception {
+        serviceDiscoveryPublisher.onComplete();
+        connectionFactory = new DelegatingConnectionFactory(__ -> failed(DELIBERATE_EXCEPTION));
+        lb = newTestLoadBalancer(connectionFactory);
+        sendServiceDiscoveryEvents(upEvent("address-1"));
+        try {
+            awaitIndefinitely(lb.selectConnection(any()));
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), is(instanceOf(DeliberateException.class)));
+        }
+    }
+
+    @Test
+    public void unhealthyHostIsNotPicked() throws Exception {
+        serviceDiscoveryPublisher.onComplete();
+        connectionFactory = new DelegatingConnectionFactory(address -> "address-1".equals(address) ?
+                failed(new RetryableConnectException("Deliberate connect failure")) :
+                succeeded(newConnection(address)));
+        lb = (P2CLoadBalancer<String, TestLoadBalancedConnection>)
+                new P2CLoadBalancerFactory.Builder<String, TestLoadBalancedConnection>()
+                        .backgroundExecutor(testExecutor)
+                        .healthCheckFailedConnectionsThreshold(1)
+                        .build()
+                        .newLoadBalancer(serviceDiscoveryPublisher, connectionFactory);
+        sendServiceDiscoveryEvents(upEvent("address-1"));
+        try {
+            awaitIndefinitely(lb.selectConnection(any()));
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), is(instanceOf(RetryableConnectException.class)));
+        }
+        assertThat(testExecutor.scheduledTasksPending(), is(1));
+
+        sendServiceDiscoveryEvents(upEvent("address-2"));
+        for (int i = 0; i < 5; ++i) {
+            final TestLoadBalancedConnection cnx = awaitIndefinitely(lb.selectConnection(any()));
+            assert cnx != null;
+            assertThat(cnx.address(), is("address-2"));
+        }
+    }
+
+    @Test
+    public void healthCheckingIsDisabledByDefault() throws Exception {
+        serviceDiscoveryPublisher.onComplete();
+        final AtomicInteger connectAttempts = new AtomicInteger();
+        connectionFactory = new DelegatingConnectionFactory(address -> {
+            connectAttempts.incrementAndGet();
+            return failed(new RetryableConnectException("Deliberate connect failure"));
+        });
+        lb = newTestLoadBalancer(connectionFactory);
+        sendServiceDiscoveryEvents(upEvent("address-1"));
+        for (int i = 0; i < 10; ++i) {
+            try {
+                awaitIndefinitely(lb.selectConnection(any()));
+                fail();
+            } catch (ExecutionException e) {
+                assertThat(e.getCause(), is(instanceOf(RetryableConnectException.class)));
+            }
+        }
+        assertThat(connectAttempts.get(), is(10));
+    }
+
+    @Test
+    public void earlyFailsAfterClose() throws Exception {
+        sendServiceDiscoveryEvents(upEvent("address-1"));
+        awaitIndefinitely(lb.closeAsync());
+        try {
+            awaitIndefinitely(lb.selectConnection(any()));
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), is(instanceOf(IllegalStateException.class)));
+        }
+        assertThat(connectionsCreated, is(empty()));
+    }
+
+    @Test
+    public void closeClosesConnectionFactory() throws Exception {
+        awaitIndefinitely(lb.closeAsync());
+        assertTrue("ConnectionFactory not closed.", connectionFactory.isClosed());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void sendServiceDiscoveryEvents(final ServiceDiscovererEvent... events) {
+        serviceDiscoveryPublisher.onNext((ServiceDiscovererEvent<String>[]) events);
+    }
+
+    private static ServiceDiscovererEvent upEvent(final String address) {
+        return new DefaultServiceDiscovererEvent<>(address, true);
+    }
+
+    private static ServiceDiscovererEvent downEvent(final String address) {
+        return new DefaultServiceDiscovererEvent<>(address, false);
+    }
+
+    private P2CLoadBalancer<String, TestLoadBalancedConnection> newTestLoadBalancer(
+            final DelegatingConnectionFactory connectionFactory) {
+        return new P2CLoadBalancer<>(serviceDiscoveryPublisher, connectionFactory);
+    }
+
+    private TestLoadBalancedConnection newConnection(final String address) {
+        final TestLoadBalancedConnection cnx = mock(TestLoadBalancedConnection.class);
+        final ListenableAsyncCloseable closeable = emptyAsyncCloseable();
+        final AtomicInteger pendingRequests = new AtomicInteger();
+        when(cnx.closeAsync()).thenReturn(closeable.closeAsync());
+        when(cnx.closeAsyncGracefully()).thenReturn(closeable.closeAsyncGracefully());
+        when(cnx.onClose()).thenReturn(closeable.onClose());
+        when(cnx.address()).thenReturn(address);
+        when(cnx.pendingRequests()).thenReturn(pendingRequests);
+        when(cnx.score()).then(__ -> MAX_VALUE - pendingRequests.get());
+        when(cnx.toString()).thenReturn(address + '@' + cnx.hashCode());
+
+        connectionsCreated.add(cnx);
+        return cnx;
+    }
+
+    private interface TestLoadBalancedConnection extends ListenableAsyncCloseable, LoadBalancedConnection {
+        String address();
+
+        AtomicInteger pendingRequests();
+    }
+
+    private static class DelegatingConnectionFactory implements ConnectionFactory<String, TestLoadBalancedConnection> {
+
+        private final Function<String, Single<TestLoadBalancedConnection>> connectionFactory;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        DelegatingConnectionFactory(Function<String, Single<TestLoadBalancedConnection>> connectionFactory) {
+            this.connectionFactory = connectionFactory;
+        }
+
+        @Override
+        public Single<TestLoadBalancedConnection> newConnection(String s, TransportObserver observer) {
+            return connectionFactory.apply(s);
+        }
+
+        @Override
+        public Completable onClose() {
+            return Completable.completed();
+        }
+
+        @Override
+        public Completable closeAsync() {
+            return Completable.completed().beforeOnSubscribe(cancellable -> closed.set(true));
+        }
+
+        boolean isClosed() {
+            return closed.get();
+        }
+    }
+}
@@ -21,6 +21,7 @@ import io.servicetalk.client.api.DefaultServiceDiscovererEvent;
 import io.servicetalk.client.api.LoadBalancedConnection;
 import io.servicetalk.client.api.LoadBalancerReadyEvent;
 import io.servicetalk.client.api.NoAvailableHostException;
+import io.servicetalk.client.api.RetryableConnectException;
 import io.servicetalk.client.api.ServiceDiscovererEvent;
 import io.servicetalk.concurrent.PublisherSource.Subscriber;
 import io.servicetalk.concurrent.PublisherSource.Subscription;
@@ -29,6 +30,7 @@ import io.servicetalk.concurrent.api.LegacyTestSingle;
 import io.servicetalk.concurrent.api.ListenableAsyncCloseable;
 import io.servicetalk.concurrent.api.Publisher;
 import io.servicetalk.concurrent.api.Single;
+import io.servicetalk.concurrent.api.TestExecutor;
 import io.servicetalk.concurrent.api.TestPublisher;
 import io.servicetalk.concurrent.api.TestSubscription;
 import io.servicetalk.concurrent.internal.DeliberateException;
@@ -43,11 +45,13 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.junit.rules.Timeout;
 
+import java.net.ConnectException;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CopyOnWriteArraySet;
@@ -69,6 +73,7 @@ import static io.servicetalk.concurrent.api.Single.succeeded;
 import static io.servicetalk.concurrent.api.SourceAdapters.toSource;
 import static io.servicetalk.concurrent.internal.DeliberateException.DELIBERATE_EXCEPTION;
 import static io.servicetalk.concurrent.internal.ServiceTalkTestTimeout.DEFAULT_TIMEOUT_SECONDS;
+import static java.time.Duration.ofSeconds;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static java.util.stream.Collectors.toSet;
@@ -84,6 +89,7 @@ import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
@@ -94,6 +100,9 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class RoundRobinLoadBalancerTest {
+    private static final RetryableConnectException CONNECT_EXCEPTION =
+            new RetryableConnectException("Deliberate connect failure");
+
     @Rule
     public final Timeout timeout = new ServiceTalkTestTimeout();
 
@@ -106,6 +115,7 @@ public class RoundRobinLoadBalancerTest {
     private final Queue<Runnable> connectionRealizers = new ConcurrentLinkedQueue<>();
 
     private final TestPublisher<ServiceDiscovererEvent<String>> serviceDiscoveryPublisher = new TestPublisher<>();
+    private final TestExecutor testExecutor = new TestExecutor();
     private RoundRobinLoadBalancer<String, TestLoadBalancedConnection> lb;
     private DelegatingConnectionFactory connectionFactory;
 
@@ -437,6 +447,166 @@ public class RoundRobinLoadBalancerTest {
         verify(conn, times(0)).closeAsync();
     }
 
+    @Test
+    public void unhealthyHostIsSkipped() throws Exception {
+        serviceDiscoveryPublisher.onComplete();
+        connectionFactory = new DelegatingConnectionFactory(address -> "address-1".equals(address) ?
+                failed(CONNECT_EXCEPTION) : newRealizedConnectionSingle(address));
+        lb = new RoundRobinLoadBalancer<>(serviceDiscoveryPublisher, connectionFactory,
+                new HealthCheckConfig(testExecutor, 2, ofSeconds(1), ofSeconds(10)), null);
+        sendServiceDiscoveryEvents(upEvent("address-1"), upEvent("address-2"));
+
+        int failures = 0;
+        for (int i = 0; i < 6; ++i) {
+            try {
+                final TestLoadBalancedConnection connection = awaitIndefinitely(lb.selectConnection(any()));
+                assert connection != null;
+                assertThat(connection.address(), is("address-2"));
+            } catch (ExecutionException e) {
+                assertThat(e.getCause(), is(CONNECT_EXCEPTION));
+                ++failures;
+            }
+        }
+        assertThat(failures, is(2));
+        assertThat(testExecutor.scheduledTasksPending(), is(1));
+    }
+
+    @Test
+    public void unhealthyHostIsRevivedByHealthCheck() throws Exception {
+        serviceDiscoveryPublisher.onComplete();
+        final AtomicBoolean failConnect = new AtomicBoolean(true);
+        connectionFactory = new DelegatingConnectionFactory(address -> failConnect.get() ?
+                failed(CONNECT_EXCEPTION) : newRealizedConnectionSingle(address));
+        lb = new RoundRobinLoadBalancer<>(serviceDiscoveryPublisher, connectionFactory,
+                new HealthCheckConfig(testExecutor, 2, ofSeconds(1), ofSeconds(10)), null);
+        sendServiceDiscoveryEvents(upEvent("address-1"));
+
+        for (int i = 0; i < 2; ++i) {
+            try {
+                awaitIndefinitely(lb.selectConnection(any()));
+                fail();
+            } catch (ExecutionException e) {
+                assertThat(e.getCause(), is(CONNECT_EXCEPTION));
+            }
+        }
+        // The host is now unhealthy, selection fails without trying to connect.
+        try {
+            awaitIndefinitely(lb.selectConnection(any()));
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), is(instanceOf(NoAvailableHostException.class)));
+        }
+
+        // First health check fails and is rescheduled with a larger interval.
+        testExecutor.advanceTimeBy(1, SECONDS);
+        assertThat(testExecutor.scheduledTasksPending(), is(1));
+        assertThat(connectionsCreated, is(empty()));
+
+        failConnect.set(false);
+        testExecutor.advanceTimeBy(2, SECONDS);
+        assertThat(testExecutor.scheduledTasksPending(), is(0));
+        assertThat(connectionsCreated, hasSize(1));
+
+        final TestLoadBalancedConnection connection = awaitIndefinitely(lb.selectConnection(any()));
+        assertThat(connection, is(connectionsCreated.get(0)));
+    }
+
+    @Test
+    public void rejectedConnectionsDoNotMarkHostUnhealthy() throws Exception {
+        serviceDiscoveryPublisher.onComplete();
+        final AtomicBoolean rejectConnect = new AtomicBoolean(true);
+        // LimitingConnectionFactoryFilter rejects connections with a plain ConnectException.
+        connectionFactory = new DelegatingConnectionFactory(address -> rejectConnect.get() ?
+                failed(new ConnectException("No more connections allowed for the host: " + address)) :
+                newRealizedConnectionSingle(address));
+        lb = new RoundRobinLoadBalancer<>(serviceDiscoveryPublisher, connectionFactory,
+                new HealthCheckConfig(testExecutor, 2, ofSeconds(1), ofSeconds(10)), null);
+        sendServiceDiscoveryEvents(upEvent("address-1"));
+
+        for (int i = 0; i < 4; ++i) {
+            try {
+                awaitIndefinitely(lb.selectConnection(any()));
+                fail();
+            } catch (ExecutionException e) {
+                assertThat(e.getCause(), is(instanceOf(ConnectException.class)));
+            }
+        }
+        assertThat(testExecutor.scheduledTasksPending(), is(0));
+
+        rejectConnect.set(false);
+        final TestLoadBalancedConnection connection = awaitIndefinitely(lb.selectConnection(any()));
+        assertThat(connection, is(connectionsCreated.get(0)));
+    }
+
+    @Test
+    public void healthCheckingIsDisabledByDefault() throws Exception {
+        serviceDiscoveryPublisher.onComplete();
+        final AtomicBoolean failConnect = new AtomicBoolean(true);
+        connectionFactory = new DelegatingConnectionFactory(address -> failConnect.get() ?
+                failed(CONNECT_EXCEPTION) : newRealizedConnectionSingle(address));
+        lb = (RoundRobinLoadBalancer<String, TestLoadBalancedConnection>)
+                RoundRobinLoadBalancer.<String, TestLoadBalancedConnection>newRoundRobinFactory()
+                        .newLoadBalancer(serviceDiscoveryPublisher, connectionFactory);
+        sendServiceDiscoveryEvents(upEvent("address-1"));
+
+        for (int i = 0; i < 10; ++i) {
+            try {
+                awaitIndefinitely(lb.selectConnection(any()));
+                fail();
+            } catch (ExecutionException e) {
+                assertThat(e.getCause(), is(CONNECT_EXCEPTION));
+            }
+        }
+        failConnect.set(false);
+        final TestLoadBalancedConnection connection = awaitIndefinitely(lb.selectConnection(any()));
+        assertThat(connection, is(connectionsCreated.get(0)));
+    }
+
+    @Test
+    public void connectionWithAffinityIsPreferred() throws Exception {
+        serviceDiscoveryPublisher.onComplete();
+        final AtomicReference<String> currentThread = new AtomicReference<>();
+        final Map<TestLoadBalancedConnection, String> connectionThreads = new ConcurrentHashMap<>();
+        connectionFactory = new DelegatingConnectionFactory(address -> {
+            final TestLoadBalancedConnection connection = newConnection(address);
+            final String thread = currentThread.get();
+            if (thread != null) {
+                connectionThreads.put(connection, thread);
+            }
+            return succeeded(connection);
+        });
+        lb = new RoundRobinLoadBalancer<>(serviceDiscoveryPublisher, connectionFactory, null,
+                new ConnectionAffinity<TestLoadBalancedConnection>() {
+                    @Override
+                    public boolean isAffineThread() {
+                        return currentThread.get() != null;
+                    }
+
+                    @Override
+                    public boolean hasAffinity(final TestLoadBalancedConnection connection) {
+                        return currentThread.get().equals(connectionThreads.get(connection));
+                    }
+                });
+        sendServiceDiscoveryEvents(upEvent("address-1"));
+
+        final TestLoadBalancedConnection withoutAffinity = awaitIndefinitely(lb.selectConnection(any()));
+        currentThread.set("thread-1");
+        final TestLoadBalancedConnection thread1 = awaitIndefinitely(lb.selectConnection(any()));
+        assertThat("Connection without affinity selected.", thread1, is(not(withoutAffinity)));
+        assertThat(awaitIndefinitely(lb.selectConnection(any())), is(thread1));
+
+        currentThread.set("thread-2");
+        final TestLoadBalancedConnection thread2 = awaitIndefinitely(lb.selectConnection(any()));
+        assertThat(thread2, is(not(thread1)));
+        currentThread.set("thread-1");
+        assertThat(awaitIndefinitely(lb.selectConnection(any())), is(thread1));
+
+        // Threads without affinity select existing connections.
+        currentThread.set(null);
+        awaitIndefinitely(lb.selectConnection(any()));
+        assertThat(connectionsCreated, hasSize(3));
+    }
+
     @SuppressWarnings("unchecked")
     private void sendServiceDiscoveryEvents(final ServiceDiscovererEvent... events) {
         serviceDiscoveryPublisher.onNext((ServiceDiscovererEvent<String>[]) events);
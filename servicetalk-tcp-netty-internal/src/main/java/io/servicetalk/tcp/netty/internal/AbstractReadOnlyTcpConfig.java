@@ -1,5 +1,5 @@
 /*
- * Copyright © 2019-2020 Apple Inc. and the ServiceTalk project authors
+ * Copyright © 2019-2021 Apple Inc. and the ServiceTalk project authors
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,12 +18,14 @@ package io.servicetalk.tcp.netty.internal;
 import io.servicetalk.logging.api.UserDataLoggerConfig;
 import io.servicetalk.transport.api.ServiceTalkSocketOptions;
 import io.servicetalk.transport.netty.internal.FlushStrategy;
+import io.servicetalk.transport.netty.internal.WriteDemandEstimator;
 
 import io.netty.channel.ChannelOption;
 import io.netty.handler.ssl.SslContext;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.Supplier;
 import javax.annotation.Nullable;
 
 import static java.util.Collections.emptyMap;
@@ -42,6 +44,7 @@ abstract class AbstractReadOnlyTcpConfig<SecurityConfig, ReadOnlyView> {
     @Nullable
     private final Long idleTimeoutMs;
     private final FlushStrategy flushStrategy;
+    private final Supplier<WriteDemandEstimator> writeDemandEstimatorSupplier;
     @Nullable
     private final UserDataLoggerConfig wireLoggerConfig;
     @Nullable
@@ -52,6 +55,7 @@ abstract class AbstractReadOnlyTcpConfig<SecurityConfig, ReadOnlyView> {
         options = from.options() == null ? emptyMap() : unmodifiableMap(new HashMap<>(from.options()));
         idleTimeoutMs = from.idleTimeoutMs();
         flushStrategy = from.flushStrategy();
+        writeDemandEstimatorSupplier = from.writeDemandEstimatorSupplier();
         wireLoggerConfig = from.wireLoggerConfig();
         this.preferredAlpnProtocol = preferredAlpnProtocol;
     }
@@ -85,6 +89,15 @@ abstract class AbstractReadOnlyTcpConfig<SecurityConfig, ReadOnlyView> {
         return flushStrategy;
     }
 
+    /**
+     * Returns the {@link Supplier} of {@link WriteDemandEstimator} for all connections.
+     *
+     * @return {@link Supplier} of {@link WriteDemandEstimator} for all connections
+     */
+    public final Supplier<WriteDemandEstimator> writeDemandEstimatorSupplier() {
+        return writeDemandEstimatorSupplier;
+    }
+
     /**
      * Get the {@link UserDataLoggerConfig} for wire logging.
      *
@@ -1,5 +1,5 @@
 /*
- * Copyright © 2019-2020 Apple Inc. and the ServiceTalk project authors
+ * Copyright © 2019-2021 Apple Inc. and the ServiceTalk project authors
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -21,6 +21,8 @@ import io.servicetalk.logging.slf4j.internal.DefaultUserDataLoggerConfig;
 import io.servicetalk.transport.api.ServiceTalkSocketOptions;
 import io.servicetalk.transport.netty.internal.FlushStrategy;
 import io.servicetalk.transport.netty.internal.ReadOnlyServerSecurityConfig;
+import io.servicetalk.transport.netty.internal.WriteDemandEstimator;
+import io.servicetalk.transport.netty.internal.WriteDemandEstimators;
 
 import io.netty.channel.ChannelOption;
 
@@ -30,9 +32,11 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
 import javax.annotation.Nullable;
 
 import static io.servicetalk.logging.api.LogLevel.TRACE;
+import static io.servicetalk.transport.netty.internal.FlushStrategies.adaptiveFlush;
 import static io.servicetalk.transport.netty.internal.FlushStrategies.defaultFlushStrategy;
 import static io.servicetalk.transport.netty.internal.SocketOptionUtils.addOption;
 import static java.util.Objects.requireNonNull;
@@ -51,6 +55,8 @@ abstract class AbstractTcpConfig<SecurityConfig, ReadOnlyView> {
     @Nullable
     private Long idleTimeoutMs;
     private FlushStrategy flushStrategy = defaultFlushStrategy();
+    private Supplier<WriteDemandEstimator> writeDemandEstimatorSupplier = WriteDemandEstimators::newDefaultEstimator;
+    private boolean connectionAffinity;
     @Nullable
     private UserDataLoggerConfig wireLoggerConfig;
     @Nullable
@@ -63,6 +69,8 @@ abstract class AbstractTcpConfig<SecurityConfig, ReadOnlyView> {
         options = from.options;
         idleTimeoutMs = from.idleTimeoutMs;
         flushStrategy = from.flushStrategy;
+        writeDemandEstimatorSupplier = from.writeDemandEstimatorSupplier;
+        connectionAffinity = from.connectionAffinity;
         wireLoggerConfig = from.wireLoggerConfig;
         securityConfig = from.securityConfig;
     }
@@ -82,6 +90,14 @@ abstract class AbstractTcpConfig<SecurityConfig, ReadOnlyView> {
         return flushStrategy;
     }
 
+    final Supplier<WriteDemandEstimator> writeDemandEstimatorSupplier() {
+        return writeDemandEstimatorSupplier;
+    }
+
+    final boolean connectionAffinity() {
+        return connectionAffinity;
+    }
+
     @Nullable
     final UserDataLoggerConfig wireLoggerConfig() {
         return wireLoggerConfig;
@@ -107,6 +123,13 @@ abstract class AbstractTcpConfig<SecurityConfig, ReadOnlyView> {
         requireNonNull(value);
         if (option == ServiceTalkSocketOptions.IDLE_TIMEOUT) {
             idleTimeoutMs = (Long) value;
+        } else if (option == ServiceTalkSocketOptions.ADAPTIVE_FLUSH_MAX_PENDING_WRITES) {
+            flushStrategy = adaptiveFlush((Integer) value);
+        } else if (option == ServiceTalkSocketOptions.HISTORY_AWARE_WRITE_DEMAND) {
+            writeDemandEstimatorSupplier = (Boolean) value ? WriteDemandEstimators::newHistoryAwareEstimator :
+                    WriteDemandEstimators::newDefaultEstimator;
+        } else if (option == ServiceTalkSocketOptions.CONNECTION_AFFINITY) {
+            connectionAffinity = (Boolean) value;
         } else {
             if (options == null) {
                 options = new HashMap<>();
@@ -124,6 +147,15 @@ abstract class AbstractTcpConfig<SecurityConfig, ReadOnlyView> {
         this.flushStrategy = requireNonNull(flushStrategy);
     }
 
+    /**
+     * Sets the {@link Supplier} of {@link WriteDemandEstimator} to use for all connections.
+     *
+     * @param writeDemandEstimatorSupplier {@link Supplier} of {@link WriteDemandEstimator} to use for all connections
+     */
+    public final void writeDemandEstimator(final Supplier<WriteDemandEstimator> writeDemandEstimatorSupplier) {
+        this.writeDemandEstimatorSupplier = requireNonNull(writeDemandEstimatorSupplier);
+    }
+
     /**
      * Enable wire-logging for all connections. All wire events will be logged at trace level.
      *
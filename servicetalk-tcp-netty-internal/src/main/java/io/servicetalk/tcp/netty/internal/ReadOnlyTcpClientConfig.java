@@ -1,5 +1,5 @@
 /*
- * Copyright © 2018-2019 Apple Inc. and the ServiceTalk project authors
+ * Copyright © 2018-2019, 2021 Apple Inc. and the ServiceTalk project authors
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -37,6 +37,7 @@ public final class ReadOnlyTcpClientConfig
     @Nullable
     private final String sslHostnameVerificationHost;
     private final int sslHostnameVerificationPort;
+    private final boolean connectionAffinity;
 
     /**
      * Copy constructor.
@@ -57,6 +58,7 @@ public final class ReadOnlyTcpClientConfig
             sslHostnameVerificationHost = null;
             sslHostnameVerificationPort = -1;
         }
+        connectionAffinity = from.connectionAffinity();
     }
 
     @Nullable
@@ -95,4 +97,14 @@ public final class ReadOnlyTcpClientConfig
     public int sslHostnameVerificationPort() {
         return sslHostnameVerificationPort;
     }
+
+    /**
+     * Returns whether new connections are bound to the I/O thread which initiates the connect.
+     *
+     * @return {@code true} if new connections are bound to the I/O thread which initiates the connect
+     * @see io.servicetalk.transport.api.ServiceTalkSocketOptions#CONNECTION_AFFINITY
+     */
+    public boolean connectionAffinity() {
+        return connectionAffinity;
+    }
 }
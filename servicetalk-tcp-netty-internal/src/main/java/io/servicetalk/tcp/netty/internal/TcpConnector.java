@@ -35,6 +35,7 @@ import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.ConnectTimeoutException;
 import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
 import io.netty.resolver.AbstractAddressResolver;
 import io.netty.resolver.AddressResolver;
 import io.netty.resolver.AddressResolverGroup;
@@ -42,6 +43,7 @@ import io.netty.resolver.NoopAddressResolver;
 import io.netty.util.concurrent.EventExecutor;
 import io.netty.util.concurrent.Future;
 import io.netty.util.concurrent.ImmediateEventExecutor;
+import io.netty.util.internal.ThreadExecutorMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -136,7 +138,8 @@ public final class TcpConnector {
             }
         };
 
-        EventLoop loop = toEventLoopAwareNettyIoExecutor(executionContext.ioExecutor()).eventLoopGroup().next();
+        EventLoop loop = eventLoop(toEventLoopAwareNettyIoExecutor(executionContext.ioExecutor()).eventLoopGroup(),
+                config.connectionAffinity());
         if (!(resolvedRemoteAddress instanceof FileDescriptorSocketAddress)) {
             return connectWithBootstrap(localAddress, resolvedRemoteAddress, config, autoRead, loop, handler);
         }
@@ -152,6 +155,16 @@ public final class TcpConnector {
         return initFileDescriptorBasedChannel(config, autoRead, loop, channel, handler);
     }
 
+    private static EventLoop eventLoop(EventLoopGroup group, boolean connectionAffinity) {
+        if (!connectionAffinity) {
+            return group.next();
+        }
+        // When connecting from an event loop of the same group bind the new channel to this event loop, so that
+        // requests issued from this event loop do not need to hop threads to write to the channel.
+        final EventExecutor current = ThreadExecutorMap.currentExecutor();
+        return current instanceof EventLoop && current.parent() == group ? (EventLoop) current : group.next();
+    }
+
     private static ChannelFuture connectWithBootstrap(
             @Nullable SocketAddress localAddress, Object resolvedRemoteAddress, ReadOnlyTcpClientConfig config,
             boolean autoRead, EventLoop loop, ChannelHandler handler) {
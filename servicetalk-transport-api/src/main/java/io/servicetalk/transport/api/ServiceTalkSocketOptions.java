@@ -1,5 +1,5 @@
 /*
- * Copyright © 2018 Apple Inc. and the ServiceTalk project authors
+ * Copyright © 2018-2021 Apple Inc. and the ServiceTalk project authors
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -41,6 +41,37 @@ public final class ServiceTalkSocketOptions {
      */
     public static final SocketOption<Long> IDLE_TIMEOUT = new ServiceTalkSocketOption<>("IDLE_TIMEOUT", Long.class);
 
+    /**
+     * Enables adaptive flushing of writes with the maximum number of writes which are not flushed.
+     * <p>
+     * Writes are flushed right away when the connection is idle, and coalesced into a single flush with the writes of
+     * other tasks that are pending for the connection under load (e.g. pipelined requests), which reduces the number
+     * of system calls. A write which happens more than {@code 1ms} after the oldest unflushed write is always flushed.
+     * This applies to streaming and aggregated requests and responses.
+     */
+    public static final SocketOption<Integer> ADAPTIVE_FLUSH_MAX_PENDING_WRITES =
+            new ServiceTalkSocketOption<>("ADAPTIVE_FLUSH_MAX_PENDING_WRITES", Integer.class);
+
+    /**
+     * Enables an estimation of the number of items to request for writes which is seeded with the item sizes recently
+     * written on the same I/O thread and accounts for the variance of the item sizes.
+     * <p>
+     * This provides a steadier throughput for streams of large or varying items than the default estimation, which
+     * starts from a fixed item size for every write.
+     */
+    public static final SocketOption<Boolean> HISTORY_AWARE_WRITE_DEMAND =
+            new ServiceTalkSocketOption<>("HISTORY_AWARE_WRITE_DEMAND", Boolean.class);
+
+    /**
+     * Binds new client connections to the I/O thread which initiates the connect, if it belongs to the client's
+     * I/O executor. Otherwise, and by default, new connections are spread across all I/O threads.
+     * <p>
+     * This should be enabled together with a load balancer which selects connections affine to the current I/O
+     * thread, otherwise connections accumulate on the I/O threads which issue requests. Servers ignore this option.
+     */
+    public static final SocketOption<Boolean> CONNECTION_AFFINITY =
+            new ServiceTalkSocketOption<>("CONNECTION_AFFINITY", Boolean.class);
+
     private ServiceTalkSocketOptions() {
     }
 
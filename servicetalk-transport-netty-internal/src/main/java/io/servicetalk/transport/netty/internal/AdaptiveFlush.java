@@ -0,0 +1,125 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.transport.netty.internal;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import javax.annotation.Nullable;
+
+import static java.lang.System.nanoTime;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A {@link FlushStrategy} which flushes writes once the tasks that are pending for the connection are processed, after
+ * {@code maxPendingWrites} writes, or when a write happens {@code maxFlushDelay} after the oldest unflushed write,
+ * whichever comes first.
+ * <p>
+ * If the connection is idle the pending tasks complete immediately and each write is flushed right away. Under load,
+ * e.g. with pipelined requests, writes from all tasks pending on the event loop are coalesced into a single flush.
+ */
+final class AdaptiveFlush implements FlushStrategy {
+
+    static final Duration DEFAULT_MAX_FLUSH_DELAY = Duration.ofMillis(1);
+
+    private final int maxPendingWrites;
+    private final long maxFlushDelayNanos;
+
+    AdaptiveFlush(final int maxPendingWrites, final Duration maxFlushDelay) {
+        if (maxPendingWrites <= 0) {
+            throw new IllegalArgumentException("maxPendingWrites: " + maxPendingWrites + " (expected > 0)");
+        }
+        if (requireNonNull(maxFlushDelay).isNegative()) {
+            throw new IllegalArgumentException("maxFlushDelay: " + maxFlushDelay + " (expected >= 0)");
+        }
+        this.maxPendingWrites = maxPendingWrites;
+        this.maxFlushDelayNanos = maxFlushDelay.toNanos();
+    }
+
+    @Override
+    public WriteEventsListener apply(final FlushSender sender) {
+        return new AdaptiveFlushListener(sender, maxPendingWrites, maxFlushDelayNanos);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{maxPendingWrites=" + maxPendingWrites +
+                ", maxFlushDelayNanos=" + maxFlushDelayNanos + '}';
+    }
+
+    private static final class AdaptiveFlushListener implements WriteEventsListener, Runnable {
+        private static final AtomicIntegerFieldUpdater<AdaptiveFlushListener> pendingWritesUpdater =
+                AtomicIntegerFieldUpdater.newUpdater(AdaptiveFlushListener.class, "pendingWrites");
+
+        private final FlushSender sender;
+        private final int maxPendingWrites;
+        private final long maxFlushDelayNanos;
+        /**
+         * {@link System#nanoTime()} of the oldest write which is not yet flushed. Only accessed from
+         * {@link #itemWritten(Object)}, which is not called concurrently.
+         */
+        private long firstPendingWriteNanos;
+        /**
+         * Number of writes which are not yet flushed. A flush is scheduled every time this transitions from {@code 0}
+         * to {@code 1}, so every write is flushed eventually. This field is modified by the scheduled task which may
+         * run concurrently with {@link #itemWritten(Object)}.
+         */
+        private volatile int pendingWrites;
+
+        AdaptiveFlushListener(final FlushSender sender, final int maxPendingWrites, final long maxFlushDelayNanos) {
+            this.sender = sender;
+            this.maxPendingWrites = maxPendingWrites;
+            this.maxFlushDelayNanos = maxFlushDelayNanos;
+        }
+
+        @Override
+        public void writeStarted() {
+        }
+
+        @Override
+        public void itemWritten(@Nullable final Object written) {
+            final int pending = pendingWritesUpdater.incrementAndGet(this);
+            if (pending == 1) {
+                firstPendingWriteNanos = nanoTime();
+                sender.executeLater(this);
+            } else if (pending >= maxPendingWrites || nanoTime() - firstPendingWriteNanos >= maxFlushDelayNanos) {
+                // The scheduled task may be delayed by slow tasks on the event loop while writes keep coming from
+                // another thread, the time bound makes sure these writes are not held back for long.
+                flushPending();
+            }
+        }
+
+        @Override
+        public void writeTerminated() {
+            // Pending writes, if any, are flushed by the scheduled task. This allows writes that follow on the same
+            // connection (e.g. the next pipelined response) to be flushed together with these writes.
+        }
+
+        @Override
+        public void writeCancelled() {
+        }
+
+        @Override
+        public void run() {
+            flushPending();
+        }
+
+        private void flushPending() {
+            if (pendingWritesUpdater.getAndSet(this, 0) > 0) {
+                sender.flush();
+            }
+        }
+    }
+}
@@ -223,7 +223,8 @@ public abstract class ByteToMessageDecoder extends ChannelInboundHandlerAdapter
      * @return the result of the swap and copy operation.
      */
     protected ByteBuf swapAndCopyCumulation(final ByteBuf cumulation, final ByteBuf in) {
-        ByteBuf newCumulation = cumulationAllocator.buffer(cumulationAllocator.calculateNewCapacity(
+        final ByteBufAllocator alloc = cumulationAllocator(cumulation);
+        ByteBuf newCumulation = alloc.buffer(alloc.calculateNewCapacity(
                 cumulation.readableBytes() + in.readableBytes(), MAX_VALUE));
         ByteBuf toRelease = newCumulation;
         try {
@@ -236,6 +237,16 @@ public abstract class ByteToMessageDecoder extends ChannelInboundHandlerAdapter
         }
     }
 
+    /**
+     * Get the {@link ByteBufAllocator} used by {@link #swapAndCopyCumulation(ByteBuf, ByteBuf)} to allocate a new
+     * cumulation. Defaults to the unpooled allocator provided at construction time.
+     * @param cumulation The {@link ByteBuf} that accumulates across socket read operations.
+     * @return the {@link ByteBufAllocator} used to allocate a new cumulation.
+     */
+    protected ByteBufAllocator cumulationAllocator(final ByteBuf cumulation) {
+        return cumulationAllocator;
+    }
+
     /**
      * Resets cumulation.
      */
@@ -1,5 +1,5 @@
 /*
- * Copyright © 2018-2020 Apple Inc. and the ServiceTalk project authors
+ * Copyright © 2018-2021 Apple Inc. and the ServiceTalk project authors
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -112,6 +112,7 @@ public final class DefaultNettyConnection<Read, Write> extends NettyChannelListe
     private final CompletableSource.Processor onClosing;
     private final SingleSource.Processor<Throwable, Throwable> transportError = newSingleProcessor();
     private final FlushStrategyHolder flushStrategyHolder;
+    private final Supplier<WriteDemandEstimator> demandEstimatorSupplier;
     @Nullable
     private final Long idleTimeoutMs;
     private final Protocol protocol;
@@ -142,8 +143,9 @@ public final class DefaultNettyConnection<Read, Write> extends NettyChannelListe
 
     private DefaultNettyConnection(Channel channel, BufferAllocator allocator, Executor executor,
                                    Predicate<Read> terminalPredicate, CloseHandler closeHandler,
-                                   FlushStrategy flushStrategy, @Nullable Long idleTimeoutMs,
-                                   ExecutionStrategy executionStrategy, Protocol protocol,
+                                   FlushStrategy flushStrategy,
+                                   Supplier<WriteDemandEstimator> demandEstimatorSupplier,
+                                   @Nullable Long idleTimeoutMs, ExecutionStrategy executionStrategy, Protocol protocol,
                                    @Nullable SSLSession sslSession, @Nullable ChannelConfig parentChannelConfig,
                                    DataObserver dataObserver, boolean isClient,
                                    UnaryOperator<Throwable> enrichProtocolError) {
@@ -154,6 +156,7 @@ public final class DefaultNettyConnection<Read, Write> extends NettyChannelListe
                 executor, executionStrategy);
         this.closeHandler = requireNonNull(closeHandler);
         this.flushStrategyHolder = new FlushStrategyHolder(flushStrategy);
+        this.demandEstimatorSupplier = requireNonNull(demandEstimatorSupplier);
         this.idleTimeoutMs = idleTimeoutMs;
         if (closeHandler != UNSUPPORTED_PROTOCOL_CLOSE_HANDLER) {
             onClosing = newCompletableProcessor();
@@ -219,9 +222,46 @@ public final class DefaultNettyConnection<Read, Write> extends NettyChannelListe
             ExecutionStrategy executionStrategy, Protocol protocol, @Nullable SSLSession sslSession,
             @Nullable ChannelConfig parentChannelConfig, StreamObserver streamObserver, boolean isClient,
             UnaryOperator<Throwable> enrichProtocolError) {
+        return initChildChannel(channel, allocator, executor, terminalPredicate, closeHandler, flushStrategy,
+                WriteDemandEstimators::newDefaultEstimator, idleTimeoutMs, executionStrategy, protocol, sslSession,
+                parentChannelConfig, streamObserver, isClient, enrichProtocolError);
+    }
+
+    /**
+     * Given a {@link Channel} this will initialize the {@link ChannelPipeline} just to create a
+     * {@link DefaultNettyConnection}. It is assumed this is a child channel and all TLS handshaking is completed.
+     * @param channel A newly created {@link Channel}.
+     * @param allocator The {@link BufferAllocator} to use for the {@link DefaultNettyConnection}.
+     * @param executor The {@link Executor} to use for the {@link DefaultNettyConnection}.
+     * @param terminalPredicate Used to determine which inbound signal on the {@link #read()} stream terminates the
+     * current message framing and will allow a resubscribe to consume the next framing.
+     * @param closeHandler Manages the half closure of the {@link DefaultNettyConnection}.
+     * @param flushStrategy Manages flushing of data for the {@link DefaultNettyConnection}.
+     * @param demandEstimatorSupplier Creates the {@link WriteDemandEstimator} for each {@link #write(Publisher)}.
+     * @param idleTimeoutMs Value for {@link ServiceTalkSocketOptions#IDLE_TIMEOUT IDLE_TIMEOUT} socket option.
+     * @param executionStrategy Used to derive the {@link #executionContext()}.
+     * @param protocol {@link Protocol} for the returned {@link DefaultNettyConnection}.
+     * @param sslSession Provides access to the {@link SSLSession} associated with this connection.
+     * @param parentChannelConfig {@link ChannelConfig} of the parent {@link Channel} to query {@link SocketOption}s.
+     * @param streamObserver {@link StreamObserver} to report internal events.
+     * @param isClient tells if this {@link Channel} is for the client.
+     * @param enrichProtocolError enriches protocol-specific {@link Throwable}s.
+     * @param <Read> Type of objects read from the {@link NettyConnection}.
+     * @param <Write> Type of objects written to the {@link NettyConnection}.
+     * @return A {@link Single} that completes with a {@link DefaultNettyConnection} after the channel is activated and
+     * ready to use.
+     */
+    public static <Read, Write> DefaultNettyConnection<Read, Write> initChildChannel(
+            Channel channel, BufferAllocator allocator, Executor executor, Predicate<Read> terminalPredicate,
+            CloseHandler closeHandler, FlushStrategy flushStrategy,
+            Supplier<WriteDemandEstimator> demandEstimatorSupplier, @Nullable Long idleTimeoutMs,
+            ExecutionStrategy executionStrategy, Protocol protocol, @Nullable SSLSession sslSession,
+            @Nullable ChannelConfig parentChannelConfig, StreamObserver streamObserver, boolean isClient,
+            UnaryOperator<Throwable> enrichProtocolError) {
         DefaultNettyConnection<Read, Write> connection = new DefaultNettyConnection<>(channel, allocator, executor,
-                terminalPredicate, closeHandler, flushStrategy, idleTimeoutMs, executionStrategy, protocol,
-                sslSession, parentChannelConfig, streamObserver.streamEstablished(), isClient, enrichProtocolError);
+                terminalPredicate, closeHandler, flushStrategy, demandEstimatorSupplier, idleTimeoutMs,
+                executionStrategy, protocol, sslSession, parentChannelConfig, streamObserver.streamEstablished(),
+                isClient, enrichProtocolError);
         channel.pipeline().addLast(new NettyToStChannelInboundHandler<>(connection, null,
                 null, false, NoopConnectionObserver.INSTANCE));
         return connection;
@@ -254,6 +294,40 @@ public final class DefaultNettyConnection<Read, Write> extends NettyChannelListe
             CloseHandler closeHandler, FlushStrategy flushStrategy, @Nullable Long idleTimeoutMs,
             ChannelInitializer initializer, ExecutionStrategy executionStrategy, Protocol protocol,
             ConnectionObserver observer, boolean isClient) {
+        return initChannel(channel, allocator, executor, terminalPredicate, closeHandler, flushStrategy,
+                WriteDemandEstimators::newDefaultEstimator, idleTimeoutMs, initializer, executionStrategy, protocol,
+                observer, isClient);
+    }
+
+    /**
+     * Given a {@link Channel} this will initialize the {@link ChannelPipeline} and create a
+     * {@link DefaultNettyConnection}. The resulting single will complete after the TLS handshake has completed
+     * (if applicable) or otherwise after the channel is active and ready to use.
+     * @param channel A newly created {@link Channel}.
+     * @param allocator The {@link BufferAllocator} to use for the {@link DefaultNettyConnection}.
+     * @param executor The {@link Executor} to use for the {@link DefaultNettyConnection}.
+     * @param terminalPredicate Used to determine which inbound signal on the {@link #read()} stream terminates the
+     * current message framing and will allow a resubscribe to consume the next framing.
+     * @param closeHandler Manages the half closure of the {@link DefaultNettyConnection}.
+     * @param flushStrategy Manages flushing of data for the {@link DefaultNettyConnection}.
+     * @param demandEstimatorSupplier Creates the {@link WriteDemandEstimator} for each {@link #write(Publisher)}.
+     * @param idleTimeoutMs Value for {@link ServiceTalkSocketOptions#IDLE_TIMEOUT IDLE_TIMEOUT} socket option.
+     * @param initializer Synchronously initializes the pipeline upon subscribe.
+     * @param executionStrategy {@link ExecutionStrategy} to use for this connection.
+     * @param protocol {@link Protocol} for the returned {@link DefaultNettyConnection}.
+     * @param observer {@link ConnectionObserver} to report network events.
+     * @param isClient tells if this {@link Channel} is for the client.
+     * @param <Read> Type of objects read from the {@link NettyConnection}.
+     * @param <Write> Type of objects written to the {@link NettyConnection}.
+     * @return A {@link Single} that completes with a {@link DefaultNettyConnection} after the channel is activated and
+     * ready to use.
+     */
+    public static <Read, Write> Single<DefaultNettyConnection<Read, Write>> initChannel(
+            Channel channel, BufferAllocator allocator, Executor executor, Predicate<Read> terminalPredicate,
+            CloseHandler closeHandler, FlushStrategy flushStrategy,
+            Supplier<WriteDemandEstimator> demandEstimatorSupplier, @Nullable Long idleTimeoutMs,
+            ChannelInitializer initializer, ExecutionStrategy executionStrategy, Protocol protocol,
+            ConnectionObserver observer, boolean isClient) {
         return new SubscribableSingle<DefaultNettyConnection<Read, Write>>() {
             @Override
             protected void handleSubscribe(
@@ -263,9 +337,9 @@ public final class DefaultNettyConnection<Read, Write> extends NettyChannelListe
                 try {
                     delayedCancellable = new DelayedCancellable();
                     DefaultNettyConnection<Read, Write> connection = new DefaultNettyConnection<>(channel, allocator,
-                            executor, terminalPredicate, closeHandler, flushStrategy, idleTimeoutMs,
-                            executionStrategy, protocol, null, null, NoopDataObserver.INSTANCE, isClient,
-                            identity());
+                            executor, terminalPredicate, closeHandler, flushStrategy, demandEstimatorSupplier,
+                            idleTimeoutMs, executionStrategy, protocol, null, null, NoopDataObserver.INSTANCE,
+                            isClient, identity());
                     channel.attr(CHANNEL_CLOSEABLE_KEY).set(connection);
                     // We need the NettyToStChannelInboundHandler to be last in the pipeline. We accomplish that by
                     // calling the ChannelInitializer before we do addLast for the NettyToStChannelInboundHandler.
@@ -385,7 +459,12 @@ public final class DefaultNettyConnection<Read, Write> extends NettyChannelListe
 
     @Override
     public Completable write(Publisher<Write> write) {
-        return write(write, flushStrategyHolder::currentStrategy, WriteDemandEstimators::newDefaultEstimator);
+        return write(write, flushStrategyHolder::currentStrategy, demandEstimatorSupplier);
+    }
+
+    @Override
+    public WriteDemandEstimator newWriteDemandEstimator() {
+        return demandEstimatorSupplier.get();
     }
 
     @Override
@@ -1,5 +1,5 @@
 /*
- * Copyright © 2018, 2020 Apple Inc. and the ServiceTalk project authors
+ * Copyright © 2018, 2020-2021 Apple Inc. and the ServiceTalk project authors
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,6 +19,7 @@ import io.servicetalk.concurrent.PublisherSource.Subscriber;
 import io.servicetalk.concurrent.PublisherSource.Subscription;
 import io.servicetalk.concurrent.api.Publisher;
 import io.servicetalk.transport.api.ConnectionObserver.WriteObserver;
+import io.servicetalk.transport.netty.internal.FlushStrategy.FlushSender;
 import io.servicetalk.transport.netty.internal.FlushStrategy.WriteEventsListener;
 
 import io.netty.channel.Channel;
@@ -66,12 +67,20 @@ final class Flush {
             this.eventLoop = requireNonNull(channel.eventLoop());
             this.subscriber = requireNonNull(subscriber);
             this.observer = observer;
-            this.writeEventsListener = flushStrategy.apply(() -> {
-                observer.onFlushRequest();
-                if (enqueueFlush) {
-                    eventLoop.execute(channel::flush);
-                } else {
-                    channel.flush();
+            this.writeEventsListener = flushStrategy.apply(new FlushSender() {
+                @Override
+                public void flush() {
+                    observer.onFlushRequest();
+                    if (enqueueFlush) {
+                        eventLoop.execute(channel::flush);
+                    } else {
+                        channel.flush();
+                    }
+                }
+
+                @Override
+                public void executeLater(final Runnable task) {
+                    eventLoop.execute(task);
                 }
             });
         }
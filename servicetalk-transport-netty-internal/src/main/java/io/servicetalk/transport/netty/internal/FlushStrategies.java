@@ -1,5 +1,5 @@
 /*
- * Copyright © 2018 Apple Inc. and the ServiceTalk project authors
+ * Copyright © 2018-2021 Apple Inc. and the ServiceTalk project authors
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,6 +19,9 @@ import io.servicetalk.concurrent.api.Publisher;
 import io.servicetalk.transport.netty.internal.FlushStrategy.FlushSender;
 import io.servicetalk.transport.netty.internal.FlushStrategy.WriteEventsListener;
 
+import java.time.Duration;
+
+import static io.servicetalk.transport.netty.internal.AdaptiveFlush.DEFAULT_MAX_FLUSH_DELAY;
 import static io.servicetalk.transport.netty.internal.FlushOnEach.FLUSH_ON_EACH;
 import static io.servicetalk.transport.netty.internal.FlushOnEnd.FLUSH_ON_END;
 import static java.lang.Integer.MAX_VALUE;
@@ -82,6 +85,60 @@ public final class FlushStrategies {
         return batchFlush(MAX_VALUE, flushBoundaries);
     }
 
+    /**
+     * Creates a {@link FlushStrategy} that will {@link FlushSender#flush() flush writes} once the tasks which are
+     * pending for the connection are processed, or after {@code maxPendingWrites} writes, whichever comes first.
+     * <p>
+     * Writes are flushed right away when the connection is idle, and coalesced with writes from other pending tasks
+     * (e.g. pipelined requests) under load. A write which happens more than {@code 1ms} after the oldest unflushed
+     * write also triggers a flush.
+     *
+     * @param maxPendingWrites Maximum number of writes which are not flushed.
+     * @return A {@link FlushStrategy} that will {@link FlushSender#flush() flush writes} once the tasks which are
+     * pending for the connection are processed, or after {@code maxPendingWrites} writes, whichever comes first.
+     * @see #adaptiveFlush(int, Duration)
+     */
+    public static FlushStrategy adaptiveFlush(int maxPendingWrites) {
+        return adaptiveFlush(maxPendingWrites, DEFAULT_MAX_FLUSH_DELAY);
+    }
+
+    /**
+     * Creates a {@link FlushStrategy} that will {@link FlushSender#flush() flush writes} once the tasks which are
+     * pending for the connection are processed, after {@code maxPendingWrites} writes, or when a write happens
+     * {@code maxFlushDelay} after the oldest unflushed write, whichever comes first.
+     * <p>
+     * Writes are flushed right away when the connection is idle, and coalesced with writes from other pending tasks
+     * (e.g. pipelined requests) under load. {@code maxFlushDelay} bounds how long writes are held back when they are
+     * issued from outside the event loop while it is busy with slow tasks.
+     *
+     * @param maxPendingWrites Maximum number of writes which are not flushed.
+     * @param maxFlushDelay Maximum time between the oldest unflushed write and a following write which does not
+     * trigger a flush.
+     * @return A {@link FlushStrategy} that will {@link FlushSender#flush() flush writes} once the tasks which are
+     * pending for the connection are processed, after {@code maxPendingWrites} writes, or when a write happens
+     * {@code maxFlushDelay} after the oldest unflushed write, whichever comes first.
+     */
+    public static FlushStrategy adaptiveFlush(int maxPendingWrites, Duration maxFlushDelay) {
+        return new AdaptiveFlush(maxPendingWrites, maxFlushDelay);
+    }
+
+    /**
+     * Returns {@code true} if the passed {@link FlushStrategy} is created by {@link #adaptiveFlush(int)} or
+     * {@link #adaptiveFlush(int, Duration)}, or is a {@link DelegatingFlushStrategy} of such a strategy.
+     * <p>
+     * An adaptive strategy already coalesces the writes of a request or response which are done in a single task,
+     * so it can be kept for writes which would otherwise use {@link #flushOnEnd()}.
+     *
+     * @param flushStrategy the {@link FlushStrategy} to check.
+     * @return {@code true} if the passed {@link FlushStrategy} flushes adaptively.
+     */
+    public static boolean isAdaptiveFlush(FlushStrategy flushStrategy) {
+        while (flushStrategy instanceof DelegatingFlushStrategy) {
+            flushStrategy = ((DelegatingFlushStrategy) flushStrategy).delegate();
+        }
+        return flushStrategy instanceof AdaptiveFlush;
+    }
+
     /**
      * Creates a {@link FlushStrategy} that will {@link FlushSender#flush() flush writes} when
      * {@link WriteEventsListener#writeTerminated()} is called on the {@link WriteEventsListener} returned from
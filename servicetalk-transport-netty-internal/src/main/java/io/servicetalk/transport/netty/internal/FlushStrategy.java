@@ -1,5 +1,5 @@
 /*
- * Copyright © 2018 Apple Inc. and the ServiceTalk project authors
+ * Copyright © 2018-2021 Apple Inc. and the ServiceTalk project authors
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -56,6 +56,18 @@ public interface FlushStrategy {
          * {@link WriteEventsListener}.
          */
         void flush();
+
+        /**
+         * Executes the passed {@code task} after the tasks which are already pending for the associated connection.
+         * This allows a {@link FlushStrategy} to {@link #flush()} writes from those tasks together.
+         * <p>
+         * The default implementation executes the {@code task} immediately.
+         *
+         * @param task the task to execute.
+         */
+        default void executeLater(Runnable task) {
+            task.run();
+        }
     }
 
     /**
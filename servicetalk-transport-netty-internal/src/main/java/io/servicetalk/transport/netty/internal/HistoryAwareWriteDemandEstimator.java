@@ -0,0 +1,132 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.transport.netty.internal;
+
+import io.netty.util.concurrent.FastThreadLocal;
+
+import javax.annotation.Nullable;
+
+import static io.servicetalk.transport.netty.internal.OverlappingCapacityAwareEstimator.SizeEstimator.defaultEstimator;
+import static java.lang.Math.max;
+import static java.lang.Math.sqrt;
+
+/**
+ * A {@link WriteDemandEstimator} which tracks an exponentially weighted mean and variance of the written item sizes.
+ * <p>
+ * New estimators are seeded with the sizes recently written by other estimators on the same thread, which is the
+ * {@link io.netty.channel.EventLoop} of the channel, so new streams do not start from a fixed guess of the item size.
+ * The number of requested items is based on the mean plus one standard deviation, which avoids overshooting the write
+ * buffer capacity for streams of items with varying sizes and reduces the oscillation between writable and unwritable
+ * channel states.
+ */
+final class HistoryAwareWriteDemandEstimator extends OverlappingCapacityAwareEstimator {
+    private static final double WEIGHT_NEW = 1 / 5d;
+    /**
+     * The history is shared by all estimators of an event loop, so it moves slower than a single estimator.
+     */
+    private static final double HISTORY_WEIGHT_NEW = 1 / 32d;
+    private static final double DEFAULT_SIZE = 1024;
+    private static final FastThreadLocal<SizeHistory> HISTORY = new FastThreadLocal<SizeHistory>() {
+        @Override
+        protected SizeHistory initialValue() {
+            return new SizeHistory(DEFAULT_SIZE);
+        }
+    };
+
+    @Nullable
+    private SizeHistory history;
+    private double mean;
+    private double variance;
+
+    HistoryAwareWriteDemandEstimator() {
+        // The estimator may be created on any thread, the history is resolved when it is first used on the event loop.
+        super(defaultEstimator());
+    }
+
+    HistoryAwareWriteDemandEstimator(final SizeHistory history) {
+        super(defaultEstimator());
+        seed(history);
+    }
+
+    @Override
+    protected void recordSize(final Object written, final long sizeInBytes) {
+        history().record(sizeInBytes);
+        final double diff = sizeInBytes - mean;
+        final double increment = WEIGHT_NEW * diff;
+        mean += increment;
+        variance = (1 - WEIGHT_NEW) * (variance + diff * increment);
+    }
+
+    @Override
+    protected long getRequestNForCapacity(final long capacityToFill) {
+        history();
+        return (long) (capacityToFill / max(1d, mean + sqrt(variance)));
+    }
+
+    double mean() {
+        return mean;
+    }
+
+    double variance() {
+        return variance;
+    }
+
+    private SizeHistory history() {
+        SizeHistory history = this.history;
+        if (history == null) {
+            history = HISTORY.get();
+            seed(history);
+        }
+        return history;
+    }
+
+    private void seed(final SizeHistory history) {
+        this.history = history;
+        mean = history.mean;
+        variance = history.variance;
+    }
+
+    /**
+     * The sizes written by all estimators which share this history. Not thread-safe, it must only be used from a
+     * single thread.
+     */
+    static final class SizeHistory {
+        private double mean;
+        private double variance;
+
+        SizeHistory(final double mean) {
+            if (mean <= 0) {
+                throw new IllegalArgumentException("mean: " + mean + " (expected >0)");
+            }
+            this.mean = mean;
+        }
+
+        void record(final long sizeInBytes) {
+            final double diff = sizeInBytes - mean;
+            final double increment = HISTORY_WEIGHT_NEW * diff;
+            mean += increment;
+            variance = (1 - HISTORY_WEIGHT_NEW) * (variance + diff * increment);
+        }
+
+        double mean() {
+            return mean;
+        }
+
+        double variance() {
+            return variance;
+        }
+    }
+}
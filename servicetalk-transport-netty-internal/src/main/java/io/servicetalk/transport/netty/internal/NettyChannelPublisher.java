@@ -1,5 +1,5 @@
 /*
- * Copyright © 2018, 2020 Apple Inc. and the ServiceTalk project authors
+ * Copyright © 2018, 2020-2021 Apple Inc. and the ServiceTalk project authors
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -15,6 +15,7 @@
  */
 package io.servicetalk.transport.netty.internal;
 
+import io.servicetalk.buffer.api.Buffer;
 import io.servicetalk.concurrent.api.internal.SubscribablePublisher;
 import io.servicetalk.concurrent.internal.DuplicateSubscribeException;
 import io.servicetalk.concurrent.internal.TerminalNotification;
@@ -28,6 +29,7 @@ import java.util.Queue;
 import java.util.function.Predicate;
 import javax.annotation.Nullable;
 
+import static io.servicetalk.buffer.netty.BufferUtils.release;
 import static io.servicetalk.concurrent.internal.FlowControlUtils.addWithOverflowProtection;
 import static io.servicetalk.concurrent.internal.SubscriberUtils.deliverErrorFromSource;
 import static io.servicetalk.concurrent.internal.SubscriberUtils.isRequestNValid;
@@ -95,7 +97,7 @@ final class NettyChannelPublisher<T> extends SubscribablePublisher<T> {
         } finally {
             // We do not expect ref-counted objects here as ST does not support them and do not take care to clean them
             // in error conditions. Hence we fail-fast when we see such objects.
-            pending = null;
+            releasePending();
             if (fatalError == null) {
                 fatalError = new IllegalArgumentException("Reference counted leaked netty's pipeline. Object: " +
                         data.getClass().getSimpleName());
@@ -256,7 +258,7 @@ final class NettyChannelPublisher<T> extends SubscribablePublisher<T> {
 
         // If a cancel occurs with a valid subscription we need to clear any pending data and set a fatalError so that
         // any future Subscribers don't get partial data delivered from the queue.
-        pending = null;
+        releasePending();
         if (fatalError == null) {
             fatalError = StacklessClosedChannelException.newInstance(NettyChannelPublisher.class, "cancel");
         }
@@ -287,6 +289,20 @@ final class NettyChannelPublisher<T> extends SubscribablePublisher<T> {
         pending.add(p);
     }
 
+    private void releasePending() {
+        final Queue<Object> pending = this.pending;
+        this.pending = null;
+        if (pending != null) {
+            // Buffers read in pooled mode are owned by the Subscriber which will never see them, release is a noop for
+            // unpooled Buffers.
+            for (Object p : pending) {
+                if (p instanceof Buffer) {
+                    release((Buffer) p);
+                }
+            }
+        }
+    }
+
     private boolean shouldBuffer() {
         return (pending != null && !pending.isEmpty()) || requestCount == 0;
     }
@@ -1,5 +1,5 @@
 /*
- * Copyright © 2018 Apple Inc. and the ServiceTalk project authors
+ * Copyright © 2018-2021 Apple Inc. and the ServiceTalk project authors
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -70,4 +70,14 @@ public interface NettyConnection<Read, Write> extends NettyConnectionContext {
     Completable write(Publisher<Write> write,
                       Supplier<FlushStrategy> flushStrategySupplier,
                       Supplier<WriteDemandEstimator> demandEstimatorSupplier);
+
+    /**
+     * Creates a new {@link WriteDemandEstimator} as configured for this connection, which is used by
+     * {@link #write(Publisher)}.
+     *
+     * @return A new {@link WriteDemandEstimator}.
+     */
+    default WriteDemandEstimator newWriteDemandEstimator() {
+        return WriteDemandEstimators.newDefaultEstimator();
+    }
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ * Copyright © 2020-2021 Apple Inc. and the ServiceTalk project authors
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -31,4 +31,17 @@ public final class WriteDemandEstimators {
     public static WriteDemandEstimator newDefaultEstimator() {
         return new EWMAWriteDemandEstimator();
     }
+
+    /**
+     * Returns a new instance of a {@link WriteDemandEstimator} which is seeded with the item sizes recently written on
+     * the same event loop and accounts for the variance of the item sizes.
+     * <p>
+     * This estimator provides a steadier request-n for streams of large or varying items than
+     * {@link #newDefaultEstimator()}, which starts from a fixed item size for every write.
+     *
+     * @return A new instance of a history aware {@link WriteDemandEstimator}.
+     */
+    public static WriteDemandEstimator newHistoryAwareEstimator() {
+        return new HistoryAwareWriteDemandEstimator();
+    }
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright © 2018-2019 Apple Inc. and the ServiceTalk project authors
+ * Copyright © 2018-2021 Apple Inc. and the ServiceTalk project authors
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -24,12 +24,26 @@ import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import java.util.ArrayDeque;
+import java.util.Queue;
+
 import static io.servicetalk.concurrent.internal.DeliberateException.DELIBERATE_EXCEPTION;
+import static io.servicetalk.transport.netty.internal.FlushStrategies.adaptiveFlush;
 import static io.servicetalk.transport.netty.internal.FlushStrategies.flushOnEach;
 import static io.servicetalk.transport.netty.internal.FlushStrategies.flushOnEnd;
 import static io.servicetalk.transport.netty.internal.FlushStrategies.flushWith;
+import static io.servicetalk.transport.netty.internal.FlushStrategies.isAdaptiveFlush;
+import static java.time.Duration.ZERO;
+import static java.time.Duration.ofDays;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 
@@ -164,6 +178,86 @@ public class FlushStrategiesTest {
         assertTrue(subscription.isCancelled());
     }
 
+    @Test
+    public void testAdaptiveFlushAfterPendingTasks() {
+        final Queue<Runnable> tasks = captureExecuteLater();
+        setupFor(adaptiveFlush(5, ofDays(1)));
+        listener.itemWritten(1);
+        listener.itemWritten(2);
+        listener.writeTerminated();
+        verify(flushSender, never()).flush();
+        assertThat(tasks, hasSize(1));
+        tasks.poll().run();
+        verify(flushSender).flush();
+    }
+
+    @Test
+    public void testAdaptiveFlushOnMaxPendingWrites() {
+        final Queue<Runnable> tasks = captureExecuteLater();
+        setupFor(adaptiveFlush(2, ofDays(1)));
+        listener.itemWritten(1);
+        listener.itemWritten(2);
+        verify(flushSender).flush();
+        listener.itemWritten(3);
+        assertThat(tasks, hasSize(2));
+        tasks.poll().run();
+        verify(flushSender, times(2)).flush();
+        tasks.poll().run();
+        verify(flushSender, times(2)).flush();
+    }
+
+    @Test
+    public void testAdaptiveFlushReschedulesAfterFlush() {
+        final Queue<Runnable> tasks = captureExecuteLater();
+        setupFor(adaptiveFlush(5, ofDays(1)));
+        listener.itemWritten(1);
+        tasks.poll().run();
+        verify(flushSender).flush();
+        listener.itemWritten(2);
+        assertThat(tasks, hasSize(1));
+        tasks.poll().run();
+        verify(flushSender, times(2)).flush();
+    }
+
+    @Test
+    public void testAdaptiveFlushOnMaxFlushDelay() {
+        final Queue<Runnable> tasks = captureExecuteLater();
+        setupFor(adaptiveFlush(5, ZERO));
+        listener.itemWritten(1);
+        verify(flushSender, never()).flush();
+        // The scheduled task did not run yet, the second write is past the delay and flushes.
+        listener.itemWritten(2);
+        verify(flushSender).flush();
+        assertThat(tasks, hasSize(1));
+        tasks.poll().run();
+        verify(flushSender).flush();
+    }
+
+    @Test
+    public void testIsAdaptiveFlush() {
+        assertThat(isAdaptiveFlush(adaptiveFlush(5)), is(true));
+        assertThat(isAdaptiveFlush(adaptiveFlush(5, ofDays(1))), is(true));
+        assertThat(isAdaptiveFlush(new DelegatingFlushStrategy(adaptiveFlush(5))), is(true));
+        assertThat(isAdaptiveFlush(flushOnEnd()), is(false));
+        assertThat(isAdaptiveFlush(flushOnEach()), is(false));
+    }
+
+    @Test
+    public void testAdaptiveFlushWithDefaultExecuteLater() {
+        // The default executeLater runs the task immediately, so each write is flushed.
+        listener = adaptiveFlush(5).apply(() -> flushSender.flush());
+        listener.writeStarted();
+        listener.itemWritten(1);
+        listener.itemWritten(2);
+        verifyFlush(2);
+    }
+
+    private Queue<Runnable> captureExecuteLater() {
+        final Queue<Runnable> tasks = new ArrayDeque<>();
+        doAnswer(invocation -> tasks.add(invocation.getArgument(0))).when(flushSender).executeLater(any());
+        return tasks;
+    }
+
     private void setupFor(FlushStrategy strategy) {
         listener = strategy.apply(flushSender);
         listener.writeStarted();
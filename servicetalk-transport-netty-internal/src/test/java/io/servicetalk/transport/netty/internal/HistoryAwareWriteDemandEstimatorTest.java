@@ -0,0 +1,89 @@
+/*
+ * Copyright © 2021 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.transport.netty.internal;
+
+import io.servicetalk.transport.netty.internal.HistoryAwareWriteDemandEstimator.SizeHistory;
+
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+
+public class HistoryAwareWriteDemandEstimatorTest {
+    private static final String DUMMY_OBJECT = "dummy";
+
+    @Test
+    public void seededFromHistory() {
+        HistoryAwareWriteDemandEstimator estimator = new HistoryAwareWriteDemandEstimator(new SizeHistory(100));
+        assertThat("Unexpected requestN.", estimator.estimateRequestN(1000), is(10L));
+    }
+
+    @Test
+    public void atLeastOneRequestedWithLowCapacity() {
+        HistoryAwareWriteDemandEstimator estimator = new HistoryAwareWriteDemandEstimator(new SizeHistory(100));
+        assertThat("Unexpected requestN.", estimator.estimateRequestN(10), is(1L));
+    }
+
+    @Test
+    public void writesUpdateSharedHistory() {
+        SizeHistory history = new SizeHistory(100);
+        HistoryAwareWriteDemandEstimator first = new HistoryAwareWriteDemandEstimator(history);
+        for (int i = 0; i < 10; ++i) {
+            first.onItemWrite(DUMMY_OBJECT, 10000, 9000);
+        }
+        assertThat("Unexpected history mean.", history.mean(), is(greaterThan(100d)));
+        assertThat("History should move slower than the estimator.", history.mean(), is(lessThan(first.mean())));
+
+        HistoryAwareWriteDemandEstimator second = new HistoryAwareWriteDemandEstimator(history);
+        assertThat("Unexpected seed mean.", second.mean(), is(history.mean()));
+        assertThat("Unexpected seed variance.", second.variance(), is(history.variance()));
+    }
+
+    @Test
+    public void varianceReducesDemand() {
+        HistoryAwareWriteDemandEstimator estimator = new HistoryAwareWriteDemandEstimator(new SizeHistory(100));
+        for (int i = 0; i < 100; ++i) {
+            estimator.onItemWrite(DUMMY_OBJECT, 1000, i % 2 == 0 ? 950 : 850);
+        }
+        assertThat("Unexpected mean.", estimator.mean(), is(closeTo(100, 10)));
+        assertThat("Unexpected variance.", estimator.variance(), is(greaterThan(1000d)));
+        assertThat("Unexpected requestN.", estimator.estimateRequestN(1500), is(lessThan(15L)));
+    }
+
+    @Test
+    public void constantSizesConverge() {
+        HistoryAwareWriteDemandEstimator estimator = new HistoryAwareWriteDemandEstimator(new SizeHistory(1024));
+        for (int i = 0; i < 100; ++i) {
+            estimator.onItemWrite(DUMMY_OBJECT, 1000, 900);
+        }
+        assertThat("Unexpected mean.", estimator.mean(), is(closeTo(100, 1)));
+        assertThat("Unexpected variance.", estimator.variance(), is(closeTo(0, 1)));
+        assertThat("Unexpected requestN.", estimator.estimateRequestN(1000), is(9L));
+    }
+
+    @Test
+    public void defaultSharesHistoryOfThread() {
+        HistoryAwareWriteDemandEstimator first = new HistoryAwareWriteDemandEstimator();
+        for (int i = 0; i < 10; ++i) {
+            first.onItemWrite(DUMMY_OBJECT, 100000, 0);
+        }
+        HistoryAwareWriteDemandEstimator second = new HistoryAwareWriteDemandEstimator();
+        assertThat("Unexpected requestN.", second.getRequestNForCapacity(1024), is(0L));
+    }
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright © 2018-2019 Apple Inc. and the ServiceTalk project authors
+ * Copyright © 2018-2019, 2021 Apple Inc. and the ServiceTalk project authors
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -31,6 +31,7 @@ import org.junit.rules.Timeout;
 import java.util.concurrent.TimeUnit;
 
 import static io.servicetalk.buffer.netty.BufferAllocators.DEFAULT_ALLOCATOR;
+import static io.servicetalk.buffer.netty.BufferUtils.newBufferFrom;
 import static io.servicetalk.concurrent.api.Executors.immediate;
 import static io.servicetalk.concurrent.api.SourceAdapters.toSource;
 import static io.servicetalk.concurrent.internal.ServiceTalkTestTimeout.DEFAULT_TIMEOUT_SECONDS;
@@ -76,4 +77,14 @@ public class NettyChannelPublisherRefCountTest {
         assertThat("Buffer not released.", buffer.refCnt(), is(0));
         assertThat("Channel not closed post ref count leaked.", channel.closeFuture().isDone(), is(true));
     }
+
+    @Test
+    public void testPendingBuffersReleasedOnCancel() {
+        toSource(publisher).subscribe(subscriber);
+        ByteBuf buffer = channel.alloc().buffer().writeByte(1);
+        channel.writeInbound(newBufferFrom(buffer));
+        assertThat("Buffer released before cancel.", buffer.refCnt(), is(1));
+        subscriber.awaitSubscription().cancel();
+        assertThat("Pending buffer not released.", buffer.refCnt(), is(0));
+    }
 }